@@ -0,0 +1,32 @@
+package com.project.househealth.alerting;
+
+import com.project.househealth.enums.NotificationType;
+import com.project.househealth.event.ReadingAlertEvent;
+import com.project.househealth.notification.NotificationFanout;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes threshold alerts to the family observers of the reading's owner.
+ * The fan-out holds them until the write commits, so the recipient lookup
+ * stays off the ingestion path, all alerts of a batch share one lookup,
+ * and readings that roll back never alert anyone.
+ */
+@Component
+public class ReadingAlertNotifier {
+
+    private final NotificationFanout notificationFanout;
+
+    public ReadingAlertNotifier(NotificationFanout notificationFanout) {
+        this.notificationFanout = notificationFanout;
+    }
+
+    @EventListener
+    public void onReadingAlert(ReadingAlertEvent event) {
+        String message = String.format("Reading %d (%s%s) is out of range (breaches %s)",
+                event.logId(), event.metricType(),
+                event.sugarType() != null ? " " + event.sugarType() : "",
+                Integer.toBinaryString(event.breaches()));
+        notificationFanout.notifyObservers(event.userId(), NotificationType.READING_ALERT, message);
+    }
+}
@@ -0,0 +1,175 @@
+package com.project.househealth.alerting;
+
+import com.project.househealth.dto.ThresholdLimits;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.event.ReadingThresholdsChangedEvent;
+import com.project.househealth.repositories.ReadingThresholdsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks readings against per-user thresholds on the write path.
+ *
+ * Thresholds are compiled once, when loaded or changed, into a flat int[]
+ * of low/high pairs: systolic, diastolic, then one pair per SugarType in
+ * ordinal order. Evaluating a reading is a map lookup and a few integer
+ * comparisons and allocates nothing. Users without saved thresholds share
+ * the compiled defaults.
+ *
+ * Rules are loaded per user on first use and cached for up to
+ * househealth.thresholds.cache-size users. A user's rules are dropped after a
+ * transaction that changed their thresholds commits, and a load that
+ * overlapped such a drop is returned but not cached. Those drops are only
+ * heard on the node that made the change, so every entry is also reloaded
+ * once it is older than househealth.thresholds.ttl; that bounds how long
+ * another node can alert on thresholds changed elsewhere.
+ */
+@Component
+public class ThresholdEvaluator {
+
+    public static final int SYSTOLIC_LOW = 1;
+    public static final int SYSTOLIC_HIGH = 1 << 1;
+    public static final int DIASTOLIC_LOW = 1 << 2;
+    public static final int DIASTOLIC_HIGH = 1 << 3;
+    public static final int SUGAR_LOW = 1 << 4;
+    public static final int SUGAR_HIGH = 1 << 5;
+
+    private static final int SYSTOLIC = 0;
+    private static final int DIASTOLIC = 2;
+    private static final int SUGAR = 4;
+    private static final int RULE_LENGTH = SUGAR + 2 * SugarType.values().length;
+
+    private static final int[] DEFAULT_RULES = compile(ThresholdLimits.DEFAULTS);
+
+    private record CompiledRules(int[] rules, long expiresAtMillis) {}
+
+    private final ReadingThresholdsRepository readingThresholdsRepository;
+    private final Clock clock;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<Long, CompiledRules> rulesByUser = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; rules loaded across an invalidation are not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ThresholdEvaluator(ReadingThresholdsRepository readingThresholdsRepository,
+                              @Value("${househealth.thresholds.cache-size:100000}") int maxSize,
+                              @Value("${househealth.thresholds.ttl:PT5M}") Duration ttl) {
+        this(readingThresholdsRepository, maxSize, ttl, Clock.systemUTC());
+    }
+
+    ThresholdEvaluator(ReadingThresholdsRepository readingThresholdsRepository, int maxSize, Duration ttl,
+                       Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Threshold cache needs room for at least one user");
+        }
+        this.readingThresholdsRepository = readingThresholdsRepository;
+        this.clock = clock;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * @return the breached bits, 0 when the reading is within range
+     */
+    public int evaluate(HealthLog healthLog) {
+        return evaluate(rulesFor(healthLog.getUser().getUserId()), healthLog.getMetricType(),
+                healthLog.getSugarType(), healthLog.getSystolic(), healthLog.getDiastolic(),
+                healthLog.getSugarValue());
+    }
+
+    int[] rulesFor(Long userId) {
+        long now = clock.millis();
+        CompiledRules cached = rulesByUser.get(userId);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            return cached.rules();
+        }
+
+        long stamp = invalidations.get();
+        int[] rules = readingThresholdsRepository.findByUser_UserId(userId)
+                .map(thresholds -> compile(thresholds.getLimits()))
+                .orElse(DEFAULT_RULES);
+        makeRoom(now);
+        // Invalidations bump the stamp before removing, so one racing this put always removes what it put
+        rulesByUser.compute(userId, (id, current) ->
+                invalidations.get() == stamp ? new CompiledRules(rules, now + ttlMillis) : current);
+        return rules;
+    }
+
+    // Drops expired entries once the cache is full, then arbitrary ones while it still is
+    private void makeRoom(long now) {
+        if (rulesByUser.size() < maxSize) {
+            return;
+        }
+        rulesByUser.values().removeIf(cached -> cached.expiresAtMillis() <= now);
+        for (Long userId : rulesByUser.keySet()) {
+            if (rulesByUser.size() < maxSize) {
+                break;
+            }
+            rulesByUser.remove(userId);
+        }
+    }
+
+    int size() {
+        return rulesByUser.size();
+    }
+
+    static int evaluate(int[] rules, MetricType metricType, SugarType sugarType,
+                        Integer systolic, Integer diastolic, Integer sugarValue) {
+        if (metricType == MetricType.BP) {
+            return check(rules, SYSTOLIC, systolic, SYSTOLIC_LOW, SYSTOLIC_HIGH)
+                    | check(rules, DIASTOLIC, diastolic, DIASTOLIC_LOW, DIASTOLIC_HIGH);
+        }
+        if (sugarType == null) {
+            return 0;
+        }
+        return check(rules, SUGAR + 2 * sugarType.ordinal(), sugarValue, SUGAR_LOW, SUGAR_HIGH);
+    }
+
+    private static int check(int[] rules, int offset, Integer value, int lowBit, int highBit) {
+        if (value == null) {
+            return 0;
+        }
+        int v = value;
+        if (v < rules[offset]) {
+            return lowBit;
+        }
+        return v > rules[offset + 1] ? highBit : 0;
+    }
+
+    static int[] compile(ThresholdLimits limits) {
+        ThresholdLimits effective = limits.withDefaults();
+        int[] rules = new int[RULE_LENGTH];
+        rules[SYSTOLIC] = effective.systolicLow();
+        rules[SYSTOLIC + 1] = effective.systolicHigh();
+        rules[DIASTOLIC] = effective.diastolicLow();
+        rules[DIASTOLIC + 1] = effective.diastolicHigh();
+        rules[SUGAR + 2 * SugarType.FASTING.ordinal()] = effective.fastingSugarLow();
+        rules[SUGAR + 2 * SugarType.FASTING.ordinal() + 1] = effective.fastingSugarHigh();
+        rules[SUGAR + 2 * SugarType.POST_MEAL.ordinal()] = effective.postMealSugarLow();
+        rules[SUGAR + 2 * SugarType.POST_MEAL.ordinal() + 1] = effective.postMealSugarHigh();
+        return rules;
+    }
+
+    public void invalidate(Long userId) {
+        invalidations.incrementAndGet();
+        rulesByUser.remove(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onThresholdsChanged(ReadingThresholdsChangedEvent event) {
+        invalidate(event.userId());
+    }
+}
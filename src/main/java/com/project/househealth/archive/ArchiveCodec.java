@@ -0,0 +1,169 @@
+package com.project.househealth.archive;
+
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.PackedReading;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Row format of an archive file, written inside a deflate stream. Readings
+ * are sorted by (measuredAt, logId) and every numeric column is stored as a
+ * zigzag varint delta from the previous row, so a regular series of readings
+ * costs a few bytes per row before compression:
+ *
+ *   magic, version, row count
+ *   per row: logId delta, measuredAt delta (micros), loggedAt - measuredAt (micros),
+ *            type byte (metric code | (sugar code + 1) << 4),
+ *            value deltas (systolic and diastolic, or sugar value),
+ *            reading key (length + 1, then UTF-8; 0 when absent)
+ */
+final class ArchiveCodec {
+
+    private static final int MAGIC = 0x484C41; // "HLA"
+    private static final int VERSION = 1;
+
+    private ArchiveCodec() {}
+
+    static void write(List<HealthLog> readings, OutputStream out) throws IOException {
+
+        writeVarint(out, MAGIC);
+        writeVarint(out, VERSION);
+        writeVarint(out, readings.size());
+
+        long logId = 0;
+        long measuredAt = 0;
+        int systolic = 0;
+        int diastolic = 0;
+        int sugar = 0;
+        for (HealthLog reading : readings) {
+            long micros = micros(reading.getMeasuredAt());
+            writeVarint(out, zigzag(reading.getLogId() - logId));
+            writeVarint(out, zigzag(micros - measuredAt));
+            writeVarint(out, zigzag(micros(reading.getLoggedAt()) - micros));
+            logId = reading.getLogId();
+            measuredAt = micros;
+
+            int sugarCode = reading.getSugarType() == null ? 0 : reading.getSugarType().code() + 1;
+            out.write(reading.getMetricType().code() | sugarCode << 4);
+
+            int packed = reading.getReadingValue();
+            if (reading.getMetricType() == MetricType.BP) {
+                writeVarint(out, zigzag(PackedReading.systolic(packed) - systolic));
+                writeVarint(out, zigzag(PackedReading.diastolic(packed) - diastolic));
+                systolic = PackedReading.systolic(packed);
+                diastolic = PackedReading.diastolic(packed);
+            } else {
+                writeVarint(out, zigzag((long) packed - sugar));
+                sugar = packed;
+            }
+
+            if (reading.getReadingKey() == null) {
+                writeVarint(out, 0);
+            } else {
+                byte[] key = reading.getReadingKey().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, key.length + 1);
+                out.write(key);
+            }
+        }
+    }
+
+    static List<HealthLog> read(InputStream in, User user) throws IOException {
+
+        if (readVarint(in) != MAGIC || readVarint(in) != VERSION) {
+            throw new IOException("Not a health log archive");
+        }
+        int rows = (int) readVarint(in);
+
+        List<HealthLog> readings = new ArrayList<>(rows);
+        long logId = 0;
+        long measuredAt = 0;
+        int systolic = 0;
+        int diastolic = 0;
+        int sugar = 0;
+        for (int i = 0; i < rows; i++) {
+            logId += unzigzag(readVarint(in));
+            measuredAt += unzigzag(readVarint(in));
+            long loggedAt = measuredAt + unzigzag(readVarint(in));
+
+            int type = readByte(in);
+            MetricType metricType = MetricType.fromCode(type & 0x0F);
+            int sugarCode = type >>> 4;
+            SugarType sugarType = sugarCode == 0 ? null : SugarType.fromCode(sugarCode - 1);
+
+            int packed;
+            if (metricType == MetricType.BP) {
+                systolic += (int) unzigzag(readVarint(in));
+                diastolic += (int) unzigzag(readVarint(in));
+                packed = PackedReading.bloodPressure(systolic, diastolic);
+            } else {
+                sugar += (int) unzigzag(readVarint(in));
+                packed = sugar;
+            }
+
+            String readingKey = null;
+            int keyLength = (int) readVarint(in);
+            if (keyLength > 0) {
+                readingKey = new String(in.readNBytes(keyLength - 1), StandardCharsets.UTF_8);
+            }
+
+            readings.add(HealthLog.archived(logId, metricType, sugarType, packed,
+                    instant(loggedAt), instant(measuredAt), readingKey, user));
+        }
+        return readings;
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static Instant instant(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in archive");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated archive");
+        }
+        return b;
+    }
+}
@@ -0,0 +1,225 @@
+package com.project.househealth.archive;
+
+import com.project.househealth.dto.HealthLogCursor;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cold storage for readings moved out of health_logs: one compressed file
+ * per user and measurement month (UTC), under {@code <dir>/<userId>/<yyyy-MM>.hla}.
+ * Files are replaced atomically, so readers never see a partial write, and
+ * are on disk, directory entry included, before write returns.
+ * Archived readings come back as detached HealthLog objects.
+ */
+@Component
+public class HealthLogArchive {
+
+    public static final Comparator<HealthLog> NEWEST_FIRST =
+            Comparator.comparing(HealthLog::getMeasuredAt).thenComparing(HealthLog::getLogId).reversed();
+
+    public static final Comparator<HealthLog> OLDEST_FIRST =
+            Comparator.comparing(HealthLog::getMeasuredAt).thenComparing(HealthLog::getLogId);
+
+    private static final String SUFFIX = ".hla";
+
+    // A directory's modification time may not move for a file added within the same tick
+    private static final Duration MTIME_GRANULARITY = Duration.ofSeconds(2);
+
+    private final Path directory;
+
+    // userId -> archived months as of the user directory's modification time
+    private final Map<Long, MonthListing> monthListings = new ConcurrentHashMap<>();
+
+    private record MonthListing(FileTime modified, List<YearMonth> months) {}
+
+    public HealthLogArchive(@Value("${househealth.archive.dir:data/archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    public static YearMonth monthOf(Instant measuredAt) {
+        return YearMonth.from(measuredAt.atOffset(ZoneOffset.UTC));
+    }
+
+    /*
+     * Adds readings to the archive file of their month. A month can be
+     * written more than once, e.g. when a late reading lands in an already
+     * archived month, so new readings are merged with what is there; a
+     * reading archived twice (same logId) is kept once. The temp file is
+     * forced before it is renamed over the month file and the directory is
+     * forced after, so once this returns the caller may delete the rows.
+     */
+    public void write(Long userId, YearMonth month, List<HealthLog> readings) {
+
+        Map<Long, HealthLog> merged = new LinkedHashMap<>();
+        User user = readings.isEmpty() ? null : readings.get(0).getUser();
+        for (HealthLog existing : read(user, userId, month)) {
+            merged.put(existing.getLogId(), existing);
+        }
+        for (HealthLog reading : readings) {
+            merged.put(reading.getLogId(), reading);
+        }
+        List<HealthLog> sorted = new ArrayList<>(merged.values());
+        sorted.sort(OLDEST_FIRST);
+
+        Path file = file(userId, month);
+        try {
+            Path userDirectory = file.getParent();
+            if (!Files.isDirectory(userDirectory)) {
+                Files.createDirectories(userDirectory);
+                force(userDirectory.getParent());
+            }
+            Path temp = Files.createTempFile(userDirectory, month.toString(), ".tmp");
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    DeflaterOutputStream out = new DeflaterOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel)), deflater, 64 * 1024);
+                    ArchiveCodec.write(sorted, out);
+                    out.finish();
+                    out.flush();
+                    channel.force(true);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                force(userDirectory);
+            } finally {
+                deflater.end();
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write archive " + file, ex);
+        }
+    }
+
+    // Makes a rename or a new entry in the directory durable
+    private static void force(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public List<HealthLog> read(User user, Long userId, YearMonth month) {
+        Path file = file(userId, month);
+        try (InputStream in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return ArchiveCodec.read(in, user);
+        } catch (NoSuchFileException ex) {
+            return List.of();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read archive " + file, ex);
+        }
+    }
+
+    /*
+     * Archived months of a user, newest first. The listing is cached against
+     * the user directory's modification time, which moves whenever a month
+     * file is added or replaced by any node sharing the directory, so a
+     * repeat call costs one stat instead of a directory scan.
+     */
+    public List<YearMonth> months(Long userId) {
+        Path userDirectory = directory.resolve(userId.toString());
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(userDirectory);
+        } catch (NoSuchFileException ex) {
+            return List.of();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not stat archive " + userDirectory, ex);
+        }
+
+        MonthListing cached = monthListings.get(userId);
+        if (cached != null && cached.modified().equals(modified)) {
+            return cached.months();
+        }
+        List<YearMonth> months = list(userDirectory);
+        if (modified.toInstant().isBefore(Instant.now().minus(MTIME_GRANULARITY))) {
+            monthListings.put(userId, new MonthListing(modified, months));
+        }
+        return months;
+    }
+
+    private static List<YearMonth> list(Path userDirectory) {
+        List<YearMonth> months = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(userDirectory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (DateTimeParseException ignored) {
+                    // not an archive file
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not list archive " + userDirectory, ex);
+        }
+        months.sort(Comparator.reverseOrder());
+        return List.copyOf(months);
+    }
+
+    /*
+     * Archived readings of one metric strictly before the cursor (or the
+     * newest ones when there is none), newest first, at most limit of them.
+     * Only the cursor's month and older months are read.
+     */
+    public List<HealthLog> findHistory(User user, MetricType metricType, HealthLogCursor before, int limit) {
+
+        List<HealthLog> result = new ArrayList<>();
+        YearMonth cursorMonth = before == null ? null : monthOf(before.measuredAt());
+        for (YearMonth month : months(user.getUserId())) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (cursorMonth != null && month.isAfter(cursorMonth)) {
+                continue;
+            }
+            List<HealthLog> readings = new ArrayList<>();
+            for (HealthLog reading : read(user, user.getUserId(), month)) {
+                if (reading.getMetricType() == metricType && (before == null || isBefore(reading, before))) {
+                    readings.add(reading);
+                }
+            }
+            readings.sort(NEWEST_FIRST);
+            result.addAll(readings.subList(0, Math.min(readings.size(), limit - result.size())));
+        }
+        return result;
+    }
+
+    private static boolean isBefore(HealthLog reading, HealthLogCursor cursor) {
+        int byTime = reading.getMeasuredAt().compareTo(cursor.measuredAt());
+        return byTime < 0 || (byTime == 0 && reading.getLogId() < cursor.logId());
+    }
+
+    private Path file(Long userId, YearMonth month) {
+        return directory.resolve(userId.toString()).resolve(month + SUFFIX);
+    }
+}
@@ -0,0 +1,169 @@
+package com.project.househealth.archive;
+
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.JobLease;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.JobLeaseRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Moves readings older than maxAge out of health_logs into the archive,
+ * whole measurement months at a time, so the hot table and its indexes only
+ * hold recent history. Each user is archived in its own transaction: month
+ * files are written and forced to disk first, then exactly the archived
+ * rows are deleted. If
+ * the delete does not commit, the rows stay hot and are merged into the same
+ * files on the next run, and readers drop the duplicates by logId.
+ *
+ * Rollups are left alone, so aggregates still cover archived readings.
+ *
+ * The schedule fires on every node, but a run only goes ahead on the node
+ * holding the archiver's row in job_leases. The lease is renewed after each
+ * user, and a node that loses it stops, so two nodes never rewrite the same
+ * month files at once.
+ */
+@Component
+@ConditionalOnProperty(name = "househealth.archive.enabled", havingValue = "true")
+public class HealthLogArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthLogArchiver.class);
+
+    static final int DELETE_CHUNK_SIZE = 1000;
+
+    static final String JOB_NAME = "health-log-archiver";
+
+    private final HealthLogRepository healthLogRepository;
+    private final HealthLogArchive healthLogArchive;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final Duration maxAge;
+    private final Duration leaseTtl;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public HealthLogArchiver(HealthLogRepository healthLogRepository,
+                             HealthLogArchive healthLogArchive,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             JobLeaseRepository jobLeaseRepository,
+                             @Value("${househealth.archive.max-age:P365D}") Duration maxAge,
+                             @Value("${househealth.archive.lease-ttl:PT10M}") Duration leaseTtl) {
+        this.healthLogRepository = healthLogRepository;
+        this.healthLogArchive = healthLogArchive;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.maxAge = maxAge;
+        this.leaseTtl = leaseTtl;
+    }
+
+    @Scheduled(cron = "${househealth.archive.cron:0 30 3 * * *}")
+    public void archiveOldReadings() {
+        if (!holdLease()) {
+            log.debug("Skipping archive run; another node holds the archiver lease");
+            return;
+        }
+        try {
+            Instant cutoff = cutoff(Instant.now(), maxAge);
+            long archived = archiveBefore(cutoff, this::holdLease);
+            if (archived > 0) {
+                log.info("Archived {} readings measured before {}", archived, cutoff);
+            }
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.release(JOB_NAME, nodeId));
+        }
+    }
+
+    // Takes or renews the lease for another leaseTtl of database time; false when another node holds it
+    private boolean holdLease() {
+        if (!jobLeaseRepository.existsById(JOB_NAME)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.saveAndFlush(new JobLease(JOB_NAME)));
+            } catch (DataIntegrityViolationException ex) {
+                // Created by another node meanwhile
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            Instant now = jobLeaseRepository.currentTime();
+            return jobLeaseRepository.tryAcquire(JOB_NAME, nodeId, now, now.plus(leaseTtl)) == 1;
+        });
+    }
+
+    // Start of the month that contains now - maxAge, so only whole months are archived
+    static Instant cutoff(Instant now, Duration maxAge) {
+        return YearMonth.from(now.minus(maxAge).atOffset(ZoneOffset.UTC))
+                .atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+
+    public long archiveBefore(Instant cutoff) {
+        return archiveBefore(cutoff, () -> true);
+    }
+
+    private long archiveBefore(Instant cutoff, BooleanSupplier keepGoing) {
+        long archived = 0;
+        for (Long userId : healthLogRepository.findUserIdsWithReadingsBefore(cutoff)) {
+            archived += transactionTemplate.execute(status -> archiveUser(userId, cutoff));
+            if (!keepGoing.getAsBoolean()) {
+                log.warn("Lost the archiver lease; stopping after {} readings", archived);
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private long archiveUser(Long userId, Instant cutoff) {
+
+        List<Long> archivedIds = new ArrayList<>();
+        List<HealthLog> month = new ArrayList<>();
+        YearMonth current = null;
+
+        try (Stream<HealthLog> readings = healthLogRepository.streamByUserIdMeasuredBefore(userId, cutoff)) {
+            Iterator<HealthLog> iterator = readings.iterator();
+            while (iterator.hasNext()) {
+                HealthLog reading = iterator.next();
+                YearMonth readingMonth = HealthLogArchive.monthOf(reading.getMeasuredAt());
+                if (!readingMonth.equals(current)) {
+                    writeMonth(userId, current, month);
+                    current = readingMonth;
+                }
+                month.add(reading);
+                archivedIds.add(reading.getLogId());
+                entityManager.detach(reading);
+            }
+        }
+        writeMonth(userId, current, month);
+
+        for (int from = 0; from < archivedIds.size(); from += DELETE_CHUNK_SIZE) {
+            healthLogRepository.deleteAllByIdInBatch(
+                    archivedIds.subList(from, Math.min(archivedIds.size(), from + DELETE_CHUNK_SIZE)));
+        }
+        return archivedIds.size();
+    }
+
+    private void writeMonth(Long userId, YearMonth month, List<HealthLog> readings) {
+        if (!readings.isEmpty()) {
+            healthLogArchive.write(userId, month, readings);
+            readings.clear();
+        }
+    }
+}
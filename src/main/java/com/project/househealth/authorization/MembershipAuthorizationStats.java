@@ -0,0 +1,16 @@
+package com.project.househealth.authorization;
+
+/**
+ * Point-in-time metrics of the membership authorization cache. A lookup
+ * that found no membership is a miss every time, since absences are not
+ * cached. Latencies are averages per lookup, misses including the query.
+ */
+public record MembershipAuthorizationStats(long lookups,
+                                           long hits,
+                                           long misses,
+                                           double hitRatio,
+                                           long evictions,
+                                           int cachedMemberships,
+                                           double averageHitNanos,
+                                           double averageMissNanos) {
+}
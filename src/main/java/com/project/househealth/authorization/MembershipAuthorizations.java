@@ -0,0 +1,238 @@
+package com.project.househealth.authorization;
+
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.enums.Role;
+import com.project.househealth.event.FamilyMembershipChangedEvent;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "is this user a member of this family, in what role, and an
+ * owner?" without a query once a membership has been seen. Each
+ * membership is packed into a few bits: MEMBER, OWNER and the role ordinal
+ * above them, grouped by family so a family's memberships are dropped
+ * together. The values are small enough that boxing them never allocates.
+ *
+ * Only memberships that exist are cached; a user who is not a member
+ * costs a query each time, which keeps families created later out of
+ * reach of stale answers. A family is dropped once a transaction that
+ * changed its memberships completes, and a load that overlapped such a
+ * drop is returned but not cached. Inside a transaction, "overlapped"
+ * counts from the transaction's first authorization call, since later
+ * reads may come from a snapshot taken then; callers make that call before
+ * any other read.
+ *
+ * Those drops are only heard on the node that made the change, so a
+ * family's entries also expire househealth.authorization.ttl after the
+ * first of them was cached; that bounds how long another node can answer
+ * from a membership changed elsewhere. At most
+ * househealth.authorization.max-families families are held; past that,
+ * expired families are dropped first, then arbitrary ones.
+ *
+ * Checks that guard a change read the membership with load(), which always
+ * queries; only read-only checks answer from the cached bits.
+ */
+@Component
+public class MembershipAuthorizations {
+
+    public static final int MEMBER = 1;
+    public static final int OWNER = 1 << 1;
+    private static final int ROLE_SHIFT = 2;
+    private static final Role[] ROLES = Role.values();
+
+    // One family's cached memberships, userId -> bits, and when they stop being trusted
+    private record FamilyBits(Map<Long, Integer> bits, long expiresAtMillis) {}
+
+    private final FamilyMembershipRepository familyMembershipRepository;
+    private final Clock clock;
+    private final int maxFamilies;
+    private final long ttlMillis;
+
+    private final Map<Long, FamilyBits> bitsByFamily = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction; a membership loaded across an eviction is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    @Autowired
+    public MembershipAuthorizations(FamilyMembershipRepository familyMembershipRepository,
+                                    @Value("${househealth.authorization.max-families:100000}") int maxFamilies,
+                                    @Value("${househealth.authorization.ttl:PT30S}") Duration ttl) {
+        this(familyMembershipRepository, maxFamilies, ttl, Clock.systemUTC());
+    }
+
+    MembershipAuthorizations(FamilyMembershipRepository familyMembershipRepository, int maxFamilies, Duration ttl,
+                             Clock clock) {
+        this.familyMembershipRepository = familyMembershipRepository;
+        this.maxFamilies = maxFamilies;
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public static boolean isMember(int bits) {
+        return (bits & MEMBER) != 0;
+    }
+
+    public static boolean isOwner(int bits) {
+        return (bits & OWNER) != 0;
+    }
+
+    // Only meaningful for a member
+    public static Role role(int bits) {
+        return ROLES[bits >>> ROLE_SHIFT];
+    }
+
+    static int bitsOf(FamilyMembership membership) {
+        return MEMBER | (membership.isOwner() ? OWNER : 0) | membership.getRole().ordinal() << ROLE_SHIFT;
+    }
+
+    /**
+     * @return the membership bits, 0 when the user is not a member
+     */
+    public int lookup(Long userId, Long familyId) {
+        long start = System.nanoTime();
+        long stamp = stamp();
+        FamilyBits family = current(familyId);
+        Integer cached = family != null ? family.bits().get(userId) : null;
+        if (cached != null) {
+            hits.increment();
+            hitNanos.add(System.nanoTime() - start);
+            return cached;
+        }
+
+        int bits = cache(userId, familyId, stamp,
+                familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .map(MembershipAuthorizations::bitsOf).orElse(0);
+        misses.increment();
+        missNanos.add(System.nanoTime() - start);
+        return bits;
+    }
+
+    /**
+     * Loads the membership entity, with its family, from the database for
+     * callers about to change them or to act on the answer, caching its bits
+     * on the way.
+     */
+    public Optional<FamilyMembership> load(Long userId, Long familyId) {
+        long stamp = stamp();
+        return cache(userId, familyId, stamp,
+                familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId));
+    }
+
+    private Optional<FamilyMembership> cache(Long userId, Long familyId, long stamp,
+                                             Optional<FamilyMembership> membership) {
+        membership.ifPresent(found -> {
+            int bits = bitsOf(found);
+            if (!bitsByFamily.containsKey(familyId)) {
+                makeRoom();
+            }
+            // Checked under the family's key: an eviction either bumps the stamp first, or removes the put after
+            bitsByFamily.compute(familyId, (id, family) -> {
+                if (invalidations.get() != stamp) {
+                    return family;
+                }
+                long now = clock.millis();
+                if (family == null || family.expiresAtMillis() <= now) {
+                    family = new FamilyBits(new ConcurrentHashMap<>(), now + ttlMillis);
+                }
+                family.bits().put(userId, bits);
+                return family;
+            });
+        });
+        return membership;
+    }
+
+    private void makeRoom() {
+        if (bitsByFamily.size() < maxFamilies) {
+            return;
+        }
+        long now = clock.millis();
+        bitsByFamily.forEach((familyId, family) -> {
+            if (family.expiresAtMillis() <= now) {
+                bitsByFamily.remove(familyId, family);
+            }
+        });
+        for (Long familyId : bitsByFamily.keySet()) {
+            if (bitsByFamily.size() < maxFamilies) {
+                break;
+            }
+            bitsByFamily.remove(familyId);
+        }
+    }
+
+    // The family's entries, unless they have expired
+    private FamilyBits current(Long familyId) {
+        FamilyBits family = bitsByFamily.get(familyId);
+        if (family != null && family.expiresAtMillis() <= clock.millis()) {
+            bitsByFamily.remove(familyId, family);
+            return null;
+        }
+        return family;
+    }
+
+    // Inside a transaction, the stamp its first call took, before any snapshot it reads from
+    private long stamp() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return invalidations.get();
+        }
+        Long stamp = (Long) TransactionSynchronizationManager.getResource(this);
+        if (stamp == null) {
+            stamp = invalidations.get();
+            TransactionSynchronizationManager.bindResource(this, stamp);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MembershipAuthorizations.this);
+                }
+            });
+        }
+        return stamp;
+    }
+
+    public void evict(Long familyId) {
+        invalidations.incrementAndGet();
+        if (bitsByFamily.remove(familyId) != null) {
+            evictions.increment();
+        }
+    }
+
+    // After rollback too: a lookup inside the failed transaction may have cached its uncommitted changes
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onFamilyMembershipChanged(FamilyMembershipChangedEvent event) {
+        evict(event.familyId());
+    }
+
+    public MembershipAuthorizationStats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        int cached = 0;
+        for (FamilyBits family : bitsByFamily.values()) {
+            cached += family.bits().size();
+        }
+        return new MembershipAuthorizationStats(lookups, hitCount, missCount,
+                lookups == 0 ? 0 : (double) hitCount / lookups,
+                evictions.sum(), cached,
+                hitCount == 0 ? 0 : (double) hitNanos.sum() / hitCount,
+                missCount == 0 ? 0 : (double) missNanos.sum() / missCount);
+    }
+}
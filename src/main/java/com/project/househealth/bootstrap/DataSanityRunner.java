@@ -153,18 +153,19 @@ public class DataSanityRunner implements CommandLineRunner {
 //        reminder1.setFrequencyInterval(7);
 //        reminder1.setNotificationsEnabled(true);
 
-        ReminderSettings reminder1 = reminderSettingsRepository.findByUser(user1);
-
-        reminder1.markTriggered();
-
-        System.out.println("User1 Reminder Settings");
-        System.out.println("ReminderId " + reminder1.getReminderId());
-        System.out.println("User " +reminder1.getUser());
-        System.out.println("FrequencyInterval " +reminder1.getFrequencyInterval());
-        System.out.println("FrequencyType " +reminder1.getFrequencyType());
-        System.out.println("MetricType " +reminder1.getMetricType());
-        System.out.println("LastTriggeredAt " +reminder1.getLastTriggeredAt());
-        System.out.println("NotificationsEnabled " +reminder1.getNotificationsEnabled());
+        for (ReminderSettings reminder1 : reminderSettingsRepository.findByUser(user1)) {
+
+            reminder1.markTriggered();
+
+            System.out.println("User1 Reminder Settings");
+            System.out.println("ReminderId " + reminder1.getReminderId());
+            System.out.println("User " +reminder1.getUser());
+            System.out.println("FrequencyInterval " +reminder1.getFrequencyInterval());
+            System.out.println("FrequencyType " +reminder1.getFrequencyType());
+            System.out.println("MetricType " +reminder1.getMetricType());
+            System.out.println("LastTriggeredAt " +reminder1.getLastTriggeredAt());
+            System.out.println("NotificationsEnabled " +reminder1.getNotificationsEnabled());
+        }
 
     }
 
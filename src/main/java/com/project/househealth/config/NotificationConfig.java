@@ -0,0 +1,17 @@
+package com.project.househealth.config;
+
+import com.project.househealth.notification.LoggingNotificationSender;
+import com.project.househealth.notification.NotificationSender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NotificationConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(NotificationSender.class)
+    public NotificationSender notificationSender() {
+        return new LoggingNotificationSender();
+    }
+}
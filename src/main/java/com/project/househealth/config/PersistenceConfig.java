@@ -0,0 +1,27 @@
+package com.project.househealth.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersistenceConfig {
+
+    public static final int JDBC_BATCH_SIZE = 500;
+
+    /*
+     * Entities use pooled sequence ids (table-emulated on MySQL), so Hibernate can
+     * defer inserts to flush time and group them into JDBC batches. Ordering
+     * inserts/updates by entity keeps batches intact when a transaction touches
+     * several tables, e.g. a family and its owner membership.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, JDBC_BATCH_SIZE);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.project.househealth.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs such as health log archival declare their own @Scheduled triggers
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,80 @@
+package com.project.househealth.consistency;
+
+import com.project.househealth.dto.FamilyCounterDrift;
+import com.project.househealth.repositories.FamilyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Compares each family's memberCount and ownerCount with its membership
+ * rows and rebuilds the ones that drifted, for schemas migrated from before
+ * the counters existed and for rows changed outside the services. Families
+ * are scanned in id ranges, one transaction per range; a family is only
+ * written when it drifted, and the rewrite bumps its version.
+ *
+ * Off unless househealth.family-counters.rebuild-cron is set.
+ */
+@Component
+public class FamilyCounterReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(FamilyCounterReconciler.class);
+
+    static final int CHUNK_SIZE = 1000;
+
+    private final FamilyRepository familyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public FamilyCounterReconciler(FamilyRepository familyRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.familyRepository = familyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${househealth.family-counters.rebuild-cron:-}")
+    public void rebuildDriftedCounters() {
+        List<FamilyCounterDrift> rebuilt = rebuild();
+        if (!rebuilt.isEmpty()) {
+            log.warn("Rebuilt member and owner counts of {} families", rebuilt.size());
+        }
+    }
+
+    // The families whose counters drifted, without changing them
+    public List<FamilyCounterDrift> check() {
+        return scan(fromId -> readOnlyTransactionTemplate.execute(status ->
+                familyRepository.findCounterDrift(fromId, fromId + CHUNK_SIZE - 1)));
+    }
+
+    // Rebuilds the counters of the families that drifted and returns them as they were before
+    public List<FamilyCounterDrift> rebuild() {
+        return scan(fromId -> transactionTemplate.execute(status -> {
+            List<FamilyCounterDrift> drifted = familyRepository.findCounterDrift(fromId, fromId + CHUNK_SIZE - 1);
+            if (!drifted.isEmpty()) {
+                familyRepository.rebuildCounters(drifted.stream().map(FamilyCounterDrift::familyId).toList());
+            }
+            return drifted;
+        }));
+    }
+
+    private List<FamilyCounterDrift> scan(LongFunction<List<FamilyCounterDrift>> chunk) {
+        List<FamilyCounterDrift> drifted = new ArrayList<>();
+        Long maxId = familyRepository.findMaxFamilyId();
+        if (maxId == null) {
+            return drifted;
+        }
+        for (long fromId = 1; fromId <= maxId; fromId += CHUNK_SIZE) {
+            drifted.addAll(chunk.apply(fromId));
+        }
+        return drifted;
+    }
+}
@@ -0,0 +1,24 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.HealthLog;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingestion call. Readings are accepted or rejected
+ * individually, so one bad reading never aborts the rest of the batch.
+ */
+public record BulkIngestionResult(List<HealthLog> created, List<IngestionFailure> failures) {
+
+    public int acceptedCount() {
+        return created.size();
+    }
+
+    public int failedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
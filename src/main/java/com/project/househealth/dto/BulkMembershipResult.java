@@ -0,0 +1,19 @@
+package com.project.househealth.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk membership call, one result per distinct target user
+ * in the order they were first submitted. Targets are accepted or skipped
+ * individually, so one that does not qualify never aborts the others.
+ */
+public record BulkMembershipResult(List<MembershipResult> results) {
+
+    public long changedCount() {
+        return results.stream().filter(r -> r.outcome().succeeded()).count();
+    }
+
+    public long skippedCount() {
+        return results.size() - changedCount();
+    }
+}
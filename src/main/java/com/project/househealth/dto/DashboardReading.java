@@ -0,0 +1,28 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.PackedReading;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+
+import java.time.Instant;
+
+public record DashboardReading(Long userId,
+                               String userName,
+                               MetricType metricType,
+                               SugarType sugarType,
+                               Integer systolic,
+                               Integer diastolic,
+                               Integer sugarValue,
+                               Instant measuredAt,
+                               Long logId) {
+
+    // Projection constructor: unpacks the stored reading value
+    public DashboardReading(Long userId, String userName, MetricType metricType, SugarType sugarType,
+                            int readingValue, Instant measuredAt, Long logId) {
+        this(userId, userName, metricType, sugarType,
+                PackedReading.systolic(metricType, readingValue),
+                PackedReading.diastolic(metricType, readingValue),
+                PackedReading.sugarValue(metricType, readingValue),
+                measuredAt, logId);
+    }
+}
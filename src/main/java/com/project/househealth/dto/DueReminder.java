@@ -0,0 +1,9 @@
+package com.project.househealth.dto;
+
+import java.time.Instant;
+
+/**
+ * A reminder id with its next due time, read straight off idx_reminder_settings_due.
+ */
+public record DueReminder(Long reminderId, Instant nextDueAt) {
+}
@@ -0,0 +1,12 @@
+package com.project.househealth.dto;
+
+/**
+ * A family whose stored member or owner count disagrees with its
+ * membership rows.
+ */
+public record FamilyCounterDrift(Long familyId,
+                                 int memberCount,
+                                 int ownerCount,
+                                 long actualMemberCount,
+                                 long actualOwnerCount) {
+}
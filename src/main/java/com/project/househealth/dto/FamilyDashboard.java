@@ -0,0 +1,11 @@
+package com.project.househealth.dto;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Latest reading per member per metric (and sugar type) of one family.
+ * memberUserIds includes members that have not logged anything yet.
+ */
+public record FamilyDashboard(Long familyId, Set<Long> memberUserIds, List<DashboardReading> readings) {
+}
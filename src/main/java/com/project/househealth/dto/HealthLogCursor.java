@@ -0,0 +1,16 @@
+package com.project.househealth.dto;
+
+import java.time.Instant;
+
+/**
+ * Position of the last reading on a history page. The next page starts
+ * strictly after this (measuredAt, logId) pair in descending order.
+ */
+public record HealthLogCursor(Instant measuredAt, Long logId) {
+
+    public HealthLogCursor {
+        if (measuredAt == null || logId == null) {
+            throw new IllegalArgumentException("Cursor needs both measuredAt and logId");
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.HealthLog;
+
+import java.util.List;
+
+/**
+ * One page of a user's health history, newest first. {@code next} is null
+ * on the last page.
+ */
+public record HealthLogPage(List<HealthLog> items, HealthLogCursor next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.househealth.dto;
+
+/**
+ * Snapshot of a running import, reported after every written batch.
+ */
+public record ImportProgress(long bytesRead, long totalBytes, long rowsRead, long imported, long failed) {
+
+    public double fractionDone() {
+        return totalBytes == 0 ? 1.0 : (double) bytesRead / totalBytes;
+    }
+}
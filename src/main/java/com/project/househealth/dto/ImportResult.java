@@ -0,0 +1,14 @@
+package com.project.househealth.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a file import. Failure indexes are 1-based line numbers; only
+ * the first failures are listed, failed counts all of them.
+ */
+public record ImportResult(long rowsRead, long imported, long failed, List<IngestionFailure> failures) {
+
+    public boolean hasFailures() {
+        return failed > 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.project.househealth.dto;
+
+/**
+ * A single reading that could not be ingested, identified by its position
+ * in the submitted batch.
+ */
+public record IngestionFailure(int index, String reason) {
+}
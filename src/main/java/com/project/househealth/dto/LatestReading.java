@@ -0,0 +1,11 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.MetricType;
+
+import java.time.Instant;
+
+/**
+ * When a user last measured a metric.
+ */
+public record LatestReading(Long userId, MetricType metricType, Instant measuredAt) {
+}
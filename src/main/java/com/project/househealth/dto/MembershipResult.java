@@ -0,0 +1,9 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.MembershipOutcome;
+
+/**
+ * What a bulk membership call did for one of its target users.
+ */
+public record MembershipResult(Long userId, MembershipOutcome outcome) {
+}
@@ -0,0 +1,10 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.Role;
+
+/**
+ * A change to one member's role and notification setting; a null field is
+ * left as it is.
+ */
+public record MembershipUpdate(Long userId, Role role, Boolean notificationsEnabled) {
+}
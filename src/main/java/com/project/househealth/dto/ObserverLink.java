@@ -0,0 +1,8 @@
+package com.project.househealth.dto;
+
+/**
+ * An observer who wants notifications about a user's readings, through at
+ * least one family they share.
+ */
+public record ObserverLink(Long userId, Long observerUserId) {
+}
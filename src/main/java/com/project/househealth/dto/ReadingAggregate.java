@@ -0,0 +1,11 @@
+package com.project.househealth.dto;
+
+/**
+ * Aggregate over a time range, answered from rollup buckets. Field
+ * summaries are null when the metric has no such value (e.g. sugar for BP).
+ */
+public record ReadingAggregate(long readingCount,
+                               ValueSummary systolic,
+                               ValueSummary diastolic,
+                               ValueSummary sugar) {
+}
@@ -0,0 +1,86 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.PackedReading;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+
+/**
+ * A block of readings held column by column in primitive arrays, for scans
+ * that would otherwise hydrate one entity (plus its boxed values, instants
+ * and persistence-context bookkeeping) per row. A scan refills the same
+ * block, so a consumer must copy anything it keeps past its callback.
+ */
+public final class ReadingColumns {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    // Stored sugar_code of a reading without a sugar type
+    public static final int NO_SUGAR_TYPE = -1;
+
+    private final long[] logIds;
+    private final long[] measuredAtMillis;
+    private final byte[] metricCodes;
+    private final byte[] sugarCodes;
+    private final int[] readingValues;
+    private int size;
+
+    public ReadingColumns(int capacity) {
+        this.logIds = new long[capacity];
+        this.measuredAtMillis = new long[capacity];
+        this.metricCodes = new byte[capacity];
+        this.sugarCodes = new byte[capacity];
+        this.readingValues = new int[capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isFull() {
+        return size == logIds.length;
+    }
+
+    // Codes are the enum codes stored in health_logs
+    public void add(long logId, long measuredAtMillis, int metricCode, int sugarCode, int readingValue) {
+        this.logIds[size] = logId;
+        this.measuredAtMillis[size] = measuredAtMillis;
+        this.metricCodes[size] = (byte) metricCode;
+        this.sugarCodes[size] = (byte) sugarCode;
+        this.readingValues[size] = readingValue;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long logId(int row) {
+        return logIds[row];
+    }
+
+    public long measuredAtMillis(int row) {
+        return measuredAtMillis[row];
+    }
+
+    public MetricType metricType(int row) {
+        return MetricType.fromCode(metricCodes[row]);
+    }
+
+    // Null for blood pressure readings
+    public SugarType sugarType(int row) {
+        int code = sugarCodes[row];
+        return code == NO_SUGAR_TYPE ? null : SugarType.fromCode(code);
+    }
+
+    public int systolic(int row) {
+        return PackedReading.systolic(readingValues[row]);
+    }
+
+    public int diastolic(int row) {
+        return PackedReading.diastolic(readingValues[row]);
+    }
+
+    public int sugarValue(int row) {
+        return readingValues[row];
+    }
+}
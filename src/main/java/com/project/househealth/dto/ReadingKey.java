@@ -0,0 +1,16 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.HealthLog;
+
+/**
+ * Identifies a client reading across retries. Reading keys are unique per user.
+ */
+public record ReadingKey(Long userId, String readingKey) {
+
+    public static ReadingKey of(HealthLog healthLog) {
+        if (healthLog.getReadingKey() == null) {
+            return null;
+        }
+        return new ReadingKey(healthLog.getUser().getUserId(), healthLog.getReadingKey());
+    }
+}
@@ -0,0 +1,16 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.FrequencyType;
+import com.project.househealth.enums.MetricType;
+
+/**
+ * What a user has configured for one reminder. Trigger times are left out:
+ * they move every time the reminder fires.
+ */
+public record ReminderConfig(Long reminderId,
+                             Long userId,
+                             MetricType metricType,
+                             FrequencyType frequencyType,
+                             Integer frequencyInterval,
+                             boolean notificationsEnabled) {
+}
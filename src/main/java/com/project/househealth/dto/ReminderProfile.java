@@ -0,0 +1,21 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.MetricType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Every reminder of one user, at most one per metric, in metric order.
+ * Empty for a user without reminders.
+ */
+public record ReminderProfile(Long userId, List<ReminderConfig> reminders) {
+
+    public ReminderProfile {
+        reminders = List.copyOf(reminders);
+    }
+
+    public Optional<ReminderConfig> reminder(MetricType metricType) {
+        return reminders.stream().filter(reminder -> reminder.metricType() == metricType).findFirst();
+    }
+}
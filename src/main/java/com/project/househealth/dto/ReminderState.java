@@ -0,0 +1,20 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.enums.FrequencyType;
+import com.project.househealth.enums.MetricType;
+
+import java.time.Instant;
+
+/**
+ * The columns of a reminder the scheduler needs to fire it, read without
+ * loading the entity or its user.
+ */
+public record ReminderState(Long reminderId,
+                            Long userId,
+                            MetricType metricType,
+                            FrequencyType frequencyType,
+                            Integer frequencyInterval,
+                            Instant nextDueAt,
+                            int shard,
+                            boolean notificationsEnabled) {
+}
@@ -0,0 +1,34 @@
+package com.project.househealth.dto;
+
+/**
+ * Inclusive normal ranges for a user's readings; a value outside its range
+ * raises an alert. A null bound falls back to {@link #DEFAULTS}.
+ */
+public record ThresholdLimits(Integer systolicLow,
+                              Integer systolicHigh,
+                              Integer diastolicLow,
+                              Integer diastolicHigh,
+                              Integer fastingSugarLow,
+                              Integer fastingSugarHigh,
+                              Integer postMealSugarLow,
+                              Integer postMealSugarHigh) {
+
+    // Common adult screening ranges (mmHg, mg/dL)
+    public static final ThresholdLimits DEFAULTS = new ThresholdLimits(90, 140, 60, 90, 70, 130, 70, 180);
+
+    public ThresholdLimits withDefaults() {
+        return new ThresholdLimits(
+                orDefault(systolicLow, DEFAULTS.systolicLow),
+                orDefault(systolicHigh, DEFAULTS.systolicHigh),
+                orDefault(diastolicLow, DEFAULTS.diastolicLow),
+                orDefault(diastolicHigh, DEFAULTS.diastolicHigh),
+                orDefault(fastingSugarLow, DEFAULTS.fastingSugarLow),
+                orDefault(fastingSugarHigh, DEFAULTS.fastingSugarHigh),
+                orDefault(postMealSugarLow, DEFAULTS.postMealSugarLow),
+                orDefault(postMealSugarHigh, DEFAULTS.postMealSugarHigh));
+    }
+
+    private static Integer orDefault(Integer value, Integer fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,21 @@
+package com.project.househealth.dto;
+
+import com.project.househealth.entity.ValueRollup;
+
+/**
+ * Summary statistics for one reading field over a range of rollup buckets.
+ */
+public record ValueSummary(int min, int max, double mean, double standardDeviation) {
+
+    /**
+     * Returns null when the rollup saw no values for this field.
+     */
+    public static ValueSummary of(ValueRollup rollup, long count) {
+        if (count == 0 || rollup.getMin() == null) {
+            return null;
+        }
+        double mean = (double) rollup.getSum() / count;
+        double variance = Math.max(0, (double) rollup.getSumOfSquares() / count - mean * mean);
+        return new ValueSummary(rollup.getMin(), rollup.getMax(), mean, Math.sqrt(variance));
+    }
+}
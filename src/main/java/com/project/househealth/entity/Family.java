@@ -12,7 +12,8 @@ import java.util.List;
 public class Family {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "families_seq")
+    @SequenceGenerator(name = "families_seq", sequenceName = "families_seq", allocationSize = 50)
     private Long familyId;
 
     @Column(nullable = false, length = 100)
@@ -21,13 +22,22 @@ public class Family {
     @Column(nullable = false)
     private Instant createdAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by")
     private User createdBy;
 
     @Version
     private Long version;
 
+    // Kept in step with familyMemberships by the methods below, so membership rules need no COUNT
+    // queries; every change dirties the family and bumps its version, so two transactions acting
+    // on the same counts cannot both commit. FamilyCounterReconciler rebuilds them from the rows.
+    @Column(nullable = false)
+    private int memberCount;
+
+    @Column(nullable = false)
+    private int ownerCount;
+
     @OneToMany(
             mappedBy = "family",
             fetch = FetchType.LAZY,
@@ -74,8 +84,47 @@ public class Family {
         return familyMemberships;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public int getOwnerCount() {
+        return ownerCount;
+    }
+
+    // Queued on the lazy collection, so adding a member does not load the others
     public void addMembership(FamilyMembership membership) {
         familyMemberships.add(membership);
+        memberCount++;
+        if (membership.isOwner()) {
+            ownerCount++;
+        }
+    }
+
+    // The membership row itself is deleted through its repository
+    public void membershipRemoved(FamilyMembership membership) {
+        memberCount--;
+        if (membership.isOwner()) {
+            ownerCount--;
+        }
+    }
+
+    public void promoteOwner(FamilyMembership membership) {
+        if (!membership.isOwner()) {
+            membership.makeOwner();
+            ownerCount++;
+        }
+    }
+
+    public void demoteOwner(FamilyMembership membership) {
+        if (membership.isOwner()) {
+            membership.removeOwner();
+            ownerCount--;
+        }
     }
 
     public void renameFamily(String newName) {
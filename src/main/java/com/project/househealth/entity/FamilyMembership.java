@@ -5,15 +5,23 @@ import jakarta.persistence.*;
 
 import java.time.Instant;
 
+// Both associations are lazy; these graphs fetch them for the callers that read them
 @Entity
+@NamedEntityGraph(name = FamilyMembership.WITH_FAMILY, attributeNodes = @NamedAttributeNode("family"))
+@NamedEntityGraph(name = FamilyMembership.WITH_USER_AND_FAMILY,
+        attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode("family")})
 @Table( name = "family_memberships",
         uniqueConstraints = @UniqueConstraint(
                 columnNames = {"user_id", "family_id"}
         ))
 public class FamilyMembership {
 
+    public static final String WITH_FAMILY = "FamilyMembership.withFamily";
+    public static final String WITH_USER_AND_FAMILY = "FamilyMembership.withUserAndFamily";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "family_memberships_seq")
+    @SequenceGenerator(name = "family_memberships_seq", sequenceName = "family_memberships_seq", allocationSize = 50)
     private Long familyMembershipId;
 
     @Enumerated(EnumType.STRING)
@@ -26,11 +34,11 @@ public class FamilyMembership {
     @Column(nullable = false)
     private Instant joinedAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "family_id", nullable = false)
     private Family family;
 
@@ -7,28 +7,61 @@ import com.project.househealth.enums.MetricType;
 import java.time.Instant;
 
 @Entity
-@Table(name = "health_logs")
+@Table(name = "health_logs",
+        indexes = {
+                @Index(name = "idx_health_logs_user_metric_time",
+                        columnList = "user_id, metric_code, measured_at, log_id"),
+                // Covers the reading key filter warm-up, a range on logged_at
+                @Index(name = "idx_health_logs_logged_at_key",
+                        columnList = "logged_at, reading_key, user_id")
+        },
+        uniqueConstraints = {
+                // reading_key first, so "reading_key in (...) and user_id = ?" is a set of point lookups
+                @UniqueConstraint(name = "uk_health_logs_reading_key_user",
+                        columnNames = {"reading_key", "user_id"})
+        })
 public class HealthLog {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "health_logs_seq")
+    @SequenceGenerator(name = "health_logs_seq", sequenceName = "health_logs_seq", allocationSize = 500)
     private Long logId;
 
-    @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    // Enums are stored as their fixed small-int codes rather than strings or ordinals
+    @Convert(converter = MetricTypeConverter.class)
+    @Column(name = "metric_code", nullable = false)
     private MetricType metricType;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = SugarTypeConverter.class)
+    @Column(name = "sugar_code")
     private SugarType sugarType;
 
-
+    // Stored packed into reading_value; see getReadingValue
+    @Transient
     private Integer systolic;
+
+    @Transient
     private Integer diastolic;
+
+    @Transient
     private Integer sugarValue;
 
+    // reading_value as loaded, unpacked once the metric type is known
+    @Transient
+    private int loadedReadingValue;
+
+    // When the server received the reading
     @Column(nullable = false)
     private Instant loggedAt;
 
+    // When the device took the reading; defaults to loggedAt. History, rollups and dashboards are ordered by it.
+    @Column(nullable = false)
+    private Instant measuredAt;
+
+    // Client-supplied idempotency key; retries carrying the same key resolve to this row
+    @Column(length = 64)
+    private String readingKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -41,9 +74,25 @@ public class HealthLog {
         this.user = user;
     }
 
+    // Rebuilds a reading read back from the archive; it is never attached to a persistence context
+    public static HealthLog archived(Long logId, MetricType metricType, SugarType sugarType, int readingValue,
+                                     Instant loggedAt, Instant measuredAt, String readingKey, User user) {
+        HealthLog healthLog = new HealthLog(metricType, user);
+        healthLog.logId = logId;
+        healthLog.sugarType = sugarType;
+        healthLog.unpack(readingValue);
+        healthLog.loggedAt = loggedAt;
+        healthLog.measuredAt = measuredAt;
+        healthLog.readingKey = readingKey;
+        return healthLog;
+    }
+
     @PrePersist
     private void loggedAt() {
         this.loggedAt = Instant.now();
+        if (this.measuredAt == null) {
+            this.measuredAt = this.loggedAt;
+        }
     }
 
     public Long getLogId() {
@@ -58,6 +107,17 @@ public class HealthLog {
         return sugarType;
     }
 
+    @PostLoad
+    private void unpackLoaded() {
+        unpack(loadedReadingValue);
+    }
+
+    private void unpack(int readingValue) {
+        this.systolic = PackedReading.systolic(metricType, readingValue);
+        this.diastolic = PackedReading.diastolic(metricType, readingValue);
+        this.sugarValue = PackedReading.sugarValue(metricType, readingValue);
+    }
+
     public Integer getSystolic() {
         return systolic;
     }
@@ -70,10 +130,38 @@ public class HealthLog {
         return sugarValue;
     }
 
+    /*
+     * Every value of the reading in one column, laid out per metric type; see
+     * PackedReading. Mapped through the getter so dirty checking sees changes
+     * to the boxed values, and values that do not belong to the metric type
+     * are left out. The service validates ranges before anything is stored.
+     */
+    @Access(AccessType.PROPERTY)
+    @Column(name = "reading_value", nullable = false)
+    public int getReadingValue() {
+        return PackedReading.pack(metricType, systolic, diastolic, sugarValue);
+    }
+
+    private void setReadingValue(int readingValue) {
+        this.loadedReadingValue = readingValue;
+    }
+
     public Instant getLoggedAt() {
         return loggedAt;
     }
 
+    public Instant getMeasuredAt() {
+        return measuredAt;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getReadingKey() {
+        return readingKey;
+    }
+
     /*
      * ⚠️ These setters are acceptable FOR NOW.
      * Later, these should become domain-specific methods:
@@ -100,4 +188,12 @@ public class HealthLog {
         this.sugarValue = sugarValue;
     }
 
+    public void setMeasuredAt(Instant measuredAt) {
+        this.measuredAt = measuredAt;
+    }
+
+    public void setReadingKey(String readingKey) {
+        this.readingKey = readingKey;
+    }
+
 }
@@ -0,0 +1,147 @@
+package com.project.househealth.entity;
+
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.RollupPeriod;
+import com.project.househealth.enums.SugarType;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Pre-aggregated readings for one user, metric (and sugar type) and
+ * day/week bucket. Maintained incrementally as readings are written.
+ */
+@Entity
+@Table(name = "health_log_rollups",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_health_log_rollups_bucket",
+                columnNames = {"user_id", "metric_type", "sugar_code", "period", "bucket_start"}
+        ),
+        indexes = @Index(name = "idx_health_log_rollups_series",
+                columnList = "user_id, period, metric_type, bucket_start"))
+public class HealthLogRollup {
+
+    // Stored for metrics without a sugar type: a NULL would never collide in the unique key
+    public static final int NO_SUGAR_TYPE = -1;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "health_log_rollups_seq")
+    @SequenceGenerator(name = "health_log_rollups_seq", sequenceName = "health_log_rollups_seq", allocationSize = 50)
+    private Long rollupId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MetricType metricType;
+
+    @Column(nullable = false)
+    private int sugarCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupPeriod period;
+
+    @Column(nullable = false)
+    private Instant bucketStart;
+
+    @Column(nullable = false)
+    private long readingCount;
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "min", column = @Column(name = "systolic_min")),
+            @AttributeOverride(name = "max", column = @Column(name = "systolic_max")),
+            @AttributeOverride(name = "sum", column = @Column(name = "systolic_sum")),
+            @AttributeOverride(name = "sumOfSquares", column = @Column(name = "systolic_sum_sq"))
+    })
+    private ValueRollup systolic = new ValueRollup();
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "min", column = @Column(name = "diastolic_min")),
+            @AttributeOverride(name = "max", column = @Column(name = "diastolic_max")),
+            @AttributeOverride(name = "sum", column = @Column(name = "diastolic_sum")),
+            @AttributeOverride(name = "sumOfSquares", column = @Column(name = "diastolic_sum_sq"))
+    })
+    private ValueRollup diastolic = new ValueRollup();
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "min", column = @Column(name = "sugar_min")),
+            @AttributeOverride(name = "max", column = @Column(name = "sugar_max")),
+            @AttributeOverride(name = "sum", column = @Column(name = "sugar_sum")),
+            @AttributeOverride(name = "sumOfSquares", column = @Column(name = "sugar_sum_sq"))
+    })
+    private ValueRollup sugar = new ValueRollup();
+
+    protected HealthLogRollup() {}
+
+    public HealthLogRollup(User user, MetricType metricType, SugarType sugarType,
+                           RollupPeriod period, Instant bucketStart) {
+        this.user = user;
+        this.metricType = metricType;
+        this.sugarCode = sugarCode(sugarType);
+        this.period = period;
+        this.bucketStart = bucketStart;
+    }
+
+    public static int sugarCode(SugarType sugarType) {
+        return sugarType == null ? NO_SUGAR_TYPE : sugarType.code();
+    }
+
+    public void accumulate(HealthLog healthLog) {
+        readingCount++;
+        if (healthLog.getSystolic() != null) {
+            systolic.add(healthLog.getSystolic());
+        }
+        if (healthLog.getDiastolic() != null) {
+            diastolic.add(healthLog.getDiastolic());
+        }
+        if (healthLog.getSugarValue() != null) {
+            sugar.add(healthLog.getSugarValue());
+        }
+    }
+
+    public Long getRollupId() {
+        return rollupId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    public SugarType getSugarType() {
+        return sugarCode == NO_SUGAR_TYPE ? null : SugarType.fromCode(sugarCode);
+    }
+
+    public RollupPeriod getPeriod() {
+        return period;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getReadingCount() {
+        return readingCount;
+    }
+
+    public ValueRollup getSystolic() {
+        return systolic;
+    }
+
+    public ValueRollup getDiastolic() {
+        return diastolic;
+    }
+
+    public ValueRollup getSugar() {
+        return sugar;
+    }
+}
@@ -0,0 +1,42 @@
+package com.project.househealth.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Ownership of one scheduled job by a node, so a job scheduled on every
+ * node runs on one at a time. Taken, renewed and released with conditional
+ * updates in database time, like {@link ReminderShardLease}.
+ */
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+
+    @Id
+    @Column(length = 100)
+    private String jobName;
+
+    @Column(length = 100)
+    private String ownerNode;
+
+    private Instant expiresAt;
+
+    protected JobLease(){}
+
+    public JobLease(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,20 @@
+package com.project.househealth.entity;
+
+import com.project.househealth.enums.MetricType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores MetricType.code, so constants can be added or reordered without touching stored rows
+@Converter
+public class MetricTypeConverter implements AttributeConverter<MetricType, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(MetricType metricType) {
+        return metricType == null ? null : metricType.code();
+    }
+
+    @Override
+    public MetricType convertToEntityAttribute(Integer code) {
+        return code == null ? null : MetricType.fromCode(code);
+    }
+}
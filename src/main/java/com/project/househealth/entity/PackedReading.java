@@ -0,0 +1,78 @@
+package com.project.househealth.entity;
+
+import com.project.househealth.enums.MetricType;
+
+/**
+ * Encoding of the health_logs.reading_value column. A blood pressure
+ * reading keeps systolic in the high and diastolic in the low signed 16
+ * bits; a sugar reading keeps its value in all 32. Missing values are
+ * stored as the type's minimum (Short.MIN_VALUE per half, or
+ * Integer.MIN_VALUE), which validation never lets reach the database but
+ * which half-built entities need to represent. Out-of-range values are
+ * rejected by the service before they get here.
+ */
+public final class PackedReading {
+
+    public static final int MISSING_HALF = Short.MIN_VALUE;
+    public static final int MISSING_SUGAR = Integer.MIN_VALUE;
+
+    private PackedReading() {}
+
+    // Values that do not belong to the metric type are left out
+    public static int pack(MetricType metricType, Integer systolic, Integer diastolic, Integer sugarValue) {
+        if (metricType == MetricType.BP) {
+            return bloodPressure(half(systolic, "Systolic"), half(diastolic, "Diastolic"));
+        }
+        return sugar(sugarValue);
+    }
+
+    public static int bloodPressure(int systolic, int diastolic) {
+        return (systolic << 16) | (diastolic & 0xFFFF);
+    }
+
+    public static int systolic(int packed) {
+        return packed >> 16;
+    }
+
+    public static int diastolic(int packed) {
+        return (short) packed;
+    }
+
+    static int half(Integer value, String name) {
+        if (value == null) {
+            return MISSING_HALF;
+        }
+        if (value <= Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " must be between " + (Short.MIN_VALUE + 1)
+                    + " and " + Short.MAX_VALUE);
+        }
+        return value;
+    }
+
+    static int sugar(Integer value) {
+        if (value == null) {
+            return MISSING_SUGAR;
+        }
+        if (value == MISSING_SUGAR) {
+            throw new IllegalArgumentException("Sugar value out of range");
+        }
+        return value;
+    }
+
+    // Boxed views for entity getters and projections; null when missing or not part of the metric
+    public static Integer systolic(MetricType metricType, int packed) {
+        return metricType == MetricType.BP ? boxHalf(systolic(packed)) : null;
+    }
+
+    public static Integer diastolic(MetricType metricType, int packed) {
+        return metricType == MetricType.BP ? boxHalf(diastolic(packed)) : null;
+    }
+
+    public static Integer sugarValue(MetricType metricType, int packed) {
+        return metricType == MetricType.SUGAR && packed != MISSING_SUGAR ? packed : null;
+    }
+
+    private static Integer boxHalf(int half) {
+        return half == MISSING_HALF ? null : half;
+    }
+}
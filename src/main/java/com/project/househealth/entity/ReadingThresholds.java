@@ -0,0 +1,61 @@
+package com.project.househealth.entity;
+
+import com.project.househealth.dto.ThresholdLimits;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "reading_thresholds",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"user_id"})
+        })
+public class ReadingThresholds {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reading_thresholds_seq")
+    @SequenceGenerator(name = "reading_thresholds_seq", sequenceName = "reading_thresholds_seq", allocationSize = 50)
+    private Long thresholdsId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Null means "use the default"
+    private Integer systolicLow;
+    private Integer systolicHigh;
+    private Integer diastolicLow;
+    private Integer diastolicHigh;
+    private Integer fastingSugarLow;
+    private Integer fastingSugarHigh;
+    private Integer postMealSugarLow;
+    private Integer postMealSugarHigh;
+
+    protected ReadingThresholds() {}
+
+    public ReadingThresholds(User user) {
+        this.user = user;
+    }
+
+    public Long getThresholdsId() {
+        return thresholdsId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public ThresholdLimits getLimits() {
+        return new ThresholdLimits(systolicLow, systolicHigh, diastolicLow, diastolicHigh,
+                fastingSugarLow, fastingSugarHigh, postMealSugarLow, postMealSugarHigh);
+    }
+
+    public void setLimits(ThresholdLimits limits) {
+        this.systolicLow = limits.systolicLow();
+        this.systolicHigh = limits.systolicHigh();
+        this.diastolicLow = limits.diastolicLow();
+        this.diastolicHigh = limits.diastolicHigh();
+        this.fastingSugarLow = limits.fastingSugarLow();
+        this.fastingSugarHigh = limits.fastingSugarHigh();
+        this.postMealSugarLow = limits.postMealSugarLow();
+        this.postMealSugarHigh = limits.postMealSugarHigh();
+    }
+}
@@ -0,0 +1,40 @@
+package com.project.househealth.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A running reminder scheduler. Nodes heartbeat this row, and the nodes
+ * with a recent heartbeat split the reminder shards between them.
+ */
+@Entity
+@Table(name = "reminder_nodes")
+public class ReminderNode {
+
+    @Id
+    @Column(length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Instant heartbeatAt;
+
+    protected ReminderNode(){}
+
+    public ReminderNode(String nodeId, Instant heartbeatAt) {
+        this.nodeId = nodeId;
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(Instant heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+}
@@ -8,13 +8,21 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "reminder_settings",
+        indexes = {
+                @Index(name = "idx_reminder_settings_due",
+                        columnList = "active, shard, next_due_at, reminder_id")
+        },
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"user_id", "metric_type"})
         })
 public class ReminderSettings {
 
+    // Reminders are split by user into this many shards, which scheduler nodes lease
+    public static final int SHARD_COUNT = 64;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reminder_settings_seq")
+    @SequenceGenerator(name = "reminder_settings_seq", sequenceName = "reminder_settings_seq", allocationSize = 50)
     private Long reminderId;
 
     @Enumerated(EnumType.STRING)
@@ -29,23 +37,57 @@ public class ReminderSettings {
     private Integer frequencyInterval;
     private Instant lastTriggeredAt;
 
+    // Denormalized from lastTriggeredAt and the frequency so due reminders are an index range scan
+    @Column(name = "next_due_at", nullable = false)
+    private Instant nextDueAt;
+
     @Column(name = "active", nullable = false)
     private boolean notificationsEnabled = true;
 
+    @Column(nullable = false)
+    private int shard;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Bumped by the scheduler's bulk markTriggered too, so an edit cannot overwrite a trigger it never saw
+    @Version
+    private Long version;
+
     protected ReminderSettings(){}
 
     public ReminderSettings(MetricType metricType, FrequencyType frequencyType, User user){
         this.metricType = metricType;
         this.frequencyType = frequencyType;
         this.user = user;
+        // Never triggered, so due right away
+        this.nextDueAt = Instant.now();
+    }
+
+    public static int shardOf(Long userId) {
+        return (int) Math.floorMod(userId, (long) SHARD_COUNT);
+    }
+
+    // The user may only get its id when persisted along with this reminder
+    @PrePersist
+    void assignShard() {
+        this.shard = shardOf(user.getUserId());
     }
 
     public void markTriggered() {
-        this.lastTriggeredAt = Instant.now();
+        markTriggered(Instant.now());
+    }
+
+    public void markTriggered(Instant triggeredAt) {
+        this.lastTriggeredAt = triggeredAt;
+        updateNextDueAt();
+    }
+
+    private void updateNextDueAt() {
+        if (lastTriggeredAt != null) {
+            this.nextDueAt = frequencyType.next(lastTriggeredAt, frequencyInterval);
+        }
     }
 
     public Long getReminderId() {
@@ -68,6 +110,14 @@ public class ReminderSettings {
         return lastTriggeredAt;
     }
 
+    public Instant getNextDueAt() {
+        return nextDueAt;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
     public boolean getNotificationsEnabled() {
         return notificationsEnabled;
     }
@@ -82,10 +132,12 @@ public class ReminderSettings {
 
     public void setFrequencyType(FrequencyType frequencyType) {
         this.frequencyType = frequencyType;
+        updateNextDueAt();
     }
 
     public void setFrequencyInterval(Integer frequencyValue) {
         this.frequencyInterval = frequencyValue;
+        updateNextDueAt();
     }
 
     public void setNotificationsEnabled(boolean notificationsEnabled) {
@@ -0,0 +1,41 @@
+package com.project.househealth.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Ownership of one reminder shard by a scheduler node. A lease is taken and
+ * renewed with conditional updates, so two nodes never hold the same shard
+ * at once; a lease that is not renewed before expiresAt is free to take.
+ */
+@Entity
+@Table(name = "reminder_shard_leases")
+public class ReminderShardLease {
+
+    @Id
+    private Integer shard;
+
+    @Column(length = 100)
+    private String ownerNode;
+
+    private Instant expiresAt;
+
+    protected ReminderShardLease(){}
+
+    public ReminderShardLease(Integer shard) {
+        this.shard = shard;
+    }
+
+    public Integer getShard() {
+        return shard;
+    }
+
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,20 @@
+package com.project.househealth.entity;
+
+import com.project.househealth.enums.SugarType;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores SugarType.code, so constants can be added or reordered without touching stored rows
+@Converter
+public class SugarTypeConverter implements AttributeConverter<SugarType, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(SugarType sugarType) {
+        return sugarType == null ? null : sugarType.code();
+    }
+
+    @Override
+    public SugarType convertToEntityAttribute(Integer code) {
+        return code == null ? null : SugarType.fromCode(code);
+    }
+}
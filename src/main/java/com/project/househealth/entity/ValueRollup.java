@@ -0,0 +1,56 @@
+package com.project.househealth.entity;
+
+import jakarta.persistence.Embeddable;
+
+/**
+ * Running min/max/sum/sum-of-squares for one numeric reading field. Enough
+ * to derive count-weighted mean and standard deviation without raw rows.
+ */
+@Embeddable
+public class ValueRollup {
+
+    private Integer min;
+    private Integer max;
+    private long sum;
+    private long sumOfSquares;
+
+    public ValueRollup() {}
+
+    public void add(int value) {
+        if (min == null || value < min) {
+            min = value;
+        }
+        if (max == null || value > max) {
+            max = value;
+        }
+        sum += value;
+        sumOfSquares += (long) value * value;
+    }
+
+    public void merge(ValueRollup other) {
+        if (other.min != null && (min == null || other.min < min)) {
+            min = other.min;
+        }
+        if (other.max != null && (max == null || other.max > max)) {
+            max = other.max;
+        }
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+
+    public Integer getMin() {
+        return min;
+    }
+
+    public Integer getMax() {
+        return max;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getSumOfSquares() {
+        return sumOfSquares;
+    }
+}
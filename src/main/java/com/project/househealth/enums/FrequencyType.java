@@ -1,7 +1,36 @@
 package com.project.househealth.enums;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
 public enum FrequencyType {
     DAILY,
     WEEKLY,
-    MONTHLY
+    MONTHLY;
+
+    // Calendar arithmetic in UTC; a missing or non-positive interval counts as 1
+    public Instant next(Instant from, Integer interval) {
+        return plus(from, steps(interval));
+    }
+
+    // Start of the period that ends at the given occurrence
+    public Instant previous(Instant from, Integer interval) {
+        return plus(from, -steps(interval));
+    }
+
+    // Periods between occurrences for a stored interval
+    public static int steps(Integer interval) {
+        return interval == null || interval < 1 ? 1 : interval;
+    }
+
+    private Instant plus(Instant from, int steps) {
+        OffsetDateTime time = from.atOffset(ZoneOffset.UTC);
+        OffsetDateTime shifted = switch (this) {
+            case DAILY -> time.plusDays(steps);
+            case WEEKLY -> time.plusWeeks(steps);
+            case MONTHLY -> time.plusMonths(steps);
+        };
+        return shifted.toInstant();
+    }
 }
@@ -0,0 +1,17 @@
+package com.project.househealth.enums;
+
+public enum MembershipOutcome {
+    ADDED,
+    REMOVED,
+    UPDATED,
+    ALREADY_MEMBER,
+    NOT_MEMBER,
+    USER_NOT_FOUND,
+    // Owners are not removed by other owners, and owners leave through leaveFamily
+    OWNER,
+    ACTING_USER;
+
+    public boolean succeeded() {
+        return this == ADDED || this == REMOVED || this == UPDATED;
+    }
+}
@@ -1,6 +1,26 @@
 package com.project.househealth.enums;
 
+// health_logs and the archive store the code, not the name or ordinal: never change or reuse a code
 public enum MetricType {
-    BP,
-    SUGAR
+    BP(0),
+    SUGAR(1);
+
+    private final int code;
+
+    MetricType(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static MetricType fromCode(int code) {
+        for (MetricType metricType : values()) {
+            if (metricType.code == code) {
+                return metricType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric type code " + code);
+    }
 }
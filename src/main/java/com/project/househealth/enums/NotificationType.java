@@ -0,0 +1,6 @@
+package com.project.househealth.enums;
+
+public enum NotificationType {
+    REMINDER,
+    READING_ALERT
+}
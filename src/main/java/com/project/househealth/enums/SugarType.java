@@ -1,6 +1,26 @@
 package com.project.househealth.enums;
 
+// health_logs and the archive store the code, not the name or ordinal: never change or reuse a code
 public enum SugarType {
-    FASTING,
-    POST_MEAL
+    FASTING(0),
+    POST_MEAL(1);
+
+    private final int code;
+
+    SugarType(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public static SugarType fromCode(int code) {
+        for (SugarType sugarType : values()) {
+            if (sugarType.code == code) {
+                return sugarType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sugar type code " + code);
+    }
 }
@@ -0,0 +1,8 @@
+package com.project.househealth.event;
+
+/**
+ * Published when a family's membership list or a member's role/ownership
+ * changes, or when the family is deleted.
+ */
+public record FamilyMembershipChangedEvent(Long familyId) {
+}
@@ -0,0 +1,36 @@
+package com.project.househealth.event;
+
+import com.project.househealth.dto.DashboardReading;
+import com.project.househealth.entity.HealthLog;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published inside the write transaction after readings have been
+ * persisted. Carries a snapshot of each reading (without the user name) so
+ * listeners can patch derived state instead of reloading it.
+ */
+public record HealthLogsRecordedEvent(List<DashboardReading> readings) {
+
+    public static HealthLogsRecordedEvent of(List<HealthLog> healthLogs) {
+        List<DashboardReading> readings = new ArrayList<>(healthLogs.size());
+        for (HealthLog healthLog : healthLogs) {
+            readings.add(new DashboardReading(healthLog.getUser().getUserId(), null,
+                    healthLog.getMetricType(), healthLog.getSugarType(), healthLog.getSystolic(),
+                    healthLog.getDiastolic(), healthLog.getSugarValue(), healthLog.getMeasuredAt(),
+                    healthLog.getLogId()));
+        }
+        return new HealthLogsRecordedEvent(readings);
+    }
+
+    public Set<Long> userIds() {
+        Set<Long> userIds = new HashSet<>();
+        for (DashboardReading reading : readings) {
+            userIds.add(reading.userId());
+        }
+        return userIds;
+    }
+}
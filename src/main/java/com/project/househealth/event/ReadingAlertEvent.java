@@ -0,0 +1,19 @@
+package com.project.househealth.event;
+
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+
+/**
+ * Published inside the write transaction for every stored reading that is
+ * outside the user's thresholds. breaches is a bit set of the
+ * ThresholdEvaluator constants.
+ */
+public record ReadingAlertEvent(Long logId,
+                                Long userId,
+                                MetricType metricType,
+                                SugarType sugarType,
+                                Integer systolic,
+                                Integer diastolic,
+                                Integer sugarValue,
+                                int breaches) {
+}
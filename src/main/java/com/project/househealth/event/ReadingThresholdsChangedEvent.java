@@ -0,0 +1,7 @@
+package com.project.househealth.event;
+
+/**
+ * Published when a user's alert thresholds are saved.
+ */
+public record ReadingThresholdsChangedEvent(Long userId) {
+}
@@ -0,0 +1,14 @@
+package com.project.househealth.event;
+
+import com.project.househealth.enums.MetricType;
+
+import java.time.Instant;
+
+/**
+ * Published inside the transaction that marks a reminder triggered.
+ */
+public record ReminderDueEvent(Long reminderId,
+                               Long userId,
+                               MetricType metricType,
+                               Instant dueAt) {
+}
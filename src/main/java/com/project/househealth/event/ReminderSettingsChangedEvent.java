@@ -0,0 +1,7 @@
+package com.project.househealth.event;
+
+/**
+ * Published when a reminder is created or its settings change.
+ */
+public record ReminderSettingsChangedEvent(Long reminderId, Long userId) {
+}
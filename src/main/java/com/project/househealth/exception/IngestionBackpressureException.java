@@ -0,0 +1,7 @@
+package com.project.househealth.exception;
+
+public class IngestionBackpressureException extends RuntimeException {
+    public IngestionBackpressureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,303 @@
+package com.project.househealth.ingestion;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parses device CSV exports straight from memory-mapped windows of the file,
+ * one byte at a time, without decoding lines into Strings. Expected layout,
+ * with an optional header line:
+ *
+ * <pre>
+ * measured_at,type,value1,value2
+ * 2024-03-01T07:30:00Z,BP,120,80
+ * 2024-03-01T07:35:00Z,FASTING,95,
+ * 1709298000,POST_MEAL,140
+ * </pre>
+ *
+ * measured_at is an ISO-8601 date-time (UTC unless it carries an offset) or
+ * epoch seconds. type is BP, FASTING or POST_MEAL, in any case. BP rows carry
+ * systolic and diastolic, sugar rows carry the value only.
+ */
+public final class DeviceCsvReader {
+
+    public static final int BP = 0;
+    public static final int FASTING = 1;
+    public static final int POST_MEAL = 2;
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private static final byte[][] TYPE_NAMES = {
+            "BP".getBytes(), "FASTING".getBytes(), "POST_MEAL".getBytes()
+    };
+
+    public interface RowHandler {
+        /**
+         * @param endOffset file offset just past the row, for progress reporting
+         */
+        void onRow(long lineNumber, long endOffset, long epochSecond, int type, int value1, int value2);
+
+        void onError(long lineNumber, long endOffset, String reason);
+    }
+
+    private final long windowBytes;
+
+    public DeviceCsvReader() {
+        this(DEFAULT_WINDOW_BYTES);
+    }
+
+    DeviceCsvReader(long windowBytes) {
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Windows end at the last complete line; the next window is mapped from
+     * the start of the line that did not fit.
+     */
+    public void read(FileChannel channel, RowHandler handler) throws IOException {
+
+        long size = channel.size();
+        long position = 0;
+        long lineNumber = 0;
+
+        while (position < size) {
+            long length = Math.min(windowBytes, size - position);
+            boolean lastWindow = position + length == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int limit = (int) length;
+
+            int start = 0;
+            while (start < limit) {
+                int end = indexOf(buffer, (byte) '\n', start, limit);
+                if (end < 0) {
+                    if (!lastWindow) {
+                        break;
+                    }
+                    end = limit;
+                }
+                lineNumber++;
+                parseLine(buffer, start, end, lineNumber, position + Math.min(end + 1, limit), handler);
+                start = end + 1;
+            }
+
+            if (start == 0) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + windowBytes + " bytes");
+            }
+            position += Math.min(start, limit);
+        }
+    }
+
+    private static void parseLine(MappedByteBuffer buffer, int start, int end, long lineNumber, long endOffset,
+                                  RowHandler handler) {
+
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+        // Header: the first line does not start with a timestamp
+        if (lineNumber == 1 && !isDigit(buffer.get(start))) {
+            return;
+        }
+
+        int timeEnd = indexOf(buffer, (byte) ',', start, end);
+        if (timeEnd < 0) {
+            handler.onError(lineNumber, endOffset, "Expected measured_at,type,value1[,value2]");
+            return;
+        }
+        long epochSecond = parseTimestamp(buffer, start, timeEnd);
+        if (epochSecond == INVALID) {
+            handler.onError(lineNumber, endOffset, "Unreadable timestamp");
+            return;
+        }
+
+        int typeStart = timeEnd + 1;
+        int typeEnd = indexOf(buffer, (byte) ',', typeStart, end);
+        if (typeEnd < 0) {
+            handler.onError(lineNumber, endOffset, "Missing reading value");
+            return;
+        }
+        int type = parseType(buffer, typeStart, typeEnd);
+        if (type < 0) {
+            handler.onError(lineNumber, endOffset, "Type must be BP, FASTING or POST_MEAL");
+            return;
+        }
+
+        int firstStart = typeEnd + 1;
+        int firstEnd = indexOf(buffer, (byte) ',', firstStart, end);
+        if (firstEnd < 0) {
+            firstEnd = end;
+        }
+        int value1 = parseInt(buffer, firstStart, firstEnd);
+        int value2 = firstEnd < end ? parseInt(buffer, firstEnd + 1, end) : MISSING;
+
+        if (value1 == MISSING || (type == BP && value2 == MISSING)) {
+            handler.onError(lineNumber, endOffset, type == BP
+                    ? "Blood pressure rows need systolic and diastolic values"
+                    : "Sugar rows need a value");
+            return;
+        }
+        handler.onRow(lineNumber, endOffset, epochSecond, type, value1, type == BP ? value2 : MISSING);
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // MISSING for an empty, non-numeric or out-of-range field
+    private static int parseInt(MappedByteBuffer buffer, int start, int end) {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end || end - start > 9) {
+            return MISSING;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                return MISSING;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static int parseType(MappedByteBuffer buffer, int start, int end) {
+        for (int type = 0; type < TYPE_NAMES.length; type++) {
+            byte[] name = TYPE_NAMES[type];
+            if (end - start != name.length) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length && (buffer.get(start + i) & ~0x20) == name[i]) {
+                i++;
+            }
+            if (i == name.length) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Epoch seconds, or YYYY-MM-DD[T| ]HH:MM[:SS[.fraction]][Z|+HH:MM|-HH:MM].
+     * Fractions are dropped; readings are stored to the second.
+     */
+    static long parseTimestamp(MappedByteBuffer buffer, int start, int end) {
+
+        boolean allDigits = end > start;
+        for (int i = start; i < end && allDigits; i++) {
+            allDigits = isDigit(buffer.get(i));
+        }
+        if (allDigits) {
+            return end - start <= 12 ? digits(buffer, start, end) : INVALID;
+        }
+
+        if (end - start < 16 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-'
+                || buffer.get(start + 13) != ':') {
+            return INVALID;
+        }
+        byte separator = buffer.get(start + 10);
+        if (separator != 'T' && separator != 't' && separator != ' ') {
+            return INVALID;
+        }
+
+        long year = digits(buffer, start, start + 4);
+        long month = digits(buffer, start + 5, start + 7);
+        long day = digits(buffer, start + 8, start + 10);
+        long hour = digits(buffer, start + 11, start + 13);
+        long minute = digits(buffer, start + 14, start + 16);
+        long second = 0;
+
+        int i = start + 16;
+        if (i < end && buffer.get(i) == ':') {
+            if (i + 3 > end) {
+                return INVALID;
+            }
+            second = digits(buffer, i + 1, i + 3);
+            i += 3;
+            if (i < end && buffer.get(i) == '.') {
+                i++;
+                while (i < end && isDigit(buffer.get(i))) {
+                    i++;
+                }
+            }
+        }
+
+        long offsetSeconds = 0;
+        if (i < end) {
+            byte zone = buffer.get(i);
+            if ((zone == 'Z' || zone == 'z') && i + 1 == end) {
+                i++;
+            } else if ((zone == '+' || zone == '-') && i + 6 == end && buffer.get(i + 3) == ':') {
+                long offsetHours = digits(buffer, i + 1, i + 3);
+                long offsetMinutes = digits(buffer, i + 4, i + 6);
+                if (offsetHours == INVALID || offsetMinutes == INVALID || offsetHours > 18 || offsetMinutes > 59) {
+                    return INVALID;
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+                i = end;
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (year == INVALID || month == INVALID || day == INVALID || hour == INVALID
+                || minute == INVALID || second == INVALID
+                || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+
+        return daysFromCivil(year, month, day) * 86_400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+    }
+
+    private static long digits(MappedByteBuffer buffer, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                return INVALID;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static long daysInMonth(long year, long month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar (Howard Hinnant's days_from_civil)
+    private static long daysFromCivil(long year, long month, long day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,21 @@
+package com.project.househealth.ingestion;
+
+/**
+ * A reading the database rejected, with how many runs it has failed in so
+ * far. Journaled as "F|failures|" followed by the reading's own line.
+ */
+public record FailedReading(PendingReading reading, int failures) {
+
+    String toJournalLine() {
+        return "F|" + failures + '|' + reading.toJournalLine();
+    }
+
+    static FailedReading fromJournalLine(String line) {
+        int separator = line.indexOf('|', 2);
+        if (!line.startsWith("F|") || separator < 0) {
+            throw new IllegalArgumentException("Not a journaled failed reading: " + line);
+        }
+        return new FailedReading(PendingReading.fromJournalLine(line.substring(separator + 1)),
+                Integer.parseInt(line.substring(2, separator)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.househealth.ingestion;
+
+import com.project.househealth.dto.ImportProgress;
+
+@FunctionalInterface
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = progress -> { };
+
+    void onProgress(ImportProgress progress);
+}
@@ -0,0 +1,149 @@
+package com.project.househealth.ingestion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of acknowledged readings. Each reading is written as an
+ * "R|..." line before it is acknowledged; after a batch commits the writer
+ * appends "C|sequence", meaning every reading up to that sequence is in the
+ * database. On startup, readings after the last commit marker are replayed.
+ *
+ * The failed and dead-letter journals hold "F|failures|R|..." lines instead,
+ * see {@link #failed()}.
+ *
+ * Appends go straight to the file channel, so they survive a process crash
+ * immediately. {@link #sync()} forces them to disk; callers share one sync
+ * between every reading appended before it rather than syncing per reading.
+ */
+public class IngestionJournal implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+
+    public IngestionJournal(Path path) {
+        this.path = path;
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open ingestion journal " + path, ex);
+        }
+    }
+
+    /**
+     * Readings that were journaled but never marked committed, in sequence order.
+     */
+    public List<PendingReading> uncommitted() {
+        List<PendingReading> readings = new ArrayList<>();
+        long committedUpTo = -1;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.startsWith("R|")) {
+                        readings.add(PendingReading.fromJournalLine(line));
+                    } else if (line.startsWith("C|")) {
+                        committedUpTo = Math.max(committedUpTo, Long.parseLong(line.substring(2)));
+                    }
+                } catch (IllegalArgumentException | DateTimeException ex) {
+                    // Torn last line from a crash mid-append; it was never acknowledged
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read ingestion journal " + path, ex);
+        }
+        long committed = committedUpTo;
+        readings.removeIf(reading -> reading.sequence() <= committed);
+        return readings;
+    }
+
+    /**
+     * Every failed reading in the journal, in append order. A plain reading
+     * line, as older versions wrote, counts as one failure.
+     */
+    public List<FailedReading> failed() {
+        List<FailedReading> readings = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.startsWith("F|")) {
+                        readings.add(FailedReading.fromJournalLine(line));
+                    } else if (line.startsWith("R|")) {
+                        readings.add(new FailedReading(PendingReading.fromJournalLine(line), 1));
+                    }
+                } catch (IllegalArgumentException | DateTimeException ex) {
+                    // Torn last line from a crash mid-append
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read ingestion journal " + path, ex);
+        }
+        return readings;
+    }
+
+    public void append(PendingReading reading) {
+        write(reading.toJournalLine());
+    }
+
+    public void append(FailedReading reading) {
+        write(reading.toJournalLine());
+    }
+
+    public void markCommitted(long sequence) {
+        write("C|" + sequence);
+    }
+
+    public void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot sync ingestion journal " + path, ex);
+        }
+    }
+
+    /**
+     * Drops all content. Only safe when nothing is pending.
+     */
+    public void truncate() {
+        try {
+            channel.truncate(0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot truncate ingestion journal " + path, ex);
+        }
+    }
+
+    private void write(String line) {
+        ByteBuffer buffer = ByteBuffer.wrap((line + '\n').getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to ingestion journal " + path, ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close ingestion journal " + path, ex);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.househealth.ingestion;
+
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+
+import java.time.Instant;
+
+/**
+ * A reading that has been acknowledged but not yet written to the database.
+ * Holds only ids and values so it can be journaled and replayed.
+ */
+public record PendingReading(long sequence,
+                             Long userId,
+                             MetricType metricType,
+                             SugarType sugarType,
+                             Integer systolic,
+                             Integer diastolic,
+                             Integer sugarValue,
+                             Instant measuredAt,
+                             String readingKey) {
+
+    public static PendingReading of(long sequence, HealthLog healthLog) {
+        return new PendingReading(sequence,
+                healthLog.getUser().getUserId(),
+                healthLog.getMetricType(),
+                healthLog.getSugarType(),
+                healthLog.getSystolic(),
+                healthLog.getDiastolic(),
+                healthLog.getSugarValue(),
+                healthLog.getMeasuredAt(),
+                healthLog.getReadingKey());
+    }
+
+    public HealthLog toHealthLog(User user) {
+        HealthLog healthLog = new HealthLog(metricType, user);
+        healthLog.setSugarType(sugarType);
+        healthLog.setSystolic(systolic);
+        healthLog.setDiastolic(diastolic);
+        healthLog.setSugarValue(sugarValue);
+        healthLog.setMeasuredAt(measuredAt);
+        healthLog.setReadingKey(readingKey);
+        return healthLog;
+    }
+
+    String toJournalLine() {
+        return "R|" + sequence + '|' + userId + '|' + metricType + '|'
+                + nullable(sugarType) + '|' + nullable(systolic) + '|'
+                + nullable(diastolic) + '|' + nullable(sugarValue) + '|'
+                + nullable(measuredAt) + '|' + nullable(readingKey);
+    }
+
+    static PendingReading fromJournalLine(String line) {
+        String[] parts = line.split("\\|", -1);
+        if (parts.length != 10 || !parts[0].equals("R")) {
+            throw new IllegalArgumentException("Not a journaled reading: " + line);
+        }
+        return new PendingReading(
+                Long.parseLong(parts[1]),
+                Long.valueOf(parts[2]),
+                MetricType.valueOf(parts[3]),
+                parts[4].isEmpty() ? null : SugarType.valueOf(parts[4]),
+                parseInteger(parts[5]),
+                parseInteger(parts[6]),
+                parseInteger(parts[7]),
+                parts[8].isEmpty() ? null : Instant.parse(parts[8]),
+                parts[9].isEmpty() ? null : parts[9]);
+    }
+
+    private static String nullable(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static Integer parseInteger(String value) {
+        return value.isEmpty() ? null : Integer.valueOf(value);
+    }
+}
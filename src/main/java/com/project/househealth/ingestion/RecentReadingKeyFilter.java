@@ -0,0 +1,132 @@
+package com.project.househealth.ingestion;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the (user, reading key) pairs ingested recently. A
+ * negative answer is definite, so a fresh reading is inserted without first
+ * looking for an earlier copy; only a positive answer costs a lookup.
+ *
+ * Keys are added to the current generation. Once a window has passed the
+ * current generation becomes the previous one and the oldest is dropped, so
+ * every key is remembered for at least one window and memory stays fixed.
+ * Keys older than that are still caught by the unique index on insert.
+ */
+@Component
+public class RecentReadingKeyFilter {
+
+    private final int bits;
+    private final int hashes;
+    private final long windowMillis;
+    private final Clock clock;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    @Autowired
+    public RecentReadingKeyFilter(@Value("${househealth.ingestion.reading-keys.bits:8388608}") int bits,
+                                  @Value("${househealth.ingestion.reading-keys.hashes:4}") int hashes,
+                                  @Value("${househealth.ingestion.reading-keys.window:PT1H}") Duration window) {
+        this(bits, hashes, window, Clock.systemUTC());
+    }
+
+    RecentReadingKeyFilter(int bits, int hashes, Duration window, Clock clock) {
+        if (bits < 64 || hashes < 1 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Filter needs at least 64 bits, one hash and a positive window");
+        }
+        this.bits = bits;
+        this.hashes = hashes;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        long now = clock.millis();
+        this.current = new Generation(bits, now);
+        this.previous = new Generation(bits, now - windowMillis);
+    }
+
+    public Duration window() {
+        return Duration.ofMillis(windowMillis);
+    }
+
+    public boolean mightContain(Long userId, String readingKey) {
+        rotateIfDue();
+        long hash = hash(userId, readingKey);
+        return current.mightContain(hash) || previous.mightContain(hash);
+    }
+
+    public void put(Long userId, String readingKey) {
+        rotateIfDue();
+        current.put(hash(userId, readingKey));
+    }
+
+    private void rotateIfDue() {
+        long now = clock.millis();
+        if (now - current.startedAt < windowMillis) {
+            return;
+        }
+        synchronized (this) {
+            Generation active = current;
+            if (now - active.startedAt < windowMillis) {
+                return;
+            }
+            // After a long idle spell both generations are stale
+            previous = now - active.startedAt < 2 * windowMillis ? active : new Generation(bits, now - windowMillis);
+            current = new Generation(bits, now);
+        }
+    }
+
+    private static long hash(Long userId, String readingKey) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < readingKey.length(); i++) {
+            h = (h ^ readingKey.charAt(i)) * 0x100000001B3L;
+        }
+        // fmix64 from MurmurHash3 spreads the bits over both halves
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class Generation {
+
+        private final AtomicLongArray words;
+        private final long startedAt;
+
+        private Generation(int bits, long startedAt) {
+            this.words = new AtomicLongArray((bits + 63) >>> 6);
+            this.startedAt = startedAt;
+        }
+
+        // Kirsch-Mitzenmacher: probe i is h1 + i * h2, so one 64-bit hash is enough
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                if ((words.get(bit >>> 6) & mask) == 0) {
+                    words.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+                }
+            }
+        }
+    }
+}
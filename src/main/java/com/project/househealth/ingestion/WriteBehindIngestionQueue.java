@@ -0,0 +1,415 @@
+package com.project.househealth.ingestion;
+
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.dto.IngestionFailure;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.exception.IngestionBackpressureException;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind ingestion. Readings are journaled, acknowledged and
+ * queued; a single writer thread drains whatever has accumulated (up to
+ * batchSize) and group-commits it through the bulk ingestion path. While one
+ * batch commits the next one fills up, so batch size grows with load.
+ *
+ * The queue is bounded by a semaphore that is released only after a reading
+ * is committed. When it is exhausted, submit waits up to offerTimeoutMillis
+ * and then rejects with {@link IngestionBackpressureException}.
+ *
+ * Nothing acknowledged is dropped. Readings the database still rejects after
+ * MAX_WRITE_ATTEMPTS, or that are left over at shutdown, are moved to a
+ * second journal next to the first and replayed with it on the next start.
+ * A reading that has failed in MAX_FAILED_RUNS runs is moved to a third,
+ * dead-letter journal instead, which is never replayed; {@link #stats()}
+ * counts the readings it holds.
+ */
+@Component
+@ConditionalOnProperty(name = "househealth.ingestion.write-behind.enabled", havingValue = "true")
+public class WriteBehindIngestionQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindIngestionQueue.class);
+
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private static final int MAX_FAILED_RUNS = 3;
+
+    private final HealthLogService healthLogService;
+    private final UserRepository userRepository;
+    private final Path journalPath;
+    private final int capacity;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long offerTimeoutMillis;
+
+    private final Semaphore capacityPermits;
+    private final BlockingQueue<PendingReading> queue = new LinkedBlockingQueue<>();
+
+    // Keeps sequence order, journal order and queue order identical
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long lastSequence;
+    private long lastCommittedSequence;
+
+    // Replayed readings beyond capacity hold no permit, so their commit must not release one
+    private int unpermittedReplays;
+
+    // One fsync covers every reading appended before it, so waiting submitters share it
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long syncedSequence;
+
+    private IngestionJournal journal;
+    private IngestionJournal failedJournal;
+    private IngestionJournal deadLetterJournal;
+
+    // sequence -> runs a replayed reading already failed in; only touched by the writer after start
+    private final Map<Long, Integer> priorFailures = new HashMap<>();
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedReadings = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastCommitNanos;
+
+    public WriteBehindIngestionQueue(HealthLogService healthLogService,
+                                     UserRepository userRepository,
+                                     @Value("${househealth.ingestion.write-behind.journal:data/ingestion.journal}") Path journalPath,
+                                     @Value("${househealth.ingestion.write-behind.capacity:10000}") int capacity,
+                                     @Value("${househealth.ingestion.write-behind.batch-size:500}") int batchSize,
+                                     @Value("${househealth.ingestion.write-behind.poll-millis:50}") long pollMillis,
+                                     @Value("${househealth.ingestion.write-behind.offer-timeout-millis:100}") long offerTimeoutMillis) {
+        this.healthLogService = healthLogService;
+        this.userRepository = userRepository;
+        this.journalPath = journalPath;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.capacityPermits = new Semaphore(capacity);
+    }
+
+    /**
+     * Journals and enqueues a validated reading. Returns once the journal has
+     * been forced to disk up to this reading; readings submitted together
+     * share one fsync. The database write happens later.
+     */
+    public void submit(HealthLog healthLog) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind ingestion is not running");
+        }
+
+        try {
+            if (!capacityPermits.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new IngestionBackpressureException("Ingestion queue is full, retry later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IngestionBackpressureException("Interrupted while waiting for ingestion queue capacity");
+        }
+
+        long sequence;
+        appendLock.lock();
+        try {
+            PendingReading reading = PendingReading.of(lastSequence + 1, healthLog);
+            journal.append(reading);
+            lastSequence = reading.sequence();
+            sequence = lastSequence;
+            queue.add(reading);
+        } catch (RuntimeException ex) {
+            capacityPermits.release();
+            throw ex;
+        } finally {
+            appendLock.unlock();
+        }
+
+        syncThrough(sequence);
+        accepted.increment();
+    }
+
+    private void syncThrough(long sequence) {
+        if (syncedSequence >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            long appended;
+            appendLock.lock();
+            try {
+                appended = lastSequence;
+            } finally {
+                appendLock.unlock();
+            }
+            journal.sync();
+            syncedSequence = appended;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public WriteBehindStats stats() {
+        long batchCount = batches.get();
+        return new WriteBehindStats(
+                queue.size(),
+                capacity,
+                accepted.sum(),
+                rejected.sum(),
+                written.sum(),
+                failed.sum(),
+                deadLettered.sum(),
+                batchCount,
+                lastBatchSize,
+                batchCount == 0 ? 0 : (double) batchedReadings.get() / batchCount,
+                TimeUnit.NANOSECONDS.toMillis(lastCommitNanos),
+                batchCount == 0 ? 0 : totalCommitNanos.get() / 1e6 / batchCount);
+    }
+
+    @Override
+    public void start() {
+        journal = new IngestionJournal(journalPath);
+        failedJournal = new IngestionJournal(journalPath.resolveSibling(journalPath.getFileName() + ".failed"));
+        deadLetterJournal = new IngestionJournal(journalPath.resolveSibling(journalPath.getFileName() + ".dead"));
+        deadLettered.add(deadLetterJournal.failed().size());
+
+        // Re-sequence leftovers from the previous run, failed ones first, into a fresh journal
+        List<FailedReading> leftovers = new ArrayList<>(failedJournal.failed());
+        for (PendingReading uncommitted : journal.uncommitted()) {
+            leftovers.add(new FailedReading(uncommitted, 0));
+        }
+        journal.truncate();
+        for (FailedReading leftover : leftovers) {
+            PendingReading old = leftover.reading();
+            PendingReading reading = new PendingReading(++lastSequence, old.userId(), old.metricType(),
+                    old.sugarType(), old.systolic(), old.diastolic(), old.sugarValue(),
+                    old.measuredAt(), old.readingKey());
+            journal.append(reading);
+            queue.add(reading);
+            if (leftover.failures() > 0) {
+                priorFailures.put(reading.sequence(), leftover.failures());
+            }
+        }
+        journal.sync();
+        syncedSequence = lastSequence;
+        failedJournal.truncate();
+        failedJournal.sync();
+        capacityPermits.acquireUninterruptibly(Math.min(leftovers.size(), capacity));
+        unpermittedReplays = Math.max(0, leftovers.size() - capacity);
+        if (!leftovers.isEmpty()) {
+            log.info("Replaying {} journaled readings", leftovers.size());
+        }
+
+        running = true;
+        writer = new Thread(this::runWriter, "health-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        failedJournal.close();
+        deadLetterJournal.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWriter() {
+        List<PendingReading> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReading first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    compactIfIdle();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                if (!writeBatch(batch)) {
+                    stopWriter();
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Write-behind batch of {} readings failed", batch.size(), ex);
+                if (!keepForReplay(batch)) {
+                    stopWriter();
+                    return;
+                }
+                markCommitted(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Without a commit marker the main journal replays the current batch and everything after it;
+    // submits keep journaling until the queue is full
+    private void stopWriter() {
+        log.error("Stopping write-behind writer; {} queued readings stay in the journal for replay",
+                queue.size());
+    }
+
+    /**
+     * Writes a batch and marks it committed. Returns false, leaving the batch
+     * uncommitted, when readings the database rejected could not be kept.
+     */
+    private boolean writeBatch(List<PendingReading> batch) throws InterruptedException {
+
+        long start = System.nanoTime();
+        BulkIngestionResult result = null;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            result = healthLogService.createHealthLogs(toHealthLogs(batch));
+            if (result.acceptedCount() > 0 || !running) {
+                break;
+            }
+            // Nothing went through: most likely the database is unavailable
+            log.warn("Write-behind batch rejected entirely (attempt {}/{}): {}",
+                    attempt, MAX_WRITE_ATTEMPTS, result.failures().get(0).reason());
+            Thread.sleep(1000L << (attempt - 1));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<PendingReading> failures = new ArrayList<>(result.failedCount());
+        for (IngestionFailure failure : result.failures()) {
+            log.error("Keeping reading {} for replay after write failure: {}",
+                    batch.get(failure.index()).toJournalLine(), failure.reason());
+            failures.add(batch.get(failure.index()));
+        }
+        if (!failures.isEmpty() && !keepForReplay(failures)) {
+            return false;
+        }
+
+        written.add(result.acceptedCount());
+        batches.incrementAndGet();
+        batchedReadings.addAndGet(batch.size());
+        totalCommitNanos.addAndGet(elapsed);
+        lastBatchSize = batch.size();
+        lastCommitNanos = elapsed;
+
+        markCommitted(batch);
+        return true;
+    }
+
+    /**
+     * Moves readings the database did not take to the failed journal, or to
+     * the dead-letter journal once they have failed in MAX_FAILED_RUNS runs,
+     * so the batch can be marked committed without losing them.
+     */
+    private boolean keepForReplay(List<PendingReading> readings) {
+        int dead = 0;
+        try {
+            for (PendingReading reading : readings) {
+                Integer prior = priorFailures.remove(reading.sequence());
+                FailedReading failedReading = new FailedReading(reading, prior == null ? 1 : prior + 1);
+                if (failedReading.failures() >= MAX_FAILED_RUNS) {
+                    log.error("Dead-lettering reading {} after failing in {} runs",
+                            reading.toJournalLine(), failedReading.failures());
+                    deadLetterJournal.append(failedReading);
+                    dead++;
+                } else {
+                    failedJournal.append(failedReading);
+                }
+            }
+            failedJournal.sync();
+            if (dead > 0) {
+                deadLetterJournal.sync();
+            }
+        } catch (RuntimeException ex) {
+            log.error("Cannot keep {} readings in the failed journal", readings.size(), ex);
+            return false;
+        }
+        failed.add(readings.size() - dead);
+        deadLettered.add(dead);
+        return true;
+    }
+
+    private List<HealthLog> toHealthLogs(List<PendingReading> batch) {
+        // Fresh entities per attempt: a rolled-back persist leaves ids behind on the old ones
+        List<HealthLog> healthLogs = new ArrayList<>(batch.size());
+        for (PendingReading reading : batch) {
+            healthLogs.add(reading.toHealthLog(userRepository.getReferenceById(reading.userId())));
+        }
+        return healthLogs;
+    }
+
+    private void markCommitted(List<PendingReading> batch) {
+        long sequence = batch.get(batch.size() - 1).sequence();
+        appendLock.lock();
+        try {
+            journal.markCommitted(sequence);
+            lastCommittedSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        if (!priorFailures.isEmpty()) {
+            for (PendingReading reading : batch) {
+                priorFailures.remove(reading.sequence());
+            }
+        }
+
+        int permits = batch.size();
+        if (unpermittedReplays > 0) {
+            int unpermitted = Math.min(unpermittedReplays, permits);
+            unpermittedReplays -= unpermitted;
+            permits -= unpermitted;
+        }
+        capacityPermits.release(permits);
+    }
+
+    private void compactIfIdle() {
+        // Same order as syncThrough, so no fsync in flight can record a sequence from before the reset
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (lastCommittedSequence == lastSequence && lastSequence > 0 && queue.isEmpty()) {
+                journal.truncate();
+                lastSequence = 0;
+                lastCommittedSequence = 0;
+                syncedSequence = 0;
+            }
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.project.househealth.ingestion;
+
+/**
+ * Point-in-time metrics of the write-behind queue.
+ */
+public record WriteBehindStats(int queueDepth,
+                               int capacity,
+                               long accepted,
+                               long rejected,
+                               long written,
+                               long failed,
+                               long deadLettered,
+                               long batches,
+                               int lastBatchSize,
+                               double averageBatchSize,
+                               long lastCommitMillis,
+                               double averageCommitMillis) {
+}
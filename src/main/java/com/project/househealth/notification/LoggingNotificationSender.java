@@ -0,0 +1,20 @@
+package com.project.househealth.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Default sender until a real channel is configured: writes every notification to the log
+public class LoggingNotificationSender implements NotificationSender {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingNotificationSender.class);
+
+    @Override
+    public void send(List<Notification> batch) {
+        for (Notification notification : batch) {
+            log.info("Notify user {} ({} about user {}): {}", notification.recipientUserId(),
+                    notification.type(), notification.subjectUserId(), notification.message());
+        }
+    }
+}
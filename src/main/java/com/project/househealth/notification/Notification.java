@@ -0,0 +1,13 @@
+package com.project.househealth.notification;
+
+import com.project.househealth.enums.NotificationType;
+
+/**
+ * One message to one recipient about a user's readings or reminders; the
+ * recipient is the user themselves or one of their observers.
+ */
+public record Notification(Long recipientUserId,
+                           Long subjectUserId,
+                           NotificationType type,
+                           String message) {
+}
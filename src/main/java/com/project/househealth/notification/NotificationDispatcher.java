@@ -0,0 +1,236 @@
+package com.project.househealth.notification;
+
+import com.project.househealth.enums.NotificationType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs every delivery (one sender call with one batch) on its own virtual
+ * thread, so slow channels tie up no platform threads. In-flight
+ * deliveries are capped per destination (see NotificationSender), so one
+ * slow endpoint cannot use up the slots of the others.
+ *
+ * Only reminders wait for a slot for as long as it takes: they are sent
+ * by the reminder sweep, which then slows to the pace the endpoint can
+ * take. Alerts are sent inline by request threads and the ingestion
+ * writer, which must not stall behind a slow endpoint, so they wait at
+ * most inline-wait and are otherwise rejected, logged and counted.
+ *
+ * A failed delivery is retried up to max-attempts times. The wait before
+ * retry n is drawn uniformly from [0, retry-backoff * 2^(n-1)] (full
+ * jitter), so failing deliveries do not retry in lockstep.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationSender sender;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration inlineWait;
+    private final Map<String, Semaphore> inFlightLimits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failedDeliveries = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong totalDeliveryNanos = new AtomicLong();
+    private final AtomicLong maxDeliveryNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastDeliveryNanos;
+
+    // Guarded by this: deliveries in flight, and wall time spent with any in flight
+    private int inFlight;
+    private long busySince;
+    private long busyNanos;
+
+    public NotificationDispatcher(NotificationSender sender,
+                                  @Value("${househealth.notifications.max-in-flight:1000}") int maxInFlight,
+                                  @Value("${househealth.notifications.max-attempts:3}") int maxAttempts,
+                                  @Value("${househealth.notifications.retry-backoff:PT0.2S}") Duration retryBackoff,
+                                  @Value("${househealth.notifications.inline-wait:PT0.1S}") Duration inlineWait) {
+        this.sender = sender;
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.inlineWait = inlineWait;
+    }
+
+    /*
+     * Hands a batch for one destination to a virtual thread. With
+     * maxInFlight deliveries to that destination in flight, a reminder batch
+     * blocks until one finishes; any other batch waits at most inline-wait
+     * and is then dropped. False if the batch was dropped.
+     */
+    public boolean dispatch(NotificationType type, List<Notification> batch) {
+        String destination = destination(batch.get(0));
+        Semaphore limit = inFlightLimits.computeIfAbsent(destination, key -> new Semaphore(maxInFlight));
+        if (!limit.tryAcquire()) {
+            throttled.increment();
+            if (!acquire(type, limit)) {
+                rejected.increment();
+                log.error("Dropped a batch of {} {} notifications: {} deliveries to {} already in flight",
+                        batch.size(), type, maxInFlight, destination);
+                return false;
+            }
+        }
+        List<Notification> copy = List.copyOf(batch);
+        started();
+        try {
+            executor.execute(() -> {
+                try {
+                    deliver(copy);
+                } finally {
+                    limit.release();
+                    finished();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            limit.release();
+            finished();
+            throw ex;
+        }
+        return true;
+    }
+
+    String destination(Notification notification) {
+        return sender.destination(notification);
+    }
+
+    // Backpressure is for the reminder sweep alone; every other caller is on a path that must keep moving
+    private boolean acquire(NotificationType type, Semaphore limit) {
+        if (type == NotificationType.REMINDER) {
+            limit.acquireUninterruptibly();
+            return true;
+        }
+        try {
+            return limit.tryAcquire(inlineWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void deliver(List<Notification> batch) {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    sender.send(batch);
+                    delivered.add(batch.size());
+                    return;
+                } catch (RuntimeException ex) {
+                    if (attempt >= maxAttempts) {
+                        failedDeliveries.increment();
+                        log.error("Giving up on a batch of {} notifications after {} attempts",
+                                batch.size(), attempt, ex);
+                        return;
+                    }
+                    retries.increment();
+                    TimeUnit.MILLISECONDS.sleep(backoffMillis(attempt));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failedDeliveries.increment();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            deliveries.increment();
+            totalDeliveryNanos.addAndGet(elapsed);
+            maxDeliveryNanos.accumulateAndGet(elapsed, Math::max);
+            lastBatchSize = batch.size();
+            lastDeliveryNanos = elapsed;
+        }
+    }
+
+    long backoffMillis(int attempt) {
+        long ceiling = retryBackoff.toMillis() << Math.min(attempt - 1, 16);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private synchronized void started() {
+        if (inFlight++ == 0) {
+            busySince = System.nanoTime();
+        }
+    }
+
+    private synchronized void finished() {
+        if (--inFlight == 0) {
+            busyNanos += System.nanoTime() - busySince;
+            notifyAll();
+        }
+    }
+
+    // Waits until nothing is in flight; false if that did not happen within the timeout
+    public synchronized boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    // Delivery metrics, completed with the request counts of the fan-out in front
+    public NotificationStats stats(long requests, long notifications) {
+        long deliveryCount = deliveries.sum();
+        long busy;
+        int current;
+        synchronized (this) {
+            current = inFlight;
+            busy = busyNanos + (inFlight > 0 ? System.nanoTime() - busySince : 0);
+        }
+        return new NotificationStats(
+                requests,
+                notifications,
+                deliveryCount,
+                failedDeliveries.sum(),
+                retries.sum(),
+                throttled.sum(),
+                rejected.sum(),
+                current,
+                maxInFlight,
+                lastBatchSize,
+                lastDeliveryNanos / 1e6,
+                deliveryCount == 0 ? 0 : totalDeliveryNanos.get() / 1e6 / deliveryCount,
+                maxDeliveryNanos.get() / 1e6,
+                busy == 0 ? 0 : delivered.sum() * 1e9 / busy);
+    }
+
+    // Lets in-flight deliveries finish, retries included, before the sender goes away
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Notification deliveries still running at shutdown: {}", executor.shutdownNow().size());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
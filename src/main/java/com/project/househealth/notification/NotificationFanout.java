@@ -0,0 +1,160 @@
+package com.project.househealth.notification;
+
+import com.project.househealth.dto.ObserverLink;
+import com.project.househealth.enums.NotificationType;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns "something happened to user X" into notifications for X's family
+ * observers (and X, where asked) and hands them to the NotificationSender
+ * in batches.
+ *
+ * Requests made inside a transaction are held until it commits, so
+ * nothing is sent for work that rolls back, and every request of the
+ * transaction is resolved together: one set-based query finds the
+ * observers of all subjects (per chunk of subjects), then notifications
+ * go to the dispatcher in batches of batch-size. Outside a transaction a
+ * request is resolved right away.
+ */
+@Component
+public class NotificationFanout {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationFanout.class);
+
+    static final int SUBJECT_CHUNK_SIZE = 1000;
+
+    private record Request(Long subjectUserId, NotificationType type, String message, boolean includeSubject) {
+    }
+
+    // Batches never mix types or destinations
+    private record Route(NotificationType type, String destination) {
+    }
+
+    private final FamilyMembershipRepository familyMembershipRepository;
+    private final NotificationDispatcher dispatcher;
+    private final TransactionTemplate lookupTransaction;
+    private final int batchSize;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+
+    public NotificationFanout(FamilyMembershipRepository familyMembershipRepository,
+                              NotificationDispatcher dispatcher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${househealth.notifications.batch-size:200}") int batchSize) {
+        this.familyMembershipRepository = familyMembershipRepository;
+        this.dispatcher = dispatcher;
+        // After commit the finished transaction is still bound to the thread, so the lookup needs its own
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lookupTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+    }
+
+    public void notifyObservers(Long subjectUserId, NotificationType type, String message) {
+        submit(new Request(subjectUserId, type, message, false));
+    }
+
+    public void notifyUserAndObservers(Long subjectUserId, NotificationType type, String message) {
+        submit(new Request(subjectUserId, type, message, true));
+    }
+
+    public NotificationStats stats() {
+        return dispatcher.stats(requests.sum(), notifications.sum());
+    }
+
+    private void submit(Request request) {
+        requests.increment();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatch(List.of(request));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Request> pending = (List<Request>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Request> transactionRequests = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, transactionRequests);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NotificationFanout.this);
+                    if (status == STATUS_COMMITTED) {
+                        dispatch(transactionRequests);
+                    }
+                }
+            });
+            pending = transactionRequests;
+        }
+        pending.add(request);
+    }
+
+    private void dispatch(List<Request> pending) {
+        try {
+            send(resolve(pending));
+        } catch (RuntimeException ex) {
+            // The work itself is committed; a lost notification must not surface as its failure
+            log.error("Could not fan out {} notification requests", pending.size(), ex);
+        }
+    }
+
+    private List<Notification> resolve(List<Request> pending) {
+
+        List<Long> subjects = pending.stream().map(Request::subjectUserId).distinct().toList();
+        Map<Long, List<Long>> observers = new HashMap<>();
+        lookupTransaction.executeWithoutResult(status -> {
+            for (int from = 0; from < subjects.size(); from += SUBJECT_CHUNK_SIZE) {
+                List<Long> chunk = subjects.subList(from, Math.min(subjects.size(), from + SUBJECT_CHUNK_SIZE));
+                for (ObserverLink link : familyMembershipRepository.findObserverLinks(chunk)) {
+                    observers.computeIfAbsent(link.userId(), userId -> new ArrayList<>()).add(link.observerUserId());
+                }
+            }
+        });
+
+        List<Notification> resolved = new ArrayList<>();
+        for (Request request : pending) {
+            Set<Long> recipients = new LinkedHashSet<>();
+            if (request.includeSubject()) {
+                recipients.add(request.subjectUserId());
+            }
+            recipients.addAll(observers.getOrDefault(request.subjectUserId(), List.of()));
+            for (Long recipient : recipients) {
+                resolved.add(new Notification(recipient, request.subjectUserId(), request.type(), request.message()));
+            }
+        }
+        notifications.add(resolved.size());
+        return resolved;
+    }
+
+    // Each batch is held to its destination's in-flight limit, and its type decides whether it may wait
+    private void send(List<Notification> resolved) {
+        Map<Route, List<Notification>> byRoute = new LinkedHashMap<>();
+        for (Notification notification : resolved) {
+            byRoute.computeIfAbsent(new Route(notification.type(), dispatcher.destination(notification)),
+                    route -> new ArrayList<>()).add(notification);
+        }
+        byRoute.forEach((route, notifications) -> {
+            for (int from = 0; from < notifications.size(); from += batchSize) {
+                dispatcher.dispatch(route.type(),
+                        notifications.subList(from, Math.min(notifications.size(), from + batchSize)));
+            }
+        });
+    }
+}
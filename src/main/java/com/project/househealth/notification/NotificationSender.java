@@ -0,0 +1,26 @@
+package com.project.househealth.notification;
+
+import java.util.List;
+
+/**
+ * Delivers notifications to a channel (push, email, ...). Called with
+ * batches of at most househealth.notifications.batch-size notifications of
+ * one type, from many virtual threads at once, so implementations must be
+ * thread-safe and may block on I/O. A batch that throws is retried as a
+ * whole. Declare a bean of this type to replace the logging default.
+ */
+public interface NotificationSender {
+
+    String DEFAULT_DESTINATION = "default";
+
+    void send(List<Notification> batch);
+
+    /*
+     * The endpoint a notification goes out through (a push gateway, an SMTP
+     * relay, ...). A batch only ever holds notifications for one
+     * destination, and in-flight deliveries are capped per destination.
+     */
+    default String destination(Notification notification) {
+        return DEFAULT_DESTINATION;
+    }
+}
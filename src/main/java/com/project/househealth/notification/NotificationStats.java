@@ -0,0 +1,25 @@
+package com.project.househealth.notification;
+
+/**
+ * Point-in-time metrics of notification fan-out and delivery. A batch is
+ * one sender call; its latency runs from the first attempt to the last,
+ * retries included. A throttled dispatch found its destination at the
+ * in-flight cap; a rejected one gave up waiting and was dropped.
+ * Throughput is notifications delivered per second of wall time with at
+ * least one delivery in flight.
+ */
+public record NotificationStats(long requests,
+                                long notifications,
+                                long batches,
+                                long failedBatches,
+                                long retries,
+                                long throttledDispatches,
+                                long rejectedDispatches,
+                                int inFlight,
+                                int maxInFlightPerDestination,
+                                int lastBatchSize,
+                                double lastBatchMillis,
+                                double averageBatchMillis,
+                                double maxBatchMillis,
+                                double notificationsPerSecond) {
+}
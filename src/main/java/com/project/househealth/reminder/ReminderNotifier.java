@@ -0,0 +1,30 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.enums.NotificationType;
+import com.project.househealth.event.ReminderDueEvent;
+import com.project.househealth.notification.NotificationFanout;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivers due reminders to their owner and the owner's family observers.
+ * The fan-out holds them until the scheduler's transaction commits, so a
+ * reminder is only sent once it is recorded as triggered, and everything
+ * fired in one tick goes out together.
+ */
+@Component
+public class ReminderNotifier {
+
+    private final NotificationFanout notificationFanout;
+
+    public ReminderNotifier(NotificationFanout notificationFanout) {
+        this.notificationFanout = notificationFanout;
+    }
+
+    @EventListener
+    public void onReminderDue(ReminderDueEvent event) {
+        String message = String.format("Time to log a %s reading (reminder %d, due %s)",
+                event.metricType(), event.reminderId(), event.dueAt());
+        notificationFanout.notifyUserAndObservers(event.userId(), NotificationType.REMINDER, message);
+    }
+}
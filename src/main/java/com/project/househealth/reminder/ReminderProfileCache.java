@@ -0,0 +1,150 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.dto.ReminderConfig;
+import com.project.househealth.dto.ReminderProfile;
+import com.project.househealth.event.ReminderSettingsChangedEvent;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of reminder profiles, bounded by
+ * househealth.reminders.profile-cache-size users. Misses are loaded
+ * together, one query per chunk of users, so a batch of profiles costs at
+ * most a few queries however many metrics each user has reminders for.
+ *
+ * A user's profile is dropped after any transaction that changed one of
+ * their reminders commits. A load that overlapped such a drop is returned
+ * but not cached, so a profile read before the commit cannot come back.
+ * Those drops are only heard on the node that made the change, so every
+ * profile is also reloaded once it is older than
+ * househealth.reminders.profile-ttl; that bounds how long another node
+ * can serve a profile changed elsewhere.
+ */
+@Component
+public class ReminderProfileCache {
+
+    static final int LOAD_CHUNK_SIZE = 1000;
+
+    private static final Comparator<ReminderConfig> METRIC_ORDER =
+            Comparator.comparing(ReminderConfig::metricType);
+
+    private record Cached(ReminderProfile profile, Instant expiresAt) {}
+
+    private final ReminderSettingsRepository reminderSettingsRepository;
+    private final Clock clock;
+    private final Duration ttl;
+    private final Map<Long, Cached> profiles;
+
+    // Bumped on every invalidation, under the cache lock
+    private long invalidations;
+
+    @Autowired
+    public ReminderProfileCache(ReminderSettingsRepository reminderSettingsRepository,
+                                @Value("${househealth.reminders.profile-cache-size:10000}") int maxSize,
+                                @Value("${househealth.reminders.profile-ttl:PT1M}") Duration ttl) {
+        this(reminderSettingsRepository, maxSize, ttl, Clock.systemUTC());
+    }
+
+    ReminderProfileCache(ReminderSettingsRepository reminderSettingsRepository, int maxSize, Duration ttl,
+                         Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Profile cache needs room for at least one user");
+        }
+        this.reminderSettingsRepository = reminderSettingsRepository;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.profiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public ReminderProfile get(Long userId) {
+        return getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * @return a profile for every requested user, in request order
+     */
+    public Map<Long, ReminderProfile> getAll(Collection<Long> userIds) {
+        Map<Long, ReminderProfile> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long generation;
+        // Taken before the load, so an entry never outlives the TTL counted from its read
+        Instant expiresAt = clock.instant().plus(ttl);
+        synchronized (this) {
+            Instant now = clock.instant();
+            for (Long userId : new LinkedHashSet<>(userIds)) {
+                Cached cached = profiles.get(userId);
+                if (cached != null && !cached.expiresAt().isAfter(now)) {
+                    profiles.remove(userId);
+                    cached = null;
+                }
+                found.put(userId, cached == null ? null : cached.profile());
+                if (cached == null) {
+                    missing.add(userId);
+                }
+            }
+            generation = invalidations;
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        Map<Long, ReminderProfile> loaded = load(missing);
+        found.putAll(loaded);
+        synchronized (this) {
+            if (generation == invalidations) {
+                loaded.forEach((userId, profile) -> profiles.put(userId, new Cached(profile, expiresAt)));
+            }
+        }
+        return found;
+    }
+
+    private Map<Long, ReminderProfile> load(List<Long> userIds) {
+        Map<Long, List<ReminderConfig>> byUser = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(userIds.size(), from + LOAD_CHUNK_SIZE));
+            for (ReminderConfig reminder : reminderSettingsRepository.findConfigsByUserIds(chunk)) {
+                byUser.computeIfAbsent(reminder.userId(), userId -> new ArrayList<>()).add(reminder);
+            }
+        }
+        Map<Long, ReminderProfile> loaded = new HashMap<>();
+        for (Long userId : userIds) {
+            List<ReminderConfig> reminders = byUser.getOrDefault(userId, List.of());
+            loaded.put(userId, new ReminderProfile(userId, reminders.stream().sorted(METRIC_ORDER).toList()));
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(Long userId) {
+        invalidations++;
+        profiles.remove(userId);
+    }
+
+    synchronized int size() {
+        return profiles.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReminderSettingsChanged(ReminderSettingsChangedEvent event) {
+        invalidate(event.userId());
+    }
+}
@@ -0,0 +1,403 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.dto.DueReminder;
+import com.project.househealth.dto.LatestReading;
+import com.project.househealth.dto.ReminderState;
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.enums.FrequencyType;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.event.ReminderDueEvent;
+import com.project.househealth.event.ReminderSettingsChangedEvent;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires reminders from an in-memory timing wheel instead of polling
+ * reminder_settings. Only reminders due within the next window are held:
+ * the wheel is refilled every half window with a keyset walk over
+ * idx_reminder_settings_due, so a reminder
+ * is always loaded well before it is due, and a restart reloads just that
+ * window. A fired reminder is marked triggered and, if its next occurrence
+ * falls inside the window, goes straight back on the wheel.
+ *
+ * With several application nodes, each one only loads and fires the
+ * reminders of the shards it leases (see ReminderShardLeases). A tick
+ * starts with the heartbeat when one is due, and a failed heartbeat ends
+ * the tick, so a node never fires on leases it could not renew. Each fired
+ * chunk re-reads its leases in database time first, so a node that stalled
+ * past its TTL between heartbeats does not fire for shards it lost. When the
+ * owned shards change, the wheel is reloaded from the new set. Settings
+ * changes are only heard by the node that made them; the owning node
+ * picks up a change made elsewhere at its next refill.
+ *
+ * The wheel lives on the single scheduler thread; schedule changes from
+ * other threads are queued and applied on the next tick. Delivery is at
+ * least once: a reminder whose trigger did not commit is still due at the
+ * next refill.
+ */
+@Component
+@ConditionalOnProperty(name = "househealth.reminders.enabled", havingValue = "true")
+public class ReminderScheduler implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    static final int REFILL_CHUNK_SIZE = 1000;
+    static final int SUPPRESSION_CHUNK_SIZE = 1000;
+    static final int FIRE_CHUNK_SIZE = 1000;
+
+    // Reminders with the same cadence marked at the same time get the same next due time
+    private record Cadence(FrequencyType frequencyType, int steps) {}
+
+    private final ReminderSettingsRepository reminderSettingsRepository;
+    private final ReminderShardLeases shardLeases;
+    private final HealthLogRepository healthLogRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final Duration window;
+    private final long tickMillis;
+
+    private final ReminderTimingWheel wheel;
+    private final Queue<Long> changedReminders = new ConcurrentLinkedQueue<>();
+    private long nextRefillTick;
+    private long nextHeartbeatTick;
+    private Set<Integer> ownedShards = Set.of();
+    private long suppressed;
+
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    @Autowired
+    public ReminderScheduler(ReminderSettingsRepository reminderSettingsRepository,
+                             ReminderShardLeases shardLeases,
+                             HealthLogRepository healthLogRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${househealth.reminders.window:PT1H}") Duration window,
+                             @Value("${househealth.reminders.tick-millis:1000}") long tickMillis) {
+        this(reminderSettingsRepository, shardLeases, healthLogRepository, eventPublisher, transactionManager,
+                Clock.systemUTC(), window, tickMillis);
+    }
+
+    ReminderScheduler(ReminderSettingsRepository reminderSettingsRepository,
+                      ReminderShardLeases shardLeases,
+                      HealthLogRepository healthLogRepository,
+                      ApplicationEventPublisher eventPublisher,
+                      PlatformTransactionManager transactionManager,
+                      Clock clock, Duration window, long tickMillis) {
+        this.reminderSettingsRepository = reminderSettingsRepository;
+        this.shardLeases = shardLeases;
+        this.healthLogRepository = healthLogRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.window = window;
+        this.tickMillis = tickMillis;
+        this.wheel = new ReminderTimingWheel(toTick(clock.instant()));
+        this.nextRefillTick = wheel.currentTick();
+        this.nextHeartbeatTick = wheel.currentTick();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        executor.scheduleWithFixedDelay(this::safeTick, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            shardLeases.releaseAll();
+        } catch (RuntimeException ex) {
+            log.warn("Could not release reminder shards of {}; they free up when the leases expire",
+                    shardLeases.nodeId(), ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    int scheduledCount() {
+        return wheel.size();
+    }
+
+    long suppressedCount() {
+        return suppressed;
+    }
+
+    Set<Integer> ownedShards() {
+        return ownedShards;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReminderSettingsChanged(ReminderSettingsChangedEvent event) {
+        changedReminders.add(event.reminderId());
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (RuntimeException ex) {
+            // Unfired reminders stay on the wheel or in the database and go out on a later tick
+            log.error("Reminder scheduler tick failed", ex);
+        }
+    }
+
+    // One scheduler step; only ever called from the scheduler thread (or a test)
+    void tick() {
+        Instant now = clock.instant();
+        long nowTick = toTick(now);
+
+        if (nowTick >= nextHeartbeatTick) {
+            heartbeat(nowTick);
+        }
+        if (nowTick >= nextRefillTick) {
+            refill(now);
+            nextRefillTick = nowTick + Math.max(1, window.toMillis() / 2 / tickMillis);
+        }
+        applyChanges(now);
+
+        List<Long> due = new ArrayList<>();
+        wheel.advanceTo(nowTick, due::add);
+        if (!due.isEmpty()) {
+            fire(due, now);
+        }
+    }
+
+    private void heartbeat(long nowTick) {
+        Set<Integer> shards = shardLeases.heartbeat();
+        if (!shards.equals(ownedShards)) {
+            log.info("Reminder node {} now owns {} of {} shards", shardLeases.nodeId(),
+                    shards.size(), ReminderSettings.SHARD_COUNT);
+            ownedShards = shards;
+            wheel.clear();
+            nextRefillTick = nowTick;
+        }
+        nextHeartbeatTick = nowTick + Math.max(1, shardLeases.leaseTtl().toMillis() / 3 / tickMillis);
+    }
+
+    private void refill(Instant now) {
+        Instant horizon = now.plus(window);
+        Limit limit = Limit.of(REFILL_CHUNK_SIZE);
+        int loaded = 0;
+        for (int shard : ownedShards) {
+            List<DueReminder> chunk = reminderSettingsRepository.findDueFirstChunk(shard, horizon, limit);
+            while (true) {
+                for (DueReminder reminder : chunk) {
+                    if (!wheel.contains(reminder.reminderId())) {
+                        wheel.schedule(reminder.reminderId(), toTick(reminder.nextDueAt()));
+                        loaded++;
+                    }
+                }
+                if (chunk.size() < REFILL_CHUNK_SIZE) {
+                    break;
+                }
+                DueReminder last = chunk.get(chunk.size() - 1);
+                chunk = reminderSettingsRepository.findDueChunkAfter(shard, horizon,
+                        last.nextDueAt(), last.reminderId(), limit);
+            }
+        }
+        if (loaded > 0) {
+            log.debug("Loaded {} reminders due before {}", loaded, horizon);
+        }
+    }
+
+    private void applyChanges(Instant now) {
+        if (changedReminders.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Long id = changedReminders.poll(); id != null; id = changedReminders.poll()) {
+            ids.add(id);
+            wheel.cancel(id);
+        }
+        Instant horizon = now.plus(window);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (ReminderSettings reminder : reminderSettingsRepository.findAllById(ids)) {
+                Instant dueAt = reminder.getNextDueAt();
+                if (reminder.getNotificationsEnabled() && ownedShards.contains(reminder.getShard())
+                        && !dueAt.isAfter(horizon)) {
+                    wheel.schedule(reminder.getReminderId(), toTick(dueAt));
+                }
+            }
+        });
+    }
+
+    /*
+     * Re-reads the fired reminders, a chunk per transaction, so a change
+     * that has not reached the wheel yet (disabled, or rescheduled later) is
+     * honoured. A reminder whose shard this node no longer holds a safe
+     * lease on is left to its owner, and the next tick heartbeats to find
+     * out which shards are still this node's. The ones still due are marked
+     * with one set-based update per frequency instead of being loaded and
+     * dirty-checked one by one. Only the reminders that update actually
+     * marked are sent and go back on the wheel, at the next due time it
+     * wrote; one that changed or was marked elsewhere since it was read is
+     * left to whoever changed it. A reminder whose user already logged the
+     * metric during the period it covers is marked without being sent.
+     */
+    private void fire(List<Long> ids, Instant now) {
+        Instant horizon = now.plus(window);
+        for (int from = 0; from < ids.size(); from += FIRE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + FIRE_CHUNK_SIZE));
+            List<ReminderState> triggered = transactionTemplate.execute(status -> fireChunk(chunk, now, horizon));
+            for (ReminderState reminder : triggered) {
+                Instant next = reminder.frequencyType().next(now, reminder.frequencyInterval());
+                if (!next.isAfter(horizon)) {
+                    wheel.schedule(reminder.reminderId(), toTick(next));
+                }
+            }
+        }
+    }
+
+    private List<ReminderState> fireChunk(List<Long> ids, Instant now, Instant horizon) {
+        Set<Integer> leased = shardLeases.confirmOwned();
+        if (!leased.equals(ownedShards)) {
+            log.warn("Reminder node {} holds {} of its {} shards while firing; heartbeating early",
+                    shardLeases.nodeId(), leased.size(), ownedShards.size());
+            ownedShards = leased;
+            nextHeartbeatTick = toTick(now);
+        }
+        List<ReminderState> due = new ArrayList<>();
+        for (ReminderState reminder : reminderSettingsRepository.findStates(ids)) {
+            if (!reminder.notificationsEnabled() || !leased.contains(reminder.shard())) {
+                continue;
+            }
+            Instant dueAt = reminder.nextDueAt();
+            if (toTick(dueAt) > toTick(now)) {
+                if (!dueAt.isAfter(horizon)) {
+                    wheel.schedule(reminder.reminderId(), toTick(dueAt));
+                }
+                continue;
+            }
+            due.add(reminder);
+        }
+
+        Map<Cadence, List<Long>> byCadence = new HashMap<>();
+        for (ReminderState reminder : due) {
+            Cadence cadence = new Cadence(reminder.frequencyType(), FrequencyType.steps(reminder.frequencyInterval()));
+            byCadence.computeIfAbsent(cadence, key -> new ArrayList<>()).add(reminder.reminderId());
+        }
+        // The same bound the wheel fired them by, so a reminder due later within this tick is still marked
+        Instant dueBy = Instant.ofEpochMilli(toTick(now) * tickMillis);
+        Set<Long> marked = new HashSet<>();
+        for (Map.Entry<Cadence, List<Long>> entry : byCadence.entrySet()) {
+            Cadence cadence = entry.getKey();
+            List<Long> reminderIds = entry.getValue();
+            Instant nextDueAt = cadence.frequencyType().next(now, cadence.steps());
+            int count = reminderSettingsRepository.markTriggered(reminderIds, cadence.frequencyType(),
+                    cadence.steps(), dueBy, now, nextDueAt);
+            marked.addAll(count == reminderIds.size() ? reminderIds
+                    : reminderSettingsRepository.findMarkedIds(reminderIds, now, nextDueAt));
+        }
+        if (marked.size() < due.size()) {
+            // Changed or marked elsewhere after the read; the change event or the other node has them
+            log.debug("{} of {} due reminders changed while firing", due.size() - marked.size(), due.size());
+            due.removeIf(reminder -> !marked.contains(reminder.reminderId()));
+        }
+
+        Set<Long> satisfied = alreadyLogged(due);
+        for (ReminderState reminder : due) {
+            if (satisfied.contains(reminder.reminderId())) {
+                suppressed++;
+            } else {
+                eventPublisher.publishEvent(new ReminderDueEvent(reminder.reminderId(),
+                        reminder.userId(), reminder.metricType(), reminder.nextDueAt()));
+            }
+        }
+        return due;
+    }
+
+    /*
+     * Ids of the due reminders whose user has a reading of the reminder's
+     * metric measured within the period that ends at the due time, e.g.
+     * since the same time yesterday for a daily reminder. One grouped query
+     * per chunk of users.
+     */
+    private Set<Long> alreadyLogged(List<ReminderState> due) {
+        if (due.isEmpty()) {
+            return Set.of();
+        }
+        Instant since = Instant.MAX;
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (ReminderState reminder : due) {
+            since = min(since, periodStart(reminder));
+            userIds.add(reminder.userId());
+        }
+
+        Map<Long, Map<MetricType, Instant>> latest = new HashMap<>();
+        List<Long> users = new ArrayList<>(userIds);
+        for (int from = 0; from < users.size(); from += SUPPRESSION_CHUNK_SIZE) {
+            List<Long> chunk = users.subList(from, Math.min(users.size(), from + SUPPRESSION_CHUNK_SIZE));
+            for (LatestReading reading : healthLogRepository.findLatestReadingsSince(chunk, since)) {
+                latest.computeIfAbsent(reading.userId(), userId -> new EnumMap<>(MetricType.class))
+                        .put(reading.metricType(), reading.measuredAt());
+            }
+        }
+
+        Set<Long> satisfied = new HashSet<>();
+        for (ReminderState reminder : due) {
+            Instant measuredAt = latest.getOrDefault(reminder.userId(), Map.of()).get(reminder.metricType());
+            if (measuredAt != null && !measuredAt.isBefore(periodStart(reminder))) {
+                satisfied.add(reminder.reminderId());
+            }
+        }
+        return satisfied;
+    }
+
+    private static Instant periodStart(ReminderState reminder) {
+        return reminder.frequencyType().previous(reminder.nextDueAt(), reminder.frequencyInterval());
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    // Rounds up, so a reminder never fires before it is due
+    private long toTick(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli() + tickMillis - 1, tickMillis);
+    }
+}
@@ -0,0 +1,172 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.entity.ReminderNode;
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.entity.ReminderShardLease;
+import com.project.househealth.repositories.ReminderNodeRepository;
+import com.project.househealth.repositories.ReminderShardLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the reminder shards between the running scheduler nodes through
+ * the database alone. Each node heartbeats its reminder_nodes row, and the
+ * nodes with a heartbeat within the lease TTL are live. On every heartbeat
+ * a node renews its leases, gives back the shards above its fair share of
+ * the live nodes, and takes free or expired shards up to that share.
+ *
+ * A joining node gets shards as soon as the others shrink to the new share.
+ * A node that dies stops renewing, and its shards are taken over once its
+ * leases expire. Leases change hands only through conditional updates, so
+ * a shard never has two owners at the same moment.
+ *
+ * Heartbeats and lease expiry are stamped and compared in database time,
+ * so clock skew between nodes cannot make a lease look expired to one node
+ * while another still holds it. A node that was paused past its TTL finds
+ * out through confirmOwned, which the scheduler calls before firing.
+ */
+@Component
+@ConditionalOnProperty(name = "househealth.reminders.enabled", havingValue = "true")
+public class ReminderShardLeases {
+
+    private static final List<Integer> ALL_SHARDS =
+            IntStream.range(0, ReminderSettings.SHARD_COUNT).boxed().toList();
+
+    private final ReminderShardLeaseRepository leaseRepository;
+    private final ReminderNodeRepository nodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Supplier<Instant> databaseTime;
+    private final String nodeId;
+    private final Duration leaseTtl;
+    private boolean shardsCreated;
+
+    @Autowired
+    public ReminderShardLeases(ReminderShardLeaseRepository leaseRepository,
+                               ReminderNodeRepository nodeRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${househealth.reminders.node-id:}") String nodeId,
+                               @Value("${househealth.reminders.lease-ttl:PT30S}") Duration leaseTtl) {
+        this(leaseRepository, nodeRepository, transactionManager, leaseRepository::currentTime, nodeId, leaseTtl);
+    }
+
+    ReminderShardLeases(ReminderShardLeaseRepository leaseRepository,
+                        ReminderNodeRepository nodeRepository,
+                        PlatformTransactionManager transactionManager,
+                        Supplier<Instant> databaseTime, String nodeId, Duration leaseTtl) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.databaseTime = databaseTime;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseTtl = leaseTtl;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public Duration leaseTtl() {
+        return leaseTtl;
+    }
+
+    // Heartbeats and rebalances; returns the shards this node owns for the next leaseTtl of database time
+    public Set<Integer> heartbeat() {
+        createShards();
+        return transactionTemplate.execute(status -> {
+
+            Instant now = databaseTime.get();
+            Instant expiresAt = now.plus(leaseTtl);
+            ReminderNode node = nodeRepository.findById(nodeId).orElseGet(() -> new ReminderNode(nodeId, now));
+            node.setHeartbeatAt(now);
+            nodeRepository.save(node);
+            leaseRepository.renew(nodeId, now, expiresAt);
+
+            long liveNodes = Math.max(1, nodeRepository.countLiveSince(now.minus(leaseTtl)));
+            int share = (int) ((ReminderSettings.SHARD_COUNT + liveNodes - 1) / liveNodes);
+
+            List<Integer> owned = new ArrayList<>(leaseRepository.findShardsOwnedBy(nodeId, now));
+            if (owned.size() > share) {
+                List<Integer> excess = owned.subList(share, owned.size());
+                leaseRepository.release(nodeId, new ArrayList<>(excess));
+                excess.clear();
+            } else {
+                for (Integer shard : leaseRepository.findAvailableShards(now)) {
+                    if (owned.size() >= share) {
+                        break;
+                    }
+                    if (leaseRepository.tryAcquire(shard, nodeId, now, expiresAt) == 1) {
+                        owned.add(shard);
+                    }
+                }
+            }
+            return new TreeSet<>(owned);
+        });
+    }
+
+    /*
+     * The shards whose lease is still this node's for at least a third of
+     * the TTL, read in the caller's transaction. A third is the heartbeat
+     * interval, so a node that keeps heartbeating always passes, and one that
+     * stalled stops firing well before another node can take its shards.
+     */
+    public Set<Integer> confirmOwned() {
+        Instant safeUntil = databaseTime.get().plus(leaseTtl.dividedBy(3));
+        return new TreeSet<>(leaseRepository.findShardsOwnedBy(nodeId, safeUntil));
+    }
+
+    // Hands every shard back at shutdown so the other nodes need not wait for the leases to expire
+    public void releaseAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            leaseRepository.release(nodeId, ALL_SHARDS);
+            nodeRepository.deleteById(nodeId);
+        });
+    }
+
+    // Lease rows are created once by whichever node gets there first
+    private void createShards() {
+        if (shardsCreated) {
+            return;
+        }
+        if (leaseRepository.count() < ReminderSettings.SHARD_COUNT) {
+            for (Integer shard : ALL_SHARDS) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (!leaseRepository.existsById(shard)) {
+                            leaseRepository.saveAndFlush(new ReminderShardLease(shard));
+                        }
+                    });
+                } catch (DataIntegrityViolationException ex) {
+                    // Created by another node meanwhile
+                }
+            }
+        }
+        shardsCreated = true;
+    }
+}
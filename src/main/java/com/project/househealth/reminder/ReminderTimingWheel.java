@@ -0,0 +1,173 @@
+package com.project.househealth.reminder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of reminder ids keyed by deadline tick. Level 0
+ * has one slot per tick, and each level above covers 64 times the span of
+ * the one below, so six levels reach 2^36 ticks. A reminder is placed on the
+ * lowest level whose span reaches its deadline and moves down one level each
+ * time its upper slot comes round (at most five moves), which makes insert,
+ * cancel and fire O(1) amortized regardless of how many reminders are held.
+ *
+ * Slots are intrusive doubly linked lists so cancel unlinks in place. Not
+ * thread-safe: the scheduler confines it to one thread.
+ */
+final class ReminderTimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    private static final class Node {
+        final long id;
+        long deadline;
+        Node prev;
+        Node next;
+
+        Node(long id) {
+            this.id = id;
+        }
+    }
+
+    private final Node[][] slots = new Node[LEVELS][SLOTS];
+    private final Map<Long, Node> nodes = new HashMap<>();
+
+    // Next tick to process; every tick before it has fired
+    private long currentTick;
+
+    ReminderTimingWheel(long startTick) {
+        this.currentTick = startTick;
+        for (Node[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                Node sentinel = new Node(-1);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[i] = sentinel;
+            }
+        }
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    boolean contains(long id) {
+        return nodes.containsKey(id);
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    // Schedules or moves a reminder; a deadline already passed fires on the next advance
+    void schedule(long id, long deadlineTick) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = new Node(id);
+            nodes.put(id, node);
+        } else {
+            unlink(node);
+        }
+        node.deadline = deadlineTick;
+        place(node);
+    }
+
+    boolean cancel(long id) {
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    void clear() {
+        nodes.clear();
+        for (Node[] level : slots) {
+            for (Node sentinel : level) {
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+    }
+
+    // Fires, in tick order, every reminder whose deadline is at or before tick
+    void advanceTo(long tick, LongConsumer expired) {
+        if (nodes.isEmpty()) {
+            // Nothing to fire or cascade, e.g. after an idle stretch or a clock jump
+            currentTick = Math.max(currentTick, tick + 1);
+            return;
+        }
+        while (currentTick <= tick) {
+            int index = (int) (currentTick & MASK);
+            if (index == 0) {
+                cascade();
+            }
+            Node sentinel = slots[0][index];
+            Node node = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            currentTick++;
+            while (node != sentinel) {
+                Node next = node.next;
+                nodes.remove(node.id);
+                expired.accept(node.id);
+                node = next;
+            }
+        }
+    }
+
+    // Moves the level-1 slot that is now current down, and so on up while the lower index wrapped
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int index = (int) ((currentTick >>> (BITS * level)) & MASK);
+            Node sentinel = slots[level][index];
+            Node node = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (node != sentinel) {
+                Node next = node.next;
+                place(node);
+                node = next;
+            }
+            if (index != 0) {
+                return;
+            }
+        }
+    }
+
+    private void place(Node node) {
+        long delta = node.deadline - currentTick;
+        long at = node.deadline;
+        int level;
+        if (delta < 0) {
+            at = currentTick;
+            level = 0;
+        } else {
+            if (delta > MAX_DELTA) {
+                // Parked in the farthest slot and re-placed as it comes round
+                delta = MAX_DELTA;
+                at = currentTick + MAX_DELTA;
+            }
+            level = (63 - Long.numberOfLeadingZeros(delta | 1)) / BITS;
+        }
+        int index = (int) ((at >>> (BITS * level)) & MASK);
+        Node sentinel = slots[level][index];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+}
@@ -1,17 +1,47 @@
 package com.project.househealth.repositories;
 
+import com.project.househealth.dto.ObserverLink;
 import com.project.househealth.entity.Family;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FamilyMembershipRepository extends JpaRepository<FamilyMembership, Long> {
     boolean existsByUserAndFamily(User user, Family family);
     boolean existsByFamilyAndOwnerTrue(Family family);
     Optional<FamilyMembership> findByUserAndFamily(User user, Family family);
+    // Reads family_memberships alone; enough for permission checks
     Optional<FamilyMembership> findByUser_UserIdAndFamily_FamilyId(Long userId, Long familyId);
-    long countByFamily_FamilyId(Long familyId);
-    long countByFamily_FamilyIdAndOwnerTrue(Long familyId);
+
+    // For changes that also update the family's counters
+    @EntityGraph(FamilyMembership.WITH_FAMILY)
+    Optional<FamilyMembership> findWithFamilyByUser_UserIdAndFamily_FamilyId(Long userId, Long familyId);
+
+    // For a membership handed back to callers outside the transaction
+    @EntityGraph(FamilyMembership.WITH_USER_AND_FAMILY)
+    Optional<FamilyMembership> findWithUserAndFamilyByFamilyMembershipId(Long familyMembershipId);
+
+    List<FamilyMembership> findByFamily_FamilyIdAndUser_UserIdIn(Long familyId, Collection<Long> userIds);
+
+    @Query("select m.user.userId from FamilyMembership m where m.family.familyId = :familyId order by m.user.userId")
+    List<Long> findMemberUserIds(Long familyId);
+
+    // Observers who want notifications about each of the users' readings, across all of their families;
+    // one row per user and observer however many families they share
+    @Query("""
+            select distinct new com.project.househealth.dto.ObserverLink(m.user.userId, o.user.userId)
+            from FamilyMembership m
+            join FamilyMembership o on o.family = m.family
+            where m.user.userId in :userIds
+              and o.user.userId <> m.user.userId
+              and o.role in (com.project.househealth.enums.Role.OBSERVER, com.project.househealth.enums.Role.BOTH)
+              and o.notificationsEnabled = true
+            """)
+    List<ObserverLink> findObserverLinks(Collection<Long> userIds);
 }
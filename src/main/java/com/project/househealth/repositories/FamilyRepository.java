@@ -1,11 +1,45 @@
 package com.project.househealth.repositories;
 
+import com.project.househealth.dto.FamilyCounterDrift;
 import com.project.househealth.entity.Family;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 
 public interface FamilyRepository extends JpaRepository<Family, Long> {
     List<Family> findByFamilyName(String familyName);
+
+    @Query("select max(f.familyId) from Family f")
+    Long findMaxFamilyId();
+
+    // Families in [fromId, toId] whose counters disagree with their membership rows
+    @Query("""
+            select new com.project.househealth.dto.FamilyCounterDrift(f.familyId, f.memberCount, f.ownerCount,
+                (select count(m) from FamilyMembership m where m.family = f),
+                (select count(m) from FamilyMembership m where m.family = f and m.owner = true))
+            from Family f
+            where f.familyId between :fromId and :toId
+              and (f.memberCount <> (select count(m) from FamilyMembership m where m.family = f)
+                or f.ownerCount <> (select count(m) from FamilyMembership m where m.family = f and m.owner = true))
+            order by f.familyId
+            """)
+    List<FamilyCounterDrift> findCounterDrift(Long fromId, Long toId);
+
+    /*
+     * Recounts the families from their membership rows in one statement.
+     * Versioned, so a service transaction that read the old counts fails
+     * its optimistic check instead of writing them back.
+     */
+    @Modifying
+    @Query("""
+            update versioned Family f
+            set f.memberCount = (select count(m) from FamilyMembership m where m.family = f),
+                f.ownerCount = (select count(m) from FamilyMembership m where m.family = f and m.owner = true)
+            where f.familyId in :familyIds
+            """)
+    int rebuildCounters(Collection<Long> familyIds);
 }
@@ -1,8 +1,130 @@
 package com.project.househealth.repositories;
 
-import com.project.househealth.entity.Family;
+import com.project.househealth.dto.DashboardReading;
+import com.project.househealth.dto.LatestReading;
+import com.project.househealth.dto.ReadingKey;
 import com.project.househealth.entity.HealthLog;
+import com.project.househealth.enums.MetricType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface HealthLogRepository extends JpaRepository<HealthLog, Long> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface HealthLogRepository extends JpaRepository<HealthLog, Long>, HealthLogScanRepository {
+
+    String EXPORT_FETCH_SIZE = "1000";
+
+    // Both served by uk_health_logs_reading_key_user
+    Optional<HealthLog> findByUser_UserIdAndReadingKey(Long userId, String readingKey);
+
+    @Query("""
+            select h from HealthLog h
+            where h.user.userId = :userId and h.readingKey in :readingKeys
+            """)
+    List<HealthLog> findByUserIdAndReadingKeys(Long userId, Collection<String> readingKeys);
+
+    // Re-seeds the recent reading key filter after a restart; an index-only range scan of idx_health_logs_logged_at_key
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.project.househealth.dto.ReadingKey(h.user.userId, h.readingKey)
+            from HealthLog h
+            where h.readingKey is not null and h.loggedAt >= :since
+            """)
+    Stream<ReadingKey> streamReadingKeysSince(Instant since);
+
+    // Keyset pages over idx_health_logs_user_metric_time, newest first
+    @Query("""
+            select h from HealthLog h
+            where h.user.userId = :userId and h.metricType = :metricType
+            order by h.measuredAt desc, h.logId desc
+            """)
+    List<HealthLog> findHistoryFirstPage(Long userId, MetricType metricType, Limit limit);
+
+    @Query("""
+            select h from HealthLog h
+            where h.user.userId = :userId and h.metricType = :metricType
+              and (h.measuredAt < :measuredAt or (h.measuredAt = :measuredAt and h.logId < :logId))
+            order by h.measuredAt desc, h.logId desc
+            """)
+    List<HealthLog> findHistoryPageBefore(Long userId, MetricType metricType,
+                                          Instant measuredAt, Long logId, Limit limit);
+
+    // Forward-only cursor for exports; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select h from HealthLog h
+            where h.user.userId = :userId
+            order by h.measuredAt, h.logId
+            """)
+    Stream<HealthLog> streamByUserId(Long userId);
+
+    // Readings the archiver moves out of the table
+    @Query("""
+            select distinct h.user.userId from HealthLog h
+            where h.measuredAt < :cutoff
+            """)
+    List<Long> findUserIdsWithReadingsBefore(Instant cutoff);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select h from HealthLog h
+            where h.user.userId = :userId and h.measuredAt < :cutoff
+            order by h.measuredAt, h.logId
+            """)
+    Stream<HealthLog> streamByUserIdMeasuredBefore(Long userId, Instant cutoff);
+
+    /*
+     * Latest reading of every member per series. The derived table groups each
+     * member's readings once, a single pass over the member's range of
+     * idx_health_logs_user_metric_time, and each series' latest row is then one
+     * lookup on that index's (user_id, metric_code, measured_at) prefix, with the
+     * sugar code checked on the few rows sharing that timestamp.
+     */
+    @Query("""
+            select new com.project.househealth.dto.DashboardReading(
+                u.userId, u.name, h.metricType, h.sugarType,
+                h.readingValue, h.measuredAt, h.logId)
+            from FamilyMembership m
+            join m.user u
+            join (
+                select h2.user.userId as userId, h2.metricType as metricType,
+                    h2.sugarType as sugarType, max(h2.measuredAt) as measuredAt
+                from HealthLog h2
+                where h2.user.userId in (
+                    select m2.user.userId from FamilyMembership m2 where m2.family.familyId = :familyId)
+                group by h2.user.userId, h2.metricType, h2.sugarType
+            ) latest on latest.userId = u.userId
+            join HealthLog h on h.user = u and h.metricType = latest.metricType
+                and h.measuredAt = latest.measuredAt
+                and (h.sugarType = latest.sugarType or (h.sugarType is null and latest.sugarType is null))
+            where m.family.familyId = :familyId
+            order by u.userId, h.metricType, h.sugarType, h.logId desc
+            """)
+    List<DashboardReading> findLatestReadingsForFamily(Long familyId);
+
+    // Latest measurement per user and metric since a cutoff; a range scan per user on idx_health_logs_user_metric_time
+    @Query("""
+            select new com.project.househealth.dto.LatestReading(h.user.userId, h.metricType, max(h.measuredAt))
+            from HealthLog h
+            where h.user.userId in :userIds and h.measuredAt >= :since
+            group by h.user.userId, h.metricType
+            """)
+    List<LatestReading> findLatestReadingsSince(Collection<Long> userIds, Instant since);
 }
@@ -0,0 +1,58 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.entity.HealthLogRollup;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.RollupPeriod;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface HealthLogRollupRepository extends JpaRepository<HealthLogRollup, Long> {
+
+    // Locks every bucket a write batch will touch for one user, in one statement
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select r from HealthLogRollup r
+            where r.user.userId = :userId and r.period = :period
+              and r.bucketStart in :bucketStarts
+            """)
+    List<HealthLogRollup> findBucketsForUpdate(Long userId, RollupPeriod period, Collection<Instant> bucketStarts);
+
+    // Keys only, without locks or managed entities, to find which buckets a write batch must create
+    @Query("""
+            select r.metricType, r.sugarCode, r.bucketStart from HealthLogRollup r
+            where r.user.userId = :userId and r.period = :period
+              and r.bucketStart in :bucketStarts
+            """)
+    List<Object[]> findBucketKeys(Long userId, RollupPeriod period, Collection<Instant> bucketStarts);
+
+    // A concurrent writer creating the same bucket makes this a no-op instead of a failed transaction
+    @Modifying
+    @Query("""
+            insert into HealthLogRollup (user, metricType, sugarCode, period, bucketStart, readingCount,
+                    systolic.sum, systolic.sumOfSquares, diastolic.sum, diastolic.sumOfSquares,
+                    sugar.sum, sugar.sumOfSquares)
+            values (:user, :metricType, :sugarCode, :period, :bucketStart, 0, 0, 0, 0, 0, 0, 0)
+            on conflict do nothing
+            """)
+    int createBucketIfAbsent(User user, MetricType metricType, int sugarCode,
+                             RollupPeriod period, Instant bucketStart);
+
+    // A null sugarCode matches every sugar type of the metric
+    @Query("""
+            select r from HealthLogRollup r
+            where r.user.userId = :userId and r.period = :period and r.metricType = :metricType
+              and (:sugarCode is null or r.sugarCode = :sugarCode)
+              and r.bucketStart >= :from and r.bucketStart < :to
+            order by r.bucketStart
+            """)
+    List<HealthLogRollup> findSeries(Long userId, RollupPeriod period, MetricType metricType,
+                                     Integer sugarCode, Instant from, Instant to);
+}
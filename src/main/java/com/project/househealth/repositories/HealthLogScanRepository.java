@@ -0,0 +1,19 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.dto.ReadingColumns;
+import com.project.househealth.enums.MetricType;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+public interface HealthLogScanRepository {
+
+    /*
+     * Streams one user's readings of a metric measured in [from, to), oldest
+     * first, into a reused columnar block instead of entities. Returns the
+     * number of rows scanned. Must run inside a transaction on MySQL, where
+     * the fetch size is only honoured by a cursor.
+     */
+    long scanReadings(Long userId, MetricType metricType, Instant from, Instant to,
+                      ReadingColumns block, Consumer<ReadingColumns> consumer);
+}
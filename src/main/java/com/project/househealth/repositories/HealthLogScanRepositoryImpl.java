@@ -0,0 +1,79 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.dto.ReadingColumns;
+import com.project.househealth.enums.MetricType;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/*
+ * Plain JDBC on the session's connection, so rows go straight into the block
+ * with no entity, proxy or snapshot per row. Instants are bound and read with
+ * Hibernate's own Instant mapping so they match how the entity stored them.
+ */
+class HealthLogScanRepositoryImpl implements HealthLogScanRepository {
+
+    // Range scan over idx_health_logs_user_metric_time
+    private static final String SCAN_SQL = """
+            select log_id, measured_at, metric_code, sugar_code, reading_value
+            from health_logs
+            where user_id = ? and metric_code = ? and measured_at >= ? and measured_at < ?
+            order by measured_at, log_id
+            """;
+
+    private final EntityManager entityManager;
+
+    HealthLogScanRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public long scanReadings(Long userId, MetricType metricType, Instant from, Instant to,
+                             ReadingColumns block, Consumer<ReadingColumns> consumer) {
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        BasicType<Instant> instantType = session.getTypeConfiguration().getBasicTypeForJavaType(Instant.class);
+        ValueBinder<Instant> binder = instantType.getJdbcValueBinder();
+        ValueExtractor<Instant> extractor = instantType.getJdbcValueExtractor();
+
+        return session.doReturningWork(connection -> {
+            block.clear();
+            long rows = 0;
+            try (PreparedStatement statement = connection.prepareStatement(SCAN_SQL)) {
+                statement.setFetchSize(Integer.parseInt(HealthLogRepository.EXPORT_FETCH_SIZE));
+                statement.setLong(1, userId);
+                statement.setInt(2, metricType.code());
+                binder.bind(statement, from, 3, session);
+                binder.bind(statement, to, 4, session);
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        if (block.isFull()) {
+                            consumer.accept(block);
+                            block.clear();
+                        }
+                        int sugarCode = rs.getInt(4);
+                        if (rs.wasNull()) {
+                            sugarCode = ReadingColumns.NO_SUGAR_TYPE;
+                        }
+                        block.add(rs.getLong(1), extractor.extract(rs, 2, session).toEpochMilli(),
+                                rs.getInt(3), sugarCode, rs.getInt(5));
+                        rows++;
+                    }
+                }
+            }
+            if (block.size() > 0) {
+                consumer.accept(block);
+                block.clear();
+            }
+            return rows;
+        });
+    }
+}
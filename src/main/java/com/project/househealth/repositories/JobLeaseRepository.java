@@ -0,0 +1,32 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    @Query("select current_instant")
+    Instant currentTime();
+
+    // Takes a job that is free or whose lease ran out, or renews this node's lease; 1 if this node holds it
+    @Modifying
+    @Query("""
+            update JobLease l
+            set l.ownerNode = :nodeId, l.expiresAt = :expiresAt
+            where l.jobName = :jobName
+              and (l.ownerNode is null or l.ownerNode = :nodeId or l.expiresAt <= :now)
+            """)
+    int tryAcquire(String jobName, String nodeId, Instant now, Instant expiresAt);
+
+    @Modifying
+    @Query("""
+            update JobLease l
+            set l.ownerNode = null, l.expiresAt = null
+            where l.jobName = :jobName and l.ownerNode = :nodeId
+            """)
+    int release(String jobName, String nodeId);
+}
@@ -0,0 +1,10 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.entity.ReadingThresholds;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ReadingThresholdsRepository extends JpaRepository<ReadingThresholds, Long> {
+    Optional<ReadingThresholds> findByUser_UserId(Long userId);
+}
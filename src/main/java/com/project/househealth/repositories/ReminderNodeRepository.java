@@ -0,0 +1,16 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.entity.ReminderNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+
+public interface ReminderNodeRepository extends JpaRepository<ReminderNode, String> {
+
+    @Query("""
+            select count(n) from ReminderNode n
+            where n.heartbeatAt > :since
+            """)
+    long countLiveSince(Instant since);
+}
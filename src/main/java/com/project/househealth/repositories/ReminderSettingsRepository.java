@@ -1,9 +1,83 @@
 package com.project.househealth.repositories;
 
+import com.project.househealth.dto.DueReminder;
+import com.project.househealth.dto.ReminderConfig;
+import com.project.househealth.dto.ReminderState;
 import com.project.househealth.entity.ReminderSettings;
 import com.project.househealth.entity.User;
+import com.project.househealth.enums.FrequencyType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
 public interface ReminderSettingsRepository  extends JpaRepository<ReminderSettings, Long> {
-    ReminderSettings findByUser(User user);
+    // One per metric the user has a reminder for
+    List<ReminderSettings> findByUser(User user);
+
+    @Query("""
+            select new com.project.househealth.dto.ReminderConfig(r.reminderId, r.user.userId, r.metricType,
+                r.frequencyType, r.frequencyInterval, r.notificationsEnabled)
+            from ReminderSettings r
+            where r.user.userId in :userIds
+            """)
+    List<ReminderConfig> findConfigsByUserIds(Collection<Long> userIds);
+
+    // Keyset chunks of one shard's active reminders due at or before horizon, soonest first; covered by idx_reminder_settings_due
+    @Query("""
+            select new com.project.househealth.dto.DueReminder(r.reminderId, r.nextDueAt)
+            from ReminderSettings r
+            where r.notificationsEnabled = true and r.shard = :shard and r.nextDueAt <= :horizon
+            order by r.nextDueAt, r.reminderId
+            """)
+    List<DueReminder> findDueFirstChunk(int shard, Instant horizon, Limit limit);
+
+    @Query("""
+            select new com.project.househealth.dto.DueReminder(r.reminderId, r.nextDueAt)
+            from ReminderSettings r
+            where r.notificationsEnabled = true and r.shard = :shard and r.nextDueAt <= :horizon
+              and (r.nextDueAt > :nextDueAt or (r.nextDueAt = :nextDueAt and r.reminderId > :reminderId))
+            order by r.nextDueAt, r.reminderId
+            """)
+    List<DueReminder> findDueChunkAfter(int shard, Instant horizon, Instant nextDueAt, Long reminderId, Limit limit);
+
+    @Query("""
+            select new com.project.househealth.dto.ReminderState(r.reminderId, r.user.userId, r.metricType,
+                r.frequencyType, r.frequencyInterval, r.nextDueAt, r.shard, r.notificationsEnabled)
+            from ReminderSettings r
+            where r.reminderId in :reminderIds
+            """)
+    List<ReminderState> findStates(Collection<Long> reminderIds);
+
+    /*
+     * Marks reminders triggered in one statement without loading them. All
+     * share triggeredAt and the frequency, so they share nextDueAt too. A
+     * reminder whose frequency changed since it was read, or that is no
+     * longer due by dueBy because another node marked it first, is left
+     * alone; findMarkedIds tells which ones were marked. The update bumps
+     * each marked reminder's version, so an edit that loaded it before this
+     * commits fails instead of overwriting nextDueAt.
+     */
+    @Modifying
+    @Query("""
+            update versioned ReminderSettings r
+            set r.lastTriggeredAt = :triggeredAt, r.nextDueAt = :nextDueAt
+            where r.reminderId in :reminderIds and r.frequencyType = :frequencyType
+              and (case when r.frequencyInterval is null or r.frequencyInterval < 1 then 1
+                        else r.frequencyInterval end) = :steps
+              and r.nextDueAt <= :dueBy
+            """)
+    int markTriggered(Collection<Long> reminderIds, FrequencyType frequencyType, int steps, Instant dueBy,
+                      Instant triggeredAt, Instant nextDueAt);
+
+    // Of reminderIds, the ones markTriggered marked with these times, read in the transaction that marked them
+    @Query("""
+            select r.reminderId from ReminderSettings r
+            where r.reminderId in :reminderIds and r.lastTriggeredAt = :triggeredAt and r.nextDueAt = :nextDueAt
+            """)
+    List<Long> findMarkedIds(Collection<Long> reminderIds, Instant triggeredAt, Instant nextDueAt);
 }
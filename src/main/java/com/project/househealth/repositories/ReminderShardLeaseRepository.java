@@ -0,0 +1,58 @@
+package com.project.househealth.repositories;
+
+import com.project.househealth.entity.ReminderShardLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ReminderShardLeaseRepository extends JpaRepository<ReminderShardLease, Integer> {
+
+    // The database clock; every node writes and compares leases against it, never its own
+    @Query("select current_instant")
+    Instant currentTime();
+
+    // Takes a shard that is free or whose lease ran out; 1 if this node got it
+    @Modifying
+    @Query("""
+            update ReminderShardLease l
+            set l.ownerNode = :nodeId, l.expiresAt = :expiresAt
+            where l.shard = :shard
+              and (l.ownerNode is null or l.ownerNode = :nodeId or l.expiresAt <= :now)
+            """)
+    int tryAcquire(Integer shard, String nodeId, Instant now, Instant expiresAt);
+
+    // Extends this node's unexpired leases; an expired one may already belong to another node
+    @Modifying
+    @Query("""
+            update ReminderShardLease l
+            set l.expiresAt = :expiresAt
+            where l.ownerNode = :nodeId and l.expiresAt > :now
+            """)
+    int renew(String nodeId, Instant now, Instant expiresAt);
+
+    @Modifying
+    @Query("""
+            update ReminderShardLease l
+            set l.ownerNode = null, l.expiresAt = null
+            where l.ownerNode = :nodeId and l.shard in :shards
+            """)
+    int release(String nodeId, List<Integer> shards);
+
+    @Query("""
+            select l.shard from ReminderShardLease l
+            where l.ownerNode = :nodeId and l.expiresAt > :now
+            order by l.shard
+            """)
+    List<Integer> findShardsOwnedBy(String nodeId, Instant now);
+
+    // Free or expired shards, the ones a node may try to take
+    @Query("""
+            select l.shard from ReminderShardLease l
+            where l.ownerNode is null or l.expiresAt <= :now
+            order by l.shard
+            """)
+    List<Integer> findAvailableShards(Instant now);
+}
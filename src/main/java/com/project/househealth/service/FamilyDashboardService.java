@@ -0,0 +1,7 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.FamilyDashboard;
+
+public interface FamilyDashboardService {
+    FamilyDashboard getFamilyDashboard(Long familyId, Long actingUserId);
+}
@@ -0,0 +1,329 @@
+package com.project.househealth.service;
+
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.dto.DashboardReading;
+import com.project.househealth.dto.FamilyDashboard;
+import com.project.househealth.enums.Role;
+import com.project.househealth.event.FamilyMembershipChangedEvent;
+import com.project.househealth.event.HealthLogsRecordedEvent;
+import com.project.househealth.exception.MembershipNotFoundException;
+import com.project.househealth.exception.UnauthorizedFamilyActionException;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.HealthLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches up to househealth.dashboards.cache-size family dashboards and keeps
+ * them current by patching them with the readings this node records and
+ * dropping them when this node changes a family's memberships. Readings and
+ * membership changes made on other nodes are not heard, so every dashboard
+ * is also reloaded once it is older than househealth.dashboards.ttl; that
+ * bounds how stale a dashboard can be.
+ */
+@Service
+public class FamilyDashboardServiceImpl implements FamilyDashboardService {
+
+    // Same order as findLatestReadingsForFamily
+    private static final Comparator<DashboardReading> SERIES_ORDER = Comparator
+            .comparing(DashboardReading::userId)
+            .thenComparing(DashboardReading::metricType)
+            .thenComparing(DashboardReading::sugarType, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final FamilyMembershipRepository familyMembershipRepository;
+    private final HealthLogRepository healthLogRepository;
+    private final MembershipAuthorizations membershipAuthorizations;
+
+    private final Clock clock;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private record Cached(FamilyDashboard dashboard, long expiresAtMillis) {}
+
+    private final Map<Long, Cached> dashboards = new ConcurrentHashMap<>();
+
+    // userId -> ids of cached families the user belongs to, so a new reading evicts without a query
+    private final Map<Long, Set<Long>> familiesByMember = new ConcurrentHashMap<>();
+
+    // Dashboards being loaded, so readings committed while they load mark them stale
+    private final Set<Load> loading = ConcurrentHashMap.newKeySet();
+
+    // members stays null until the load has read them; until then any reading marks it stale
+    private static final class Load {
+        final Long familyId;
+        volatile Set<Long> members;
+        volatile boolean stale;
+
+        Load(Long familyId) {
+            this.familyId = familyId;
+        }
+    }
+
+    @Autowired
+    public FamilyDashboardServiceImpl(FamilyMembershipRepository familyMembershipRepository,
+                                      HealthLogRepository healthLogRepository,
+                                      MembershipAuthorizations membershipAuthorizations,
+                                      @Value("${househealth.dashboards.cache-size:10000}") int maxSize,
+                                      @Value("${househealth.dashboards.ttl:PT1M}") Duration ttl) {
+        this(familyMembershipRepository, healthLogRepository, membershipAuthorizations, maxSize, ttl,
+                Clock.systemUTC());
+    }
+
+    FamilyDashboardServiceImpl(FamilyMembershipRepository familyMembershipRepository,
+                               HealthLogRepository healthLogRepository,
+                               MembershipAuthorizations membershipAuthorizations,
+                               int maxSize, Duration ttl, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Dashboard cache needs room for at least one family");
+        }
+        this.familyMembershipRepository = familyMembershipRepository;
+        this.healthLogRepository = healthLogRepository;
+        this.membershipAuthorizations = membershipAuthorizations;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /*
+     * The load is registered before the transaction's first read. A change
+     * that commits after that read sees the registration and marks the load
+     * stale, so a dashboard read from an older snapshot is returned but never
+     * cached.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public FamilyDashboard getFamilyDashboard(Long familyId, Long actingUserId) {
+
+        Load load = new Load(familyId);
+        loading.add(load);
+        try {
+            return getFamilyDashboard(load, actingUserId);
+        } finally {
+            loading.remove(load);
+        }
+    }
+
+    private FamilyDashboard getFamilyDashboard(Load load, Long actingUserId) {
+
+        Long familyId = load.familyId;
+
+        // With the membership and the dashboard both cached, a repeat view runs no query
+        int membership = membershipAuthorizations.lookup(actingUserId, familyId);
+        if (!MembershipAuthorizations.isMember(membership)) {
+            throw new MembershipNotFoundException("You are not a member of this family");
+        }
+
+        if (MembershipAuthorizations.role(membership) == Role.TRACKER) {
+            throw new UnauthorizedFamilyActionException("Only observers can view the family dashboard");
+        }
+
+        Cached cached = dashboards.get(familyId);
+        if (cached != null) {
+            if (cached.expiresAtMillis() > clock.millis()) {
+                return cached.dashboard();
+            }
+            evict(familyId);
+        }
+
+        // Taken before the load, so an entry never outlives the TTL counted from its read
+        long expiresAtMillis = clock.millis() + ttlMillis;
+        FamilyDashboard dashboard = loadDashboard(load);
+        makeRoom();
+
+        // Evictions mark loads stale before removing, so one racing this put always removes what it put
+        dashboards.compute(familyId, (id, current) -> {
+            if (current != null || load.stale) {
+                return current;
+            }
+            for (Long memberUserId : dashboard.memberUserIds()) {
+                familiesByMember.compute(memberUserId, (userId, familyIds) -> {
+                    Set<Long> ids = familyIds != null ? familyIds : ConcurrentHashMap.newKeySet();
+                    ids.add(familyId);
+                    return ids;
+                });
+            }
+            return new Cached(dashboard, expiresAtMillis);
+        });
+        return dashboard;
+    }
+
+    // Drops expired dashboards once the cache is full, then arbitrary ones while it still is
+    private void makeRoom() {
+        if (dashboards.size() < maxSize) {
+            return;
+        }
+        long now = clock.millis();
+        dashboards.forEach((familyId, cached) -> {
+            if (cached.expiresAtMillis() <= now) {
+                evict(familyId);
+            }
+        });
+        for (Long familyId : dashboards.keySet()) {
+            if (dashboards.size() < maxSize) {
+                break;
+            }
+            evict(familyId);
+        }
+    }
+
+    private void markStale(Long familyId) {
+        for (Load load : loading) {
+            if (load.familyId.equals(familyId)) {
+                load.stale = true;
+            }
+        }
+    }
+
+    private FamilyDashboard loadDashboard(Load load) {
+
+        Long familyId = load.familyId;
+        Set<Long> memberUserIds = new LinkedHashSet<>(familyMembershipRepository.findMemberUserIds(familyId));
+        load.members = memberUserIds;
+
+        // Rows are ordered so that equal-timestamp duplicates of a series follow the newest logId
+        List<DashboardReading> readings = new ArrayList<>();
+        DashboardReading previous = null;
+        for (DashboardReading reading : healthLogRepository.findLatestReadingsForFamily(familyId)) {
+            if (previous != null
+                    && previous.userId().equals(reading.userId())
+                    && previous.metricType() == reading.metricType()
+                    && Objects.equals(previous.sugarType(), reading.sugarType())) {
+                continue;
+            }
+            readings.add(reading);
+            previous = reading;
+        }
+
+        return new FamilyDashboard(familyId, Set.copyOf(memberUserIds), List.copyOf(readings));
+    }
+
+    /*
+     * Patches cached dashboards in place: a reading replaces its series entry
+     * only when it was measured later, so late and out-of-order readings leave
+     * the cache untouched. Families are reloaded only when a reading starts a
+     * series for a member the cached dashboard has no name for.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHealthLogsRecorded(HealthLogsRecordedEvent event) {
+
+        Map<Long, List<DashboardReading>> byUser = new HashMap<>();
+        for (DashboardReading reading : event.readings()) {
+            byUser.computeIfAbsent(reading.userId(), id -> new ArrayList<>()).add(reading);
+        }
+
+        // A dashboard being loaded may predate these readings
+        for (Load load : loading) {
+            Set<Long> members = load.members;
+            if (members == null || members.stream().anyMatch(byUser::containsKey)) {
+                load.stale = true;
+            }
+        }
+
+        byUser.forEach((userId, readings) -> {
+            Set<Long> familyIds = familiesByMember.get(userId);
+            if (familyIds == null) {
+                return;
+            }
+            for (Long familyId : familyIds) {
+                Cached cached = dashboards.get(familyId);
+                if (cached == null) {
+                    continue;
+                }
+                FamilyDashboard patched = patch(cached.dashboard(), userId, readings);
+                if (patched == null || (patched != cached.dashboard() && !dashboards.replace(familyId, cached,
+                        new Cached(patched, cached.expiresAtMillis())))) {
+                    evict(familyId);
+                }
+            }
+        });
+    }
+
+    // Null when the dashboard cannot be patched and has to be reloaded
+    private static FamilyDashboard patch(FamilyDashboard dashboard, Long userId, List<DashboardReading> readings) {
+
+        List<DashboardReading> entries = new ArrayList<>(dashboard.readings());
+        String userName = null;
+        for (DashboardReading entry : entries) {
+            if (entry.userId().equals(userId)) {
+                userName = entry.userName();
+                break;
+            }
+        }
+
+        boolean changed = false;
+        for (DashboardReading reading : readings) {
+            int index = seriesIndex(entries, reading);
+            if (index >= 0 && !isNewer(reading, entries.get(index))) {
+                continue;
+            }
+            if (userName == null) {
+                return null;
+            }
+            DashboardReading named = new DashboardReading(reading.userId(), userName, reading.metricType(),
+                    reading.sugarType(), reading.systolic(), reading.diastolic(), reading.sugarValue(),
+                    reading.measuredAt(), reading.logId());
+            if (index >= 0) {
+                entries.set(index, named);
+            } else {
+                entries.add(named);
+            }
+            changed = true;
+        }
+
+        if (!changed) {
+            return dashboard;
+        }
+        entries.sort(SERIES_ORDER);
+        return new FamilyDashboard(dashboard.familyId(), dashboard.memberUserIds(), List.copyOf(entries));
+    }
+
+    private static int seriesIndex(List<DashboardReading> entries, DashboardReading reading) {
+        for (int i = 0; i < entries.size(); i++) {
+            DashboardReading entry = entries.get(i);
+            if (entry.userId().equals(reading.userId())
+                    && entry.metricType() == reading.metricType()
+                    && Objects.equals(entry.sugarType(), reading.sugarType())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNewer(DashboardReading reading, DashboardReading current) {
+        int byTime = reading.measuredAt().compareTo(current.measuredAt());
+        return byTime > 0 || (byTime == 0 && reading.logId() > current.logId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFamilyMembershipChanged(FamilyMembershipChangedEvent event) {
+        evict(event.familyId());
+    }
+
+    private void evict(Long familyId) {
+        markStale(familyId);
+        Cached removed = dashboards.remove(familyId);
+        if (removed != null) {
+            for (Long memberUserId : removed.dashboard().memberUserIds()) {
+                familiesByMember.computeIfPresent(memberUserId, (userId, familyIds) -> {
+                    familyIds.remove(familyId);
+                    return familyIds.isEmpty() ? null : familyIds;
+                });
+            }
+        }
+    }
+}
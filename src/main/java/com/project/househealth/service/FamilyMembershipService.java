@@ -1,8 +1,12 @@
 package com.project.househealth.service;
 
+import com.project.househealth.dto.BulkMembershipResult;
+import com.project.househealth.dto.MembershipUpdate;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
 
+import java.util.List;
+
 public interface FamilyMembershipService {
     FamilyMembership getFamilyMembershipById(Long id);
     void leaveFamily(Long familyId, Long actingUserId);
@@ -10,4 +14,7 @@ public interface FamilyMembershipService {
     void removeMember(Long familyId, Long targetUserId, Long actingUserId);
     void addOwner(Long familyId, Long targetUserId, Long actingUserId);
     void transferOwnership(Long familyId, Long newOwnerUserId, Long actingUserId);
+    BulkMembershipResult addMembers(Long familyId, List<Long> targetUserIds, Long actingUserId);
+    BulkMembershipResult removeMembers(Long familyId, List<Long> targetUserIds, Long actingUserId);
+    BulkMembershipResult updateMembers(Long familyId, List<MembershipUpdate> updates, Long actingUserId);
 }
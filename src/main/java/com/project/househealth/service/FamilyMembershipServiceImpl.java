@@ -1,18 +1,37 @@
 package com.project.househealth.service;
 
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.dto.BulkMembershipResult;
+import com.project.househealth.dto.MembershipResult;
+import com.project.househealth.dto.MembershipUpdate;
 import com.project.househealth.entity.Family;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
+import com.project.househealth.enums.MembershipOutcome;
 import com.project.househealth.enums.Role;
+import com.project.househealth.event.FamilyMembershipChangedEvent;
 import com.project.househealth.exception.AlreadyMemberException;
+import com.project.househealth.exception.FamilyNotFoundException;
 import com.project.househealth.exception.IllegalOperationException;
 import com.project.househealth.exception.MembershipNotFoundException;
 import com.project.househealth.exception.UnauthorizedFamilyActionException;
 import com.project.househealth.repositories.FamilyMembershipRepository;
 import com.project.househealth.repositories.FamilyRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class FamilyMembershipServiceImpl implements FamilyMembershipService{
 
@@ -20,15 +39,24 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
     private final FamilyService familyService;
     private final FamilyRepository familyRepository;
     private final FamilyMembershipRepository familyMembershipRepository;
+    private final MembershipAuthorizations membershipAuthorizations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
 
     public FamilyMembershipServiceImpl(UserService userService,
                                         FamilyService familyService,
                                         FamilyRepository familyRepository,
-                                        FamilyMembershipRepository familyMembershipRepository){
+                                        FamilyMembershipRepository familyMembershipRepository,
+                                        MembershipAuthorizations membershipAuthorizations,
+                                        ApplicationEventPublisher eventPublisher,
+                                        EntityManager entityManager){
         this.userService = userService;
         this.familyService = familyService;
         this.familyRepository = familyRepository;
         this.familyMembershipRepository = familyMembershipRepository;
+        this.membershipAuthorizations = membershipAuthorizations;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
     }
 
     private FamilyMembership createFamilyMembership(FamilyMembership familyMembership) {
@@ -37,7 +65,7 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
 
     @Override
     public FamilyMembership getFamilyMembershipById(Long id) {
-        return familyMembershipRepository.findById(id)
+        return familyMembershipRepository.findWithUserAndFamilyByFamilyMembershipId(id)
                 .orElseThrow(() -> new MembershipNotFoundException("Family membership not found"));
     }
 
@@ -46,18 +74,15 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
     public void leaveFamily(Long familyId,Long actingUserId) {
 
         FamilyMembership membership =
-                familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
+                membershipAuthorizations.load(actingUserId, familyId)
                         .orElseThrow(() -> new MembershipNotFoundException("You are not a member of this family"));
 
         Family family = membership.getFamily();
 
-        long totalMembers =
-                familyMembershipRepository.countByFamily_FamilyId(familyId);
+        int totalMembers = family.getMemberCount();
 
         if(membership.isOwner()){
-            long ownerCount = familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId);
-
-            if (ownerCount == 1 && totalMembers > 1) {
+            if (family.getOwnerCount() == 1 && totalMembers > 1) {
                 throw new UnauthorizedFamilyActionException(
                         "Transfer ownership before leaving the family"
                 );
@@ -65,30 +90,26 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
         }
 
         familyMembershipRepository.delete(membership);
+        family.membershipRemoved(membership);
 
         if(totalMembers == 1) {
            familyRepository.delete(family);
         }
 
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+
     }
 
     @Transactional
     @Override
     public void addMember(Long familyId,Long targetUserId,Long actingUserId) {
 
-        FamilyMembership actingMembership =  familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
-                .orElseThrow(() -> new MembershipNotFoundException("You are not a member of this family"));
-
-        if(!actingMembership.isOwner()){
-            throw new UnauthorizedFamilyActionException("only owners can add members");
-        }
+        requireOwner(familyId, actingUserId, "only owners can add members");
 
         Family family = familyService.getFamilyById(familyId);
 
         boolean alreadyMember =
-                familyMembershipRepository
-                        .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId)
-                        .isPresent();
+                familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId).isPresent();
 
         if (alreadyMember) {
             throw new AlreadyMemberException("User is already a member of this family");
@@ -97,23 +118,22 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
         User targetUser = userService.getUserById(targetUserId);
         FamilyMembership newMembership = new FamilyMembership(targetUser, family, Role.OBSERVER);
 
+        family.addMembership(newMembership);
         familyMembershipRepository.save(newMembership);
+
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
     }
 
     @Transactional
     @Override
     public void removeMember(Long familyId, Long targetUserId, Long actingUserId) {
 
-        Family family = familyService.getFamilyById(familyId);
-
-        FamilyMembership actingMembership = familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
-                .orElseThrow(() -> new MembershipNotFoundException("You are not a member of this family"));
+        // Before any other read, so a membership this transaction caches is no older than its snapshot
+        requireOwner(familyId, actingUserId, "Only owner can remove a member");
 
-        if (!actingMembership.isOwner()) {
-            throw new UnauthorizedFamilyActionException("Only owner can remove a member");
-        }
+        Family family = familyService.getFamilyById(familyId);
 
-        FamilyMembership targetMembership = familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId)
+        FamilyMembership targetMembership = membershipAuthorizations.load(targetUserId, familyId)
                 .orElseThrow(() -> new MembershipNotFoundException("You are not a member of this family"));
 
         if (actingUserId.equals(targetUserId)) {
@@ -126,33 +146,25 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
 
         // Perform deletion
         familyMembershipRepository.delete(targetMembership);
+        family.membershipRemoved(targetMembership);
 
         // Cleanup: delete family if no memberships remain
-        long remainingCount = familyMembershipRepository
-                .countByFamily_FamilyId(familyId);
-
-        if (remainingCount == 0) {
+        if (family.getMemberCount() == 0) {
             familyRepository.delete(family);
         }
+
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
     }
 
     @Transactional
     @Override
     public void addOwner(Long familyId, Long targetUserId, Long actingUserId) {
 
-        // Fetch acting membership
-        FamilyMembership actingMembership = familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
-                .orElseThrow(() ->
-                        new MembershipNotFoundException("You are not a member of this family"));
-
-        if (!actingMembership.isOwner()) {
-            throw new UnauthorizedFamilyActionException("Only owner can promote members to owner");
-        }
+        requireOwner(familyId, actingUserId, "Only owner can promote members to owner");
 
         // Fetch target membership
-        FamilyMembership targetMembership = familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId)
+        FamilyMembership targetMembership = membershipAuthorizations
+                .load(targetUserId, familyId)
                 .orElseThrow(() ->
                         new MembershipNotFoundException("Target user is not a member of this family"));
 
@@ -160,7 +172,9 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
             throw new IllegalOperationException("User is already an owner");
         }
 
-        targetMembership.makeOwner();
+        targetMembership.getFamily().promoteOwner(targetMembership);
+
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
     }
 
     @Transactional
@@ -169,8 +183,9 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
                                   Long newOwnerUserId,
                                   Long actingUserId) {
 
-        FamilyMembership actingMembership = familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
+        // Loaded rather than looked up: the acting membership gives up ownership below
+        FamilyMembership actingMembership = membershipAuthorizations
+                .load(actingUserId, familyId)
                 .orElseThrow(() ->
                         new MembershipNotFoundException("You are not a member of this family"));
 
@@ -178,17 +193,16 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
             throw new UnauthorizedFamilyActionException("Only owner can transfer ownership");
         }
 
-        long ownerCount = familyMembershipRepository
-                .countByFamily_FamilyIdAndOwnerTrue(familyId);
+        Family family = actingMembership.getFamily();
 
-        if (ownerCount != 1) {
+        if (family.getOwnerCount() != 1) {
             throw new IllegalOperationException(
                     "Ownership transfer allowed only when there is exactly one owner"
             );
         }
 
-        FamilyMembership targetMembership = familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(newOwnerUserId, familyId)
+        FamilyMembership targetMembership = membershipAuthorizations
+                .load(newOwnerUserId, familyId)
                 .orElseThrow(() ->
                         new MembershipNotFoundException("Target user is not a member of this family"));
 
@@ -196,9 +210,174 @@ public class FamilyMembershipServiceImpl implements FamilyMembershipService{
             throw new IllegalOperationException("User is already an owner");
         }
 
-        targetMembership.makeOwner();
+        family.promoteOwner(targetMembership);
+
+        family.demoteOwner(actingMembership);
+
+        // The owner count comes out unchanged, so bump the version explicitly for a concurrent transfer to fail
+        entityManager.lock(family, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+    }
+
+    /*
+     * The bulk variants below check the acting owner once, read the targets'
+     * memberships with one query and leave the inserts, deletes and updates
+     * to the flush, where they go out as JDBC batches. Each distinct target
+     * gets one result, in the order it was first submitted.
+     */
+    @Transactional
+    @Override
+    public BulkMembershipResult addMembers(Long familyId, List<Long> targetUserIds, Long actingUserId) {
+
+        requireOwner(familyId, actingUserId, "only owners can add members");
+
+        Family family = familyService.getFamilyById(familyId);
+
+        Set<Long> targets = new LinkedHashSet<>(targetUserIds);
+        Map<Long, FamilyMembership> existing = membershipsByUserId(familyId, targets);
+
+        Map<Long, User> users = new HashMap<>();
+        List<Long> candidates = targets.stream().filter(id -> !existing.containsKey(id)).toList();
+        if (!candidates.isEmpty()) {
+            for (User user : userService.getUsersByIds(candidates)) {
+                users.put(user.getUserId(), user);
+            }
+        }
+
+        List<MembershipResult> results = new ArrayList<>(targets.size());
+        List<FamilyMembership> added = new ArrayList<>();
+
+        for (Long userId : targets) {
+            if (existing.containsKey(userId)) {
+                results.add(new MembershipResult(userId, MembershipOutcome.ALREADY_MEMBER));
+                continue;
+            }
+            User user = users.get(userId);
+            if (user == null) {
+                results.add(new MembershipResult(userId, MembershipOutcome.USER_NOT_FOUND));
+                continue;
+            }
+            FamilyMembership membership = new FamilyMembership(user, family, Role.OBSERVER);
+            family.addMembership(membership);
+            added.add(membership);
+            results.add(new MembershipResult(userId, MembershipOutcome.ADDED));
+        }
+
+        if (!added.isEmpty()) {
+            familyMembershipRepository.saveAll(added);
+            eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+        }
+
+        return new BulkMembershipResult(results);
+    }
+
+    @Transactional
+    @Override
+    public BulkMembershipResult removeMembers(Long familyId, List<Long> targetUserIds, Long actingUserId) {
+
+        requireOwner(familyId, actingUserId, "Only owner can remove a member");
+
+        Family family = familyService.getFamilyById(familyId);
+
+        Set<Long> targets = new LinkedHashSet<>(targetUserIds);
+        Map<Long, FamilyMembership> memberships = membershipsByUserId(familyId, targets);
+
+        List<MembershipResult> results = new ArrayList<>(targets.size());
+        List<FamilyMembership> removed = new ArrayList<>();
+
+        for (Long userId : targets) {
+            FamilyMembership membership = memberships.get(userId);
+            MembershipOutcome outcome;
+            if (actingUserId.equals(userId)) {
+                outcome = MembershipOutcome.ACTING_USER;
+            } else if (membership == null) {
+                outcome = MembershipOutcome.NOT_MEMBER;
+            } else if (membership.isOwner()) {
+                outcome = MembershipOutcome.OWNER;
+            } else {
+                family.membershipRemoved(membership);
+                removed.add(membership);
+                outcome = MembershipOutcome.REMOVED;
+            }
+            results.add(new MembershipResult(userId, outcome));
+        }
+
+        // The acting owner stays, so the family is never left empty here
+        if (!removed.isEmpty()) {
+            familyMembershipRepository.deleteAll(removed);
+            eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+        }
 
-        actingMembership.removeOwner();
+        return new BulkMembershipResult(results);
     }
 
+    @Transactional
+    @Override
+    public BulkMembershipResult updateMembers(Long familyId, List<MembershipUpdate> updates, Long actingUserId) {
+
+        requireOwner(familyId, actingUserId, "Only owner can change members");
+
+        // Several updates for one user are applied in order
+        Map<Long, List<MembershipUpdate>> updatesByUserId = new LinkedHashMap<>();
+        for (MembershipUpdate update : updates) {
+            updatesByUserId.computeIfAbsent(update.userId(), id -> new ArrayList<>()).add(update);
+        }
+        Map<Long, FamilyMembership> memberships = membershipsByUserId(familyId, updatesByUserId.keySet());
+
+        List<MembershipResult> results = new ArrayList<>(updatesByUserId.size());
+        boolean changed = false;
+
+        for (Map.Entry<Long, List<MembershipUpdate>> entry : updatesByUserId.entrySet()) {
+            FamilyMembership membership = memberships.get(entry.getKey());
+            if (membership == null) {
+                results.add(new MembershipResult(entry.getKey(), MembershipOutcome.NOT_MEMBER));
+                continue;
+            }
+            for (MembershipUpdate update : entry.getValue()) {
+                if (update.role() != null) {
+                    membership.changeRole(update.role());
+                }
+                if (Boolean.TRUE.equals(update.notificationsEnabled())) {
+                    membership.enableNotifications();
+                } else if (Boolean.FALSE.equals(update.notificationsEnabled())) {
+                    membership.disableNotifications();
+                }
+            }
+            changed = true;
+            results.add(new MembershipResult(entry.getKey(), MembershipOutcome.UPDATED));
+        }
+
+        // Written by dirty checking at flush, as one batch of updates
+        if (changed) {
+            eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+        }
+
+        return new BulkMembershipResult(results);
+    }
+
+    // Loaded rather than looked up, so a change is never allowed on a cached ownership
+    private void requireOwner(Long familyId, Long actingUserId, String message) {
+
+        FamilyMembership acting = membershipAuthorizations.load(actingUserId, familyId)
+                .orElseThrow(() -> familyRepository.existsById(familyId)
+                        ? new MembershipNotFoundException("You are not a member of this family")
+                        : new FamilyNotFoundException("Family not found"));
+
+        if (!acting.isOwner()) {
+            throw new UnauthorizedFamilyActionException(message);
+        }
+    }
+
+    private Map<Long, FamilyMembership> membershipsByUserId(Long familyId, Collection<Long> userIds) {
+        Map<Long, FamilyMembership> memberships = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return memberships;
+        }
+        for (FamilyMembership membership :
+                familyMembershipRepository.findByFamily_FamilyIdAndUser_UserIdIn(familyId, userIds)) {
+            memberships.put(membership.getUser().getUserId(), membership);
+        }
+        return memberships;
+    }
 }
@@ -1,14 +1,16 @@
 package com.project.househealth.service;
 
+import com.project.househealth.authorization.MembershipAuthorizations;
 import com.project.househealth.entity.Family;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
 import com.project.househealth.enums.Role;
 import com.project.househealth.enums.SystemRole;
+import com.project.househealth.event.FamilyMembershipChangedEvent;
 import com.project.househealth.exception.FamilyNotFoundException;
 import com.project.househealth.exception.UnauthorizedFamilyActionException;
-import com.project.househealth.repositories.FamilyMembershipRepository;
 import com.project.househealth.repositories.FamilyRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,14 +19,17 @@ public class FamilyServiceImpl implements FamilyService {
 
     private final UserService userService;
     private final FamilyRepository familyRepository;
-    private final FamilyMembershipRepository familyMembershipRepository;
+    private final MembershipAuthorizations membershipAuthorizations;
+    private final ApplicationEventPublisher eventPublisher;
 
     public FamilyServiceImpl(UserService userService,
                              FamilyRepository familyRepository,
-                             FamilyMembershipRepository familyMembershipRepository){
+                             MembershipAuthorizations membershipAuthorizations,
+                             ApplicationEventPublisher eventPublisher){
         this.userService = userService;
         this.familyRepository = familyRepository;
-        this.familyMembershipRepository = familyMembershipRepository;
+        this.membershipAuthorizations = membershipAuthorizations;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -35,13 +40,13 @@ public class FamilyServiceImpl implements FamilyService {
 
         Family family = new Family(familyName);
         family.setCreatedBy(creator);
-        family = familyRepository.save(family);
 
         FamilyMembership familyMembership = new FamilyMembership(creator, family, Role.BOTH);
         familyMembership.makeOwner();
 
         family.addMembership(familyMembership);
 
+        // Single save: the membership cascades and both inserts are batched at flush
         return familyRepository.save(family);
     }
 
@@ -58,17 +63,18 @@ public class FamilyServiceImpl implements FamilyService {
 
     private Family validateOwnership(Long familyId, Long actingUserId){
 
-        Family family = getFamilyById(familyId);
-
-        FamilyMembership membership =
-                familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId)
-                        .orElseThrow(() -> new UnauthorizedFamilyActionException("You are not a member of this family"));
+        // Before any other read, so a membership this transaction caches is no older than its snapshot.
+        // Loaded rather than looked up, so a change is never allowed on a cached ownership
+        FamilyMembership membership = membershipAuthorizations.load(actingUserId, familyId)
+                .orElseThrow(() -> familyRepository.existsById(familyId)
+                        ? new UnauthorizedFamilyActionException("You are not a member of this family")
+                        : new FamilyNotFoundException("Family not found"));
 
         if (!membership.isOwner()) {
             throw new UnauthorizedFamilyActionException("Only owner can perform this action");
         }
 
-        return family;
+        return getFamilyById(familyId);
     }
 
     @Transactional
@@ -92,5 +98,7 @@ public class FamilyServiceImpl implements FamilyService {
         Family family = getFamilyById(familyId);
 
         familyRepository.delete(family);
+
+        eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
     }
 }
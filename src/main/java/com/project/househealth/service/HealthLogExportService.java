@@ -0,0 +1,11 @@
+package com.project.househealth.service;
+
+import com.project.househealth.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface HealthLogExportService {
+    long exportUserHealthLogs(Long userId, ExportFormat format, OutputStream out) throws IOException;
+    long exportFamilyHealthLogs(Long familyId, ExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,193 @@
+package com.project.househealth.service;
+
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.ExportFormat;
+import com.project.househealth.exception.FamilyNotFoundException;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.HealthLogRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Exports stream rows straight from a forward-only cursor to the output
+ * stream. Each entity is detached once written, so heap use does not grow
+ * with history length. On MySQL the fetch size hint is only honoured when
+ * the connection uses useCursorFetch=true; otherwise Connector/J buffers
+ * the whole result set client-side. Archived months are merged in
+ * measurement order, one month file in memory at a time.
+ */
+@Service
+public class HealthLogExportServiceImpl implements HealthLogExportService {
+
+    private static final String CSV_HEADER =
+            "log_id,user_id,metric_type,sugar_type,systolic,diastolic,sugar_value,measured_at,logged_at\n";
+
+    private final HealthLogRepository healthLogRepository;
+    private final FamilyRepository familyRepository;
+    private final FamilyMembershipRepository familyMembershipRepository;
+    private final HealthLogArchive healthLogArchive;
+    private final EntityManager entityManager;
+
+    public HealthLogExportServiceImpl(HealthLogRepository healthLogRepository,
+                                      FamilyRepository familyRepository,
+                                      FamilyMembershipRepository familyMembershipRepository,
+                                      HealthLogArchive healthLogArchive,
+                                      EntityManager entityManager) {
+        this.healthLogRepository = healthLogRepository;
+        this.familyRepository = familyRepository;
+        this.familyMembershipRepository = familyMembershipRepository;
+        this.healthLogArchive = healthLogArchive;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long exportUserHealthLogs(Long userId, ExportFormat format, OutputStream out) throws IOException {
+
+        Writer writer = writer(out);
+        writeHeader(format, writer);
+
+        long rows = writeUser(userId, format, writer, new StringBuilder(128));
+
+        writer.flush();
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long exportFamilyHealthLogs(Long familyId, ExportFormat format, OutputStream out) throws IOException {
+
+        if (!familyRepository.existsById(familyId)) {
+            throw new FamilyNotFoundException("Family not found");
+        }
+
+        Writer writer = writer(out);
+        writeHeader(format, writer);
+
+        StringBuilder line = new StringBuilder(128);
+        long rows = 0;
+        for (Long memberUserId : familyMembershipRepository.findMemberUserIds(familyId)) {
+            rows += writeUser(memberUserId, format, writer, line);
+        }
+
+        writer.flush();
+        return rows;
+    }
+
+    private long writeUser(Long userId, ExportFormat format, Writer writer, StringBuilder line) throws IOException {
+
+        long rows = 0;
+        Iterator<HealthLog> archived = archivedOldestFirst(userId);
+        try (Stream<HealthLog> healthLogs = healthLogRepository.streamByUserId(userId)) {
+            Iterator<HealthLog> hot = healthLogs.iterator();
+            HealthLog nextArchived = next(archived);
+            HealthLog nextHot = next(hot);
+            while (nextArchived != null || nextHot != null) {
+                HealthLog healthLog;
+                if (nextHot == null
+                        || (nextArchived != null && HealthLogArchive.OLDEST_FIRST.compare(nextArchived, nextHot) < 0)) {
+                    healthLog = nextArchived;
+                    nextArchived = next(archived);
+                } else {
+                    // The same reading can briefly exist in both; the hot copy wins
+                    if (nextArchived != null && nextArchived.getLogId().equals(nextHot.getLogId())) {
+                        nextArchived = next(archived);
+                    }
+                    healthLog = nextHot;
+                    nextHot = next(hot);
+                }
+
+                line.setLength(0);
+                if (format == ExportFormat.CSV) {
+                    appendCsv(healthLog, userId, line);
+                } else {
+                    appendJson(healthLog, userId, line);
+                }
+                writer.append(line);
+
+                // Archived readings were never attached
+                if (entityManager.contains(healthLog)) {
+                    entityManager.detach(healthLog);
+                }
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private Iterator<HealthLog> archivedOldestFirst(Long userId) {
+        List<YearMonth> months = healthLogArchive.months(userId);
+        if (months.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        User user = entityManager.getReference(User.class, userId);
+        return months.reversed().stream()
+                .flatMap(month -> healthLogArchive.read(user, userId, month).stream())
+                .iterator();
+    }
+
+    private static HealthLog next(Iterator<HealthLog> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static Writer writer(OutputStream out) {
+        // Not closed here: the caller owns the output stream
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static void writeHeader(ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+    }
+
+    static void appendCsv(HealthLog healthLog, Long userId, StringBuilder line) {
+        line.append(healthLog.getLogId()).append(',')
+                .append(userId).append(',')
+                .append(healthLog.getMetricType()).append(',');
+        appendNullable(line, healthLog.getSugarType()).append(',');
+        appendNullable(line, healthLog.getSystolic()).append(',');
+        appendNullable(line, healthLog.getDiastolic()).append(',');
+        appendNullable(line, healthLog.getSugarValue()).append(',')
+                .append(healthLog.getMeasuredAt()).append(',')
+                .append(healthLog.getLoggedAt()).append('\n');
+    }
+
+    // Every value is a number, an enum constant or an ISO instant, so nothing needs escaping
+    static void appendJson(HealthLog healthLog, Long userId, StringBuilder line) {
+        line.append("{\"logId\":").append(healthLog.getLogId())
+                .append(",\"userId\":").append(userId)
+                .append(",\"metricType\":\"").append(healthLog.getMetricType()).append('"')
+                .append(",\"sugarType\":");
+        if (healthLog.getSugarType() == null) {
+            line.append("null");
+        } else {
+            line.append('"').append(healthLog.getSugarType()).append('"');
+        }
+        line.append(",\"systolic\":").append(healthLog.getSystolic())
+                .append(",\"diastolic\":").append(healthLog.getDiastolic())
+                .append(",\"sugarValue\":").append(healthLog.getSugarValue())
+                .append(",\"measuredAt\":\"").append(healthLog.getMeasuredAt()).append('"')
+                .append(",\"loggedAt\":\"").append(healthLog.getLoggedAt()).append("\"}\n");
+    }
+
+    private static StringBuilder appendNullable(StringBuilder line, Object value) {
+        return value == null ? line : line.append(value);
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ImportResult;
+import com.project.househealth.ingestion.ImportProgressListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface HealthLogImportService {
+    ImportResult importDeviceCsv(Long userId, Path file, ImportProgressListener listener) throws IOException;
+}
@@ -0,0 +1,140 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.dto.ImportProgress;
+import com.project.househealth.dto.ImportResult;
+import com.project.househealth.dto.IngestionFailure;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.ingestion.DeviceCsvReader;
+import com.project.househealth.ingestion.ImportProgressListener;
+import com.project.househealth.repositories.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Rows are parsed from the mapped file and handed to the bulk write path in
+ * batches of IMPORT_BATCH_SIZE, which it commits in chunks of its own. Each
+ * row gets a reading key derived from its timestamp and type, so importing
+ * the same export twice, or an export that overlaps an earlier one, stores
+ * every reading once.
+ */
+@Service
+public class HealthLogImportServiceImpl implements HealthLogImportService {
+
+    static final int IMPORT_BATCH_SIZE = 10 * HealthLogServiceImpl.INGESTION_CHUNK_SIZE;
+
+    static final int MAX_REPORTED_FAILURES = 1000;
+
+    private static final String[] KEY_SUFFIXES = {"-B", "-F", "-P"};
+
+    private final HealthLogService healthLogService;
+    private final UserRepository userRepository;
+
+    public HealthLogImportServiceImpl(HealthLogService healthLogService, UserRepository userRepository) {
+        this.healthLogService = healthLogService;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public ImportResult importDeviceCsv(Long userId, Path file, ImportProgressListener listener) throws IOException {
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BatchingHandler handler = new BatchingHandler(user, channel.size(), listener);
+            new DeviceCsvReader().read(channel, handler);
+            handler.flush();
+            return handler.result();
+        }
+    }
+
+    private final class BatchingHandler implements DeviceCsvReader.RowHandler {
+
+        private final User user;
+        private final long totalBytes;
+        private final ImportProgressListener listener;
+
+        private final List<HealthLog> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        private final long[] batchLines = new long[IMPORT_BATCH_SIZE];
+        private final List<IngestionFailure> failures = new ArrayList<>();
+
+        private long bytesRead;
+        private long rowsRead;
+        private long imported;
+        private long failed;
+
+        private BatchingHandler(User user, long totalBytes, ImportProgressListener listener) {
+            this.user = user;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onRow(long lineNumber, long endOffset, long epochSecond, int type, int value1, int value2) {
+
+            HealthLog healthLog;
+            if (type == DeviceCsvReader.BP) {
+                healthLog = new HealthLog(MetricType.BP, user);
+                healthLog.setSystolic(value1);
+                healthLog.setDiastolic(value2);
+            } else {
+                healthLog = new HealthLog(MetricType.SUGAR, user);
+                healthLog.setSugarType(type == DeviceCsvReader.FASTING ? SugarType.FASTING : SugarType.POST_MEAL);
+                healthLog.setSugarValue(value1);
+            }
+            healthLog.setMeasuredAt(Instant.ofEpochSecond(epochSecond));
+            healthLog.setReadingKey("dev-" + epochSecond + KEY_SUFFIXES[type]);
+
+            batchLines[batch.size()] = lineNumber;
+            batch.add(healthLog);
+            rowsRead++;
+            bytesRead = endOffset;
+
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onError(long lineNumber, long endOffset, String reason) {
+            rowsRead++;
+            bytesRead = endOffset;
+            fail(lineNumber, reason);
+        }
+
+        private void fail(long lineNumber, String reason) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(new IngestionFailure((int) Math.min(lineNumber, Integer.MAX_VALUE), reason));
+            }
+        }
+
+        private void flush() {
+            if (!batch.isEmpty()) {
+                BulkIngestionResult result = healthLogService.createHealthLogs(batch);
+                imported += result.acceptedCount();
+                for (IngestionFailure failure : result.failures()) {
+                    fail(batchLines[failure.index()], failure.reason());
+                }
+                batch.clear();
+            }
+            listener.onProgress(new ImportProgress(bytesRead, totalBytes, rowsRead, imported, failed));
+        }
+
+        private ImportResult result() {
+            failures.sort((a, b) -> Integer.compare(a.index(), b.index()));
+            return new ImportResult(rowsRead, imported, failed, List.copyOf(failures));
+        }
+    }
+}
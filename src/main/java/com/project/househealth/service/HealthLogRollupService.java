@@ -0,0 +1,19 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ReadingAggregate;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.HealthLogRollup;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.RollupPeriod;
+import com.project.househealth.enums.SugarType;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface HealthLogRollupService {
+    void recordReadings(List<HealthLog> healthLogs);
+    List<HealthLogRollup> getRollups(Long userId, MetricType metricType, SugarType sugarType,
+                                     RollupPeriod period, Instant from, Instant to);
+    ReadingAggregate aggregate(Long userId, MetricType metricType, SugarType sugarType,
+                               RollupPeriod period, Instant from, Instant to);
+}
@@ -0,0 +1,152 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ReadingAggregate;
+import com.project.househealth.dto.ValueSummary;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.HealthLogRollup;
+import com.project.househealth.entity.ValueRollup;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.RollupPeriod;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.repositories.HealthLogRollupRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class HealthLogRollupServiceImpl implements HealthLogRollupService {
+
+    private final HealthLogRollupRepository healthLogRollupRepository;
+
+    public HealthLogRollupServiceImpl(HealthLogRollupRepository healthLogRollupRepository) {
+        this.healthLogRollupRepository = healthLogRollupRepository;
+    }
+
+    private record BucketKey(MetricType metricType, int sugarCode, Instant bucketStart) {}
+
+    /*
+     * Runs inside the caller's write transaction so rollups commit or roll back
+     * together with the readings. For each user and period the affected buckets
+     * are loaded and locked with one query, then updated in memory. Missing
+     * buckets are created first with an insert that does nothing when another
+     * writer got there first, and before this transaction locks any bucket
+     * gaps an insert could wait on. Buckets are
+     * keyed by measurement time, so a late or out-of-order reading adjusts the
+     * past buckets it belongs to and nothing else.
+     */
+    @Transactional
+    @Override
+    public void recordReadings(List<HealthLog> healthLogs) {
+
+        Map<Long, List<HealthLog>> byUser = new LinkedHashMap<>();
+        for (HealthLog healthLog : healthLogs) {
+            byUser.computeIfAbsent(healthLog.getUser().getUserId(), id -> new ArrayList<>()).add(healthLog);
+        }
+
+        for (Map.Entry<Long, List<HealthLog>> entry : byUser.entrySet()) {
+            for (RollupPeriod period : RollupPeriod.values()) {
+                recordUserReadings(entry.getKey(), period, entry.getValue());
+            }
+        }
+    }
+
+    private void recordUserReadings(Long userId, RollupPeriod period, List<HealthLog> healthLogs) {
+
+        Set<Instant> bucketStarts = new HashSet<>();
+        for (HealthLog healthLog : healthLogs) {
+            bucketStarts.add(bucketStart(period, healthLog.getMeasuredAt()));
+        }
+
+        Map<BucketKey, HealthLog> needed = new LinkedHashMap<>();
+        for (HealthLog healthLog : healthLogs) {
+            needed.putIfAbsent(bucketKey(period, healthLog), healthLog);
+        }
+        for (Object[] row : healthLogRollupRepository.findBucketKeys(userId, period, bucketStarts)) {
+            needed.remove(new BucketKey((MetricType) row[0], (Integer) row[1], (Instant) row[2]));
+        }
+        if (!needed.isEmpty()) {
+            // The insert bypasses the session, so a user saved in this transaction must reach the table first
+            healthLogRollupRepository.flush();
+        }
+        for (Map.Entry<BucketKey, HealthLog> missing : needed.entrySet()) {
+            BucketKey key = missing.getKey();
+            healthLogRollupRepository.createBucketIfAbsent(missing.getValue().getUser(),
+                    key.metricType(), key.sugarCode(), period, key.bucketStart());
+        }
+
+        Map<BucketKey, HealthLogRollup> buckets = new HashMap<>();
+        for (HealthLogRollup rollup :
+                healthLogRollupRepository.findBucketsForUpdate(userId, period, bucketStarts)) {
+            buckets.put(new BucketKey(rollup.getMetricType(), HealthLogRollup.sugarCode(rollup.getSugarType()),
+                    rollup.getBucketStart()), rollup);
+        }
+
+        for (HealthLog healthLog : healthLogs) {
+            buckets.get(bucketKey(period, healthLog)).accumulate(healthLog);
+        }
+    }
+
+    private static BucketKey bucketKey(RollupPeriod period, HealthLog healthLog) {
+        return new BucketKey(healthLog.getMetricType(), HealthLogRollup.sugarCode(healthLog.getSugarType()),
+                bucketStart(period, healthLog.getMeasuredAt()));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<HealthLogRollup> getRollups(Long userId, MetricType metricType, SugarType sugarType,
+                                            RollupPeriod period, Instant from, Instant to) {
+        Integer sugarCode = sugarType == null ? null : sugarType.code();
+        return healthLogRollupRepository.findSeries(userId, period, metricType, sugarCode,
+                bucketStart(period, from), to);
+    }
+
+    /*
+     * Answers a range aggregate from O(buckets) rollup rows. The range is
+     * widened to whole buckets: from is truncated to its bucket start, and
+     * every bucket starting before to is included.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public ReadingAggregate aggregate(Long userId, MetricType metricType, SugarType sugarType,
+                                      RollupPeriod period, Instant from, Instant to) {
+
+        long count = 0;
+        ValueRollup systolic = new ValueRollup();
+        ValueRollup diastolic = new ValueRollup();
+        ValueRollup sugar = new ValueRollup();
+
+        for (HealthLogRollup rollup : getRollups(userId, metricType, sugarType, period, from, to)) {
+            count += rollup.getReadingCount();
+            systolic.merge(rollup.getSystolic());
+            diastolic.merge(rollup.getDiastolic());
+            sugar.merge(rollup.getSugar());
+        }
+
+        return new ReadingAggregate(count,
+                ValueSummary.of(systolic, count),
+                ValueSummary.of(diastolic, count),
+                ValueSummary.of(sugar, count));
+    }
+
+    static Instant bucketStart(RollupPeriod period, Instant instant) {
+        Instant day = instant.truncatedTo(ChronoUnit.DAYS);
+        if (period == RollupPeriod.DAY) {
+            return day;
+        }
+        return day.atOffset(ZoneOffset.UTC)
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .toInstant();
+    }
+}
@@ -1,8 +1,21 @@
 package com.project.househealth.service;
 
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.dto.HealthLogCursor;
+import com.project.househealth.dto.HealthLogPage;
+import com.project.househealth.dto.ReadingColumns;
 import com.project.househealth.entity.HealthLog;
+import com.project.househealth.enums.MetricType;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface HealthLogService {
     HealthLog createHealthLog(HealthLog healthLog);
+    void submitHealthLog(HealthLog healthLog);
+    BulkIngestionResult createHealthLogs(List<HealthLog> healthLogs);
     HealthLog getHealthLogById(Long id);
+    HealthLogPage getHealthHistory(Long userId, MetricType metricType, HealthLogCursor after, int pageSize);
+    long scanReadings(Long userId, MetricType metricType, Instant from, Instant to, Consumer<ReadingColumns> consumer);
 }
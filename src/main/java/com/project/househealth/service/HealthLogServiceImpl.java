@@ -1,21 +1,400 @@
 package com.project.househealth.service;
 
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.config.PersistenceConfig;
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.dto.HealthLogCursor;
+import com.project.househealth.dto.HealthLogPage;
+import com.project.househealth.dto.IngestionFailure;
+import com.project.househealth.dto.ReadingColumns;
+import com.project.househealth.dto.ReadingKey;
 import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.event.HealthLogsRecordedEvent;
+import com.project.househealth.event.ReadingAlertEvent;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.ingestion.WriteBehindIngestionQueue;
 import com.project.househealth.repositories.HealthLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 public class HealthLogServiceImpl implements HealthLogService{
 
+    // Matches hibernate.jdbc.batch_size so every chunk is flushed as whole JDBC batches
+    static final int INGESTION_CHUNK_SIZE = PersistenceConfig.JDBC_BATCH_SIZE;
+
+    static final int MAX_HISTORY_PAGE_SIZE = 200;
+
+    static final Duration ALERT_MAX_AGE = Duration.ofHours(24);
+
+    // Tolerated device clock drift for measuredAt
+    static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+
+    // Also keeps keys safe to journal, which uses '|' as a separator
+    private static final Pattern READING_KEY = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
     private final HealthLogRepository healthLogRepository;
+    private final HealthLogRollupService healthLogRollupService;
+    private final HealthLogArchive healthLogArchive;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<WriteBehindIngestionQueue> writeBehindQueue;
+    private final RecentReadingKeyFilter recentReadingKeys;
+    private final ThresholdEvaluator thresholdEvaluator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // A repeated key fails the insert on purpose; in its own transaction that never dooms a caller's
+    private final TransactionTemplate keyedInsertTemplate;
 
-    public HealthLogServiceImpl(HealthLogRepository healthLogRepository){
+    public HealthLogServiceImpl(HealthLogRepository healthLogRepository,
+                                HealthLogRollupService healthLogRollupService,
+                                HealthLogArchive healthLogArchive,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<WriteBehindIngestionQueue> writeBehindQueue,
+                                RecentReadingKeyFilter recentReadingKeys,
+                                ThresholdEvaluator thresholdEvaluator,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager){
         this.healthLogRepository = healthLogRepository;
+        this.healthLogRollupService = healthLogRollupService;
+        this.healthLogArchive = healthLogArchive;
+        this.eventPublisher = eventPublisher;
+        this.writeBehindQueue = writeBehindQueue;
+        this.recentReadingKeys = recentReadingKeys;
+        this.thresholdEvaluator = thresholdEvaluator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keyedInsertTemplate = new TransactionTemplate(transactionManager);
+        this.keyedInsertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
+    /*
+     * A reading with a key that was already stored returns the stored log.
+     * The filter answers "never seen" for almost every fresh key, so only
+     * likely retries pay for a lookup; a retry the filter has forgotten is
+     * caught by the unique index and resolved the same way.
+     */
     @Override
     public HealthLog createHealthLog(HealthLog healthLog) {
-        return healthLogRepository.save(healthLog);
+
+        ReadingKey key = ReadingKey.of(healthLog);
+        if (key != null && recentReadingKeys.mightContain(key.userId(), key.readingKey())) {
+            Optional<HealthLog> existing = healthLogRepository.findByUser_UserIdAndReadingKey(key.userId(), key.readingKey());
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
+        HealthLog saved;
+        try {
+            saved = (key == null ? transactionTemplate : keyedInsertTemplate).execute(status -> insert(healthLog));
+        } catch (RuntimeException ex) {
+            if (key == null || !isConstraintViolation(ex)) {
+                throw ex;
+            }
+            saved = healthLogRepository.findByUser_UserIdAndReadingKey(key.userId(), key.readingKey())
+                    .orElseThrow(() -> ex);
+        }
+
+        if (key != null) {
+            recentReadingKeys.put(key.userId(), key.readingKey());
+        }
+        return saved;
+    }
+
+    // Flushes so a duplicate key fails here rather than at commit
+    private HealthLog insert(HealthLog healthLog) {
+        HealthLog saved = healthLogRepository.saveAndFlush(healthLog);
+        healthLogRollupService.recordReadings(List.of(saved));
+        raiseAlertIfOutOfRange(saved);
+        eventPublisher.publishEvent(HealthLogsRecordedEvent.of(List.of(saved)));
+        return saved;
+    }
+
+    /*
+     * Acknowledges a reading. With househealth.ingestion.write-behind.enabled the
+     * reading is journaled and queued for a group commit; otherwise it is
+     * written synchronously, exactly like createHealthLog.
+     */
+    @Override
+    public void submitHealthLog(HealthLog healthLog) {
+
+        String error = validate(healthLog);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        WriteBehindIngestionQueue queue = writeBehindQueue.getIfAvailable();
+        if (queue != null) {
+            queue.submit(healthLog);
+            return;
+        }
+
+        createHealthLog(healthLog);
+    }
+
+    /*
+     * Readings are validated one by one, then written in chunks of
+     * INGESTION_CHUNK_SIZE. Each chunk runs in its own transaction and the
+     * persistence context is cleared afterwards, so memory stays bounded. A
+     * chunk that fails is written again reading by reading, so only the
+     * readings that fail on their own are rejected.
+     *
+     * Readings whose key was already stored, in the database or earlier in
+     * the same call, are not written again; the stored log is returned in
+     * their place.
+     */
+    @Override
+    public BulkIngestionResult createHealthLogs(List<HealthLog> healthLogs) {
+
+        List<HealthLog> created = new ArrayList<>(healthLogs.size());
+        List<IngestionFailure> failures = new ArrayList<>();
+
+        List<HealthLog> chunk = new ArrayList<>(INGESTION_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(INGESTION_CHUNK_SIZE);
+
+        for (int i = 0; i < healthLogs.size(); i++) {
+            HealthLog healthLog = healthLogs.get(i);
+
+            String error = validate(healthLog);
+            if (error != null) {
+                failures.add(new IngestionFailure(i, error));
+                continue;
+            }
+
+            chunk.add(healthLog);
+            chunkIndexes.add(i);
+
+            if (chunk.size() == INGESTION_CHUNK_SIZE) {
+                writeChunk(chunk, chunkIndexes, created, failures);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, chunkIndexes, created, failures);
+        }
+
+        failures.sort(Comparator.comparingInt(IngestionFailure::index));
+
+        return new BulkIngestionResult(created, failures);
+    }
+
+    private void writeChunk(List<HealthLog> chunk,
+                            List<Integer> chunkIndexes,
+                            List<HealthLog> created,
+                            List<IngestionFailure> failures) {
+        List<HealthLog> stored;
+        try {
+            stored = transactionTemplate.execute(status -> persistChunk(chunk, false));
+        } catch (DataAccessException | PersistenceException | TransactionException ex) {
+            // One reading failed the batch (a bad row, or a retry the filter did not remember);
+            // write fresh copies one by one so each reading gets its own result
+            for (int i = 0; i < chunk.size(); i++) {
+                writeReading(unsavedCopy(chunk.get(i)), chunkIndexes.get(i), created, failures);
+            }
+            return;
+        }
+
+        created.addAll(stored);
+        remember(stored);
+    }
+
+    private void writeReading(HealthLog healthLog, int index, List<HealthLog> created, List<IngestionFailure> failures) {
+        List<HealthLog> stored;
+        try {
+            stored = transactionTemplate.execute(status -> persistChunk(List.of(healthLog), true));
+        } catch (DataAccessException | PersistenceException | TransactionException ex) {
+            failures.add(new IngestionFailure(index, "Write failed: " + ex.getMessage()));
+            return;
+        }
+        created.addAll(stored);
+        remember(stored);
+    }
+
+    private void remember(List<HealthLog> stored) {
+        for (HealthLog healthLog : stored) {
+            if (healthLog.getReadingKey() != null) {
+                recentReadingKeys.put(healthLog.getUser().getUserId(), healthLog.getReadingKey());
+            }
+        }
+    }
+
+    private List<HealthLog> persistChunk(List<HealthLog> chunk, boolean checkAllKeys) {
+
+        Map<ReadingKey, HealthLog> known = findStoredReadings(chunk, checkAllKeys);
+
+        List<HealthLog> stored = new ArrayList<>(chunk.size());
+        List<HealthLog> inserted = new ArrayList<>(chunk.size());
+
+        for (HealthLog healthLog : chunk) {
+            ReadingKey key = ReadingKey.of(healthLog);
+            if (key != null) {
+                HealthLog original = known.putIfAbsent(key, healthLog);
+                if (original != null) {
+                    stored.add(original);
+                    continue;
+                }
+            }
+            entityManager.persist(healthLog);
+            raiseAlertIfOutOfRange(healthLog);
+            inserted.add(healthLog);
+            stored.add(healthLog);
+        }
+
+        if (!inserted.isEmpty()) {
+            healthLogRollupService.recordReadings(inserted);
+            entityManager.flush();
+            eventPublisher.publishEvent(HealthLogsRecordedEvent.of(inserted));
+        }
+        entityManager.clear();
+        return stored;
+    }
+
+    // One lookup per user, limited to the keys the filter cannot rule out unless checkAllKeys is set
+    private Map<ReadingKey, HealthLog> findStoredReadings(List<HealthLog> chunk, boolean checkAllKeys) {
+
+        Map<Long, Set<String>> candidates = new HashMap<>();
+        for (HealthLog healthLog : chunk) {
+            ReadingKey key = ReadingKey.of(healthLog);
+            if (key != null && (checkAllKeys || recentReadingKeys.mightContain(key.userId(), key.readingKey()))) {
+                candidates.computeIfAbsent(key.userId(), id -> new HashSet<>()).add(key.readingKey());
+            }
+        }
+
+        Map<ReadingKey, HealthLog> known = new HashMap<>();
+        candidates.forEach((userId, readingKeys) -> {
+            for (HealthLog existing : healthLogRepository.findByUserIdAndReadingKeys(userId, readingKeys)) {
+                known.put(new ReadingKey(userId, existing.getReadingKey()), existing);
+            }
+        });
+        return known;
+    }
+
+    // Inline on every write; allocates only when an alert is raised. Backfilled history never alerts.
+    private void raiseAlertIfOutOfRange(HealthLog healthLog) {
+        int breaches = thresholdEvaluator.evaluate(healthLog);
+        if (breaches != 0 && healthLog.getMeasuredAt().isAfter(Instant.now().minus(ALERT_MAX_AGE))) {
+            eventPublisher.publishEvent(new ReadingAlertEvent(healthLog.getLogId(), healthLog.getUser().getUserId(),
+                    healthLog.getMetricType(), healthLog.getSugarType(), healthLog.getSystolic(),
+                    healthLog.getDiastolic(), healthLog.getSugarValue(), breaches));
+        }
+    }
+
+    private static HealthLog unsavedCopy(HealthLog healthLog) {
+        HealthLog copy = new HealthLog(healthLog.getMetricType(), healthLog.getUser());
+        copy.setSugarType(healthLog.getSugarType());
+        copy.setSystolic(healthLog.getSystolic());
+        copy.setDiastolic(healthLog.getDiastolic());
+        copy.setSugarValue(healthLog.getSugarValue());
+        copy.setMeasuredAt(healthLog.getMeasuredAt());
+        copy.setReadingKey(healthLog.getReadingKey());
+        return copy;
+    }
+
+    private static boolean isConstraintViolation(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Seeds the filter with the keys stored during its window, so retries that
+     * straddle a restart still skip the failed insert.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUpReadingKeyFilter() {
+        Instant since = Instant.now().minus(recentReadingKeys.window());
+        try (Stream<ReadingKey> keys = healthLogRepository.streamReadingKeysSince(since)) {
+            keys.forEach(key -> recentReadingKeys.put(key.userId(), key.readingKey()));
+        }
+    }
+
+    static String validate(HealthLog healthLog) {
+        if (healthLog == null) {
+            return "Health log must not be null";
+        }
+        if (healthLog.getUser() == null) {
+            return "User must not be null";
+        }
+        if (healthLog.getMetricType() == null) {
+            return "Metric type must not be null";
+        }
+        if (healthLog.getMetricType() == MetricType.BP) {
+            if (healthLog.getSystolic() == null || healthLog.getDiastolic() == null) {
+                return "Blood pressure readings need systolic and diastolic values";
+            }
+            if (healthLog.getSystolic() <= 0 || healthLog.getDiastolic() <= 0) {
+                return "Blood pressure values must be positive";
+            }
+            // Each value is stored in 16 bits of reading_value
+            if (healthLog.getSystolic() > Short.MAX_VALUE || healthLog.getDiastolic() > Short.MAX_VALUE) {
+                return "Blood pressure values must be at most " + Short.MAX_VALUE;
+            }
+            if (healthLog.getSugarType() != null || healthLog.getSugarValue() != null) {
+                return "Blood pressure readings must not carry a sugar type or value";
+            }
+        } else {
+            if (healthLog.getSugarType() == null || healthLog.getSugarValue() == null) {
+                return "Sugar readings need a sugar type and value";
+            }
+            if (healthLog.getSugarValue() <= 0) {
+                return "Sugar value must be positive";
+            }
+            if (healthLog.getSystolic() != null || healthLog.getDiastolic() != null) {
+                return "Sugar readings must not carry blood pressure values";
+            }
+        }
+        if (healthLog.getMeasuredAt() != null
+                && healthLog.getMeasuredAt().isAfter(Instant.now().plus(MAX_CLOCK_SKEW))) {
+            return "Measurement time must not be in the future";
+        }
+        if (healthLog.getReadingKey() != null && !READING_KEY.matcher(healthLog.getReadingKey()).matches()) {
+            return "Reading key must be 1-64 letters, digits or . _ : -";
+        }
+        // measured_at is part of the reading key's unique index on partitioned tables, so a retry must repeat it
+        if (healthLog.getReadingKey() != null && healthLog.getMeasuredAt() == null) {
+            return "Readings with a reading key need a measurement time";
+        }
+        return null;
     }
 
     @Override
@@ -23,4 +402,89 @@ public class HealthLogServiceImpl implements HealthLogService{
         return healthLogRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Health log not found"));
     }
+
+    /*
+     * Seek pagination: each page is an index range scan that starts right after
+     * the cursor, so page 1000 costs the same as page 1. One extra row is read
+     * to know whether another page exists.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public HealthLogPage getHealthHistory(Long userId, MetricType metricType, HealthLogCursor after, int pageSize) {
+
+        if (userId == null || metricType == null) {
+            throw new IllegalArgumentException("User and metric type must not be null");
+        }
+        if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<HealthLog> rows = after == null
+                ? healthLogRepository.findHistoryFirstPage(userId, metricType, limit)
+                : healthLogRepository.findHistoryPageBefore(userId, metricType, after.measuredAt(), after.logId(), limit);
+        rows = withArchivedReadings(userId, metricType, after, rows, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return new HealthLogPage(rows, null);
+        }
+
+        List<HealthLog> items = rows.subList(0, pageSize);
+        HealthLog last = items.get(pageSize - 1);
+
+        return new HealthLogPage(List.copyOf(items), new HealthLogCursor(last.getMeasuredAt(), last.getLogId()));
+    }
+
+    /*
+     * Archived readings all sit in months before the newest archived month
+     * ends. Hot rows can still reach back into those months (late readings
+     * that arrived after the last archival run), so when the page is not
+     * already filled with newer hot rows the two sources are merged in
+     * history order. The same reading can briefly exist in both; the hot
+     * copy wins.
+     */
+    private List<HealthLog> withArchivedReadings(Long userId, MetricType metricType, HealthLogCursor after,
+                                                 List<HealthLog> hot, int limit) {
+
+        List<YearMonth> months = healthLogArchive.months(userId);
+        if (months.isEmpty()) {
+            return hot;
+        }
+        Instant archivedUntil = months.get(0).plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+        if (hot.size() >= limit && !hot.get(limit - 1).getMeasuredAt().isBefore(archivedUntil)) {
+            return hot;
+        }
+
+        User user = entityManager.getReference(User.class, userId);
+        Map<Long, HealthLog> merged = new HashMap<>();
+        for (HealthLog archived : healthLogArchive.findHistory(user, metricType, after, limit)) {
+            merged.put(archived.getLogId(), archived);
+        }
+        for (HealthLog healthLog : hot) {
+            merged.put(healthLog.getLogId(), healthLog);
+        }
+
+        List<HealthLog> rows = new ArrayList<>(merged.values());
+        rows.sort(HealthLogArchive.NEWEST_FIRST);
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /*
+     * Column-oriented scan for analytics over long histories: rows arrive in
+     * reused blocks of primitives rather than as entities, so the cost per
+     * row is a few array writes instead of an entity graph.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public long scanReadings(Long userId, MetricType metricType, Instant from, Instant to,
+                             Consumer<ReadingColumns> consumer) {
+
+        if (userId == null || metricType == null || from == null || to == null) {
+            throw new IllegalArgumentException("User, metric type and range must not be null");
+        }
+
+        return healthLogRepository.scanReadings(userId, metricType, from, to,
+                new ReadingColumns(ReadingColumns.DEFAULT_CAPACITY), consumer);
+    }
 }
@@ -0,0 +1,8 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ThresholdLimits;
+
+public interface ReadingThresholdsService {
+    ThresholdLimits getThresholds(Long userId);
+    ThresholdLimits updateThresholds(Long userId, ThresholdLimits limits);
+}
@@ -0,0 +1,69 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ThresholdLimits;
+import com.project.househealth.entity.ReadingThresholds;
+import com.project.househealth.entity.User;
+import com.project.househealth.event.ReadingThresholdsChangedEvent;
+import com.project.househealth.repositories.ReadingThresholdsRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class ReadingThresholdsServiceImpl implements ReadingThresholdsService {
+
+    private final ReadingThresholdsRepository readingThresholdsRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ReadingThresholdsServiceImpl(ReadingThresholdsRepository readingThresholdsRepository,
+                                        UserRepository userRepository,
+                                        ApplicationEventPublisher eventPublisher) {
+        this.readingThresholdsRepository = readingThresholdsRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Effective limits, with defaults filled in for anything the user has not set
+    @Transactional(readOnly = true)
+    @Override
+    public ThresholdLimits getThresholds(Long userId) {
+        return readingThresholdsRepository.findByUser_UserId(userId)
+                .map(ReadingThresholds::getLimits)
+                .orElse(ThresholdLimits.DEFAULTS)
+                .withDefaults();
+    }
+
+    @Transactional
+    @Override
+    public ThresholdLimits updateThresholds(Long userId, ThresholdLimits limits) {
+
+        ThresholdLimits effective = limits.withDefaults();
+        requireRange("Systolic", effective.systolicLow(), effective.systolicHigh());
+        requireRange("Diastolic", effective.diastolicLow(), effective.diastolicHigh());
+        requireRange("Fasting sugar", effective.fastingSugarLow(), effective.fastingSugarHigh());
+        requireRange("Post-meal sugar", effective.postMealSugarLow(), effective.postMealSugarHigh());
+
+        ReadingThresholds thresholds = readingThresholdsRepository.findByUser_UserId(userId)
+                .orElseGet(() -> {
+                    User user = userRepository.findById(userId)
+                            .orElseThrow(() -> new RuntimeException("User not found"));
+                    return new ReadingThresholds(user);
+                });
+
+        thresholds.setLimits(limits);
+        readingThresholdsRepository.save(thresholds);
+
+        // The evaluator recompiles this user's rules after commit
+        eventPublisher.publishEvent(new ReadingThresholdsChangedEvent(userId));
+
+        return effective;
+    }
+
+    private static void requireRange(String name, int low, int high) {
+        if (low <= 0 || low > high) {
+            throw new IllegalArgumentException(name + " range must be positive with low <= high");
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package com.project.househealth.service;
 
+import com.project.househealth.dto.ReminderProfile;
 import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.enums.FrequencyType;
+
+import java.util.Collection;
+import java.util.Map;
 
 public interface ReminderSettingsService {
     ReminderSettings createReminderSettings(ReminderSettings reminderSettings);
     ReminderSettings getReminderSettingById(Long id);
+    ReminderSettings updateReminderSettings(Long id, FrequencyType frequencyType, Integer frequencyInterval,
+                                            boolean notificationsEnabled);
+    ReminderProfile getReminderProfile(Long userId);
+    Map<Long, ReminderProfile> getReminderProfiles(Collection<Long> userIds);
 }
@@ -1,20 +1,55 @@
 package com.project.househealth.service;
 
+import com.project.househealth.dto.ReminderProfile;
 import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.enums.FrequencyType;
+import com.project.househealth.event.ReminderSettingsChangedEvent;
+import com.project.househealth.reminder.ReminderProfileCache;
 import com.project.househealth.repositories.ReminderSettingsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Map;
 
 @Service
 public class ReminderSettingsServiceImpl implements ReminderSettingsService{
 
+    private static final Logger log = LoggerFactory.getLogger(ReminderSettingsServiceImpl.class);
+
+    // An edit only loses to the scheduler marking the same reminder, which is rare and brief
+    static final int MAX_EDIT_ATTEMPTS = 3;
+
     private final ReminderSettingsRepository reminderSettingsRepository;
+    private final ReminderProfileCache reminderProfileCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    public ReminderSettingsServiceImpl(ReminderSettingsRepository reminderSettingsRepository){
+    public ReminderSettingsServiceImpl(ReminderSettingsRepository reminderSettingsRepository,
+                                       ReminderProfileCache reminderProfileCache,
+                                       ApplicationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager){
         this.reminderSettingsRepository = reminderSettingsRepository;
+        this.reminderProfileCache = reminderProfileCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // The scheduler picks the new reminder up after commit instead of waiting for its next refill
+    @Transactional
+    @Override
     public ReminderSettings createReminderSettings(ReminderSettings reminderSettings) {
-        return reminderSettingsRepository.save(reminderSettings);
+        ReminderSettings saved = reminderSettingsRepository.save(reminderSettings);
+        eventPublisher.publishEvent(new ReminderSettingsChangedEvent(saved.getReminderId(),
+                saved.getUser().getUserId()));
+        return saved;
     }
 
     @Override
@@ -22,4 +57,51 @@ public class ReminderSettingsServiceImpl implements ReminderSettingsService{
         return reminderSettingsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reminder setting not found"));
     }
+
+    /*
+     * Reschedules the reminder and drops its user's cached profile after
+     * commit. The scheduler may mark the reminder triggered between the read
+     * and the commit; the version check then fails the edit, and it is
+     * applied again on top of the new trigger time. After MAX_EDIT_ATTEMPTS
+     * the optimistic locking failure is thrown to the caller.
+     */
+    @Override
+    public ReminderSettings updateReminderSettings(Long id, FrequencyType frequencyType, Integer frequencyInterval,
+                                                   boolean notificationsEnabled) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status ->
+                        applyUpdate(id, frequencyType, frequencyInterval, notificationsEnabled));
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= MAX_EDIT_ATTEMPTS || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw ex;
+                }
+                log.debug("Reminder {} changed while it was being edited, retrying", id);
+            }
+        }
+    }
+
+    private ReminderSettings applyUpdate(Long id, FrequencyType frequencyType, Integer frequencyInterval,
+                                         boolean notificationsEnabled) {
+        ReminderSettings reminder = getReminderSettingById(id);
+        reminder.setFrequencyType(frequencyType);
+        reminder.setFrequencyInterval(frequencyInterval);
+        reminder.setNotificationsEnabled(notificationsEnabled);
+        eventPublisher.publishEvent(new ReminderSettingsChangedEvent(reminder.getReminderId(),
+                reminder.getUser().getUserId()));
+        // Flushes so a trigger that committed since the read fails this attempt inside the retry loop
+        return reminderSettingsRepository.saveAndFlush(reminder);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ReminderProfile getReminderProfile(Long userId) {
+        return reminderProfileCache.get(userId);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Map<Long, ReminderProfile> getReminderProfiles(Collection<Long> userIds) {
+        return reminderProfileCache.getAll(userIds);
+    }
 }
@@ -2,9 +2,13 @@ package com.project.househealth.service;
 
 import com.project.househealth.entity.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserService {
     User createUser(User user);
     User getUserById(Long id);
+    // Ids that match no user are left out
+    List<User> getUsersByIds(Collection<Long> ids);
 }
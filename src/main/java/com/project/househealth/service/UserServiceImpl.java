@@ -4,6 +4,9 @@ import com.project.househealth.entity.User;
 import com.project.househealth.repositories.UserRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+
 @Service
 public class
 UserServiceImpl implements UserService{
@@ -23,4 +26,9 @@ UserServiceImpl implements UserService{
         return userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
 }
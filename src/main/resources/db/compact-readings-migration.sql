@@ -0,0 +1,35 @@
+-- Moves health_logs to the compact layout: metric and sugar types become stable codes
+-- (see MetricTypeConverter/SugarTypeConverter) and the three nullable value columns collapse into one
+-- packed reading_value (see PackedReading). Blood pressure keeps systolic in the high and
+-- diastolic in the low signed 16 bits; missing values become the type's minimum.
+
+ALTER TABLE health_logs
+    ADD COLUMN metric_code TINYINT NULL,
+    ADD COLUMN sugar_code TINYINT NULL,
+    ADD COLUMN reading_value INT NULL;
+
+UPDATE health_logs SET
+    metric_code = CASE metric_type WHEN 'BP' THEN 0 WHEN 'SUGAR' THEN 1 END,
+    sugar_code = CASE sugar_type WHEN 'FASTING' THEN 0 WHEN 'POST_MEAL' THEN 1 END,
+    reading_value = CASE metric_type
+        WHEN 'BP' THEN COALESCE(systolic, -32768) * 65536 + (COALESCE(diastolic, -32768) & 65535)
+        ELSE COALESCE(sugar_value, -2147483648)
+    END;
+
+ALTER TABLE health_logs
+    MODIFY metric_code TINYINT NOT NULL,
+    MODIFY reading_value INT NOT NULL;
+
+-- Build the replacement index first so user_id stays indexed for its foreign key
+CREATE INDEX idx_health_logs_user_metric_code_time ON health_logs (user_id, metric_code, measured_at, log_id);
+
+DROP INDEX idx_health_logs_user_metric_time ON health_logs;
+
+ALTER TABLE health_logs
+    DROP COLUMN metric_type,
+    DROP COLUMN sugar_type,
+    DROP COLUMN systolic,
+    DROP COLUMN diastolic,
+    DROP COLUMN sugar_value;
+
+ALTER TABLE health_logs RENAME INDEX idx_health_logs_user_metric_code_time TO idx_health_logs_user_metric_time;
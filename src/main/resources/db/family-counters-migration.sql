@@ -0,0 +1,10 @@
+-- Adds the member and owner counts kept on each family and fills them from
+-- the membership rows. FamilyCounterReconciler repairs any later drift.
+
+ALTER TABLE families ADD COLUMN member_count INT NOT NULL DEFAULT 0;
+
+ALTER TABLE families ADD COLUMN owner_count INT NOT NULL DEFAULT 0;
+
+UPDATE families f
+SET member_count = (SELECT COUNT(*) FROM family_memberships m WHERE m.family_id = f.family_id),
+    owner_count = (SELECT COUNT(*) FROM family_memberships m WHERE m.family_id = f.family_id AND m.owner = TRUE);
@@ -0,0 +1,89 @@
+-- Monthly range partitioning of health_logs on measured_at (MySQL 8).
+--
+-- History, rollup and dashboard queries filter on measured_at, so that is the partition key;
+-- range predicates on it are pruned to the matching months. MySQL requires every unique key
+-- of a partitioned table to contain the partition column and does not allow foreign keys on
+-- it, so:
+--   * the primary key becomes (log_id, measured_at); log_id stays unique through its sequence,
+--   * uk_health_logs_reading_key_user gains measured_at; the service only accepts a reading
+--     key together with a client measuredAt, so a retried upload repeats the measurement time
+--     and still collides, and it resolves reading keys by lookup before it relies on the index,
+--   * the user foreign key is dropped; Hibernate generated its name, so it is looked up.
+--
+-- Readings before 2024 land in p_before. Add next year's months ahead of time by splitting
+-- p_future, e.g.
+--   ALTER TABLE health_logs REORGANIZE PARTITION p_future INTO (
+--       PARTITION p2028_01 VALUES LESS THAN ('2028-02-01'),
+--       PARTITION p_future VALUES LESS THAN (MAXVALUE));
+-- Once the archiver (househealth.archive.enabled) has moved a month out, its partition is
+-- empty and can be dropped with ALTER TABLE health_logs DROP PARTITION p2024_01.
+
+SET @user_fk = (
+    SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS
+    WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'health_logs' AND REFERENCED_TABLE_NAME = 'users');
+SET @drop_user_fk = IF(@user_fk IS NULL, 'DO 0',
+    CONCAT('ALTER TABLE health_logs DROP FOREIGN KEY `', @user_fk, '`'));
+PREPARE drop_user_fk FROM @drop_user_fk;
+EXECUTE drop_user_fk;
+DEALLOCATE PREPARE drop_user_fk;
+
+ALTER TABLE health_logs
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (log_id, measured_at);
+
+ALTER TABLE health_logs
+    DROP INDEX uk_health_logs_reading_key_user,
+    ADD UNIQUE KEY uk_health_logs_reading_key_user (reading_key, user_id, measured_at);
+
+ALTER TABLE health_logs PARTITION BY RANGE COLUMNS (measured_at) (
+    PARTITION p_before VALUES LESS THAN ('2024-01-01'),
+    PARTITION p2024_01 VALUES LESS THAN ('2024-02-01'),
+    PARTITION p2024_02 VALUES LESS THAN ('2024-03-01'),
+    PARTITION p2024_03 VALUES LESS THAN ('2024-04-01'),
+    PARTITION p2024_04 VALUES LESS THAN ('2024-05-01'),
+    PARTITION p2024_05 VALUES LESS THAN ('2024-06-01'),
+    PARTITION p2024_06 VALUES LESS THAN ('2024-07-01'),
+    PARTITION p2024_07 VALUES LESS THAN ('2024-08-01'),
+    PARTITION p2024_08 VALUES LESS THAN ('2024-09-01'),
+    PARTITION p2024_09 VALUES LESS THAN ('2024-10-01'),
+    PARTITION p2024_10 VALUES LESS THAN ('2024-11-01'),
+    PARTITION p2024_11 VALUES LESS THAN ('2024-12-01'),
+    PARTITION p2024_12 VALUES LESS THAN ('2025-01-01'),
+    PARTITION p2025_01 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p2025_02 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p2025_03 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p2025_04 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p2025_05 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p2025_06 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p2025_07 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p2025_08 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p2025_09 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p2025_10 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p2025_11 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p2025_12 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p2026_01 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p2026_02 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p2026_03 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p2026_04 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p2026_05 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p2026_06 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p2026_07 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p2026_08 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p2026_09 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p2026_10 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p2026_11 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p2026_12 VALUES LESS THAN ('2027-01-01'),
+    PARTITION p2027_01 VALUES LESS THAN ('2027-02-01'),
+    PARTITION p2027_02 VALUES LESS THAN ('2027-03-01'),
+    PARTITION p2027_03 VALUES LESS THAN ('2027-04-01'),
+    PARTITION p2027_04 VALUES LESS THAN ('2027-05-01'),
+    PARTITION p2027_05 VALUES LESS THAN ('2027-06-01'),
+    PARTITION p2027_06 VALUES LESS THAN ('2027-07-01'),
+    PARTITION p2027_07 VALUES LESS THAN ('2027-08-01'),
+    PARTITION p2027_08 VALUES LESS THAN ('2027-09-01'),
+    PARTITION p2027_09 VALUES LESS THAN ('2027-10-01'),
+    PARTITION p2027_10 VALUES LESS THAN ('2027-11-01'),
+    PARTITION p2027_11 VALUES LESS THAN ('2027-12-01'),
+    PARTITION p2027_12 VALUES LESS THAN ('2028-01-01'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
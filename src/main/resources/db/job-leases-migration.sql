@@ -0,0 +1,8 @@
+-- Adds the table scheduled jobs lease through, so a job scheduled on every node runs on one
+-- node at a time (see JobLease). Rows are created by the first node that runs each job.
+
+CREATE TABLE job_leases (
+    job_name VARCHAR(100) NOT NULL PRIMARY KEY,
+    owner_node VARCHAR(100) NULL,
+    expires_at DATETIME(6) NULL
+);
@@ -0,0 +1,13 @@
+-- Separates device measurement time from server receive time on health_logs.
+-- Existing readings were stamped on receipt, so measured_at starts out equal to logged_at
+-- and existing rollups, which were bucketed by that same instant, stay valid.
+
+ALTER TABLE health_logs ADD COLUMN measured_at DATETIME(6) NULL;
+
+UPDATE health_logs SET measured_at = logged_at;
+
+ALTER TABLE health_logs MODIFY measured_at DATETIME(6) NOT NULL;
+
+DROP INDEX idx_health_logs_user_metric_time ON health_logs;
+
+CREATE INDEX idx_health_logs_user_metric_time ON health_logs (user_id, metric_type, measured_at, log_id);
@@ -0,0 +1,31 @@
+-- Moves an existing schema from AUTO_INCREMENT ids to Hibernate's pooled,
+-- table-emulated sequences. Run once before starting the application
+-- version that uses @SequenceGenerator ids.
+--
+-- With the pooled optimizer Hibernate reads next_val as the upper bound of
+-- the next id block, so next_val must be MAX(id) + allocationSize to keep
+-- new ids above every existing row. Keep the increments below in sync with
+-- the allocationSize of each entity.
+--
+-- The AUTO_INCREMENT attribute on the id columns can stay; Hibernate always
+-- supplies the id explicitly now.
+
+CREATE TABLE IF NOT EXISTS users_seq (next_val BIGINT);
+DELETE FROM users_seq;
+INSERT INTO users_seq SELECT COALESCE(MAX(user_id), 0) + 50 FROM users;
+
+CREATE TABLE IF NOT EXISTS families_seq (next_val BIGINT);
+DELETE FROM families_seq;
+INSERT INTO families_seq SELECT COALESCE(MAX(family_id), 0) + 50 FROM families;
+
+CREATE TABLE IF NOT EXISTS family_memberships_seq (next_val BIGINT);
+DELETE FROM family_memberships_seq;
+INSERT INTO family_memberships_seq SELECT COALESCE(MAX(family_membership_id), 0) + 50 FROM family_memberships;
+
+CREATE TABLE IF NOT EXISTS health_logs_seq (next_val BIGINT);
+DELETE FROM health_logs_seq;
+INSERT INTO health_logs_seq SELECT COALESCE(MAX(log_id), 0) + 500 FROM health_logs;
+
+CREATE TABLE IF NOT EXISTS reminder_settings_seq (next_val BIGINT);
+DELETE FROM reminder_settings_seq;
+INSERT INTO reminder_settings_seq SELECT COALESCE(MAX(reminder_id), 0) + 50 FROM reminder_settings;
@@ -0,0 +1,9 @@
+-- Reorders the reading key unique index added by reading-keys-migration.sql to lead with
+-- reading_key, so the bulk key check "reading_key in (...) and user_id = ?" is a set of point
+-- lookups rather than a scan of the user's rows. The new index is built before the old one is
+-- dropped, so keys stay unique throughout; the user foreign key keeps
+-- idx_health_logs_user_metric_time as its index.
+
+ALTER TABLE health_logs ADD CONSTRAINT uk_health_logs_reading_key_user UNIQUE (reading_key, user_id);
+
+ALTER TABLE health_logs DROP INDEX uk_health_logs_user_reading_key;
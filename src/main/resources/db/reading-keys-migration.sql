@@ -0,0 +1,6 @@
+-- Adds client idempotency keys to health_logs.
+-- Existing rows keep a NULL key; MySQL allows any number of NULLs under a unique index.
+
+ALTER TABLE health_logs ADD COLUMN reading_key VARCHAR(64) NULL;
+
+ALTER TABLE health_logs ADD CONSTRAINT uk_health_logs_user_reading_key UNIQUE (user_id, reading_key);
@@ -0,0 +1,5 @@
+-- Indexes the scan that re-seeds the recent reading key filter on startup
+-- (readings with a key logged since a cutoff). Leading with logged_at turns it into a
+-- range scan, and carrying reading_key and user_id lets it run from the index alone.
+
+CREATE INDEX idx_health_logs_logged_at_key ON health_logs (logged_at, reading_key, user_id);
@@ -0,0 +1,17 @@
+-- Persists each reminder's next due time so the scheduler finds due reminders with an
+-- index range scan instead of computing the due time of every row.
+-- Reminders that have never fired are due right away.
+
+ALTER TABLE reminder_settings ADD COLUMN next_due_at DATETIME(6) NULL;
+
+UPDATE reminder_settings
+SET next_due_at = CASE
+    WHEN last_triggered_at IS NULL THEN CURRENT_TIMESTAMP(6)
+    WHEN frequency_type = 'DAILY' THEN DATE_ADD(last_triggered_at, INTERVAL GREATEST(COALESCE(frequency_value, 1), 1) DAY)
+    WHEN frequency_type = 'WEEKLY' THEN DATE_ADD(last_triggered_at, INTERVAL GREATEST(COALESCE(frequency_value, 1), 1) WEEK)
+    ELSE DATE_ADD(last_triggered_at, INTERVAL GREATEST(COALESCE(frequency_value, 1), 1) MONTH)
+END;
+
+ALTER TABLE reminder_settings MODIFY next_due_at DATETIME(6) NOT NULL;
+
+CREATE INDEX idx_reminder_settings_due ON reminder_settings (active, next_due_at, reminder_id);
@@ -0,0 +1,24 @@
+-- Splits reminders into 64 shards by user so several application nodes can share the
+-- reminder scheduler, and adds the tables the nodes lease shards through.
+-- The 64 lease rows are created by the first node that starts.
+
+ALTER TABLE reminder_settings ADD COLUMN shard INT NULL;
+
+UPDATE reminder_settings SET shard = MOD(user_id, 64);
+
+ALTER TABLE reminder_settings MODIFY shard INT NOT NULL;
+
+DROP INDEX idx_reminder_settings_due ON reminder_settings;
+
+CREATE INDEX idx_reminder_settings_due ON reminder_settings (active, shard, next_due_at, reminder_id);
+
+CREATE TABLE reminder_shard_leases (
+    shard INT NOT NULL PRIMARY KEY,
+    owner_node VARCHAR(100) NULL,
+    expires_at DATETIME(6) NULL
+);
+
+CREATE TABLE reminder_nodes (
+    node_id VARCHAR(100) NOT NULL PRIMARY KEY,
+    heartbeat_at DATETIME(6) NOT NULL
+);
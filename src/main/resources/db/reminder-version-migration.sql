@@ -0,0 +1,5 @@
+-- Adds the optimistic lock version to reminder_settings. The scheduler's bulk markTriggered
+-- bumps it, so an edit that read a reminder before it was triggered is retried instead of
+-- overwriting the new next_due_at.
+
+ALTER TABLE reminder_settings ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,59 @@
+-- Keys health_log_rollups on a non-null sugar_code: the SugarType code, or -1 for metrics
+-- without a sugar type (see HealthLogRollup.NO_SUGAR_TYPE). The old key included the
+-- nullable sugar_type, and NULLs never collide in a unique key, so concurrent first writes
+-- could create the same blood pressure bucket twice; those duplicates are merged into the
+-- bucket with the lowest id before the new key is added. The old key's name was generated
+-- by Hibernate, so it is looked up.
+
+ALTER TABLE health_log_rollups ADD COLUMN sugar_code TINYINT NULL;
+
+UPDATE health_log_rollups
+SET sugar_code = CASE sugar_type WHEN 'FASTING' THEN 0 WHEN 'POST_MEAL' THEN 1 ELSE -1 END;
+
+ALTER TABLE health_log_rollups MODIFY sugar_code TINYINT NOT NULL;
+
+UPDATE health_log_rollups r
+JOIN (
+    SELECT MIN(rollup_id) AS keep_id, SUM(reading_count) AS reading_count,
+           MIN(systolic_min) AS systolic_min, MAX(systolic_max) AS systolic_max,
+           SUM(systolic_sum) AS systolic_sum, SUM(systolic_sum_sq) AS systolic_sum_sq,
+           MIN(diastolic_min) AS diastolic_min, MAX(diastolic_max) AS diastolic_max,
+           SUM(diastolic_sum) AS diastolic_sum, SUM(diastolic_sum_sq) AS diastolic_sum_sq,
+           MIN(sugar_min) AS sugar_min, MAX(sugar_max) AS sugar_max,
+           SUM(sugar_sum) AS sugar_sum, SUM(sugar_sum_sq) AS sugar_sum_sq
+    FROM health_log_rollups
+    GROUP BY user_id, metric_type, sugar_code, period, bucket_start
+    HAVING COUNT(*) > 1
+) merged ON r.rollup_id = merged.keep_id
+SET r.reading_count = merged.reading_count,
+    r.systolic_min = merged.systolic_min, r.systolic_max = merged.systolic_max,
+    r.systolic_sum = merged.systolic_sum, r.systolic_sum_sq = merged.systolic_sum_sq,
+    r.diastolic_min = merged.diastolic_min, r.diastolic_max = merged.diastolic_max,
+    r.diastolic_sum = merged.diastolic_sum, r.diastolic_sum_sq = merged.diastolic_sum_sq,
+    r.sugar_min = merged.sugar_min, r.sugar_max = merged.sugar_max,
+    r.sugar_sum = merged.sugar_sum, r.sugar_sum_sq = merged.sugar_sum_sq;
+
+DELETE r FROM health_log_rollups r
+JOIN (
+    SELECT user_id, metric_type, sugar_code, period, bucket_start, MIN(rollup_id) AS keep_id
+    FROM health_log_rollups
+    GROUP BY user_id, metric_type, sugar_code, period, bucket_start
+    HAVING COUNT(*) > 1
+) merged ON r.user_id = merged.user_id AND r.metric_type = merged.metric_type
+    AND r.sugar_code = merged.sugar_code AND r.period = merged.period
+    AND r.bucket_start = merged.bucket_start AND r.rollup_id <> merged.keep_id;
+
+SET @bucket_key = (
+    SELECT INDEX_NAME FROM information_schema.STATISTICS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'health_log_rollups'
+      AND COLUMN_NAME = 'sugar_type' AND NON_UNIQUE = 0
+    LIMIT 1);
+SET @drop_bucket_key = IF(@bucket_key IS NULL, 'DO 0',
+    CONCAT('ALTER TABLE health_log_rollups DROP INDEX `', @bucket_key, '`'));
+PREPARE drop_bucket_key FROM @drop_bucket_key;
+EXECUTE drop_bucket_key;
+DEALLOCATE PREPARE drop_bucket_key;
+
+ALTER TABLE health_log_rollups
+    ADD UNIQUE KEY uk_health_log_rollups_bucket (user_id, metric_type, sugar_code, period, bucket_start),
+    DROP COLUMN sugar_type;
@@ -0,0 +1,31 @@
+package com.project.househealth;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+
+import java.util.Collection;
+
+/**
+ * H2 as the tests use it. H2 2.4 cannot evaluate a multi-value IN check
+ * constraint once the connection that created it has closed, which is how
+ * Hibernate creates the schema, so the IN checks Hibernate derives for enums
+ * stored through a converter are rendered as the equivalent code range.
+ */
+public class H2TestDialect extends H2Dialect {
+
+    @Override
+    public String getCheckCondition(String columnName, Collection<?> valueSet, JdbcType jdbcType) {
+        if (!SqlTypes.isIntegral(jdbcType.getJdbcTypeCode()) || valueSet.isEmpty()) {
+            return super.getCheckCondition(columnName, valueSet, jdbcType);
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Object value : valueSet) {
+            long code = ((Number) value).longValue();
+            min = Math.min(min, code);
+            max = Math.max(max, code);
+        }
+        return columnName + " between " + min + " and " + max;
+    }
+}
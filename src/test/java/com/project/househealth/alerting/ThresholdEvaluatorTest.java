@@ -0,0 +1,94 @@
+package com.project.househealth.alerting;
+
+import com.project.househealth.dto.ThresholdLimits;
+import com.project.househealth.entity.ReadingThresholds;
+import com.project.househealth.repositories.ReadingThresholdsRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.project.househealth.alerting.ThresholdEvaluator.*;
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class ThresholdEvaluatorTest {
+
+    private final int[] defaults = compile(ThresholdLimits.DEFAULTS);
+
+    @Test
+    void shouldFlagTheLowSugarReadingsFromTheSampleData() {
+
+        assertEquals(SUGAR_LOW, evaluate(defaults, SUGAR, POST_MEAL, null, null, 59));
+        assertEquals(SUGAR_LOW, evaluate(defaults, SUGAR, FASTING, null, null, 62));
+        assertEquals(0, evaluate(defaults, SUGAR, FASTING, null, null, 95));
+    }
+
+    @Test
+    void shouldReportEveryBreachedBloodPressureBound() {
+
+        assertEquals(0, evaluate(defaults, BP, null, 120, 80, null));
+        assertEquals(SYSTOLIC_HIGH | DIASTOLIC_HIGH, evaluate(defaults, BP, null, 165, 100, null));
+        assertEquals(SYSTOLIC_LOW, evaluate(defaults, BP, null, 85, 60, null));
+    }
+
+    @Test
+    void shouldApplyUserLimitsAndKeepDefaultsForUnsetBounds() {
+
+        int[] rules = compile(new ThresholdLimits(null, 130, null, null, 60, null, null, null));
+
+        assertEquals(SYSTOLIC_HIGH, evaluate(rules, BP, null, 135, 80, null));
+        assertEquals(0, evaluate(rules, SUGAR, FASTING, null, null, 62));
+        assertEquals(SUGAR_HIGH, evaluate(rules, SUGAR, FASTING, null, null, 131));
+    }
+
+    private static Optional<ReadingThresholds> systolicHigh(int high) {
+        ReadingThresholds thresholds = new ReadingThresholds(null);
+        thresholds.setLimits(new ThresholdLimits(null, high, null, null, null, null, null, null));
+        return Optional.of(thresholds);
+    }
+
+    @Test
+    void shouldCacheRulesUntilTheUsersThresholdsChange() {
+
+        ReadingThresholdsRepository repository = mock(ReadingThresholdsRepository.class);
+        when(repository.findByUser_UserId(7L)).thenReturn(systolicHigh(130), systolicHigh(150));
+        ThresholdEvaluator evaluator = new ThresholdEvaluator(repository, 10, Duration.ofHours(1));
+
+        assertEquals(SYSTOLIC_HIGH, evaluate(evaluator.rulesFor(7L), BP, null, 140, 80, null));
+        assertEquals(SYSTOLIC_HIGH, evaluate(evaluator.rulesFor(7L), BP, null, 140, 80, null));
+        verify(repository, times(1)).findByUser_UserId(7L);
+
+        evaluator.invalidate(7L);
+        assertEquals(0, evaluate(evaluator.rulesFor(7L), BP, null, 140, 80, null));
+    }
+
+    @Test
+    void shouldReloadRulesChangedOnAnotherNodeOnceTheirTtlRunsOut() {
+
+        ReadingThresholdsRepository repository = mock(ReadingThresholdsRepository.class);
+        when(repository.findByUser_UserId(7L)).thenReturn(systolicHigh(130), systolicHigh(150));
+        ThresholdEvaluator evaluator = new ThresholdEvaluator(repository, 10, Duration.ZERO, Clock.systemUTC());
+
+        assertEquals(SYSTOLIC_HIGH, evaluate(evaluator.rulesFor(7L), BP, null, 140, 80, null));
+        assertEquals(0, evaluate(evaluator.rulesFor(7L), BP, null, 140, 80, null));
+    }
+
+    @Test
+    void shouldKeepAtMostTheConfiguredNumberOfUsers() {
+
+        ReadingThresholdsRepository repository = mock(ReadingThresholdsRepository.class);
+        when(repository.findByUser_UserId(anyLong())).thenReturn(Optional.empty());
+        ThresholdEvaluator evaluator = new ThresholdEvaluator(repository, 2, Duration.ofHours(1));
+
+        for (long userId = 1; userId <= 5; userId++) {
+            assertEquals(defaults[0], evaluator.rulesFor(userId)[0]);
+        }
+        assertEquals(2, evaluator.size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.househealth.archive;
+
+import com.project.househealth.dto.HealthLogCursor;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.PackedReading;
+import com.project.househealth.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HealthLogArchiveTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2022, 5);
+    private static final Instant START = Instant.parse("2022-05-01T06:00:00.123456Z");
+
+    @TempDir
+    Path dir;
+
+    private final User user = mock(User.class);
+
+    private HealthLog bp(long logId, int minute, int systolic, int diastolic) {
+        Instant measuredAt = START.plusSeconds(60L * minute);
+        return HealthLog.archived(logId, BP, null, PackedReading.bloodPressure(systolic, diastolic),
+                measuredAt.plusSeconds(5), measuredAt, null, user);
+    }
+
+    @Test
+    void shouldRoundTripReadingsCompactly() throws Exception {
+
+        when(user.getUserId()).thenReturn(7L);
+        HealthLogArchive archive = new HealthLogArchive(dir);
+
+        List<HealthLog> readings = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            readings.add(bp(1000 + i, i, 110 + i % 30, 70 + i % 20));
+        }
+        HealthLog sugar = HealthLog.archived(500L, SUGAR, POST_MEAL, 142, START.plusSeconds(90),
+                START.plusSeconds(30), "phone-42", user);
+        readings.add(sugar);
+
+        archive.write(7L, MONTH, readings);
+
+        List<HealthLog> back = archive.read(user, 7L, MONTH);
+        assertEquals(readings.size(), back.size());
+        HealthLog first = back.get(0);
+        assertEquals(1000L, first.getLogId());
+        assertEquals(START, first.getMeasuredAt());
+        assertEquals(START.plusSeconds(5), first.getLoggedAt());
+        assertEquals(110, first.getSystolic());
+        assertEquals(70, first.getDiastolic());
+        HealthLog restoredSugar = back.get(1);
+        assertEquals(500L, restoredSugar.getLogId());
+        assertEquals(POST_MEAL, restoredSugar.getSugarType());
+        assertEquals(142, restoredSugar.getSugarValue());
+        assertEquals("phone-42", restoredSugar.getReadingKey());
+
+        assertTrue(Files.size(dir.resolve("7").resolve("2022-05.hla")) < readings.size() * 2L);
+    }
+
+    @Test
+    void shouldMergeRewritesAndPageBackwardsAcrossMonths() {
+
+        when(user.getUserId()).thenReturn(7L);
+        HealthLogArchive archive = new HealthLogArchive(dir);
+
+        archive.write(7L, MONTH, List.of(bp(1, 0, 120, 80), bp(2, 1, 121, 80)));
+        archive.write(7L, MONTH, List.of(bp(2, 1, 121, 80), bp(3, 2, 122, 80)));
+        archive.write(7L, MONTH.minusMonths(1), List.of(HealthLog.archived(9L, BP, null,
+                PackedReading.bloodPressure(130, 85), START.minusSeconds(86400 * 20),
+                START.minusSeconds(86400 * 20), null, user)));
+
+        assertEquals(List.of(MONTH, MONTH.minusMonths(1)), archive.months(7L));
+        assertEquals(3, archive.read(user, 7L, MONTH).size());
+
+        List<HealthLog> page = archive.findHistory(user, BP, new HealthLogCursor(START.plusSeconds(60), 2L), 2);
+        assertEquals(List.of(1L, 9L), page.stream().map(HealthLog::getLogId).toList());
+        assertTrue(archive.findHistory(user, SUGAR, null, 5).isEmpty());
+    }
+}
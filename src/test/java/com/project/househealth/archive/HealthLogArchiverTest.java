@@ -0,0 +1,138 @@
+package com.project.househealth.archive;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.dto.HealthLogPage;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.entity.JobLease;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.JobLeaseRepository;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogRollupServiceImpl;
+import com.project.househealth.service.HealthLogService;
+import com.project.househealth.service.HealthLogServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "househealth.archive.enabled=true")
+@Import({HealthLogArchiver.class, HealthLogArchive.class, HealthLogServiceImpl.class,
+        HealthLogRollupServiceImpl.class, RecentReadingKeyFilter.class, ThresholdEvaluator.class})
+public class HealthLogArchiverTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("househealth.archive.dir", () -> archiveDir.toString());
+    }
+
+    private static final Instant CUTOFF = Instant.parse("2023-03-01T00:00:00Z");
+
+    @Autowired
+    private HealthLogArchiver healthLogArchiver;
+
+    @Autowired
+    private HealthLogArchive healthLogArchive;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    private HealthLog bp(User user, Instant measuredAt) {
+        HealthLog healthLog = new HealthLog(BP, user);
+        healthLog.setSystolic(120);
+        healthLog.setDiastolic(80);
+        healthLog.setMeasuredAt(measuredAt);
+        return healthLog;
+    }
+
+    private List<Long> walkHistory(User user) {
+        List<Long> logIds = new ArrayList<>();
+        HealthLogPage page = healthLogService.getHealthHistory(user.getUserId(), BP, null, 4);
+        while (true) {
+            page.items().forEach(h -> logIds.add(h.getLogId()));
+            if (!page.hasNext()) {
+                return logIds;
+            }
+            page = healthLogService.getHealthHistory(user.getUserId(), BP, page.next(), 4);
+        }
+    }
+
+    @Test
+    void shouldArchiveWholeOldMonthsAndReadThroughInHistory() {
+
+        User user = userRepository.save(new User("Archived", "pass", "archived@gmail.com"));
+        List<HealthLog> readings = new ArrayList<>();
+        for (int day = 0; day < 90; day += 9) {
+            readings.add(bp(user, Instant.parse("2023-01-01T08:00:00Z").plus(Duration.ofDays(day))));
+        }
+        healthLogService.createHealthLogs(readings);
+        List<Long> before = walkHistory(user);
+
+        long archived = healthLogArchiver.archiveBefore(CUTOFF);
+
+        assertEquals(7, archived);
+        assertEquals(3, healthLogRepository.count());
+        assertEquals(2, healthLogArchive.months(user.getUserId()).size());
+        assertEquals(before, walkHistory(user));
+
+        // A late reading for an archived month is merged into place, then archived on the next run
+        healthLogService.createHealthLogs(List.of(bp(user, Instant.parse("2023-01-15T12:00:00Z"))));
+        List<Long> withLate = walkHistory(user);
+        assertEquals(11, withLate.size());
+
+        assertEquals(1, healthLogArchiver.archiveBefore(CUTOFF));
+        assertEquals(withLate, walkHistory(user));
+    }
+
+    @Test
+    void shouldCutOffAtTheStartOfAMonth() {
+        assertEquals(Instant.parse("2023-03-01T00:00:00Z"),
+                HealthLogArchiver.cutoff(Instant.parse("2024-03-20T10:00:00Z"), Duration.ofDays(365)));
+    }
+
+    @Test
+    void shouldSkipAScheduledRunWhileAnotherNodeHoldsTheLease() {
+
+        User user = userRepository.save(new User("Leased", "pass", "archive-lease@gmail.com"));
+        Instant old = Instant.now().minus(Duration.ofDays(800));
+        healthLogService.createHealthLogs(List.of(bp(user, old)));
+
+        jobLeaseRepository.saveAndFlush(new JobLease(HealthLogArchiver.JOB_NAME));
+        Instant now = jobLeaseRepository.currentTime();
+        assertEquals(1, jobLeaseRepository.tryAcquire(HealthLogArchiver.JOB_NAME, "other-node",
+                now, now.plus(Duration.ofMinutes(10))));
+
+        healthLogArchiver.archiveOldReadings();
+        assertEquals(1, healthLogRepository.findUserIdsWithReadingsBefore(old.plusSeconds(1)).size());
+
+        jobLeaseRepository.release(HealthLogArchiver.JOB_NAME, "other-node");
+        healthLogArchiver.archiveOldReadings();
+        assertTrue(healthLogRepository.findUserIdsWithReadingsBefore(old.plusSeconds(1)).isEmpty());
+        assertEquals(1, healthLogArchive.read(user, user.getUserId(), HealthLogArchive.monthOf(old)).size());
+    }
+}
@@ -0,0 +1,172 @@
+package com.project.househealth.authorization;
+
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.Role;
+import com.project.househealth.event.FamilyMembershipChangedEvent;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static com.project.househealth.authorization.MembershipAuthorizations.isMember;
+import static com.project.househealth.authorization.MembershipAuthorizations.isOwner;
+import static com.project.househealth.authorization.MembershipAuthorizations.role;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so evictions run after commit or rollback as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(MembershipAuthorizations.class)
+public class MembershipAuthorizationsTest {
+
+    @Autowired
+    private MembershipAuthorizations membershipAuthorizations;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Members(Long familyId, User owner, User tracker, User outsider) {}
+
+    private Members family(String name) {
+        User owner = userRepository.save(new User("Owner", "pass", name + "-owner@gmail.com"));
+        User tracker = userRepository.save(new User("Tracker", "pass", name + "-tracker@gmail.com"));
+        User outsider = userRepository.save(new User("Outsider", "pass", name + "-outsider@gmail.com"));
+        Family family = new Family(name);
+        FamilyMembership ownerMembership = new FamilyMembership(owner, family, Role.BOTH);
+        ownerMembership.makeOwner();
+        family.addMembership(ownerMembership);
+        family.addMembership(new FamilyMembership(tracker, family, Role.TRACKER));
+        return new Members(familyRepository.save(family).getFamilyId(), owner, tracker, outsider);
+    }
+
+    private void promote(Long userId, Long familyId, boolean commit) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            membershipAuthorizations.load(userId, familyId).orElseThrow().makeOwner();
+            eventPublisher.publishEvent(new FamilyMembershipChangedEvent(familyId));
+            if (!commit) {
+                status.setRollbackOnly();
+            }
+        });
+    }
+
+    @Test
+    void shouldAnswerRepeatLookupsFromTheCacheUntilTheFamilyChanges() {
+
+        Members members = family("cached-auth");
+        MembershipAuthorizationStats before = membershipAuthorizations.stats();
+
+        int owner = membershipAuthorizations.lookup(members.owner().getUserId(), members.familyId());
+        assertEquals(owner, membershipAuthorizations.lookup(members.owner().getUserId(), members.familyId()));
+        assertTrue(isMember(owner));
+        assertTrue(isOwner(owner));
+        assertEquals(Role.BOTH, role(owner));
+
+        int tracker = membershipAuthorizations.lookup(members.tracker().getUserId(), members.familyId());
+        assertFalse(isOwner(tracker));
+        assertEquals(Role.TRACKER, role(tracker));
+
+        // Absences are not cached, so both of these reach the database
+        assertEquals(0, membershipAuthorizations.lookup(members.outsider().getUserId(), members.familyId()));
+        assertEquals(0, membershipAuthorizations.lookup(members.outsider().getUserId(), members.familyId()));
+
+        MembershipAuthorizationStats after = membershipAuthorizations.stats();
+        assertEquals(1, after.hits() - before.hits());
+        assertEquals(4, after.misses() - before.misses());
+
+        promote(members.tracker().getUserId(), members.familyId(), true);
+
+        assertTrue(isOwner(membershipAuthorizations.lookup(members.tracker().getUserId(), members.familyId())));
+        assertEquals(after.evictions() + 1, membershipAuthorizations.stats().evictions());
+    }
+
+    @Test
+    void shouldNotKeepBitsCachedInsideARolledBackChange() {
+
+        Members members = family("rolled-back-auth");
+
+        promote(members.tracker().getUserId(), members.familyId(), false);
+
+        assertFalse(isOwner(membershipAuthorizations.lookup(members.tracker().getUserId(), members.familyId())));
+    }
+
+    @Test
+    void shouldNotCacheBitsReadInATransactionThatStartedBeforeAnEviction() {
+
+        Members members = family("snapshot-auth");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            membershipAuthorizations.lookup(members.owner().getUserId(), members.familyId());
+            // Another transaction changes the family and completes while this one is still reading
+            membershipAuthorizations.evict(members.familyId());
+            membershipAuthorizations.load(members.tracker().getUserId(), members.familyId());
+        });
+
+        MembershipAuthorizationStats before = membershipAuthorizations.stats();
+        membershipAuthorizations.lookup(members.tracker().getUserId(), members.familyId());
+        assertEquals(before.misses() + 1, membershipAuthorizations.stats().misses());
+    }
+
+    @Test
+    void shouldReloadAMembershipChangedOnAnotherNodeOnceItsTtlRunsOut() {
+
+        Members members = family("ttl-auth");
+        Long trackerId = members.tracker().getUserId();
+        MembershipAuthorizations longLived = new MembershipAuthorizations(familyMembershipRepository, 100,
+                Duration.ofHours(1));
+        MembershipAuthorizations expired = new MembershipAuthorizations(familyMembershipRepository, 100, Duration.ZERO);
+        assertFalse(isOwner(longLived.lookup(trackerId, members.familyId())));
+        assertFalse(isOwner(expired.lookup(trackerId, members.familyId())));
+
+        // Promoted without an event reaching these caches, as on another node
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> familyMembershipRepository
+                .findByUser_UserIdAndFamily_FamilyId(trackerId, members.familyId()).orElseThrow().makeOwner());
+
+        assertFalse(isOwner(longLived.lookup(trackerId, members.familyId())));
+        assertTrue(isOwner(expired.lookup(trackerId, members.familyId())));
+    }
+
+    @Test
+    void shouldHoldNoMoreFamiliesThanItsBound() {
+
+        Members first = family("bounded-auth-1");
+        Members second = family("bounded-auth-2");
+        MembershipAuthorizations bounded = new MembershipAuthorizations(familyMembershipRepository, 1,
+                Duration.ofHours(1));
+
+        bounded.lookup(first.owner().getUserId(), first.familyId());
+        bounded.lookup(first.tracker().getUserId(), first.familyId());
+        assertEquals(2, bounded.stats().cachedMemberships());
+
+        // The second family pushes the first out
+        bounded.lookup(second.owner().getUserId(), second.familyId());
+        assertEquals(1, bounded.stats().cachedMemberships());
+
+        MembershipAuthorizationStats before = bounded.stats();
+        bounded.lookup(first.owner().getUserId(), first.familyId());
+        assertEquals(before.misses() + 1, bounded.stats().misses());
+    }
+}
@@ -0,0 +1,95 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.dto.ImportResult;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.DeviceCsvReader;
+import com.project.househealth.ingestion.ImportProgressListener;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogImportService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.BufferedWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parses and imports a generated million-row device export. Parsing is
+ * timed on its own as well, to separate it from database write cost.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class DeviceCsvImportBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private HealthLogImportService healthLogImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Path export() throws Exception {
+        Path file = dir.resolve("export.csv");
+        long start = 1_500_000_000L;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("measured_at,type,value1,value2\n");
+            for (int i = 0; i < ROWS; i++) {
+                long time = start + i * 600L;
+                switch (i % 3) {
+                    case 0 -> writer.write(time + ",BP," + (110 + i % 30) + "," + (70 + i % 20) + "\n");
+                    case 1 -> writer.write(time + ",FASTING," + (80 + i % 40) + ",\n");
+                    default -> writer.write(time + ",POST_MEAL," + (110 + i % 60) + "\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void importAMillionRowExport() throws Exception {
+
+        Path file = export();
+
+        LongAdder parsed = new LongAdder();
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file)) {
+            new DeviceCsvReader().read(channel, new DeviceCsvReader.RowHandler() {
+                @Override
+                public void onRow(long lineNumber, long endOffset, long epochSecond, int type, int value1, int value2) {
+                    parsed.increment();
+                }
+
+                @Override
+                public void onError(long lineNumber, long endOffset, String reason) {
+                }
+            });
+        }
+        long parseNanos = System.nanoTime() - start;
+        assertEquals(ROWS, parsed.sum());
+
+        User user = userRepository.save(new User("Bench", "pass", "bench-import@gmail.com"));
+
+        start = System.nanoTime();
+        ImportResult result = healthLogImportService.importDeviceCsv(user.getUserId(), file, ImportProgressListener.NONE);
+        long importNanos = System.nanoTime() - start;
+
+        assertEquals(ROWS, result.imported());
+
+        System.out.printf("parse only : %,d rows in %,d ms (%,.0f rows/s)%n",
+                ROWS, parseNanos / 1_000_000, ROWS / (parseNanos / 1e9));
+        System.out.printf("full import: %,d rows in %,d ms (%,.0f rows/s)%n",
+                ROWS, importNanos / 1_000_000, ROWS / (importNanos / 1e9));
+    }
+}
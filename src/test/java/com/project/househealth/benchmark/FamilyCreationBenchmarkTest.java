@@ -0,0 +1,51 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.FamilyService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures FamilyService.createFamily, which inserts a family and its
+ * owner membership in one transaction.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class FamilyCreationBenchmarkTest {
+
+    private static final int FAMILIES = 5_000;
+
+    @Autowired
+    private FamilyService familyService;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void measureCreateFamily() {
+
+        User creator = userRepository.save(new User("Bench", "pass", "bench-family@gmail.com"));
+
+        long before = familyMembershipRepository.count();
+        long start = System.nanoTime();
+        for (int i = 0; i < FAMILIES; i++) {
+            familyService.createFamily("Family " + i, creator.getUserId());
+        }
+        long nanos = System.nanoTime() - start;
+
+        assertEquals(before + FAMILIES, familyMembershipRepository.count());
+
+        System.out.printf("createFamily     : %,d families in %,d ms (%,.0f families/s)%n",
+                FAMILIES, nanos / 1_000_000, FAMILIES / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,75 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares per-row createHealthLog against the chunked bulk path.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class HealthLogIngestionBenchmarkTest {
+
+    private static final int READINGS = 20_000;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private List<HealthLog> readings(User user) {
+        List<HealthLog> readings = new ArrayList<>(READINGS);
+        for (int i = 0; i < READINGS; i++) {
+            HealthLog healthLog = new HealthLog(BP, user);
+            healthLog.setSystolic(110 + i % 30);
+            healthLog.setDiastolic(70 + i % 20);
+            readings.add(healthLog);
+        }
+        return readings;
+    }
+
+    @Test
+    void compareRowByRowAndBulkIngestion() {
+
+        User user = userRepository.save(new User("Bench", "pass", "bench-ingestion@gmail.com"));
+
+        List<HealthLog> perRow = readings(user);
+        long start = System.nanoTime();
+        for (HealthLog healthLog : perRow) {
+            healthLogService.createHealthLog(healthLog);
+        }
+        long perRowNanos = System.nanoTime() - start;
+
+        List<HealthLog> bulk = readings(user);
+        start = System.nanoTime();
+        BulkIngestionResult result = healthLogService.createHealthLogs(bulk);
+        long bulkNanos = System.nanoTime() - start;
+
+        assertEquals(READINGS, result.acceptedCount());
+        assertEquals(2L * READINGS, healthLogRepository.count());
+
+        System.out.printf("createHealthLog  : %,d readings in %,d ms (%,.0f readings/s)%n",
+                READINGS, perRowNanos / 1_000_000, READINGS / (perRowNanos / 1e9));
+        System.out.printf("createHealthLogs : %,d readings in %,d ms (%,.0f readings/s)%n",
+                READINGS, bulkNanos / 1_000_000, READINGS / (bulkNanos / 1e9));
+    }
+}
@@ -0,0 +1,130 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scans one user's half-million blood pressure readings as entities and as
+ * primitive column blocks, reporting throughput and bytes allocated per row.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class HealthLogScanBenchmarkTest {
+
+    private static final int READINGS = 500_000;
+    private static final int CHUNK = 50_000;
+    private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Run(long checksum, long nanos, long allocatedBytes) {}
+
+    private static Run measure(LongSupplier scan) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long checksum = scan.getAsLong();
+        long nanos = System.nanoTime() - start;
+        return new Run(checksum, nanos, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+    }
+
+    private long entityScan(Long userId, TransactionTemplate readOnly) {
+        return readOnly.execute(status -> {
+            long sum = 0;
+            try (Stream<HealthLog> healthLogs = healthLogRepository.streamByUserId(userId)) {
+                Iterator<HealthLog> iterator = healthLogs.iterator();
+                while (iterator.hasNext()) {
+                    HealthLog healthLog = iterator.next();
+                    sum += healthLog.getSystolic() + healthLog.getDiastolic();
+                    entityManager.detach(healthLog);
+                }
+            }
+            return sum;
+        });
+    }
+
+    private long columnScan(Long userId) {
+        long[] sum = new long[1];
+        healthLogService.scanReadings(userId, BP, START, START.plusSeconds(60L * READINGS), block -> {
+            for (int i = 0; i < block.size(); i++) {
+                sum[0] += block.systolic(i) + block.diastolic(i);
+            }
+        });
+        return sum[0];
+    }
+
+    private static void report(String name, Run run) {
+        System.out.printf("%-12s: %,d rows in %,d ms (%,.0f rows/s), %,d bytes allocated per row%n",
+                name, READINGS, run.nanos() / 1_000_000, READINGS / (run.nanos() / 1e9),
+                run.allocatedBytes() / READINGS);
+    }
+
+    @Test
+    void compareEntityAndColumnScans() {
+
+        User user = userRepository.save(new User("Bench", "pass", "bench-scan@gmail.com"));
+        for (int offset = 0; offset < READINGS; offset += CHUNK) {
+            List<HealthLog> chunk = new ArrayList<>(CHUNK);
+            for (int i = offset; i < offset + CHUNK; i++) {
+                HealthLog healthLog = new HealthLog(BP, user);
+                healthLog.setSystolic(110 + i % 30);
+                healthLog.setDiastolic(70 + i % 20);
+                healthLog.setMeasuredAt(START.plusSeconds(60L * i));
+                chunk.add(healthLog);
+            }
+            assertEquals(CHUNK, healthLogService.createHealthLogs(chunk).acceptedCount());
+        }
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // First pass of each warms up the JIT
+        measure(() -> entityScan(user.getUserId(), readOnly));
+        measure(() -> columnScan(user.getUserId()));
+        Run entities = measure(() -> entityScan(user.getUserId(), readOnly));
+        Run columns = measure(() -> columnScan(user.getUserId()));
+
+        assertEquals(entities.checksum(), columns.checksum());
+        assertTrue(columns.allocatedBytes() < entities.allocatedBytes());
+
+        report("entity scan", entities);
+        report("column scan", columns);
+    }
+}
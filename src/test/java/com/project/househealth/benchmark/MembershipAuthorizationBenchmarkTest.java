@@ -0,0 +1,125 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.authorization.MembershipAuthorizationStats;
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.Role;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Permission checks for random members of 1,000 five-member families,
+ * answered by the repository and by MembershipAuthorizations, reporting
+ * the cache's hit ratio and lookup latency.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class MembershipAuthorizationBenchmarkTest {
+
+    private static final int FAMILIES = 1_000;
+    private static final int MEMBERS = 5;
+    private static final int REPOSITORY_LOOKUPS = 20_000;
+    private static final int CACHED_LOOKUPS = 2_000_000;
+
+    @Autowired
+    private MembershipAuthorizations membershipAuthorizations;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // (userId, familyId) pairs of every membership
+    private long[][] createFamilies() {
+        List<long[]> memberships = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int f = 0; f < FAMILIES; f++) {
+                Family family = new Family("Auth family " + f);
+                List<User> members = new ArrayList<>();
+                for (int m = 0; m < MEMBERS; m++) {
+                    members.add(new User("Member", "pass", "auth-" + f + "-" + m + "@gmail.com"));
+                }
+                userRepository.saveAll(members);
+                for (User member : members) {
+                    FamilyMembership membership = new FamilyMembership(member, family,
+                            member == members.get(0) ? Role.BOTH : Role.OBSERVER);
+                    if (member == members.get(0)) {
+                        membership.makeOwner();
+                    }
+                    family.addMembership(membership);
+                }
+                familyRepository.save(family);
+                for (User member : members) {
+                    memberships.add(new long[]{member.getUserId(), family.getFamilyId()});
+                }
+            }
+        });
+        return memberships.toArray(new long[0][]);
+    }
+
+    @Test
+    void compareRepositoryAndCachedPermissionChecks() {
+
+        long[][] memberships = createFamilies();
+        SplittableRandom random = new SplittableRandom(17);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        long repositoryStart = System.nanoTime();
+        int owners = 0;
+        for (int i = 0; i < REPOSITORY_LOOKUPS; i++) {
+            long[] membership = memberships[random.nextInt(memberships.length)];
+            owners += readOnly.execute(status -> familyMembershipRepository
+                    .findByUser_UserIdAndFamily_FamilyId(membership[0], membership[1])
+                    .orElseThrow().isOwner()) ? 1 : 0;
+        }
+        long repositoryNanos = System.nanoTime() - repositoryStart;
+        assertTrue(owners > 0);
+
+        MembershipAuthorizationStats before = membershipAuthorizations.stats();
+        long cachedStart = System.nanoTime();
+        int members = 0;
+        for (int i = 0; i < CACHED_LOOKUPS; i++) {
+            long[] membership = memberships[random.nextInt(memberships.length)];
+            members += MembershipAuthorizations.isMember(
+                    membershipAuthorizations.lookup(membership[0], membership[1])) ? 1 : 0;
+        }
+        long cachedNanos = System.nanoTime() - cachedStart;
+        MembershipAuthorizationStats stats = membershipAuthorizations.stats();
+        assertEquals(CACHED_LOOKUPS, members);
+
+        long hits = stats.hits() - before.hits();
+        long misses = stats.misses() - before.misses();
+        System.out.printf("repository       : %,d checks in %,d ms (%,.0f ns per check)%n",
+                REPOSITORY_LOOKUPS, repositoryNanos / 1_000_000, (double) repositoryNanos / REPOSITORY_LOOKUPS);
+        System.out.printf("authorizations   : %,d checks in %,d ms (%,.0f ns per check), hit ratio %.4f "
+                        + "(%,d hits, %,d misses), avg %,.0f ns per hit / %,.0f ns per miss, %,d cached%n",
+                CACHED_LOOKUPS, cachedNanos / 1_000_000, (double) cachedNanos / CACHED_LOOKUPS,
+                (double) hits / (hits + misses), hits, misses, stats.averageHitNanos(), stats.averageMissNanos(),
+                stats.cachedMemberships());
+    }
+}
@@ -0,0 +1,90 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.notification.Notification;
+import com.project.househealth.notification.NotificationDispatcher;
+import com.project.househealth.notification.NotificationSender;
+import com.project.househealth.notification.NotificationStats;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.project.househealth.enums.NotificationType.REMINDER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pushes 50,000 single-notification deliveries through the dispatcher with
+ * 10,000 allowed in flight, against a stub endpoint that answers after
+ * 50 ms and fails the first call for one recipient in fifty. Every delivery gets a virtual thread,
+ * so the run should take a handful of latency rounds rather than the
+ * 50,000 × 50 ms a platform-thread pool of sane size would need.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+public class NotificationDispatchBenchmarkTest {
+
+    private static final int DELIVERIES = 50_000;
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final long LATENCY_MILLIS = 50;
+
+    // Stands in for a push gateway: blocking I/O with fixed latency and occasional failures
+    private static final class StubEndpoint implements NotificationSender {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger peakInFlight = new AtomicInteger();
+        final LongAdder calls = new LongAdder();
+        final Set<Long> failedOnce = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void send(List<Notification> batch) {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                calls.increment();
+                TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+                Long recipient = batch.get(0).recipientUserId();
+                if (recipient % 50 == 0 && failedOnce.add(recipient)) {
+                    throw new IllegalStateException("503 from stub endpoint");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void measureConcurrentDelivery() throws InterruptedException {
+
+        StubEndpoint endpoint = new StubEndpoint();
+        NotificationDispatcher dispatcher =
+                new NotificationDispatcher(endpoint, MAX_IN_FLIGHT, 5, Duration.ofMillis(20), Duration.ofSeconds(1));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < DELIVERIES; i++) {
+            dispatcher.dispatch(REMINDER, List.of(new Notification((long) i, (long) i, REMINDER, "bench")));
+        }
+        assertTrue(dispatcher.awaitIdle(Duration.ofMinutes(2)));
+        long nanos = System.nanoTime() - start;
+        dispatcher.shutdown();
+
+        NotificationStats stats = dispatcher.stats(0, DELIVERIES);
+        assertEquals(DELIVERIES, stats.batches());
+        assertEquals(0, stats.failedBatches());
+        assertEquals(DELIVERIES / 50, stats.retries());
+        assertTrue(endpoint.peakInFlight.get() >= MAX_IN_FLIGHT - 100,
+                "peak in flight " + endpoint.peakInFlight.get());
+        assertTrue(endpoint.peakInFlight.get() <= MAX_IN_FLIGHT);
+
+        System.out.printf("dispatch         : %,d deliveries in %,d ms (%,.0f deliveries/s), peak %,d in flight, "
+                        + "%,d retries, %,d throttled dispatches, avg %.1f ms / max %.1f ms per delivery%n",
+                DELIVERIES, nanos / 1_000_000, DELIVERIES / (nanos / 1e9), endpoint.peakInFlight.get(),
+                stats.retries(), stats.throttledDispatches(), stats.averageBatchMillis(), stats.maxBatchMillis());
+    }
+}
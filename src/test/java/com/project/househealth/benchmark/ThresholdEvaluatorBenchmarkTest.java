@@ -0,0 +1,112 @@
+package com.project.househealth.benchmark;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.dto.ThresholdLimits;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.ReadingThresholds;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.ReadingThresholdsRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JMH benchmark of the inline threshold check, for a user on the default
+ * rules and one with saved thresholds. Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+public class ThresholdEvaluatorBenchmarkTest {
+
+    // Generous ceiling; the check itself should take a few nanoseconds
+    private static final double MAX_NANOS_PER_READING = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class Readings {
+
+        ThresholdEvaluator evaluator;
+        HealthLog defaultUserBp;
+        HealthLog customUserSugar;
+
+        @Setup
+        public void setUp() {
+            User defaultUser = user(1L);
+            User customUser = user(2L);
+
+            ReadingThresholds thresholds = new ReadingThresholds(customUser);
+            thresholds.setLimits(new ThresholdLimits(null, 130, null, null, null, null, 60, 160));
+            ReadingThresholdsRepository repository = mock(ReadingThresholdsRepository.class);
+            when(repository.findByUser_UserId(1L)).thenReturn(Optional.empty());
+            when(repository.findByUser_UserId(2L)).thenReturn(Optional.of(thresholds));
+
+            evaluator = new ThresholdEvaluator(repository, 10, Duration.ofHours(1));
+
+            defaultUserBp = new HealthLog(BP, defaultUser);
+            defaultUserBp.setSystolic(145);
+            defaultUserBp.setDiastolic(85);
+
+            customUserSugar = new HealthLog(SUGAR, customUser);
+            customUserSugar.setSugarType(POST_MEAL);
+            customUserSugar.setSugarValue(59);
+        }
+
+        private static User user(Long userId) {
+            User user = new User("Bench", "pass", "bench-" + userId + "@gmail.com");
+            ReflectionTestUtils.setField(user, "userId", userId);
+            return user;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int evaluateWithDefaultRules(Readings readings) {
+        return readings.evaluator.evaluate(readings.defaultUserBp);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int evaluateWithUserRules(Readings readings) {
+        return readings.evaluator.evaluate(readings.customUserSugar);
+    }
+
+    @Test
+    void evaluatorShouldStayWellUnderAMicrosecond() throws Exception {
+
+        // In-process: surefire's manifest-only classpath cannot be handed to a forked JVM
+        Options options = new OptionsBuilder()
+                .include(ThresholdEvaluatorBenchmarkTest.class.getSimpleName())
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        for (RunResult result : results) {
+            double nanos = result.getPrimaryResult().getScore();
+            System.out.printf("%s: %.1f ns/reading%n", result.getParams().getBenchmark(), nanos);
+            assertTrue(nanos < MAX_NANOS_PER_READING, result.getParams().getBenchmark() + " took " + nanos + " ns");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.project.househealth.consistency;
+
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.dto.FamilyCounterDrift;
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.FamilyMembershipService;
+import com.project.househealth.service.FamilyMembershipServiceImpl;
+import com.project.househealth.service.FamilyService;
+import com.project.househealth.service.FamilyServiceImpl;
+import com.project.househealth.service.UserServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so each service call commits its counters as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FamilyCounterReconciler.class, FamilyServiceImpl.class, FamilyMembershipServiceImpl.class,
+        UserServiceImpl.class, MembershipAuthorizations.class})
+public class FamilyCounterReconcilerTest {
+
+    @Autowired
+    private FamilyCounterReconciler familyCounterReconciler;
+
+    @Autowired
+    private FamilyService familyService;
+
+    @Autowired
+    private FamilyMembershipService familyMembershipService;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user(String email) {
+        return userRepository.save(new User("Member", "pass", email));
+    }
+
+    private void assertCounts(Long familyId, int members, int owners) {
+        Family family = familyRepository.findById(familyId).orElseThrow();
+        assertEquals(members, family.getMemberCount());
+        assertEquals(owners, family.getOwnerCount());
+    }
+
+    // Other test classes share the database, so only this test's family is looked at
+    private List<FamilyCounterDrift> drift(List<FamilyCounterDrift> drifted, Long familyId) {
+        return drifted.stream().filter(d -> d.familyId().equals(familyId)).toList();
+    }
+
+    @Test
+    void shouldKeepCountersInStepWithMembershipChanges() {
+
+        User owner = user("counter-owner@gmail.com");
+        User first = user("counter-first@gmail.com");
+        User second = user("counter-second@gmail.com");
+
+        Long familyId = familyService.createFamily("Counter family", owner.getUserId()).getFamilyId();
+        assertCounts(familyId, 1, 1);
+
+        familyMembershipService.addMember(familyId, first.getUserId(), owner.getUserId());
+        familyMembershipService.addMember(familyId, second.getUserId(), owner.getUserId());
+        assertCounts(familyId, 3, 1);
+
+        familyMembershipService.transferOwnership(familyId, first.getUserId(), owner.getUserId());
+        assertCounts(familyId, 3, 1);
+
+        familyMembershipService.addOwner(familyId, owner.getUserId(), first.getUserId());
+        assertCounts(familyId, 3, 2);
+
+        familyMembershipService.leaveFamily(familyId, owner.getUserId());
+        assertCounts(familyId, 2, 1);
+
+        familyMembershipService.removeMember(familyId, second.getUserId(), first.getUserId());
+        assertCounts(familyId, 1, 1);
+
+        assertTrue(drift(familyCounterReconciler.check(), familyId).isEmpty());
+    }
+
+    @Test
+    void shouldReportAndRebuildDriftedCounters() {
+
+        User owner = user("drift-owner@gmail.com");
+        User member = user("drift-member@gmail.com");
+        Long familyId = familyService.createFamily("Drift family", owner.getUserId()).getFamilyId();
+        familyMembershipService.addMember(familyId, member.getUserId(), owner.getUserId());
+        long version = familyRepository.findById(familyId).orElseThrow().getVersion();
+
+        // Deleted behind the family's back, as an import or a manual fix would
+        FamilyMembership removed = familyMembershipRepository
+                .findByUser_UserIdAndFamily_FamilyId(member.getUserId(), familyId).orElseThrow();
+        familyMembershipRepository.deleteAllByIdInBatch(List.of(removed.getFamilyMembershipId()));
+
+        assertEquals(List.of(new FamilyCounterDrift(familyId, 2, 1, 1, 1)),
+                drift(familyCounterReconciler.check(), familyId));
+        assertCounts(familyId, 2, 1);
+
+        assertEquals(List.of(new FamilyCounterDrift(familyId, 2, 1, 1, 1)),
+                drift(familyCounterReconciler.rebuild(), familyId));
+        assertCounts(familyId, 1, 1);
+        assertEquals(version + 1, familyRepository.findById(familyId).orElseThrow().getVersion());
+        assertTrue(drift(familyCounterReconciler.check(), familyId).isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.househealth.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.ingestion.DeviceCsvReader.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeviceCsvReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private record Row(long line, long epochSecond, int type, int value1, int value2) {
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private final List<Long> errorLines = new ArrayList<>();
+    private long lastOffset;
+
+    private final RowHandler collector = new RowHandler() {
+        @Override
+        public void onRow(long lineNumber, long endOffset, long epochSecond, int type, int value1, int value2) {
+            rows.add(new Row(lineNumber, epochSecond, type, value1, value2));
+            lastOffset = endOffset;
+        }
+
+        @Override
+        public void onError(long lineNumber, long endOffset, String reason) {
+            errorLines.add(lineNumber);
+            lastOffset = endOffset;
+        }
+    };
+
+    private void read(String csv, long windowBytes) throws Exception {
+        Path file = dir.resolve("device.csv");
+        Files.writeString(file, csv);
+        try (FileChannel channel = FileChannel.open(file)) {
+            new DeviceCsvReader(windowBytes).read(channel, collector);
+        }
+    }
+
+    private static long epoch(String instant) {
+        return Instant.parse(instant).getEpochSecond();
+    }
+
+    @Test
+    void shouldParseEveryTimestampFormAndReportBadRowsByLine() throws Exception {
+
+        read("""
+                measured_at,type,value1,value2
+                2024-03-01T07:30:00Z,BP,120,80
+                2024-03-01 07:35,fasting,95,
+                1709298000,POST_MEAL,140
+                2024-02-29T23:30:15.250+02:00,Post_Meal,59
+                2024-02-30T07:30:00Z,BP,120,80
+                2024-03-01T07:30:00Z,BP,120
+                2024-03-01T07:30:00Z,KETONES,1
+                2024-03-01T07:30:00Z,BP,12x,80\r
+                """, DEFAULT_WINDOW_BYTES);
+
+        assertEquals(List.of(
+                new Row(2, epoch("2024-03-01T07:30:00Z"), BP, 120, 80),
+                new Row(3, epoch("2024-03-01T07:35:00Z"), FASTING, 95, MISSING),
+                new Row(4, 1709298000L, POST_MEAL, 140, MISSING),
+                new Row(5, epoch("2024-02-29T21:30:15Z"), POST_MEAL, 59, MISSING)), rows);
+        assertEquals(List.of(6L, 7L, 8L, 9L), errorLines);
+    }
+
+    @Test
+    void shouldCarryLinesAcrossMappingWindows() throws Exception {
+
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append(1_700_000_000L + i).append(",BP,").append(100 + i).append(",70\n");
+        }
+        // No trailing newline on the last row
+        csv.append("1700000100,FASTING,90");
+
+        read(csv.toString(), 64);
+
+        assertEquals(101, rows.size());
+        assertTrue(errorLines.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new Row(i + 1, 1_700_000_000L + i, BP, 100 + i, 70), rows.get(i));
+        }
+        assertEquals(new Row(101, 1_700_000_100L, FASTING, 90, MISSING), rows.get(100));
+        assertEquals(csv.length(), lastOffset);
+    }
+}
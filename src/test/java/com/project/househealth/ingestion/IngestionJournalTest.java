@@ -0,0 +1,79 @@
+package com.project.househealth.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IngestionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static PendingReading bp(long sequence) {
+        return new PendingReading(sequence, 7L, BP, null, 120, 80, null, null, null);
+    }
+
+    private static PendingReading sugar(long sequence) {
+        return new PendingReading(sequence, 7L, SUGAR, POST_MEAL, null, null, 59,
+                Instant.parse("2024-03-01T07:30:00Z"), "phone-42");
+    }
+
+    @Test
+    void shouldReturnOnlyReadingsAfterTheLastCommitMarker() throws Exception {
+
+        Path path = dir.resolve("ingestion.journal");
+        try (IngestionJournal journal = new IngestionJournal(path)) {
+            journal.append(bp(1));
+            journal.append(bp(2));
+            journal.markCommitted(2);
+            journal.append(bp(3));
+            journal.append(sugar(4));
+        }
+        // Simulate a crash in the middle of an append
+        Files.writeString(path, "R|5|7|B", StandardOpenOption.APPEND);
+
+        try (IngestionJournal journal = new IngestionJournal(path)) {
+            List<PendingReading> uncommitted = journal.uncommitted();
+
+            assertEquals(2, uncommitted.size());
+            assertEquals(bp(3), uncommitted.get(0));
+            assertEquals(sugar(4), uncommitted.get(1));
+        }
+    }
+
+    @Test
+    void shouldBeEmptyAfterTruncate() {
+
+        try (IngestionJournal journal = new IngestionJournal(dir.resolve("nested/ingestion.journal"))) {
+            journal.append(bp(1));
+            journal.truncate();
+
+            assertTrue(journal.uncommitted().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldReadFailedReadingsWithTheirFailureCounts() throws Exception {
+
+        Path path = dir.resolve("ingestion.journal.failed");
+        // Written before failures were counted
+        Files.writeString(path, bp(1).toJournalLine() + "\n");
+        try (IngestionJournal journal = new IngestionJournal(path)) {
+            journal.append(new FailedReading(sugar(2), 2));
+        }
+
+        try (IngestionJournal journal = new IngestionJournal(path)) {
+            assertEquals(List.of(new FailedReading(bp(1), 1), new FailedReading(sugar(2), 2)), journal.failed());
+        }
+    }
+}
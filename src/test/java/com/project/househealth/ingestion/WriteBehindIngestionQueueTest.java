@@ -0,0 +1,194 @@
+package com.project.househealth.ingestion;
+
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.exception.IngestionBackpressureException;
+import com.project.househealth.repositories.UserRepository;
+import com.project.househealth.service.HealthLogService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindIngestionQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private HealthLogService healthLogService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private User user;
+
+    private WriteBehindIngestionQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null && queue.isRunning()) {
+            queue.stop();
+        }
+    }
+
+    private WriteBehindIngestionQueue startQueue(int capacity) {
+        queue = new WriteBehindIngestionQueue(healthLogService, userRepository,
+                dir.resolve("ingestion.journal"), capacity, 100, 10, 50);
+        queue.start();
+        return queue;
+    }
+
+    private HealthLog bp() {
+        HealthLog healthLog = new HealthLog(BP, user);
+        healthLog.setSystolic(120);
+        healthLog.setDiastolic(80);
+        return healthLog;
+    }
+
+    private static void acceptEverything(HealthLogService healthLogService) {
+        when(healthLogService.createHealthLogs(anyList()))
+                .thenAnswer(invocation -> new BulkIngestionResult(invocation.getArgument(0), List.of()));
+    }
+
+    private static void awaitWritten(WriteBehindIngestionQueue queue, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.stats().written() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void shouldGroupCommitSubmittedReadings() throws Exception {
+
+        when(user.getUserId()).thenReturn(7L);
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        acceptEverything(healthLogService);
+
+        startQueue(1_000);
+        for (int i = 0; i < 250; i++) {
+            queue.submit(bp());
+        }
+        awaitWritten(queue, 250);
+
+        WriteBehindStats stats = queue.stats();
+        assertEquals(250, stats.accepted());
+        assertEquals(250, stats.written());
+        assertEquals(0, stats.failed());
+        assertTrue(stats.batches() >= 3, "batches are capped at the configured batch size");
+        assertEquals(0, stats.queueDepth());
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws Exception {
+
+        when(user.getUserId()).thenReturn(7L);
+        when(userRepository.getReferenceById(anyLong())).thenReturn(user);
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(healthLogService.createHealthLogs(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return new BulkIngestionResult(invocation.getArgument(0), List.of());
+        });
+
+        startQueue(2);
+        queue.submit(bp());
+        queue.submit(bp());
+
+        assertThrows(IngestionBackpressureException.class, () -> queue.submit(bp()));
+        assertEquals(1, queue.stats().rejected());
+
+        release.countDown();
+        awaitWritten(queue, 2);
+        queue.submit(bp());
+    }
+
+    @Test
+    void shouldReplayUncommittedReadingsOnStart() throws Exception {
+
+        try (IngestionJournal journal = new IngestionJournal(dir.resolve("ingestion.journal"))) {
+            journal.append(new PendingReading(1, 7L, BP, null, 120, 80, null, null, null));
+            journal.markCommitted(1);
+            journal.append(new PendingReading(2, 7L, BP, null, 130, 85, null, null, null));
+            journal.append(new PendingReading(3, 7L, BP, null, 140, 90, null, null, null));
+        }
+
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        acceptEverything(healthLogService);
+
+        startQueue(10);
+        awaitWritten(queue, 2);
+
+        assertEquals(2, queue.stats().written());
+        verify(healthLogService, atLeastOnce()).createHealthLogs(any());
+    }
+
+    @Test
+    void shouldKeepAFailedBatchForReplayOnNextStart() throws Exception {
+
+        when(user.getUserId()).thenReturn(7L);
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        when(healthLogService.createHealthLogs(anyList()))
+                .thenThrow(new IllegalStateException("Connection refused"))
+                .thenAnswer(invocation -> new BulkIngestionResult(invocation.getArgument(0), List.of()));
+
+        startQueue(10);
+        queue.submit(bp());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.stats().failed() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, queue.stats().failed());
+        assertEquals(0, queue.stats().written());
+        queue.stop();
+
+        startQueue(10);
+        awaitWritten(queue, 1);
+
+        assertEquals(1, queue.stats().written());
+        assertEquals(0, queue.stats().failed());
+    }
+
+    @Test
+    void shouldDeadLetterAReadingThatKeepsFailingInsteadOfReplayingItForever() throws Exception {
+
+        try (IngestionJournal failedJournal = new IngestionJournal(dir.resolve("ingestion.journal.failed"))) {
+            failedJournal.append(new FailedReading(new PendingReading(4, 7L, BP, null, 120, 80, null, null, null), 2));
+        }
+
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        when(healthLogService.createHealthLogs(anyList())).thenThrow(new IllegalStateException("User 7 is gone"));
+
+        startQueue(10);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.stats().deadLettered() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, queue.stats().deadLettered());
+        assertEquals(0, queue.stats().failed());
+        queue.stop();
+
+        // Not replayed again, but still counted
+        startQueue(10);
+        assertEquals(0, queue.stats().queueDepth());
+        assertEquals(1, queue.stats().deadLettered());
+        verify(healthLogService, times(1)).createHealthLogs(anyList());
+    }
+}
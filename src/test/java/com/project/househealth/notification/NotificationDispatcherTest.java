@@ -0,0 +1,128 @@
+package com.project.househealth.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.project.househealth.enums.NotificationType.READING_ALERT;
+import static com.project.househealth.enums.NotificationType.REMINDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationDispatcherTest {
+
+    private static List<Notification> batch(long recipient) {
+        return List.of(new Notification(recipient, 1L, REMINDER, "reminder"));
+    }
+
+    // Recipients below 100 go to the push gateway, the rest to email
+    private static final class BlockingSender implements NotificationSender {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+
+        @Override
+        public void send(List<Notification> batch) {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        }
+
+        @Override
+        public String destination(Notification notification) {
+            return notification.recipientUserId() < 100 ? "push" : "email";
+        }
+    }
+
+    @Test
+    void shouldCapInFlightDeliveriesPerDestinationAndHoldBackTheReminderSweep() throws Exception {
+
+        BlockingSender sender = new BlockingSender();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(sender, 3, 1, Duration.ZERO,
+                Duration.ofMillis(100));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dispatcher.dispatch(REMINDER, batch(i)));
+        }
+        // Email has its own limit, so push at its cap does not hold it up
+        assertTrue(dispatcher.dispatch(READING_ALERT, List.of(new Notification(100L, 1L, READING_ALERT, "alert"))));
+
+        Thread caller = Thread.ofVirtual().start(() -> dispatcher.dispatch(REMINDER, batch(3)));
+        caller.join(300);
+        assertTrue(caller.isAlive(), "fourth reminder should wait for a free slot");
+
+        sender.release.countDown();
+        caller.join(5000);
+        assertFalse(caller.isAlive());
+        assertTrue(dispatcher.awaitIdle(Duration.ofSeconds(5)));
+
+        NotificationStats stats = dispatcher.stats(0, 0);
+        assertEquals(5, stats.batches());
+        assertEquals(1, stats.throttledDispatches());
+        assertEquals(0, stats.rejectedDispatches());
+        assertEquals(4, sender.peak.get());
+    }
+
+    @Test
+    void shouldDropAnAlertThatCannotGetASlotInTime() throws Exception {
+
+        BlockingSender sender = new BlockingSender();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(sender, 1, 1, Duration.ZERO,
+                Duration.ofMillis(50));
+        assertTrue(dispatcher.dispatch(REMINDER, batch(1)));
+
+        long start = System.nanoTime();
+        assertFalse(dispatcher.dispatch(READING_ALERT, List.of(new Notification(2L, 1L, READING_ALERT, "alert"))));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+
+        sender.release.countDown();
+        assertTrue(dispatcher.awaitIdle(Duration.ofSeconds(5)));
+        NotificationStats stats = dispatcher.stats(0, 0);
+        assertEquals(1, stats.batches());
+        assertEquals(1, stats.throttledDispatches());
+        assertEquals(1, stats.rejectedDispatches());
+    }
+
+    @Test
+    void shouldRetryTransientFailures() throws Exception {
+
+        AtomicInteger attempts = new AtomicInteger();
+        NotificationDispatcher dispatcher = new NotificationDispatcher(batch -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("try again");
+            }
+        }, 10, 3, Duration.ofMillis(5), Duration.ofMillis(100));
+
+        dispatcher.dispatch(REMINDER, batch(1));
+        assertTrue(dispatcher.awaitIdle(Duration.ofSeconds(5)));
+
+        NotificationStats stats = dispatcher.stats(0, 0);
+        assertEquals(3, attempts.get());
+        assertEquals(2, stats.retries());
+        assertEquals(0, stats.failedBatches());
+    }
+
+    @Test
+    void shouldDrawBackoffWithFullJitterUnderAGrowingCeiling() {
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(batch -> { }, 1, 5, Duration.ofMillis(100),
+                Duration.ofMillis(100));
+
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long first = dispatcher.backoffMillis(1);
+            long third = dispatcher.backoffMillis(3);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(third >= 0 && third <= 400);
+            max = Math.max(max, third);
+        }
+        assertTrue(max > 100, "later attempts should be able to wait longer");
+        dispatcher.shutdown();
+    }
+}
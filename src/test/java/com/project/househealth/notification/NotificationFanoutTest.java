@@ -0,0 +1,199 @@
+package com.project.househealth.notification;
+
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.Role;
+import com.project.househealth.event.ReminderDueEvent;
+import com.project.househealth.reminder.ReminderNotifier;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.NotificationType.READING_ALERT;
+import static com.project.househealth.enums.NotificationType.REMINDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so fan-out waits for the commits the test makes itself
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotificationFanout.class, NotificationDispatcher.class, RecordingNotificationSender.class,
+        ReminderNotifier.class})
+public class NotificationFanoutTest {
+
+    @Autowired
+    private NotificationFanout notificationFanout;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private RecordingNotificationSender sender;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User subject;
+    private User sharedObserver;
+    private User secondFamilyObserver;
+
+    @BeforeEach
+    void createFamilies() {
+        sender.clear();
+        String run = Long.toString(System.nanoTime());
+        subject = userRepository.save(new User("Subject", "pass", "subject-" + run + "@gmail.com"));
+        sharedObserver = userRepository.save(new User("Shared", "pass", "shared-" + run + "@gmail.com"));
+        secondFamilyObserver = userRepository.save(new User("Second", "pass", "second-" + run + "@gmail.com"));
+        User muted = userRepository.save(new User("Muted", "pass", "muted-" + run + "@gmail.com"));
+        User tracker = userRepository.save(new User("Tracker", "pass", "tracker-" + run + "@gmail.com"));
+
+        Family first = new Family("First family");
+        first.addMembership(new FamilyMembership(subject, first, Role.TRACKER));
+        first.addMembership(new FamilyMembership(sharedObserver, first, Role.OBSERVER));
+        FamilyMembership mutedMembership = new FamilyMembership(muted, first, Role.BOTH);
+        mutedMembership.disableNotifications();
+        first.addMembership(mutedMembership);
+        first.addMembership(new FamilyMembership(tracker, first, Role.TRACKER));
+        familyRepository.save(first);
+
+        Family second = new Family("Second family");
+        second.addMembership(new FamilyMembership(subject, second, Role.BOTH));
+        second.addMembership(new FamilyMembership(sharedObserver, second, Role.BOTH));
+        second.addMembership(new FamilyMembership(secondFamilyObserver, second, Role.OBSERVER));
+        familyRepository.save(second);
+    }
+
+    // Deliveries run on virtual threads; wait for them before looking at what was sent
+    private void awaitDeliveries(NotificationDispatcher dispatcher) throws InterruptedException {
+        assertTrue(dispatcher.awaitIdle(Duration.ofSeconds(10)));
+    }
+
+    private Set<Long> recipients(List<Notification> notifications) {
+        return notifications.stream().map(Notification::recipientUserId).collect(Collectors.toSet());
+    }
+
+    @Test
+    void shouldResolveObserversAcrossFamiliesOnceEach() throws InterruptedException {
+
+        assertEquals(Set.of(sharedObserver.getUserId(), secondFamilyObserver.getUserId()),
+                familyMembershipRepository.findObserverLinks(List.of(subject.getUserId())).stream()
+                        .map(link -> link.observerUserId()).collect(Collectors.toSet()));
+        assertEquals(2, familyMembershipRepository.findObserverLinks(List.of(subject.getUserId())).size());
+
+        notificationFanout.notifyObservers(subject.getUserId(), READING_ALERT, "out of range");
+        awaitDeliveries(notificationDispatcher);
+
+        List<Notification> sent = sender.sent();
+        assertEquals(2, sent.size());
+        assertEquals(Set.of(sharedObserver.getUserId(), secondFamilyObserver.getUserId()), recipients(sent));
+        assertTrue(sent.stream().allMatch(n -> n.subjectUserId().equals(subject.getUserId())
+                && n.type() == READING_ALERT));
+    }
+
+    @Test
+    void shouldHoldNotificationsUntilCommitAndDropThemOnRollback() throws InterruptedException {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new ReminderDueEvent(1L, subject.getUserId(), BP, Instant.now()));
+            eventPublisher.publishEvent(new ReminderDueEvent(2L, sharedObserver.getUserId(), BP, Instant.now()));
+            assertTrue(sender.batches().isEmpty());
+        });
+        awaitDeliveries(notificationDispatcher);
+
+        // Both reminders of the transaction went out together: each owner plus their observers
+        assertEquals(1, sender.batches().size());
+        List<Notification> sent = sender.sent();
+        assertTrue(sent.stream().allMatch(n -> n.type() == REMINDER));
+        assertEquals(Set.of(subject.getUserId(), sharedObserver.getUserId(), secondFamilyObserver.getUserId()),
+                recipients(sent.stream().filter(n -> n.subjectUserId().equals(subject.getUserId())).toList()));
+        // In the second family subject (BOTH) and secondFamilyObserver observe sharedObserver
+        assertEquals(Set.of(sharedObserver.getUserId(), subject.getUserId(), secondFamilyObserver.getUserId()),
+                recipients(sent.stream().filter(n -> n.subjectUserId().equals(sharedObserver.getUserId())).toList()));
+
+        sender.clear();
+        transaction.executeWithoutResult(status -> {
+            notificationFanout.notifyObservers(subject.getUserId(), READING_ALERT, "rolled back");
+            status.setRollbackOnly();
+        });
+        awaitDeliveries(notificationDispatcher);
+        assertTrue(sender.batches().isEmpty());
+    }
+
+    @Test
+    void shouldSendInBatchesOfOneTypeAndRecordBatchMetrics() throws InterruptedException {
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(sender, 10, 3, Duration.ofMillis(1), Duration.ofMillis(100));
+        NotificationFanout smallBatches = new NotificationFanout(familyMembershipRepository, dispatcher,
+                transactionManager, 2);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            smallBatches.notifyUserAndObservers(subject.getUserId(), REMINDER, "first");
+            smallBatches.notifyObservers(subject.getUserId(), READING_ALERT, "second");
+        });
+
+        awaitDeliveries(dispatcher);
+
+        // Three reminders (owner and two observers) and two alerts
+        assertEquals(List.of(1, 2, 2), sender.batches().stream().map(List::size).sorted().toList());
+        assertTrue(sender.batches().stream()
+                .allMatch(batch -> batch.stream().map(Notification::type).distinct().count() == 1));
+
+        NotificationStats stats = smallBatches.stats();
+        assertEquals(2, stats.requests());
+        assertEquals(5, stats.notifications());
+        assertEquals(3, stats.batches());
+        assertEquals(0, stats.failedBatches());
+        assertEquals(0, stats.retries());
+        assertEquals(0, stats.inFlight());
+        assertTrue(stats.maxBatchMillis() >= stats.averageBatchMillis());
+        assertTrue(stats.notificationsPerSecond() > 0);
+    }
+
+    @Test
+    void shouldRetryAndThenCountFailedBatchesWithoutFailingTheCaller() throws InterruptedException {
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(batch -> {
+            throw new IllegalStateException("channel down");
+        }, 10, 3, Duration.ofMillis(1), Duration.ofMillis(100));
+        NotificationFanout failing = new NotificationFanout(familyMembershipRepository, dispatcher,
+                transactionManager, 1);
+
+        failing.notifyObservers(subject.getUserId(), READING_ALERT, "lost");
+        awaitDeliveries(dispatcher);
+
+        NotificationStats stats = failing.stats();
+        assertEquals(2, stats.batches());
+        assertEquals(2, stats.failedBatches());
+        assertEquals(4, stats.retries());
+        assertEquals(0, stats.notificationsPerSecond());
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.househealth.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-process sender for tests: keeps every batch it is handed
+public class RecordingNotificationSender implements NotificationSender {
+
+    private final List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(List<Notification> batch) {
+        batches.add(List.copyOf(batch));
+    }
+
+    public List<List<Notification>> batches() {
+        return batches;
+    }
+
+    public List<Notification> sent() {
+        List<Notification> sent = new ArrayList<>();
+        batches.forEach(sent::addAll);
+        return sent;
+    }
+
+    public void clear() {
+        batches.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.dto.ReminderConfig;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.project.househealth.enums.FrequencyType.DAILY;
+import static com.project.househealth.enums.FrequencyType.WEEKLY;
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReminderProfileCacheTest {
+
+    @Mock
+    private ReminderSettingsRepository reminderSettingsRepository;
+
+    @Test
+    void shouldReloadAProfileChangedOnAnotherNodeOnceItsTtlRunsOut() {
+
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-01T08:00:00Z"));
+        ReminderProfileCache cache = new ReminderProfileCache(reminderSettingsRepository, 10,
+                Duration.ofMinutes(1), clock);
+        when(reminderSettingsRepository.findConfigsByUserIds(List.of(7L)))
+                .thenReturn(List.of(new ReminderConfig(1L, 7L, BP, DAILY, 1, true)))
+                .thenReturn(List.of(new ReminderConfig(1L, 7L, BP, WEEKLY, 1, true)));
+
+        assertEquals(DAILY, cache.get(7L).reminders().get(0).frequencyType());
+
+        // Changed elsewhere, so no invalidation reaches this node; the cached profile holds until the TTL
+        clock.advance(Duration.ofSeconds(59));
+        assertEquals(DAILY, cache.get(7L).reminders().get(0).frequencyType());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(WEEKLY, cache.get(7L).reminders().get(0).frequencyType());
+        verify(reminderSettingsRepository, times(2)).findConfigsByUserIds(List.of(7L));
+    }
+}
@@ -0,0 +1,298 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.FrequencyType;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.dto.DueReminder;
+import com.project.househealth.event.ReminderDueEvent;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.ReminderNodeRepository;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import com.project.househealth.repositories.ReminderShardLeaseRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static com.project.househealth.enums.FrequencyType.DAILY;
+import static com.project.househealth.enums.FrequencyType.MONTHLY;
+import static com.project.househealth.enums.FrequencyType.WEEKLY;
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so every scheduler step commits on its own as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+public class ReminderSchedulerTest {
+
+    @Autowired
+    private ReminderSettingsRepository reminderSettingsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private ReminderShardLeaseRepository leaseRepository;
+
+    @Autowired
+    private ReminderNodeRepository nodeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private ReminderSettings reminder(User user, MetricType metricType, FrequencyType frequencyType,
+                                      Instant lastTriggeredAt) {
+        ReminderSettings reminder = new ReminderSettings(metricType, frequencyType, user);
+        if (lastTriggeredAt != null) {
+            reminder.markTriggered(lastTriggeredAt);
+        }
+        return reminderSettingsRepository.save(reminder);
+    }
+
+    // Nothing rolls back here, so each test starts without the reminders and leases of the others
+    @AfterEach
+    void deleteReminders() {
+        reminderSettingsRepository.deleteAllInBatch();
+        leaseRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+    }
+
+    private List<Long> firedIds() {
+        return events.stream(ReminderDueEvent.class).map(ReminderDueEvent::reminderId).toList();
+    }
+
+    @Test
+    void shouldFireRemindersWhenDueAndOnlyLoadTheWindow() {
+
+        User newUser = userRepository.save(new User("Fresh", "pass", "fresh-reminder@gmail.com"));
+        User dailyUser = userRepository.save(new User("Daily", "pass", "daily-reminder@gmail.com"));
+        User weeklyUser = userRepository.save(new User("Weekly", "pass", "weekly-reminder@gmail.com"));
+
+        // A reminder that never fired is due from its creation, so the clock starts just after it
+        ReminderSettings fresh = reminder(newUser, BP, DAILY, null);
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        ReminderSettings daily = reminder(dailyUser, SUGAR, DAILY, start.minus(Duration.ofHours(23)));
+        ReminderSettings weekly = reminder(weeklyUser, BP, WEEKLY, start.minus(Duration.ofDays(1)));
+
+        MutableClock clock = new MutableClock(start);
+        ReminderShardLeases leases = new ReminderShardLeases(leaseRepository, nodeRepository,
+                transactionManager, "single", Duration.ofSeconds(30));
+        ReminderScheduler scheduler = new ReminderScheduler(reminderSettingsRepository, leases, healthLogRepository,
+                eventPublisher, transactionManager, clock, Duration.ofHours(2), 1000);
+
+        scheduler.tick();
+        // Alone, the node takes every shard on its first heartbeat
+        assertEquals(ReminderSettings.SHARD_COUNT, scheduler.ownedShards().size());
+
+        assertEquals(List.of(fresh.getReminderId()), firedIds());
+        assertEquals(start, reminderSettingsRepository.findById(fresh.getReminderId())
+                .orElseThrow().getLastTriggeredAt());
+        // The daily one is waiting on the wheel; the weekly one is days out and not loaded
+        assertEquals(1, scheduler.scheduledCount());
+
+        clock.advance(Duration.ofMinutes(59));
+        scheduler.tick();
+        assertEquals(1, firedIds().size());
+
+        clock.advance(Duration.ofMinutes(1));
+        scheduler.tick();
+        assertEquals(List.of(fresh.getReminderId(), daily.getReminderId()), firedIds());
+        assertEquals(start.plus(Duration.ofHours(1)), reminderSettingsRepository.findById(daily.getReminderId())
+                .orElseThrow().getLastTriggeredAt());
+        assertEquals(start.minus(Duration.ofDays(1)), reminderSettingsRepository.findById(weekly.getReminderId())
+                .orElseThrow().getLastTriggeredAt());
+        assertEquals(0, scheduler.scheduledCount());
+    }
+
+    private void reading(User user, MetricType metricType, Instant measuredAt) {
+        HealthLog healthLog = new HealthLog(metricType, user);
+        if (metricType == BP) {
+            healthLog.setSystolic(120);
+            healthLog.setDiastolic(80);
+        } else {
+            healthLog.setSugarType(SugarType.FASTING);
+            healthLog.setSugarValue(95);
+        }
+        healthLog.setMeasuredAt(measuredAt);
+        healthLogRepository.save(healthLog);
+    }
+
+    @Test
+    void shouldSkipRemindersWhoseReadingWasAlreadyLoggedThisPeriod() {
+
+        User logged = userRepository.save(new User("Logged", "pass", "logged-reminder@gmail.com"));
+        User stale = userRepository.save(new User("Stale", "pass", "stale-reminder@gmail.com"));
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        Instant due = start.plus(Duration.ofMinutes(5));
+
+        // Daily reminders due in five minutes, so the current period started a day before that
+        ReminderSettings loggedSugar = reminder(logged, SUGAR, DAILY, due.minus(Duration.ofDays(1)));
+        ReminderSettings loggedBp = reminder(logged, BP, DAILY, due.minus(Duration.ofDays(1)));
+        ReminderSettings staleSugar = reminder(stale, SUGAR, DAILY, due.minus(Duration.ofDays(1)));
+        reading(logged, SUGAR, start.minus(Duration.ofHours(2)));
+        reading(stale, SUGAR, due.minus(Duration.ofDays(1)).minus(Duration.ofMinutes(1)));
+
+        MutableClock clock = new MutableClock(start);
+        ReminderShardLeases leases = new ReminderShardLeases(leaseRepository, nodeRepository,
+                transactionManager, "single", Duration.ofSeconds(30));
+        ReminderScheduler scheduler = new ReminderScheduler(reminderSettingsRepository, leases, healthLogRepository,
+                eventPublisher, transactionManager, clock, Duration.ofHours(2), 1000);
+        scheduler.tick();
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+
+        assertEquals(Set.of(loggedBp.getReminderId(), staleSugar.getReminderId()), Set.copyOf(firedIds()));
+        assertEquals(1, scheduler.suppressedCount());
+        ReminderSettings skipped = reminderSettingsRepository.findById(loggedSugar.getReminderId()).orElseThrow();
+        assertEquals(due, skipped.getLastTriggeredAt());
+        assertEquals(due.plus(Duration.ofDays(1)), skipped.getNextDueAt());
+    }
+
+    @Test
+    void shouldKeepNextDueAtInStepWithTriggersAndFrequencyChanges() {
+
+        User user = userRepository.save(new User("Due", "pass", "due-reminder@gmail.com"));
+        Instant triggered = Instant.parse("2001-01-31T09:00:00Z");
+
+        ReminderSettings reminder = new ReminderSettings(SUGAR, DAILY, user);
+        reminder.markTriggered(triggered);
+        assertEquals(Instant.parse("2001-02-01T09:00:00Z"), reminder.getNextDueAt());
+
+        reminder.setFrequencyInterval(3);
+        assertEquals(Instant.parse("2001-02-03T09:00:00Z"), reminder.getNextDueAt());
+
+        reminder.setFrequencyType(MONTHLY);
+        reminder.setFrequencyInterval(1);
+        assertEquals(Instant.parse("2001-02-28T09:00:00Z"), reminder.getNextDueAt());
+
+        reminderSettingsRepository.save(reminder);
+        assertEquals(Instant.parse("2001-02-28T09:00:00Z"),
+                reminderSettingsRepository.findById(reminder.getReminderId()).orElseThrow().getNextDueAt());
+    }
+
+    @Test
+    void shouldMarkRemindersTriggeredInBulkOnlyWhileDueAndTheirFrequencyMatches() {
+
+        User first = userRepository.save(new User("BulkA", "pass", "bulk-a-reminder@gmail.com"));
+        User second = userRepository.save(new User("BulkB", "pass", "bulk-b-reminder@gmail.com"));
+        ReminderSettings daily = reminder(first, BP, DAILY, null);
+        ReminderSettings unsetInterval = reminder(first, SUGAR, DAILY, null);
+        ReminderSettings everyThreeDays = new ReminderSettings(BP, DAILY, second);
+        everyThreeDays.setFrequencyInterval(3);
+        reminderSettingsRepository.save(everyThreeDays);
+        ReminderSettings weekly = reminder(second, SUGAR, WEEKLY, null);
+
+        Instant triggered = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        Instant next = DAILY.next(triggered, 1);
+        List<Long> ids = List.of(daily.getReminderId(), unsetInterval.getReminderId(),
+                everyThreeDays.getReminderId(), weekly.getReminderId());
+        List<Long> markedIds = transactionTemplate().execute(status -> {
+            reminderSettingsRepository.markTriggered(ids, DAILY, 1, triggered, triggered, next);
+            return reminderSettingsRepository.findMarkedIds(ids, triggered, next);
+        });
+
+        assertEquals(Set.of(daily.getReminderId(), unsetInterval.getReminderId()), Set.copyOf(markedIds));
+        for (ReminderSettings reminder : List.of(daily, unsetInterval)) {
+            ReminderSettings stored = reminderSettingsRepository.findById(reminder.getReminderId()).orElseThrow();
+            assertEquals(triggered, stored.getLastTriggeredAt());
+            assertEquals(next, stored.getNextDueAt());
+        }
+        for (ReminderSettings reminder : List.of(everyThreeDays, weekly)) {
+            assertNull(reminderSettingsRepository.findById(reminder.getReminderId()).orElseThrow()
+                    .getLastTriggeredAt());
+        }
+
+        // A second node that read them before the first one marked them finds them no longer due
+        Instant late = triggered.plusMillis(10);
+        int again = transactionTemplate().execute(status -> reminderSettingsRepository.markTriggered(
+                List.of(daily.getReminderId(), unsetInterval.getReminderId()), DAILY, 1, late, late,
+                DAILY.next(late, 1)));
+        assertEquals(0, again);
+        assertEquals(triggered, reminderSettingsRepository.findById(daily.getReminderId()).orElseThrow()
+                .getLastTriggeredAt());
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    // Users whose reminders all land in one shard
+    private List<User> usersInOneShard(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; users.size() < count; i++) {
+            User user = userRepository.save(new User("Chunk" + i, "pass", "chunk" + i + "-reminder@gmail.com"));
+            if (users.isEmpty() || user.getUserId() % ReminderSettings.SHARD_COUNT
+                    == users.get(0).getUserId() % ReminderSettings.SHARD_COUNT) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    @Test
+    void shouldWalkDueRemindersOfAShardInKeysetChunks() {
+
+        List<User> users = usersInOneShard(6);
+        int shard = ReminderSettings.shardOf(users.get(0).getUserId());
+
+        // Ties on nextDueAt are broken by reminderId
+        Instant base = Instant.parse("2000-01-01T00:00:00Z");
+        List<ReminderSettings> due = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            due.add(reminder(users.get(i), BP, DAILY, base.plus(Duration.ofDays(i % 2))));
+            due.add(reminder(users.get(i), SUGAR, DAILY, base));
+        }
+        due.sort(Comparator.comparing(ReminderSettings::getNextDueAt).thenComparing(ReminderSettings::getReminderId));
+        ReminderSettings disabled = new ReminderSettings(BP, DAILY, users.get(4));
+        disabled.markTriggered(base);
+        disabled.setNotificationsEnabled(false);
+        reminderSettingsRepository.save(disabled);
+        reminder(users.get(5), BP, WEEKLY, base.plus(Duration.ofDays(10)));
+
+        Instant horizon = base.plus(Duration.ofDays(5));
+        Limit limit = Limit.of(3);
+        List<Long> walked = new ArrayList<>();
+        List<DueReminder> chunk = reminderSettingsRepository.findDueFirstChunk(shard, horizon, limit);
+        while (!chunk.isEmpty()) {
+            chunk.forEach(reminder -> walked.add(reminder.reminderId()));
+            DueReminder last = chunk.get(chunk.size() - 1);
+            chunk = reminderSettingsRepository.findDueChunkAfter(shard, horizon,
+                    last.nextDueAt(), last.reminderId(), limit);
+        }
+
+        assertEquals(due.stream().map(ReminderSettings::getReminderId).toList(), walked);
+        assertTrue(reminderSettingsRepository.findDueFirstChunk((shard + 1) % ReminderSettings.SHARD_COUNT,
+                horizon, limit).isEmpty());
+    }
+}
@@ -0,0 +1,207 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.entity.User;
+import com.project.househealth.event.ReminderDueEvent;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.ReminderNodeRepository;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import com.project.househealth.repositories.ReminderShardLeaseRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.project.househealth.enums.FrequencyType.DAILY;
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Several scheduler nodes sharing one database, ticked in turn on the test thread
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+public class ReminderShardingTest {
+
+    private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+    private static final Duration STEP = Duration.ofSeconds(10);
+
+    @Autowired
+    private ReminderSettingsRepository reminderSettingsRepository;
+
+    @Autowired
+    private ReminderShardLeaseRepository leaseRepository;
+
+    @Autowired
+    private ReminderNodeRepository nodeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void deleteReminders() {
+        reminderSettingsRepository.deleteAllInBatch();
+        leaseRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+    }
+
+    // The shared test clock also stands in for the database clock the leases are compared against
+    private ReminderScheduler node(String nodeId, MutableClock clock) {
+        return node(nodeId, clock, clock);
+    }
+
+    private ReminderScheduler node(String nodeId, MutableClock clock, MutableClock databaseClock) {
+        ReminderShardLeases leases = new ReminderShardLeases(leaseRepository, nodeRepository,
+                transactionManager, databaseClock::instant, nodeId, LEASE_TTL);
+        return new ReminderScheduler(reminderSettingsRepository, leases, healthLogRepository, eventPublisher,
+                transactionManager, clock, Duration.ofHours(2), 1000);
+    }
+
+    private void runUntil(Instant end, MutableClock clock, List<ReminderScheduler> nodes) {
+        while (clock.instant().isBefore(end)) {
+            clock.advance(STEP);
+            nodes.forEach(ReminderScheduler::tick);
+        }
+    }
+
+    private void assertShardsSplit(List<ReminderScheduler> nodes) {
+        Set<Integer> all = new HashSet<>();
+        int smallest = Integer.MAX_VALUE;
+        for (ReminderScheduler node : nodes) {
+            for (Integer shard : node.ownedShards()) {
+                assertTrue(all.add(shard), "shard " + shard + " owned twice");
+            }
+            smallest = Math.min(smallest, node.ownedShards().size());
+        }
+        assertEquals(ReminderSettings.SHARD_COUNT, all.size());
+        // ceil(64 / n) for every node but the last
+        assertTrue(smallest >= ReminderSettings.SHARD_COUNT - (nodes.size() - 1)
+                * ((ReminderSettings.SHARD_COUNT + nodes.size() - 1) / nodes.size()));
+    }
+
+    private Map<Long, Long> firedCounts() {
+        return events.stream(ReminderDueEvent.class)
+                .collect(Collectors.groupingBy(ReminderDueEvent::reminderId, Collectors.counting()));
+    }
+
+    @Test
+    void shouldFireEachReminderOnceAcrossNodesAndTakeOverFromADeadNode() {
+
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        List<ReminderSettings> firstBatch = new ArrayList<>();
+        List<ReminderSettings> secondBatch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            User user = userRepository.save(new User("Shard" + i, "pass", "shard" + i + "-reminder@gmail.com"));
+            ReminderSettings bp = new ReminderSettings(BP, DAILY, user);
+            bp.markTriggered(start.minus(Duration.ofDays(1)).plus(Duration.ofMinutes(10)));
+            firstBatch.add(reminderSettingsRepository.save(bp));
+            ReminderSettings sugar = new ReminderSettings(SUGAR, DAILY, user);
+            sugar.markTriggered(start.minus(Duration.ofDays(1)).plus(Duration.ofMinutes(15)));
+            secondBatch.add(reminderSettingsRepository.save(sugar));
+        }
+
+        MutableClock clock = new MutableClock(start);
+        ReminderScheduler a = node("node-a", clock);
+        ReminderScheduler b = node("node-b", clock);
+        ReminderScheduler c = node("node-c", clock);
+        List<ReminderScheduler> nodes = List.of(a, b, c);
+
+        runUntil(start.plus(Duration.ofMinutes(3)), clock, nodes);
+        assertShardsSplit(nodes);
+        assertTrue(events.stream(ReminderDueEvent.class).findAny().isEmpty());
+
+        runUntil(start.plus(Duration.ofMinutes(11)), clock, nodes);
+        Map<Long, Long> fired = firedCounts();
+        for (ReminderSettings reminder : firstBatch) {
+            assertEquals(1L, fired.get(reminder.getReminderId()), "reminder " + reminder.getReminderId());
+        }
+        assertEquals(firstBatch.size(), fired.size());
+
+        // Each node fired its own part of the batch
+        Map<Long, Integer> shardOf = new HashMap<>();
+        for (ReminderSettings reminder : firstBatch) {
+            shardOf.put(reminder.getReminderId(), reminder.getShard());
+        }
+        for (ReminderScheduler node : nodes) {
+            long own = fired.keySet().stream().map(shardOf::get).filter(node.ownedShards()::contains).count();
+            assertTrue(own > 0);
+        }
+
+        // node-c dies without releasing its leases; the others take its shards once they expire
+        List<ReminderScheduler> survivors = List.of(a, b);
+        runUntil(start.plus(Duration.ofMinutes(16)), clock, survivors);
+        assertShardsSplit(survivors);
+
+        fired = firedCounts();
+        for (ReminderSettings reminder : secondBatch) {
+            assertEquals(1L, fired.get(reminder.getReminderId()), "reminder " + reminder.getReminderId());
+        }
+        assertEquals(firstBatch.size() + secondBatch.size(), fired.size());
+        Map<Long, ReminderSettings> stored = reminderSettingsRepository.findAll().stream()
+                .collect(Collectors.toMap(ReminderSettings::getReminderId, Function.identity()));
+        for (ReminderSettings reminder : secondBatch) {
+            Instant triggered = stored.get(reminder.getReminderId()).getLastTriggeredAt();
+            assertFalse(triggered.isBefore(start.plus(Duration.ofMinutes(15))));
+            assertFalse(triggered.isAfter(start.plus(Duration.ofMinutes(16))));
+        }
+    }
+
+    @Test
+    void shouldNotFireForAShardLostBetweenHeartbeats() {
+
+        Instant start = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        User user = userRepository.save(new User("Stalled", "pass", "stalled-reminder@gmail.com"));
+        ReminderSettings reminder = new ReminderSettings(BP, DAILY, user);
+        reminder.markTriggered(start.minus(Duration.ofDays(1)).plusSeconds(5));
+        int shard = reminderSettingsRepository.save(reminder).getShard();
+
+        MutableClock clock = new MutableClock(start);
+        MutableClock databaseClock = new MutableClock(start);
+        ReminderScheduler a = node("node-a", clock, databaseClock);
+        a.tick();
+        assertTrue(a.ownedShards().contains(shard));
+
+        // node-a stalls past its TTL, node-b takes the shard, and node-a wakes before its next heartbeat is due
+        databaseClock.advance(LEASE_TTL.plusSeconds(1));
+        Instant now = databaseClock.instant();
+        assertEquals(Integer.valueOf(1), new TransactionTemplate(transactionManager).execute(status -> leaseRepository
+                .tryAcquire(shard, "node-b", now, now.plus(LEASE_TTL))));
+        clock.advance(Duration.ofSeconds(5));
+        a.tick();
+
+        assertTrue(events.stream(ReminderDueEvent.class).findAny().isEmpty());
+        assertFalse(a.ownedShards().contains(shard));
+    }
+}
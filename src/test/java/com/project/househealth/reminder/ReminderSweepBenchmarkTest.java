@@ -0,0 +1,143 @@
+package com.project.househealth.reminder;
+
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.ReminderNodeRepository;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import com.project.househealth.repositories.ReminderShardLeaseRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.project.househealth.enums.FrequencyType.DAILY;
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Marks 100k due reminders triggered one managed entity at a time, then
+ * sweeps the same reminders through the scheduler, which marks them with
+ * set-based updates. Lives beside the scheduler for its test clock and tick.
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class ReminderSweepBenchmarkTest {
+
+    private static final int USERS = 50_000;
+    private static final int REMINDERS = 2 * USERS;
+    private static final int CHUNK = 1_000;
+
+    @Autowired
+    private ReminderSettingsRepository reminderSettingsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private ReminderShardLeaseRepository leaseRepository;
+
+    @Autowired
+    private ReminderNodeRepository nodeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private List<Long> createReminders(TransactionTemplate transaction) {
+        List<Long> ids = new ArrayList<>(REMINDERS);
+        for (int offset = 0; offset < USERS; offset += CHUNK) {
+            int from = offset;
+            ids.addAll(transaction.execute(status -> {
+                List<User> users = new ArrayList<>(CHUNK);
+                for (int i = from; i < from + CHUNK; i++) {
+                    users.add(new User("Sweep" + i, "pass", "sweep" + i + "@gmail.com"));
+                }
+                List<ReminderSettings> reminders = new ArrayList<>(2 * CHUNK);
+                for (User user : userRepository.saveAll(users)) {
+                    reminders.add(new ReminderSettings(BP, DAILY, user));
+                    reminders.add(new ReminderSettings(SUGAR, DAILY, user));
+                }
+                return reminderSettingsRepository.saveAll(reminders).stream()
+                        .map(ReminderSettings::getReminderId).toList();
+            }));
+        }
+        return ids;
+    }
+
+    private record Run(long nanos, long allocatedBytes) {}
+
+    private static Run measure(Runnable sweep) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        sweep.run();
+        long nanos = System.nanoTime() - start;
+        return new Run(nanos, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+    }
+
+    // The old sweep: load each chunk, mark every entity, let the flush dirty-check and update them
+    private void entitySweep(List<Long> ids, Instant triggeredAt, TransactionTemplate transaction) {
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHUNK));
+            transaction.executeWithoutResult(status -> reminderSettingsRepository.findAllById(chunk)
+                    .forEach(reminder -> reminder.markTriggered(triggeredAt)));
+        }
+    }
+
+    private static void report(String name, Run run) {
+        System.out.printf("%-15s: %,d reminders in %,d ms (%,.0f reminders/s), %,d bytes allocated per reminder%n",
+                name, REMINDERS, run.nanos() / 1_000_000, REMINDERS / (run.nanos() / 1e9),
+                run.allocatedBytes() / REMINDERS);
+    }
+
+    @Test
+    void compareEntityAndSetBasedSweeps() {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> ids = createReminders(transaction);
+
+        // Triggered a day before the sweep, so all of them come due at once
+        Instant sweepAt = Instant.now().truncatedTo(ChronoUnit.SECONDS).plus(Duration.ofMinutes(1));
+        Run entity = measure(() -> entitySweep(ids, sweepAt.minus(Duration.ofDays(1)), transaction));
+
+        LongAdder fired = new LongAdder();
+        MutableClock clock = new MutableClock(sweepAt.minus(Duration.ofMinutes(1)));
+        ReminderShardLeases leases = new ReminderShardLeases(leaseRepository, nodeRepository,
+                transactionManager, "bench", Duration.ofSeconds(30));
+        ReminderScheduler scheduler = new ReminderScheduler(reminderSettingsRepository, leases, healthLogRepository,
+                event -> fired.increment(), transactionManager, clock, Duration.ofHours(1), 1000);
+
+        // The first tick takes the shards and loads the wheel; the second one only fires
+        Run load = measure(scheduler::tick);
+        assertEquals(REMINDERS, scheduler.scheduledCount());
+
+        clock.advance(Duration.ofMinutes(1));
+        Run sweep = measure(scheduler::tick);
+
+        assertEquals(REMINDERS, fired.sum());
+        assertEquals(0, scheduler.scheduledCount());
+        assertEquals(sweepAt.plus(Duration.ofDays(1)),
+                reminderSettingsRepository.findById(ids.get(ids.size() - 1)).orElseThrow().getNextDueAt());
+
+        report("entity sweep", entity);
+        report("wheel load", load);
+        report("set-based sweep", sweep);
+    }
+}
@@ -0,0 +1,98 @@
+package com.project.househealth.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReminderTimingWheelTest {
+
+    @Test
+    void shouldFireEveryReminderExactlyAtItsTickAcrossLevels() {
+
+        Random random = new Random(42);
+        long start = 1_700_000_000L;
+        ReminderTimingWheel wheel = new ReminderTimingWheel(start);
+        Map<Long, Long> deadlines = new HashMap<>();
+
+        for (long id = 0; id < 20_000; id++) {
+            // Spread over every level: from the current tick to ~3 days out
+            long deadline = start + (long) Math.pow(2, random.nextDouble() * 18);
+            wheel.schedule(id, deadline);
+            deadlines.put(id, deadline);
+        }
+        // Moved and cancelled reminders
+        for (long id = 0; id < 1000; id++) {
+            long deadline = start + random.nextInt(100_000);
+            wheel.schedule(id, deadline);
+            deadlines.put(id, deadline);
+        }
+        for (long id = 1000; id < 1500; id++) {
+            assertTrue(wheel.cancel(id));
+            deadlines.remove(id);
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        long end = start + (1 << 18) + 1;
+        for (long tick = start; tick <= end; tick += 1 + random.nextInt(300)) {
+            long now = tick;
+            wheel.advanceTo(now, id -> assertNull(firedAt.put(id, now)));
+        }
+        wheel.advanceTo(end, id -> firedAt.put(id, end));
+
+        assertEquals(deadlines.size(), firedAt.size());
+        assertEquals(0, wheel.size());
+        for (Map.Entry<Long, Long> entry : deadlines.entrySet()) {
+            long fired = firedAt.get(entry.getKey());
+            assertTrue(fired >= entry.getValue(), "fired early: " + entry);
+            assertTrue(fired - entry.getValue() <= 300, "fired late: " + entry);
+        }
+    }
+
+    @Test
+    void shouldFireOverdueRemindersOnTheNextAdvance() {
+
+        ReminderTimingWheel wheel = new ReminderTimingWheel(100);
+        wheel.schedule(1, 50);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advanceTo(100, fired::add);
+
+        assertEquals(List.of(1L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldHoldFarFutureRemindersBeyondTheWheelSpan() {
+
+        ReminderTimingWheel wheel = new ReminderTimingWheel(100);
+        wheel.schedule(2, 100 + (1L << 40));
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advanceTo(100 + 100_000, fired::add);
+
+        assertTrue(fired.isEmpty());
+        assertTrue(wheel.contains(2));
+        assertTrue(wheel.cancel(2));
+    }
+
+    @Test
+    void shouldSkipAheadWhenEmpty() {
+
+        ReminderTimingWheel wheel = new ReminderTimingWheel(100);
+        wheel.advanceTo(1L << 50, id -> fail());
+        assertEquals((1L << 50) + 1, wheel.currentTick());
+
+        List<Long> fired = new ArrayList<>();
+        wheel.schedule(3, (1L << 50) + 70);
+        wheel.advanceTo((1L << 50) + 69, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advanceTo((1L << 50) + 70, fired::add);
+        assertEquals(List.of(3L), fired);
+    }
+}
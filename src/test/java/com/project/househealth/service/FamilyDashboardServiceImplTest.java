@@ -0,0 +1,189 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.DashboardReading;
+import com.project.househealth.dto.FamilyDashboard;
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.enums.Role;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.exception.UnauthorizedFamilyActionException;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so writes commit and after-commit cache eviction runs as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FamilyDashboardServiceImpl.class, HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class,
+        MembershipAuthorizations.class})
+public class FamilyDashboardServiceImplTest {
+
+    @Autowired
+    private FamilyDashboardService familyDashboardService;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private MembershipAuthorizations membershipAuthorizations;
+
+    private HealthLog bp(User user, int systolic) {
+        HealthLog healthLog = new HealthLog(BP, user);
+        healthLog.setSystolic(systolic);
+        healthLog.setDiastolic(80);
+        return healthLog;
+    }
+
+    private HealthLog sugar(User user, SugarType sugarType, int value) {
+        HealthLog healthLog = new HealthLog(SUGAR, user);
+        healthLog.setSugarType(sugarType);
+        healthLog.setSugarValue(value);
+        return healthLog;
+    }
+
+    private DashboardReading reading(FamilyDashboard dashboard, User user, MetricType metricType,
+                                     SugarType sugarType) {
+        List<DashboardReading> matches = dashboard.readings().stream()
+                .filter(r -> r.userId().equals(user.getUserId())
+                        && r.metricType() == metricType && r.sugarType() == sugarType)
+                .toList();
+        assertEquals(1, matches.size());
+        return matches.get(0);
+    }
+
+    @Test
+    void shouldReturnLatestReadingPerMemberAndSeriesAndRefreshAfterNewReading() {
+
+        User observer = userRepository.save(new User("Observer", "pass", "dash-observer@gmail.com"));
+        User tracker = userRepository.save(new User("Tracker", "pass", "dash-tracker@gmail.com"));
+
+        Family family = new Family("Dashboard family");
+        family.addMembership(new FamilyMembership(observer, family, Role.BOTH));
+        family.addMembership(new FamilyMembership(tracker, family, Role.TRACKER));
+        family = familyRepository.save(family);
+
+        healthLogService.createHealthLog(bp(tracker, 150));
+        healthLogService.createHealthLog(bp(tracker, 135));
+        healthLogService.createHealthLog(sugar(tracker, FASTING, 62));
+        healthLogService.createHealthLog(sugar(tracker, POST_MEAL, 59));
+        healthLogService.createHealthLog(bp(observer, 118));
+
+        FamilyDashboard dashboard = familyDashboardService.getFamilyDashboard(family.getFamilyId(), observer.getUserId());
+
+        assertEquals(4, dashboard.readings().size());
+        assertEquals(2, dashboard.memberUserIds().size());
+        assertEquals(135, reading(dashboard, tracker, BP, null).systolic());
+        assertEquals(62, reading(dashboard, tracker, SUGAR, FASTING).sugarValue());
+        assertEquals(59, reading(dashboard, tracker, SUGAR, POST_MEAL).sugarValue());
+        assertEquals(118, reading(dashboard, observer, BP, null).systolic());
+
+        assertSame(dashboard, familyDashboardService.getFamilyDashboard(family.getFamilyId(), observer.getUserId()));
+
+        healthLogService.createHealthLog(bp(tracker, 128));
+
+        FamilyDashboard refreshed = familyDashboardService.getFamilyDashboard(family.getFamilyId(), observer.getUserId());
+        assertNotSame(dashboard, refreshed);
+        assertEquals(128, reading(refreshed, tracker, BP, null).systolic());
+    }
+
+    @Test
+    void shouldIgnoreLateReadingsAndPatchNewerOnesWithoutReloading() {
+
+        User observer = userRepository.save(new User("Observer", "pass", "dash-late-observer@gmail.com"));
+
+        Family family = new Family("Late family");
+        family.addMembership(new FamilyMembership(observer, family, Role.BOTH));
+        Long familyId = familyRepository.save(family).getFamilyId();
+
+        healthLogService.createHealthLog(bp(observer, 121));
+        FamilyDashboard dashboard = familyDashboardService.getFamilyDashboard(familyId, observer.getUserId());
+
+        // Synced from an offline device: measured yesterday, received now
+        HealthLog late = bp(observer, 160);
+        late.setMeasuredAt(Instant.now().minus(1, ChronoUnit.DAYS));
+        healthLogService.createHealthLog(late);
+
+        assertSame(dashboard, familyDashboardService.getFamilyDashboard(familyId, observer.getUserId()));
+
+        healthLogService.createHealthLog(sugar(observer, FASTING, 97));
+
+        FamilyDashboard patched = familyDashboardService.getFamilyDashboard(familyId, observer.getUserId());
+        assertEquals(List.of(BP, SUGAR), patched.readings().stream().map(DashboardReading::metricType).toList());
+        assertEquals(121, reading(patched, observer, BP, null).systolic());
+        assertEquals("Observer", reading(patched, observer, SUGAR, FASTING).userName());
+    }
+
+    @Test
+    void shouldReloadADashboardOnceItsTtlRunsOutOnANodeThatMissedTheReading() {
+
+        User observer = userRepository.save(new User("Observer", "pass", "dash-ttl-observer@gmail.com"));
+
+        Family family = new Family("TTL family");
+        family.addMembership(new FamilyMembership(observer, family, Role.BOTH));
+        Long familyId = familyRepository.save(family).getFamilyId();
+
+        // Not a bean, so like another node it never hears the readings recorded here
+        FamilyDashboardServiceImpl otherNode = new FamilyDashboardServiceImpl(familyMembershipRepository,
+                healthLogRepository, membershipAuthorizations, 1, Duration.ZERO, Clock.systemUTC());
+
+        healthLogService.createHealthLog(bp(observer, 121));
+        assertEquals(121, reading(otherNode.getFamilyDashboard(familyId, observer.getUserId()),
+                observer, BP, null).systolic());
+
+        healthLogService.createHealthLog(bp(observer, 133));
+        assertEquals(133, reading(otherNode.getFamilyDashboard(familyId, observer.getUserId()),
+                observer, BP, null).systolic());
+    }
+
+    @Test
+    void shouldRejectTrackersWhoAreNotObservers() {
+
+        User tracker = userRepository.save(new User("Tracker", "pass", "dash-tracker-only@gmail.com"));
+
+        Family family = new Family("Tracker family");
+        family.addMembership(new FamilyMembership(tracker, family, Role.TRACKER));
+        Long familyId = familyRepository.save(family).getFamilyId();
+
+        assertThrows(UnauthorizedFamilyActionException.class,
+                () -> familyDashboardService.getFamilyDashboard(familyId, tracker.getUserId()));
+    }
+}
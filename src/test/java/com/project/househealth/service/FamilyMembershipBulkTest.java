@@ -0,0 +1,155 @@
+package com.project.househealth.service;
+
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.dto.BulkMembershipResult;
+import com.project.househealth.dto.MembershipResult;
+import com.project.househealth.dto.MembershipUpdate;
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.exception.UnauthorizedFamilyActionException;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.project.househealth.enums.MembershipOutcome.*;
+import static com.project.househealth.enums.Role.OBSERVER;
+import static com.project.househealth.enums.Role.TRACKER;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so each bulk call commits and flushes its batches as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FamilyMembershipServiceImpl.class, FamilyServiceImpl.class, UserServiceImpl.class,
+        MembershipAuthorizations.class})
+public class FamilyMembershipBulkTest {
+
+    @Autowired
+    private FamilyMembershipService familyMembershipService;
+
+    @Autowired
+    private FamilyService familyService;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user(String email) {
+        return userRepository.save(new User("Member", "pass", email));
+    }
+
+    private FamilyMembership membership(User user, Long familyId) {
+        return familyMembershipRepository
+                .findByUser_UserIdAndFamily_FamilyId(user.getUserId(), familyId).orElseThrow();
+    }
+
+    private void assertCounts(Long familyId, int members, int owners) {
+        Family family = familyRepository.findById(familyId).orElseThrow();
+        assertEquals(members, family.getMemberCount());
+        assertEquals(owners, family.getOwnerCount());
+    }
+
+    @Test
+    void shouldAddEveryNewUserAndReportTheRest() {
+
+        User owner = user("bulk-add-owner@gmail.com");
+        User existing = user("bulk-add-existing@gmail.com");
+        User first = user("bulk-add-first@gmail.com");
+        User second = user("bulk-add-second@gmail.com");
+        Long familyId = familyService.createFamily("Bulk add family", owner.getUserId()).getFamilyId();
+        familyMembershipService.addMember(familyId, existing.getUserId(), owner.getUserId());
+
+        BulkMembershipResult result = familyMembershipService.addMembers(familyId,
+                List.of(first.getUserId(), existing.getUserId(), second.getUserId(), -1L, first.getUserId()),
+                owner.getUserId());
+
+        assertEquals(List.of(new MembershipResult(first.getUserId(), ADDED),
+                new MembershipResult(existing.getUserId(), ALREADY_MEMBER),
+                new MembershipResult(second.getUserId(), ADDED),
+                new MembershipResult(-1L, USER_NOT_FOUND)), result.results());
+        assertEquals(2, result.changedCount());
+        assertEquals(2, result.skippedCount());
+
+        assertEquals(OBSERVER, membership(first, familyId).getRole());
+        assertEquals(OBSERVER, membership(second, familyId).getRole());
+        assertCounts(familyId, 4, 1);
+    }
+
+    @Test
+    void shouldRemoveOnlyMembersWhoAreNotOwners() {
+
+        User owner = user("bulk-remove-owner@gmail.com");
+        User coOwner = user("bulk-remove-co-owner@gmail.com");
+        User member = user("bulk-remove-member@gmail.com");
+        User outsider = user("bulk-remove-outsider@gmail.com");
+        Long familyId = familyService.createFamily("Bulk remove family", owner.getUserId()).getFamilyId();
+        familyMembershipService.addMembers(familyId, List.of(coOwner.getUserId(), member.getUserId()),
+                owner.getUserId());
+        familyMembershipService.addOwner(familyId, coOwner.getUserId(), owner.getUserId());
+
+        BulkMembershipResult result = familyMembershipService.removeMembers(familyId,
+                List.of(member.getUserId(), owner.getUserId(), coOwner.getUserId(), outsider.getUserId()),
+                owner.getUserId());
+
+        assertEquals(List.of(new MembershipResult(member.getUserId(), REMOVED),
+                new MembershipResult(owner.getUserId(), ACTING_USER),
+                new MembershipResult(coOwner.getUserId(), OWNER),
+                new MembershipResult(outsider.getUserId(), NOT_MEMBER)), result.results());
+
+        assertTrue(familyMembershipRepository
+                .findByUser_UserIdAndFamily_FamilyId(member.getUserId(), familyId).isEmpty());
+        assertCounts(familyId, 2, 2);
+    }
+
+    @Test
+    void shouldApplyEveryUpdateOfAMemberInOrder() {
+
+        User owner = user("bulk-update-owner@gmail.com");
+        User member = user("bulk-update-member@gmail.com");
+        User outsider = user("bulk-update-outsider@gmail.com");
+        Long familyId = familyService.createFamily("Bulk update family", owner.getUserId()).getFamilyId();
+        familyMembershipService.addMember(familyId, member.getUserId(), owner.getUserId());
+
+        BulkMembershipResult result = familyMembershipService.updateMembers(familyId, List.of(
+                new MembershipUpdate(member.getUserId(), TRACKER, null),
+                new MembershipUpdate(outsider.getUserId(), TRACKER, false),
+                new MembershipUpdate(member.getUserId(), null, false)), owner.getUserId());
+
+        assertEquals(List.of(new MembershipResult(member.getUserId(), UPDATED),
+                new MembershipResult(outsider.getUserId(), NOT_MEMBER)), result.results());
+
+        FamilyMembership updated = membership(member, familyId);
+        assertEquals(TRACKER, updated.getRole());
+        assertFalse(updated.getNotificationsEnabled());
+    }
+
+    @Test
+    void shouldRejectABulkCallFromAMemberWhoIsNotAnOwner() {
+
+        User owner = user("bulk-reject-owner@gmail.com");
+        User member = user("bulk-reject-member@gmail.com");
+        User target = user("bulk-reject-target@gmail.com");
+        Long familyId = familyService.createFamily("Bulk reject family", owner.getUserId()).getFamilyId();
+        familyMembershipService.addMember(familyId, member.getUserId(), owner.getUserId());
+
+        assertThrows(UnauthorizedFamilyActionException.class, () -> familyMembershipService
+                .addMembers(familyId, List.of(target.getUserId()), member.getUserId()));
+        assertThrows(UnauthorizedFamilyActionException.class, () -> familyMembershipService
+                .removeMembers(familyId, List.of(owner.getUserId()), member.getUserId()));
+
+        assertCounts(familyId, 2, 1);
+    }
+}
@@ -1,21 +1,27 @@
 package com.project.househealth.service;
 
+import com.project.househealth.authorization.MembershipAuthorizations;
 import com.project.househealth.entity.Family;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
 import com.project.househealth.enums.Role;
 import com.project.househealth.exception.AlreadyMemberException;
+import com.project.househealth.exception.FamilyNotFoundException;
 import com.project.househealth.exception.IllegalOperationException;
 import com.project.househealth.exception.MembershipNotFoundException;
 import com.project.househealth.exception.UnauthorizedFamilyActionException;
 import com.project.househealth.repositories.FamilyMembershipRepository;
 import com.project.househealth.repositories.FamilyRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,9 +42,35 @@ public class FamilyMembershipServiceImplTest {
     @Mock
     private FamilyMembershipRepository familyMembershipRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
     private FamilyMembershipServiceImpl familyMembershipServiceImpl;
 
+    // A real cache over the mocked repository, so every check still reaches the stubs on a miss
+    @BeforeEach
+    void setUp() {
+        familyMembershipServiceImpl = new FamilyMembershipServiceImpl(userService, familyService, familyRepository,
+                familyMembershipRepository,
+                new MembershipAuthorizations(familyMembershipRepository, 100, Duration.ofSeconds(30)),
+                eventPublisher, entityManager);
+    }
+
+    // Members besides the ones a test looks up, so the family's counters match the scenario
+    private static void addOtherMembers(Family family, int members, boolean owners) {
+        for (int i = 0; i < members; i++) {
+            FamilyMembership other = new FamilyMembership(
+                    new User("Other", "pass", "other" + i + "@gmail.com"), family, Role.OBSERVER);
+            if (owners) {
+                other.makeOwner();
+            }
+            family.addMembership(other);
+        }
+    }
+
     // Testing getFamilyMembershipById()
 
     @Test
@@ -52,7 +84,7 @@ public class FamilyMembershipServiceImplTest {
         FamilyMembership membership =
                 new FamilyMembership(user, family, Role.BOTH);
 
-        when(familyMembershipRepository.findById(membershipId))
+        when(familyMembershipRepository.findWithUserAndFamilyByFamilyMembershipId(membershipId))
                 .thenReturn(Optional.of(membership));
 
         FamilyMembership result =
@@ -68,7 +100,7 @@ public class FamilyMembershipServiceImplTest {
 
         Long membershipId = 1L;
 
-        when(familyMembershipRepository.findById(membershipId))
+        when(familyMembershipRepository.findWithUserAndFamilyByFamilyMembershipId(membershipId))
                 .thenReturn(Optional.empty());
 
         assertThrows(MembershipNotFoundException.class, () -> {
@@ -83,7 +115,7 @@ public class FamilyMembershipServiceImplTest {
         Long userId = 10L;
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
                 .thenReturn(Optional.empty());
 
         assertThrows(MembershipNotFoundException.class, () -> {
@@ -103,14 +135,10 @@ public class FamilyMembershipServiceImplTest {
         FamilyMembership familyMembership = new FamilyMembership(user, family, Role.BOTH);
         familyMembership.makeOwner();
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(1L);
-
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(1L);
+        family.addMembership(familyMembership);
 
         familyMembershipServiceImpl.leaveFamily(familyId, userId);
 
@@ -131,14 +159,11 @@ public class FamilyMembershipServiceImplTest {
 
         familyMembership.makeOwner();
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(userID, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(userID, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(2L);
-
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(1L);
+        family.addMembership(familyMembership);
+        addOtherMembers(family, 1, false);
 
         assertThrows(UnauthorizedFamilyActionException.class, () ->{
             familyMembershipServiceImpl.leaveFamily(familyId, userID);
@@ -161,14 +186,12 @@ public class FamilyMembershipServiceImplTest {
 
         familyMembership.makeOwner();
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(userID, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(userID, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(6L);
-
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(2L);
+        family.addMembership(familyMembership);
+        addOtherMembers(family, 1, true);
+        addOtherMembers(family, 4, false);
 
         familyMembershipServiceImpl.leaveFamily(familyId, userID);
 
@@ -187,14 +210,14 @@ public class FamilyMembershipServiceImplTest {
 
         FamilyMembership familyMembership = new FamilyMembership(user, family, Role.BOTH);
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(userID, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(userID, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
         when(familyService.getFamilyById(familyId))
                 .thenReturn(family);
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(6L);
+        family.addMembership(familyMembership);
+        addOtherMembers(family, 5, false);
 
         familyMembershipServiceImpl.leaveFamily(familyId, userID);
 
@@ -214,9 +237,12 @@ public class FamilyMembershipServiceImplTest {
         User actingUser = new User("actingUserId", "pass", "actingUserId@gmail.com");
         Family family = new Family("Test family");
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.empty());
 
+        when(familyRepository.existsById(familyId))
+                .thenReturn(true);
+
         assertThrows(MembershipNotFoundException.class, () ->{
             familyMembershipServiceImpl.addMember(familyId, targetUserId, actingUserId);
         });
@@ -224,6 +250,26 @@ public class FamilyMembershipServiceImplTest {
         verify(familyMembershipRepository, never()).save(any());
     }
 
+    @Test
+    void shouldThrowFamilyNotFoundWhenAddingToAMissingFamily(){
+
+        Long actingUserId = 3L;
+        Long familyId = 2L;
+        Long targetUserId = 5L;
+
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .thenReturn(Optional.empty());
+
+        when(familyRepository.existsById(familyId))
+                .thenReturn(false);
+
+        assertThrows(FamilyNotFoundException.class, () ->{
+            familyMembershipServiceImpl.addMember(familyId, targetUserId, actingUserId);
+        });
+
+        verify(familyMembershipRepository, never()).save(any());
+    }
+
     @Test
     void shouldThrowWhenActingUserIsNotOwner(){
 
@@ -236,7 +282,7 @@ public class FamilyMembershipServiceImplTest {
 
         FamilyMembership familyMembership = new FamilyMembership(actingUser, family, Role.BOTH);
 
-        when(familyMembershipRepository.findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+        when(familyMembershipRepository.findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
         assertThrows(UnauthorizedFamilyActionException.class, () -> {
@@ -264,7 +310,7 @@ public class FamilyMembershipServiceImplTest {
         ownerMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(ownerMembership));
 
         when(familyMembershipRepository
@@ -293,7 +339,7 @@ public class FamilyMembershipServiceImplTest {
         ownerMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(ownerMembership));
 
         when(familyService.getFamilyById(familyId))
@@ -309,6 +355,7 @@ public class FamilyMembershipServiceImplTest {
         familyMembershipServiceImpl.addMember(familyId, targetUserId, actingUserId);
 
         verify(familyMembershipRepository).save(any(FamilyMembership.class));
+        assertEquals(1, family.getMemberCount());
     }
 
     // Testing removeMember()
@@ -319,15 +366,12 @@ public class FamilyMembershipServiceImplTest {
         Long familyId = 2L;
         Long actingUserId = 5L;
 
-        Family family = new Family("Test family");
-
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.empty());
 
-        when(familyService.getFamilyById(familyId))
-                .thenReturn(family);
-
+        when(familyRepository.existsById(familyId))
+                .thenReturn(true);
 
         assertThrows(MembershipNotFoundException.class, () -> {
             familyMembershipServiceImpl.removeMember(familyId, targetUserId, actingUserId);
@@ -348,11 +392,8 @@ public class FamilyMembershipServiceImplTest {
 
         FamilyMembership membership = new FamilyMembership(actingUser, family, Role.BOTH);
 
-        when(familyService.getFamilyById(familyId))
-                .thenReturn(family);
-
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(membership));
 
         assertThrows(UnauthorizedFamilyActionException.class, () -> {
@@ -379,11 +420,11 @@ public class FamilyMembershipServiceImplTest {
                 .thenReturn(family);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(membership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.empty());
 
         assertThrows(MembershipNotFoundException.class, () -> {
@@ -411,11 +452,11 @@ public class FamilyMembershipServiceImplTest {
                 .thenReturn(family);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         assertThrows(IllegalOperationException.class, () -> {
@@ -446,11 +487,11 @@ public class FamilyMembershipServiceImplTest {
                 .thenReturn(family);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
         assertThrows(IllegalOperationException.class, () -> {
@@ -480,15 +521,15 @@ public class FamilyMembershipServiceImplTest {
                 .thenReturn(family);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(1L);
+        family.addMembership(actingMembership);
+        family.addMembership(targetMembership);
 
         familyMembershipServiceImpl.removeMember(familyId, targetUserId, actingUserId);
 
@@ -515,15 +556,14 @@ public class FamilyMembershipServiceImplTest {
                 .thenReturn(family);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyId(familyId))
-                .thenReturn(0L);
+        family.addMembership(targetMembership);
 
         familyMembershipServiceImpl.removeMember(familyId, targetUserId, actingUserId);
 
@@ -540,15 +580,18 @@ public class FamilyMembershipServiceImplTest {
         Long actingUserId = 5L;
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.empty());
 
+        when(familyRepository.existsById(familyId))
+                .thenReturn(true);
+
         assertThrows(MembershipNotFoundException.class, () -> {
             familyMembershipServiceImpl.addOwner(familyId, targetUserId, actingUserId);
         });
 
         verify(familyMembershipRepository, never())
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
     }
 
     @Test
@@ -562,7 +605,7 @@ public class FamilyMembershipServiceImplTest {
         FamilyMembership actingMembership = new FamilyMembership(actingUser, family, Role.BOTH);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         assertThrows(UnauthorizedFamilyActionException.class, () -> {
@@ -570,7 +613,7 @@ public class FamilyMembershipServiceImplTest {
         });
 
         verify(familyMembershipRepository, never())
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
     }
 
     @Test
@@ -586,11 +629,11 @@ public class FamilyMembershipServiceImplTest {
 
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.empty());
 
         assertThrows(MembershipNotFoundException.class, () -> {
@@ -598,7 +641,7 @@ public class FamilyMembershipServiceImplTest {
         });
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         verifyNoMoreInteractions(familyMembershipRepository);
     }
@@ -621,11 +664,11 @@ public class FamilyMembershipServiceImplTest {
         targetMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
         assertThrows(IllegalOperationException.class, () -> {
@@ -633,7 +676,7 @@ public class FamilyMembershipServiceImplTest {
         });
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         verifyNoMoreInteractions(familyMembershipRepository);
     }
@@ -655,22 +698,23 @@ public class FamilyMembershipServiceImplTest {
         actingMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
         familyMembershipServiceImpl.addOwner(familyId, targetUserId, actingUserId);
 
         assertTrue(targetMembership.isOwner());
+        assertEquals(1, family.getOwnerCount());
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId);
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
     }
 
     // Testing transferOwnership()
@@ -682,7 +726,7 @@ public class FamilyMembershipServiceImplTest {
         Long actingUserId = 5L;
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.empty());
 
         assertThrows(MembershipNotFoundException.class, () -> {
@@ -690,7 +734,7 @@ public class FamilyMembershipServiceImplTest {
         });
 
         verify(familyMembershipRepository, never())
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         verifyNoMoreInteractions(familyMembershipRepository);
     }
@@ -708,7 +752,7 @@ public class FamilyMembershipServiceImplTest {
         FamilyMembership actingMembership = new FamilyMembership(actingUser, family, Role.BOTH);
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         assertThrows(UnauthorizedFamilyActionException.class, () -> {
@@ -716,7 +760,7 @@ public class FamilyMembershipServiceImplTest {
         });
 
         verify(familyMembershipRepository, never())
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         verifyNoMoreInteractions(familyMembershipRepository);
     }
@@ -735,18 +779,18 @@ public class FamilyMembershipServiceImplTest {
         actingMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(2L);
+        family.addMembership(actingMembership);
+        addOtherMembers(family, 1, true);
 
         assertThrows(IllegalOperationException.class, () -> {
             familyMembershipServiceImpl.transferOwnership(familyId, targetUserId, actingUserId);
         });
 
         verify(familyMembershipRepository, never())
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         verifyNoMoreInteractions(familyMembershipRepository);
     }
@@ -765,22 +809,21 @@ public class FamilyMembershipServiceImplTest {
         actingMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.empty());
 
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(1L);
+        family.addMembership(actingMembership);
 
         assertThrows(MembershipNotFoundException.class, () -> {
             familyMembershipServiceImpl.transferOwnership(familyId, targetUserId, actingUserId);
         });
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         assertTrue(actingMembership.isOwner());
     }
@@ -803,22 +846,21 @@ public class FamilyMembershipServiceImplTest {
         targetMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(1L);
+        family.addMembership(actingMembership);
 
         assertThrows(IllegalOperationException.class, () -> {
             familyMembershipServiceImpl.transferOwnership(familyId, targetUserId, actingUserId);
         });
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         assertTrue(actingMembership.isOwner());
         assertTrue(targetMembership.isOwner());
@@ -841,23 +883,24 @@ public class FamilyMembershipServiceImplTest {
         actingMembership.makeOwner();
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(actingUserId, familyId))
                 .thenReturn(Optional.of(actingMembership));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId))
                 .thenReturn(Optional.of(targetMembership));
 
-        when(familyMembershipRepository.countByFamily_FamilyIdAndOwnerTrue(familyId))
-                .thenReturn(1L);
-
+        family.addMembership(actingMembership);
+        family.addMembership(targetMembership);
 
         familyMembershipServiceImpl.transferOwnership(familyId, targetUserId, actingUserId);
 
         verify(familyMembershipRepository)
-                .findByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(targetUserId, familyId);
 
         assertFalse(actingMembership.isOwner());
         assertTrue(targetMembership.isOwner());
+        assertEquals(1, family.getOwnerCount());
+        verify(entityManager).lock(family, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
     }
 }
@@ -1,4 +1,5 @@
 package com.project.househealth.service;
+import com.project.househealth.authorization.MembershipAuthorizations;
 import com.project.househealth.entity.Family;
 import com.project.househealth.entity.FamilyMembership;
 import com.project.househealth.entity.User;
@@ -8,13 +9,15 @@ import com.project.househealth.exception.FamilyNotFoundException;
 import com.project.househealth.exception.UnauthorizedFamilyActionException;
 import com.project.househealth.repositories.FamilyMembershipRepository;
 import com.project.househealth.repositories.FamilyRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import static org.mockito.ArgumentMatchers.any;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,9 +37,18 @@ public class FamilyServiceImplTest {
     @Mock
     private FamilyMembershipRepository familyMembershipRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private FamilyServiceImpl familyService;
 
+    // A real cache over the mocked repository, so every check still reaches the stubs on a miss
+    @BeforeEach
+    void setUp() {
+        familyService = new FamilyServiceImpl(userService, familyRepository,
+                new MembershipAuthorizations(familyMembershipRepository, 100, Duration.ofSeconds(30)), eventPublisher);
+    }
+
     @Test
     void shouldReturnFamilyWhenFamilyExists(){
 
@@ -128,15 +140,37 @@ public class FamilyServiceImplTest {
         Family family = new Family("Test Family");
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
                 .thenReturn(Optional.empty());
 
+        when(familyRepository.existsById(familyId))
+                .thenReturn(true);
+
         assertThrows(UnauthorizedFamilyActionException.class, () ->
         {
             familyService.renameFamily(familyId, "newName", userId);
         });
     }
 
+    @Test
+    void shouldThrowFamilyNotFoundWhenRenamingAMissingFamily(){
+
+        Long familyId = 1L;
+        Long userId = 10L;
+
+        when(familyMembershipRepository
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .thenReturn(Optional.empty());
+
+        when(familyRepository.existsById(familyId))
+                .thenReturn(false);
+
+        assertThrows(FamilyNotFoundException.class, () ->
+        {
+            familyService.renameFamily(familyId, "newName", userId);
+        });
+    }
+
     @Test
     void shouldThrowExceptionWhenUserIsMemberButNotOwner(){
 
@@ -148,11 +182,8 @@ public class FamilyServiceImplTest {
 
         FamilyMembership familyMembership = new FamilyMembership(user, family, Role.BOTH);
 
-        when(familyRepository.findById(familyId))
-                .thenReturn(Optional.of(family));
-
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
         assertThrows(UnauthorizedFamilyActionException.class, () ->
@@ -175,7 +206,7 @@ public class FamilyServiceImplTest {
                 .thenReturn(Optional.of(family));
 
         when(familyMembershipRepository
-                .findByUser_UserIdAndFamily_FamilyId(userId, familyId))
+                .findWithFamilyByUser_UserIdAndFamily_FamilyId(userId, familyId))
                 .thenReturn(Optional.of(familyMembership));
 
         familyMembership.makeOwner();
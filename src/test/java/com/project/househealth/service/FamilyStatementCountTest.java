@@ -0,0 +1,218 @@
+package com.project.househealth.service;
+
+import com.project.househealth.authorization.MembershipAuthorizations;
+import com.project.househealth.config.PersistenceConfig;
+import com.project.househealth.dto.MembershipUpdate;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.User;
+import com.project.househealth.repositories.FamilyMembershipRepository;
+import com.project.househealth.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.project.househealth.enums.Role.TRACKER;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL statements each family service call issues, and how many users it
+ * loads along the way. Permission checks read family_memberships alone;
+ * only calls that need a user load it. A JDBC batch counts once, and
+ * pooled sequence calls are left out since they depend on what ran before.
+ */
+// Not transactional, so every call runs and flushes in its own transaction as in production
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.project.househealth.service.FamilyStatementCountTest$SequenceCalls",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FamilyMembershipServiceImpl.class, FamilyServiceImpl.class, UserServiceImpl.class,
+        MembershipAuthorizations.class, PersistenceConfig.class})
+public class FamilyStatementCountTest {
+
+    @Autowired
+    private FamilyMembershipService familyMembershipService;
+
+    @Autowired
+    private FamilyService familyService;
+
+    @Autowired
+    private FamilyMembershipRepository familyMembershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private record Cost(long statements, long userLoads) {}
+
+    public static class SequenceCalls implements StatementInspector {
+
+        static final AtomicLong count = new AtomicLong();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains("next value for")) {
+                count.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Cost cost(Runnable call) {
+        statistics.clear();
+        long sequenceCalls = SequenceCalls.count.get();
+        call.run();
+        return new Cost(statistics.getPrepareStatementCount() - (SequenceCalls.count.get() - sequenceCalls),
+                statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+    }
+
+    private User user(String email) {
+        return userRepository.save(new User("Member", "pass", email));
+    }
+
+    // A family of an owner and one observer
+    private record Members(Long familyId, User owner, User member) {}
+
+    private Members family(String name) {
+        User owner = user(name + "-owner@gmail.com");
+        User member = user(name + "-member@gmail.com");
+        Long familyId = familyService.createFamily(name, owner.getUserId()).getFamilyId();
+        familyMembershipService.addMember(familyId, member.getUserId(), owner.getUserId());
+        return new Members(familyId, owner, member);
+    }
+
+    @Test
+    void createFamily() {
+        User creator = user("count-create@gmail.com");
+
+        // creator, family insert, membership insert
+        assertEquals(new Cost(3, 1), cost(() -> familyService.createFamily("Count create", creator.getUserId())));
+    }
+
+    @Test
+    void renameFamily() {
+        Members members = family("count-rename");
+
+        // acting membership joined with its family, family update
+        assertEquals(new Cost(2, 0), cost(() -> familyService.renameFamily(members.familyId(), "Renamed",
+                members.owner().getUserId())));
+    }
+
+    @Test
+    void getFamilyMembershipById() {
+        Members members = family("count-get");
+        Long membershipId = familyMembershipRepository
+                .findByUser_UserIdAndFamily_FamilyId(members.member().getUserId(), members.familyId())
+                .orElseThrow().getFamilyMembershipId();
+
+        // One select joining the user and family, so both can be read after the call
+        FamilyMembership[] loaded = new FamilyMembership[1];
+        assertEquals(new Cost(1, 1), cost(() ->
+                loaded[0] = familyMembershipService.getFamilyMembershipById(membershipId)));
+        assertEquals(members.member().getEmail(), loaded[0].getUser().getEmail());
+        assertEquals("count-get", loaded[0].getFamily().getFamilyName());
+    }
+
+    @Test
+    void addMember() {
+        Members members = family("count-add");
+        User target = user("count-add-target@gmail.com");
+
+        // acting membership joined with its family, target membership, target user, membership insert, family update
+        assertEquals(new Cost(5, 1), cost(() -> familyMembershipService.addMember(members.familyId(),
+                target.getUserId(), members.owner().getUserId())));
+    }
+
+    @Test
+    void removeMember() {
+        Members members = family("count-remove");
+
+        // acting membership joined with its family, target membership, membership delete, family update
+        assertEquals(new Cost(4, 0), cost(() -> familyMembershipService.removeMember(members.familyId(),
+                members.member().getUserId(), members.owner().getUserId())));
+    }
+
+    @Test
+    void leaveFamily() {
+        Members members = family("count-leave");
+
+        // membership joined with its family, membership delete, family update
+        assertEquals(new Cost(3, 0), cost(() -> familyMembershipService.leaveFamily(members.familyId(),
+                members.member().getUserId())));
+    }
+
+    @Test
+    void addOwner() {
+        Members members = family("count-add-owner");
+
+        // both memberships joined with their family, membership update, family update
+        assertEquals(new Cost(4, 0), cost(() -> familyMembershipService.addOwner(members.familyId(),
+                members.member().getUserId(), members.owner().getUserId())));
+    }
+
+    @Test
+    void transferOwnership() {
+        Members members = family("count-transfer");
+
+        // both memberships joined with their family, one batch of two membership updates, family version update
+        assertEquals(new Cost(4, 0), cost(() -> familyMembershipService.transferOwnership(members.familyId(),
+                members.member().getUserId(), members.owner().getUserId())));
+    }
+
+    @Test
+    void addMembers() {
+        Members members = family("count-add-many");
+        List<Long> targets = List.of(user("count-add-many-1@gmail.com").getUserId(),
+                user("count-add-many-2@gmail.com").getUserId(), user("count-add-many-3@gmail.com").getUserId());
+
+        // acting membership joined with its family, target memberships, target users, one insert batch,
+        // family update
+        assertEquals(new Cost(5, 3), cost(() -> familyMembershipService.addMembers(members.familyId(),
+                targets, members.owner().getUserId())));
+    }
+
+    @Test
+    void removeMembers() {
+        Members members = family("count-remove-many");
+        familyMembershipService.addMembers(members.familyId(), List.of(
+                user("count-remove-many-1@gmail.com").getUserId(),
+                user("count-remove-many-2@gmail.com").getUserId()), members.owner().getUserId());
+        List<Long> targets = familyMembershipRepository.findMemberUserIds(members.familyId()).stream()
+                .filter(id -> !id.equals(members.owner().getUserId())).toList();
+
+        // acting membership joined with its family, target memberships, one delete batch, family update
+        assertEquals(new Cost(4, 0), cost(() -> familyMembershipService.removeMembers(members.familyId(),
+                targets, members.owner().getUserId())));
+    }
+
+    @Test
+    void updateMembers() {
+        Members members = family("count-update-many");
+
+        // acting membership joined with its family, target memberships, one update batch
+        assertEquals(new Cost(3, 0), cost(() -> familyMembershipService.updateMembers(members.familyId(),
+                List.of(new MembershipUpdate(members.member().getUserId(), TRACKER, false)),
+                members.owner().getUserId())));
+    }
+}
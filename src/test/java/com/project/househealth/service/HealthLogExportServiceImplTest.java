@@ -0,0 +1,151 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.entity.Family;
+import com.project.househealth.entity.FamilyMembership;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.PackedReading;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.ExportFormat;
+import com.project.househealth.enums.Role;
+import com.project.househealth.exception.FamilyNotFoundException;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.FamilyRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({HealthLogExportServiceImpl.class, HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogExportServiceImplTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("househealth.archive.dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private HealthLogExportService healthLogExportService;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FamilyRepository familyRepository;
+
+    @Autowired
+    private HealthLogArchive healthLogArchive;
+
+    private User userWithReadings(String name, int readings) {
+        User user = userRepository.save(new User(name, "pass", name + "@gmail.com"));
+        List<HealthLog> healthLogs = new ArrayList<>();
+        for (int i = 0; i < readings; i++) {
+            HealthLog bp = new HealthLog(BP, user);
+            bp.setSystolic(120);
+            bp.setDiastolic(80);
+            healthLogs.add(bp);
+        }
+        HealthLog sugar = new HealthLog(SUGAR, user);
+        sugar.setSugarType(FASTING);
+        sugar.setSugarValue(62);
+        healthLogs.add(sugar);
+        healthLogService.createHealthLogs(healthLogs);
+        return user;
+    }
+
+    private static List<String> lines(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    void shouldExportUserHistoryAsCsv() throws Exception {
+
+        User user = userWithReadings("csv", 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = healthLogExportService.exportUserHealthLogs(user.getUserId(), ExportFormat.CSV, out);
+
+        List<String> lines = lines(out);
+        assertEquals(4, rows);
+        assertEquals(5, lines.size());
+        assertEquals("log_id,user_id,metric_type,sugar_type,systolic,diastolic,sugar_value,measured_at,logged_at", lines.get(0));
+        assertTrue(lines.get(1).contains("," + user.getUserId() + ",BP,,120,80,,"));
+        assertTrue(lines.get(4).contains(",SUGAR,FASTING,,,62,"));
+    }
+
+    @Test
+    void shouldExportEveryFamilyMemberAsNdjson() throws Exception {
+
+        User first = userWithReadings("first", 2);
+        User second = userWithReadings("second", 1);
+
+        Family family = new Family("Export family");
+        family.addMembership(new FamilyMembership(first, family, Role.BOTH));
+        family.addMembership(new FamilyMembership(second, family, Role.TRACKER));
+        family = familyRepository.save(family);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = healthLogExportService.exportFamilyHealthLogs(family.getFamilyId(), ExportFormat.NDJSON, out);
+
+        List<String> lines = lines(out);
+        assertEquals(5, rows);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"logId\":"));
+        assertTrue(lines.get(0).contains("\"userId\":" + first.getUserId()));
+        assertTrue(lines.get(4).contains("\"userId\":" + second.getUserId()));
+        assertTrue(lines.get(4).contains("\"sugarType\":\"FASTING\""));
+    }
+
+    @Test
+    void shouldMergeArchivedMonthsAheadOfTheTable() throws Exception {
+
+        User user = userWithReadings("archived", 1);
+        Instant march = Instant.parse("2022-03-10T08:00:00Z");
+        Instant january = Instant.parse("2022-01-10T08:00:00Z");
+        healthLogArchive.write(user.getUserId(), YearMonth.of(2022, 3), List.of(HealthLog.archived(-2L, BP, null,
+                PackedReading.bloodPressure(131, 81), march, march, null, user)));
+        healthLogArchive.write(user.getUserId(), YearMonth.of(2022, 1), List.of(HealthLog.archived(-1L, BP, null,
+                PackedReading.bloodPressure(130, 80), january, january, null, user)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = healthLogExportService.exportUserHealthLogs(user.getUserId(), ExportFormat.CSV, out);
+
+        List<String> lines = lines(out);
+        assertEquals(4, rows);
+        assertTrue(lines.get(1).startsWith("-1," + user.getUserId() + ",BP,,130,80,,"));
+        assertTrue(lines.get(2).startsWith("-2," + user.getUserId() + ",BP,,131,81,,"));
+        assertTrue(lines.get(3).contains(",BP,,120,80,,"));
+    }
+
+    @Test
+    void shouldThrowWhenFamilyDoesNotExist() {
+        assertThrows(FamilyNotFoundException.class,
+                () -> healthLogExportService.exportFamilyHealthLogs(999L, ExportFormat.CSV, new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.HealthLogPage;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogHistoryPagingTest {
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User userWithReadings(int bpReadings, int sugarReadings) {
+        User user = userRepository.save(new User("Pager", "pass", "pager@gmail.com"));
+
+        List<HealthLog> readings = new ArrayList<>();
+        for (int i = 0; i < bpReadings; i++) {
+            HealthLog bp = new HealthLog(BP, user);
+            bp.setSystolic(120);
+            bp.setDiastolic(80);
+            readings.add(bp);
+        }
+        for (int i = 0; i < sugarReadings; i++) {
+            HealthLog sugar = new HealthLog(SUGAR, user);
+            sugar.setSugarType(FASTING);
+            sugar.setSugarValue(90);
+            readings.add(sugar);
+        }
+        healthLogService.createHealthLogs(readings);
+        return user;
+    }
+
+    @Test
+    void shouldWalkTheWholeHistoryWithoutGapsOrDuplicates() {
+
+        User user = userWithReadings(25, 7);
+
+        Set<Long> seen = new HashSet<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        HealthLog previous = null;
+
+        HealthLogPage page = healthLogService.getHealthHistory(user.getUserId(), BP, null, 10);
+        while (true) {
+            pageSizes.add(page.items().size());
+            for (HealthLog healthLog : page.items()) {
+                assertEquals(BP, healthLog.getMetricType());
+                assertTrue(seen.add(healthLog.getLogId()));
+                if (previous != null) {
+                    boolean descending = healthLog.getMeasuredAt().isBefore(previous.getMeasuredAt())
+                            || (healthLog.getMeasuredAt().equals(previous.getMeasuredAt())
+                                && healthLog.getLogId() < previous.getLogId());
+                    assertTrue(descending);
+                }
+                previous = healthLog;
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = healthLogService.getHealthHistory(user.getUserId(), BP, page.next(), 10);
+        }
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(25, seen.size());
+    }
+
+    @Test
+    void shouldReturnSinglePageWithoutCursorWhenHistoryFits() {
+
+        User user = userWithReadings(3, 2);
+
+        HealthLogPage page = healthLogService.getHealthHistory(user.getUserId(), SUGAR, null, 10);
+
+        assertEquals(2, page.items().size());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    void shouldRejectOutOfRangePageSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> healthLogService.getHealthHistory(1L, BP, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> healthLogService.getHealthHistory(1L, BP, null, HealthLogServiceImpl.MAX_HISTORY_PAGE_SIZE + 1));
+    }
+}
@@ -0,0 +1,87 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so a rejected duplicate insert rolls back on its own as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class, RecentReadingKeyFilter.class,
+        ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogIdempotencyTest {
+
+    private static final Instant MEASURED_AT = Instant.parse("2024-03-01T08:00:00Z");
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private HealthLog bp(User user, String readingKey) {
+        HealthLog healthLog = new HealthLog(BP, user);
+        healthLog.setSystolic(120);
+        healthLog.setDiastolic(80);
+        healthLog.setReadingKey(readingKey);
+        healthLog.setMeasuredAt(MEASURED_AT);
+        return healthLog;
+    }
+
+    private long countFor(User user) {
+        return healthLogRepository.findAll().stream()
+                .filter(h -> h.getUser().getUserId().equals(user.getUserId()))
+                .count();
+    }
+
+    @Test
+    void shouldReturnTheOriginalLogWhenAReadingIsRetried() {
+
+        User user = userRepository.save(new User("Retry", "pass", "idem-retry@gmail.com"));
+
+        HealthLog original = healthLogService.createHealthLog(bp(user, "phone-1"));
+        HealthLog retried = healthLogService.createHealthLog(bp(user, "phone-1"));
+
+        assertEquals(original.getLogId(), retried.getLogId());
+        assertEquals(1, countFor(user));
+    }
+
+    @Test
+    void shouldFallBackToTheUniqueIndexForKeysTheFilterHasNotSeen() {
+
+        User user = userRepository.save(new User("Restart", "pass", "idem-restart@gmail.com"));
+
+        // Stored behind the filter's back, as after a restart outside its window
+        HealthLog stored = healthLogRepository.save(bp(user, "phone-2"));
+        HealthLog storedInBatch = healthLogRepository.save(bp(user, "phone-3"));
+
+        HealthLog retried = healthLogService.createHealthLog(bp(user, "phone-2"));
+        BulkIngestionResult result = healthLogService.createHealthLogs(
+                List.of(bp(user, "phone-4"), bp(user, "phone-3")));
+
+        assertEquals(stored.getLogId(), retried.getLogId());
+        assertFalse(result.hasFailures());
+        assertEquals(storedInBatch.getLogId(), result.created().get(1).getLogId());
+        assertEquals(3, countFor(user));
+    }
+}
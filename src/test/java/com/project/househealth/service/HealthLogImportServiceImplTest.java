@@ -0,0 +1,80 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.HealthLogPage;
+import com.project.househealth.dto.ImportProgress;
+import com.project.househealth.dto.ImportResult;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({HealthLogImportServiceImpl.class, HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogImportServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private HealthLogImportService healthLogImportService;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void shouldImportReadingsWithTheirOriginalTimestampsAndSkipThemOnReimport() throws Exception {
+
+        User user = userRepository.save(new User("Importer", "pass", "importer@gmail.com"));
+
+        Path file = dir.resolve("cuff.csv");
+        Files.writeString(file, """
+                measured_at,type,value1,value2
+                2023-11-02T08:00:00Z,BP,128,84
+                2023-11-03T08:00:00Z,BP,0,84
+                2023-11-03T08:05:00Z,FASTING,101
+                not-a-date,BP,120,80
+                """);
+
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportResult first = healthLogImportService.importDeviceCsv(user.getUserId(), file, progress::add);
+
+        assertEquals(4, first.rowsRead());
+        assertEquals(2, first.imported());
+        assertEquals(2, first.failed());
+        assertEquals(List.of(3, 5), first.failures().stream().map(f -> f.index()).toList());
+        assertEquals(Files.size(file), progress.get(progress.size() - 1).bytesRead());
+
+        HealthLogPage bp = healthLogService.getHealthHistory(user.getUserId(), BP, null, 10);
+        assertEquals(1, bp.items().size());
+        assertEquals(Instant.parse("2023-11-02T08:00:00Z"), bp.items().get(0).getMeasuredAt());
+
+        ImportResult again = healthLogImportService.importDeviceCsv(user.getUserId(), file, progress::add);
+
+        assertEquals(2, again.imported());
+        assertEquals(1, healthLogService.getHealthHistory(user.getUserId(), BP, null, 10).items().size());
+        assertEquals(1, healthLogService.getHealthHistory(user.getUserId(), SUGAR, null, 10).items().size());
+    }
+}
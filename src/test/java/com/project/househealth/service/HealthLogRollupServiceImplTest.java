@@ -0,0 +1,159 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.ReadingAggregate;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.HealthLogRollup;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.RollupPeriod;
+import com.project.househealth.enums.SugarType;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.HealthLogRollupRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogRollupServiceImplTest {
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRollupService healthLogRollupService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HealthLogRollupRepository healthLogRollupRepository;
+
+    private HealthLog sugar(User user, SugarType sugarType, int value) {
+        HealthLog healthLog = new HealthLog(SUGAR, user);
+        healthLog.setSugarType(sugarType);
+        healthLog.setSugarValue(value);
+        return healthLog;
+    }
+
+    @Test
+    void shouldAnswerRangeAggregatesFromRollups() {
+
+        User user = userRepository.save(new User("Roll", "pass", "roll@gmail.com"));
+
+        List<HealthLog> readings = new ArrayList<>();
+        for (int systolic : new int[]{110, 120, 130}) {
+            HealthLog bp = new HealthLog(BP, user);
+            bp.setSystolic(systolic);
+            bp.setDiastolic(systolic - 40);
+            readings.add(bp);
+        }
+        readings.add(sugar(user, FASTING, 90));
+        readings.add(sugar(user, FASTING, 110));
+        readings.add(sugar(user, POST_MEAL, 150));
+
+        healthLogService.createHealthLogs(readings);
+        healthLogService.createHealthLog(sugar(user, FASTING, 100));
+
+        Instant from = Instant.now().minus(7, ChronoUnit.DAYS);
+        Instant to = Instant.now().plus(1, ChronoUnit.DAYS);
+
+        ReadingAggregate bp = healthLogRollupService.aggregate(user.getUserId(), BP, null, RollupPeriod.DAY, from, to);
+        assertEquals(3, bp.readingCount());
+        assertEquals(110, bp.systolic().min());
+        assertEquals(130, bp.systolic().max());
+        assertEquals(120.0, bp.systolic().mean(), 1e-9);
+        assertEquals(Math.sqrt(200.0 / 3), bp.systolic().standardDeviation(), 1e-9);
+        assertEquals(80.0, bp.diastolic().mean(), 1e-9);
+        assertNull(bp.sugar());
+
+        ReadingAggregate fasting = healthLogRollupService.aggregate(user.getUserId(), SUGAR, FASTING, RollupPeriod.WEEK, from, to);
+        assertEquals(3, fasting.readingCount());
+        assertEquals(100.0, fasting.sugar().mean(), 1e-9);
+
+        ReadingAggregate allSugar = healthLogRollupService.aggregate(user.getUserId(), SUGAR, null, RollupPeriod.DAY, from, to);
+        assertEquals(4, allSugar.readingCount());
+        assertEquals(150, allSugar.sugar().max());
+
+        List<HealthLogRollup> fastingDays =
+                healthLogRollupService.getRollups(user.getUserId(), SUGAR, FASTING, RollupPeriod.DAY, from, to);
+        assertEquals(1, fastingDays.size());
+    }
+
+    @Test
+    void shouldFoldLateReadingsIntoTheBucketTheyWereMeasuredIn() {
+
+        User user = userRepository.save(new User("Late", "pass", "roll-late@gmail.com"));
+
+        Instant now = Instant.now();
+        Instant threeDaysAgo = now.minus(3, ChronoUnit.DAYS);
+
+        healthLogService.createHealthLog(sugar(user, FASTING, 100));
+
+        HealthLog late = sugar(user, FASTING, 80);
+        late.setMeasuredAt(threeDaysAgo);
+        HealthLog earlier = sugar(user, FASTING, 60);
+        earlier.setMeasuredAt(threeDaysAgo.minus(1, ChronoUnit.HOURS));
+        healthLogService.createHealthLogs(List.of(late, earlier));
+
+        List<HealthLogRollup> days = healthLogRollupService.getRollups(user.getUserId(), SUGAR, FASTING,
+                RollupPeriod.DAY, now.minus(7, ChronoUnit.DAYS), now.plus(1, ChronoUnit.DAYS));
+
+        HealthLogRollup today = days.get(days.size() - 1);
+        assertEquals(HealthLogRollupServiceImpl.bucketStart(RollupPeriod.DAY, now), today.getBucketStart());
+        assertEquals(1, today.getReadingCount());
+
+        long lateCount = days.stream().filter(d -> d != today).mapToLong(HealthLogRollup::getReadingCount).sum();
+        assertEquals(2, lateCount);
+    }
+
+    @Test
+    void shouldCreateABloodPressureBucketOnlyOnce() {
+
+        User user = userRepository.saveAndFlush(new User("Once", "pass", "roll-once@gmail.com"));
+        Instant day = HealthLogRollupServiceImpl.bucketStart(RollupPeriod.DAY, Instant.now());
+
+        // What a writer that lost the race to create the bucket runs
+        assertEquals(1, healthLogRollupRepository.createBucketIfAbsent(user, BP,
+                HealthLogRollup.NO_SUGAR_TYPE, RollupPeriod.DAY, day));
+        assertEquals(0, healthLogRollupRepository.createBucketIfAbsent(user, BP,
+                HealthLogRollup.NO_SUGAR_TYPE, RollupPeriod.DAY, day));
+
+        HealthLog bp = new HealthLog(BP, user);
+        bp.setSystolic(120);
+        bp.setDiastolic(80);
+        healthLogService.createHealthLog(bp);
+
+        List<HealthLogRollup> days = healthLogRollupService.getRollups(user.getUserId(), BP, null,
+                RollupPeriod.DAY, day, day.plus(1, ChronoUnit.DAYS));
+        assertEquals(1, days.size());
+        assertEquals(1, days.get(0).getReadingCount());
+        assertNull(days.get(0).getSugarType());
+    }
+
+    @Test
+    void shouldAlignWeekBucketsToMonday() {
+
+        Instant sunday = Instant.parse("2026-10-18T21:30:00Z");
+
+        assertEquals(Instant.parse("2026-10-18T00:00:00Z"),
+                HealthLogRollupServiceImpl.bucketStart(RollupPeriod.DAY, sunday));
+        assertEquals(Instant.parse("2026-10-12T00:00:00Z"),
+                HealthLogRollupServiceImpl.bucketStart(RollupPeriod.WEEK, sunday));
+    }
+}
@@ -0,0 +1,154 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.ReadingColumns;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.HealthLogRepository;
+import com.project.househealth.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.POST_MEAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class HealthLogScanTest {
+
+    private static final Instant START = Instant.parse("2024-03-01T00:00:00Z");
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private HealthLogRepository healthLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User userWithReadings() {
+        User user = userRepository.save(new User("Scanner", "pass", "scanner@gmail.com"));
+
+        List<HealthLog> readings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            HealthLog bp = new HealthLog(BP, user);
+            bp.setSystolic(120 + i);
+            bp.setDiastolic(80 - i);
+            bp.setMeasuredAt(START.plusSeconds(3600L * (4 - i)));
+            readings.add(bp);
+        }
+        HealthLog sugar = new HealthLog(SUGAR, user);
+        sugar.setSugarType(POST_MEAL);
+        sugar.setSugarValue(140);
+        sugar.setMeasuredAt(START.plusSeconds(60));
+        readings.add(sugar);
+
+        healthLogService.createHealthLogs(readings);
+        return user;
+    }
+
+    @Test
+    void shouldScanAMetricInMeasurementOrderIntoColumns() {
+
+        User user = userWithReadings();
+
+        List<String> rows = new ArrayList<>();
+        long scanned = healthLogService.scanReadings(user.getUserId(), BP, START.plusSeconds(3600), START.plusSeconds(4 * 3600),
+                block -> {
+                    for (int i = 0; i < block.size(); i++) {
+                        assertEquals(BP, block.metricType(i));
+                        assertNull(block.sugarType(i));
+                        rows.add(Instant.ofEpochMilli(block.measuredAtMillis(i)) + " "
+                                + block.systolic(i) + "/" + block.diastolic(i));
+                    }
+                });
+
+        assertEquals(3, scanned);
+        assertEquals(List.of("2024-03-01T01:00:00Z 123/77", "2024-03-01T02:00:00Z 122/78",
+                "2024-03-01T03:00:00Z 121/79"), rows);
+    }
+
+    @Test
+    void shouldHandTheBlockOverEachTimeItFills() {
+
+        User user = userWithReadings();
+
+        List<Integer> blockSizes = new ArrayList<>();
+        List<Integer> sugarValues = new ArrayList<>();
+        healthLogRepository.scanReadings(user.getUserId(), BP, START, START.plusSeconds(86400),
+                new ReadingColumns(2), block -> blockSizes.add(block.size()));
+        healthLogRepository.scanReadings(user.getUserId(), SUGAR, START, START.plusSeconds(86400),
+                new ReadingColumns(2), block -> {
+                    assertEquals(POST_MEAL, block.sugarType(0));
+                    sugarValues.add(block.sugarValue(0));
+                });
+
+        assertEquals(List.of(2, 2, 1), blockSizes);
+        assertEquals(List.of(140), sugarValues);
+    }
+
+    @Test
+    void shouldStorePackedValuesThatSurviveAReload() {
+
+        User user = userWithReadings();
+        entityManager.clear();
+
+        HealthLog sugar = healthLogService.getHealthHistory(user.getUserId(), SUGAR, null, 1).items().get(0);
+        HealthLog bp = healthLogService.getHealthHistory(user.getUserId(), BP, null, 1).items().get(0);
+
+        assertEquals(POST_MEAL, sugar.getSugarType());
+        assertEquals(140, sugar.getSugarValue());
+        assertNull(sugar.getSystolic());
+        assertEquals(120, bp.getSystolic());
+        assertEquals(80, bp.getDiastolic());
+        assertNull(bp.getSugarType());
+        assertNull(bp.getSugarValue());
+
+        // Stored as the enums' fixed codes
+        Object[] codes = (Object[]) entityManager.createNativeQuery(
+                        "select metric_code, sugar_code from health_logs where log_id = :logId")
+                .setParameter("logId", sugar.getLogId())
+                .getSingleResult();
+        assertEquals(SUGAR.code(), ((Number) codes[0]).intValue());
+        assertEquals(POST_MEAL.code(), ((Number) codes[1]).intValue());
+    }
+
+    @Test
+    void shouldRejectValuesThatDoNotBelongToTheMetricWhenValidating() {
+
+        HealthLog bp = new HealthLog(BP, new User("Scanner", "pass", "scanner@gmail.com"));
+        bp.setSystolic(120);
+        bp.setDiastolic(80);
+        bp.setSugarValue(90);
+
+        // Setters keep what they are given; the service decides what may be stored
+        assertEquals(90, bp.getSugarValue());
+        assertEquals("Blood pressure readings must not carry a sugar type or value", HealthLogServiceImpl.validate(bp));
+
+        bp.setSugarValue(null);
+        bp.setSystolic(40_000);
+        assertEquals("Blood pressure values must be at most 32767", HealthLogServiceImpl.validate(bp));
+
+        bp.setSystolic(120);
+        assertNull(HealthLogServiceImpl.validate(bp));
+
+        bp.setMetricType(SUGAR);
+        assertEquals(120, bp.getSystolic());
+    }
+}
@@ -0,0 +1,190 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.BulkIngestionResult;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.ingestion.WriteBehindIngestionQueue;
+import com.project.househealth.repositories.HealthLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HealthLogServiceImplTest {
+
+    private static final Instant MEASURED_AT = Instant.parse("2024-03-01T08:00:00Z");
+
+    @Mock
+    private HealthLogRepository healthLogRepository;
+
+    @Mock
+    private HealthLogRollupService healthLogRollupService;
+
+    @Mock
+    private HealthLogArchive healthLogArchive;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<WriteBehindIngestionQueue> writeBehindQueue;
+
+    @Mock
+    private ThresholdEvaluator thresholdEvaluator;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HealthLogServiceImpl healthLogService;
+
+    private final User user = new User("User", "pass", "user@gmail.com");
+
+    @BeforeEach
+    void setUp() {
+        healthLogService = new HealthLogServiceImpl(healthLogRepository, healthLogRollupService,
+                healthLogArchive, eventPublisher, writeBehindQueue, new RecentReadingKeyFilter(1 << 16, 4, Duration.ofHours(1)),
+                thresholdEvaluator, entityManager, transactionManager);
+    }
+
+    private HealthLog bp(int systolic, int diastolic) {
+        HealthLog healthLog = new HealthLog(BP, user);
+        healthLog.setSystolic(systolic);
+        healthLog.setDiastolic(diastolic);
+        return healthLog;
+    }
+
+    private HealthLog fastingSugar(int value) {
+        HealthLog healthLog = new HealthLog(SUGAR, user);
+        healthLog.setSugarType(FASTING);
+        healthLog.setSugarValue(value);
+        return healthLog;
+    }
+
+    @Test
+    void shouldPersistAllValidReadings() {
+
+        List<HealthLog> readings = List.of(bp(120, 80), fastingSugar(95));
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(readings);
+
+        assertEquals(2, result.acceptedCount());
+        assertFalse(result.hasFailures());
+        verify(entityManager, times(2)).persist(any(HealthLog.class));
+        verify(entityManager).flush();
+    }
+
+    @Test
+    void shouldReportInvalidReadingsWithoutAbortingTheBatch() {
+
+        HealthLog missingDiastolic = new HealthLog(BP, user);
+        missingDiastolic.setSystolic(120);
+
+        HealthLog missingSugarType = new HealthLog(SUGAR, user);
+        missingSugarType.setSugarValue(90);
+
+        List<HealthLog> readings = List.of(bp(120, 80), missingDiastolic, fastingSugar(95), missingSugarType);
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(readings);
+
+        assertEquals(2, result.acceptedCount());
+        assertEquals(2, result.failedCount());
+        assertEquals(1, result.failures().get(0).index());
+        assertEquals(3, result.failures().get(1).index());
+        verify(entityManager, times(2)).persist(any(HealthLog.class));
+    }
+
+    @Test
+    void shouldRewriteAFailedChunkReadingByReadingAndRejectOnlyTheFailingReading() {
+
+        List<HealthLog> readings = new ArrayList<>();
+        for (int i = 0; i < HealthLogServiceImpl.INGESTION_CHUNK_SIZE + 10; i++) {
+            readings.add(bp(120, 80));
+        }
+
+        // The first chunk succeeds and the tail chunk fails; rewritten one by one, only its third reading fails
+        PersistenceException violation = new PersistenceException("constraint violated");
+        doNothing().doThrow(violation).doNothing().doNothing().doThrow(violation).doNothing()
+                .when(entityManager).flush();
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(readings);
+
+        assertEquals(HealthLogServiceImpl.INGESTION_CHUNK_SIZE + 9, result.acceptedCount());
+        assertEquals(1, result.failedCount());
+        assertEquals(HealthLogServiceImpl.INGESTION_CHUNK_SIZE + 2, result.failures().get(0).index());
+        verify(transactionManager, times(2 + 10)).getTransaction(any());
+    }
+
+    @Test
+    void shouldWriteARetriedReadingOnlyOnceWithinABatch() {
+
+        User storedUser = mock(User.class);
+        when(storedUser.getUserId()).thenReturn(7L);
+
+        HealthLog first = new HealthLog(BP, storedUser);
+        first.setSystolic(120);
+        first.setDiastolic(80);
+        first.setReadingKey("phone-1");
+        first.setMeasuredAt(MEASURED_AT);
+        HealthLog retry = new HealthLog(BP, storedUser);
+        retry.setSystolic(120);
+        retry.setDiastolic(80);
+        retry.setReadingKey("phone-1");
+        retry.setMeasuredAt(MEASURED_AT);
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(List.of(first, retry));
+
+        assertEquals(2, result.acceptedCount());
+        assertSame(first, result.created().get(1));
+        verify(entityManager, times(1)).persist(any(HealthLog.class));
+        verify(healthLogRepository, never()).findByUserIdAndReadingKeys(any(), any());
+    }
+
+    @Test
+    void shouldRejectAReadingKeyWithoutAMeasurementTime() {
+
+        HealthLog healthLog = bp(120, 80);
+        healthLog.setReadingKey("phone-1");
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(List.of(healthLog));
+
+        assertEquals(1, result.failedCount());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void shouldRejectReadingKeysThatCannotBeJournaled() {
+
+        HealthLog healthLog = bp(120, 80);
+        healthLog.setReadingKey("phone|1");
+
+        BulkIngestionResult result = healthLogService.createHealthLogs(List.of(healthLog));
+
+        assertEquals(1, result.failedCount());
+        verifyNoInteractions(entityManager);
+    }
+}
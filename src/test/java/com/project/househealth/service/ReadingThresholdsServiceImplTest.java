@@ -0,0 +1,87 @@
+package com.project.househealth.service;
+
+import com.project.househealth.alerting.ThresholdEvaluator;
+import com.project.househealth.archive.HealthLogArchive;
+import com.project.househealth.dto.ThresholdLimits;
+import com.project.househealth.entity.HealthLog;
+import com.project.househealth.entity.User;
+import com.project.househealth.event.ReadingAlertEvent;
+import com.project.househealth.ingestion.RecentReadingKeyFilter;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static com.project.househealth.enums.SugarType.FASTING;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so the evaluator picks up saved thresholds after commit as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+@Import({ReadingThresholdsServiceImpl.class, HealthLogServiceImpl.class, HealthLogRollupServiceImpl.class,
+        RecentReadingKeyFilter.class, ThresholdEvaluator.class, HealthLogArchive.class})
+public class ReadingThresholdsServiceImplTest {
+
+    @Autowired
+    private ReadingThresholdsService readingThresholdsService;
+
+    @Autowired
+    private HealthLogService healthLogService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private HealthLog fastingSugar(User user, int value) {
+        HealthLog healthLog = new HealthLog(SUGAR, user);
+        healthLog.setSugarType(FASTING);
+        healthLog.setSugarValue(value);
+        return healthLog;
+    }
+
+    private List<ReadingAlertEvent> alerts() {
+        return events.stream(ReadingAlertEvent.class).toList();
+    }
+
+    @Test
+    void shouldAlertOnDefaultsUntilTheUserWidensTheRange() {
+
+        User user = userRepository.save(new User("Thresholds", "pass", "thresholds@gmail.com"));
+
+        HealthLog low = healthLogService.createHealthLog(fastingSugar(user, 62));
+
+        assertEquals(1, alerts().size());
+        assertEquals(low.getLogId(), alerts().get(0).logId());
+        assertEquals(ThresholdEvaluator.SUGAR_LOW, alerts().get(0).breaches());
+
+        ThresholdLimits saved = readingThresholdsService.updateThresholds(user.getUserId(),
+                new ThresholdLimits(null, null, null, null, 60, null, null, null));
+        events.clear();
+
+        healthLogService.createHealthLogs(List.of(fastingSugar(user, 62)));
+
+        assertEquals(60, saved.fastingSugarLow());
+        assertEquals(ThresholdLimits.DEFAULTS.fastingSugarHigh(), saved.fastingSugarHigh());
+        assertTrue(alerts().isEmpty());
+    }
+
+    @Test
+    void shouldRejectAnInvertedRange() {
+
+        User user = userRepository.save(new User("Inverted", "pass", "thresholds-inverted@gmail.com"));
+
+        assertThrows(IllegalArgumentException.class, () -> readingThresholdsService.updateThresholds(
+                user.getUserId(), new ThresholdLimits(150, 120, null, null, null, null, null, null)));
+    }
+}
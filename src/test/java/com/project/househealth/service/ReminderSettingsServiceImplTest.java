@@ -0,0 +1,176 @@
+package com.project.househealth.service;
+
+import com.project.househealth.dto.ReminderConfig;
+import com.project.househealth.dto.ReminderProfile;
+import com.project.househealth.entity.ReminderSettings;
+import com.project.househealth.entity.User;
+import com.project.househealth.enums.MetricType;
+import com.project.househealth.event.ReminderSettingsChangedEvent;
+import com.project.househealth.reminder.ReminderProfileCache;
+import com.project.househealth.repositories.ReminderSettingsRepository;
+import com.project.househealth.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.project.househealth.enums.FrequencyType.DAILY;
+import static com.project.househealth.enums.FrequencyType.WEEKLY;
+import static com.project.househealth.enums.MetricType.BP;
+import static com.project.househealth.enums.MetricType.SUGAR;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional, so cached profiles are dropped after commit as in production
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReminderSettingsServiceImpl.class, ReminderProfileCache.class,
+        ReminderSettingsServiceImplTest.RaceOnChange.class})
+public class ReminderSettingsServiceImplTest {
+
+    // Runs a concurrent change once, while an edit is between its read and its flush
+    static class RaceOnChange {
+
+        private final AtomicReference<Runnable> pending = new AtomicReference<>();
+
+        void arm(Runnable change) {
+            pending.set(change);
+        }
+
+        @EventListener
+        public void onChange(ReminderSettingsChangedEvent event) {
+            Runnable change = pending.getAndSet(null);
+            if (change != null) {
+                change.run();
+            }
+        }
+    }
+
+    @Autowired
+    private ReminderSettingsService reminderSettingsService;
+
+    @Autowired
+    private ReminderSettingsRepository reminderSettingsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RaceOnChange raceOnChange;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void deleteReminders() {
+        reminderSettingsRepository.deleteAllInBatch();
+    }
+
+    private ReminderSettings create(User user, MetricType metricType) {
+        return reminderSettingsService.createReminderSettings(new ReminderSettings(metricType, DAILY, user));
+    }
+
+    @Test
+    void shouldLoadEveryReminderOfEveryRequestedUser() {
+
+        User both = userRepository.save(new User("Both", "pass", "both-profile@gmail.com"));
+        User sugarOnly = userRepository.save(new User("Sugar", "pass", "sugar-profile@gmail.com"));
+        User none = userRepository.save(new User("None", "pass", "none-profile@gmail.com"));
+        ReminderSettings sugar = create(both, SUGAR);
+        ReminderSettings bp = create(both, BP);
+        create(sugarOnly, SUGAR);
+
+        assertEquals(2, reminderSettingsRepository.findByUser(both).size());
+
+        Map<Long, ReminderProfile> profiles = reminderSettingsService.getReminderProfiles(
+                List.of(none.getUserId(), both.getUserId(), sugarOnly.getUserId()));
+
+        assertEquals(List.of(none.getUserId(), both.getUserId(), sugarOnly.getUserId()),
+                List.copyOf(profiles.keySet()));
+        assertTrue(profiles.get(none.getUserId()).reminders().isEmpty());
+        assertEquals(List.of(bp.getReminderId(), sugar.getReminderId()),
+                profiles.get(both.getUserId()).reminders().stream().map(ReminderConfig::reminderId).toList());
+        assertEquals(List.of(SUGAR), profiles.get(sugarOnly.getUserId()).reminders().stream()
+                .map(ReminderConfig::metricType).toList());
+    }
+
+    @Test
+    void shouldServeCachedProfilesUntilAnEditCommits() {
+
+        User user = userRepository.save(new User("Cached", "pass", "cached-profile@gmail.com"));
+        ReminderSettings bp = create(user, BP);
+        ReminderSettings sugar = create(user, SUGAR);
+
+        assertEquals(DAILY, reminderSettingsService.getReminderProfile(user.getUserId())
+                .reminder(SUGAR).orElseThrow().frequencyType());
+
+        // Written behind the service's back, so the cached profile does not see it
+        reminderSettingsRepository.deleteAllByIdInBatch(List.of(bp.getReminderId()));
+        assertTrue(reminderSettingsService.getReminderProfile(user.getUserId()).reminder(BP).isPresent());
+
+        reminderSettingsService.updateReminderSettings(sugar.getReminderId(), WEEKLY, 2, false);
+
+        ReminderProfile profile = reminderSettingsService.getReminderProfile(user.getUserId());
+        assertTrue(profile.reminder(BP).isEmpty());
+        ReminderConfig updated = profile.reminder(SUGAR).orElseThrow();
+        assertEquals(WEEKLY, updated.frequencyType());
+        assertEquals(2, updated.frequencyInterval());
+        assertFalse(updated.notificationsEnabled());
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedProfile() {
+
+        ReminderProfileCache cache = new ReminderProfileCache(reminderSettingsRepository, 2, Duration.ofHours(1));
+        User first = userRepository.save(new User("First", "pass", "first-profile@gmail.com"));
+        User second = userRepository.save(new User("Second", "pass", "second-profile@gmail.com"));
+        User third = userRepository.save(new User("Third", "pass", "third-profile@gmail.com"));
+        create(first, BP);
+        create(second, BP);
+
+        cache.get(first.getUserId());
+        cache.get(second.getUserId());
+        cache.get(first.getUserId());
+        cache.get(third.getUserId());
+        reminderSettingsRepository.deleteAllInBatch();
+
+        // The second user went out to make room, the first was used more recently and stayed
+        assertEquals(1, cache.get(first.getUserId()).reminders().size());
+        assertTrue(cache.get(second.getUserId()).reminders().isEmpty());
+    }
+
+    @Test
+    void shouldApplyAnEditAgainWhenTheSchedulerTriggeredTheReminderMeanwhile() {
+
+        User user = userRepository.save(new User("Raced", "pass", "raced-profile@gmail.com"));
+        Long reminderId = create(user, BP).getReminderId();
+        Instant triggeredAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        // The scheduler marks the reminder after the edit has read it but before it flushes
+        TransactionTemplate scheduler = new TransactionTemplate(transactionManager);
+        scheduler.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        raceOnChange.arm(() -> scheduler.executeWithoutResult(status ->
+                reminderSettingsRepository.markTriggered(List.of(reminderId), DAILY, 1,
+                        triggeredAt.plusSeconds(60), triggeredAt, DAILY.next(triggeredAt, 1))));
+
+        reminderSettingsService.updateReminderSettings(reminderId, WEEKLY, 1, true);
+
+        ReminderSettings stored = reminderSettingsRepository.findById(reminderId).orElseThrow();
+        assertEquals(WEEKLY, stored.getFrequencyType());
+        assertEquals(triggeredAt, stored.getLastTriggeredAt());
+        assertEquals(WEEKLY.next(triggeredAt, 1), stored.getNextDueAt());
+    }
+}